@@ -21,6 +21,9 @@ import twitter4j.auth.AsyncOAuthSupport;
 import twitter4j.auth.OAuth2Support;
 import twitter4j.auth.OAuthSupport;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author Yusuke Yamamoto - yusuke at mac.com
  * @since Twitter4J 2.2.0
@@ -53,6 +56,62 @@ public interface AsyncTwitter extends java.io.Serializable,
      */
     void addListener(TwitterListener listener);
 
+    /**
+     * Makes the call on the dispatcher threads, timing out after <code>async.timeout</code> milliseconds unless it is 0.<br>
+     * The call is made in the {@link RequestPriority} lane of the current thread.
+     *
+     * @param call call to make
+     * @param <T>  result type
+     * @return future of the result
+     * @since Twitter4J 4.0.7
+     */
+    <T> TwitterFuture<T> submit(TwitterCall<T> call);
+
+    /**
+     * Makes the call on the dispatcher threads.
+     *
+     * @param call    call to make
+     * @param timeout time after which the call fails, or 0 to wait as long as it takes
+     * @param unit    unit of the timeout
+     * @param <T>     result type
+     * @return future of the result
+     * @since Twitter4J 4.0.7
+     */
+    <T> TwitterFuture<T> submit(TwitterCall<T> call, long timeout, TimeUnit unit);
+
+    /**
+     * Makes the call on the given executor.
+     *
+     * @param call     call to make
+     * @param executor executor making the call, or null for the dispatcher threads
+     * @param timeout  time after which the call fails, or 0 to wait as long as it takes
+     * @param unit     unit of the timeout
+     * @param <T>      result type
+     * @return future of the result
+     * @since Twitter4J 4.0.7
+     */
+    <T> TwitterFuture<T> submit(TwitterCall<T> call, Executor executor, long timeout, TimeUnit unit);
+
+    /**
+     * Returns the user, looked up along with the other users asked for within <code>async.batchWindow</code> milliseconds
+     * with as few calls to users/lookup as possible, 100 users per call.
+     *
+     * @param userId user id
+     * @return future of the user, which fails with status code 404 if users/lookup doesn't return the user
+     * @since Twitter4J 4.0.7
+     */
+    TwitterFuture<User> lookupUser(long userId);
+
+    /**
+     * Returns the status, looked up along with the other statuses asked for within <code>async.batchWindow</code> milliseconds
+     * with as few calls to statuses/lookup as possible, 100 statuses per call.
+     *
+     * @param statusId status id
+     * @return future of the status, which fails with status code 404 if statuses/lookup doesn't return the status
+     * @since Twitter4J 4.0.7
+     */
+    TwitterFuture<Status> lookupStatus(long statusId);
+
     /**
      * Shuts down internal dispatcher thread shared across all AsyncTwitter instances.<br>
      *
@@ -29,6 +29,13 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import static twitter4j.TwitterMethod.*;
 
@@ -2685,6 +2692,12 @@ class AsyncTwitterImpl extends TwitterBaseImpl implements AsyncTwitter {
     }
 
     private static transient volatile Dispatcher dispatcher;
+    // runs the actions of futures, so that they don't hold up the dispatcher threads making calls
+    private static transient volatile Dispatcher callbackDispatcher;
+    private static transient volatile ScheduledExecutorService timer;
+    // coalesce lookups of single users and statuses made with this instance
+    private transient LookupBatcher<User> userBatcher;
+    private transient LookupBatcher<Status> statusBatcher;
 
     @Override
     public void shutdown() {
@@ -2693,7 +2706,175 @@ class AsyncTwitterImpl extends TwitterBaseImpl implements AsyncTwitter {
                 dispatcher.shutdown();
                 dispatcher = null;
             }
+            if (callbackDispatcher != null) {
+                callbackDispatcher.shutdown();
+                callbackDispatcher = null;
+            }
+            if (timer != null) {
+                timer.shutdownNow();
+                timer = null;
+            }
+        }
+    }
+
+    @Override
+    public <T> TwitterFuture<T> submit(TwitterCall<T> call) {
+        return submit(call, null, conf.getAsyncTimeout(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public <T> TwitterFuture<T> submit(TwitterCall<T> call, long timeout, TimeUnit unit) {
+        return submit(call, null, timeout, unit);
+    }
+
+    @Override
+    public <T> TwitterFuture<T> submit(final TwitterCall<T> call, Executor executor, long timeout, TimeUnit unit) {
+        final TwitterFuture<T> future = new TwitterFuture<T>(getCallbackDispatcher());
+        RequestPriority priority = RequestPriority.current();
+        // the lane is kept by the thread, make the call in the lane of the caller
+        final Twitter target = priority == RequestPriority.NORMAL ? twitter : priority.view(twitter);
+        Runnable task = new Discardable() {
+            @Override
+            public void onDiscard() {
+                future.fail(new TwitterException("The call has been discarded by the dispatcher."
+                        , new RejectedExecutionException()));
+            }
+
+            @Override
+            public void run() {
+                if (!future.start(Thread.currentThread())) {
+                    // cancelled or timed out while queued
+                    return;
+                }
+                try {
+                    future.complete(call.call(target));
+                } catch (Throwable t) {
+                    future.fail(TwitterFuture.wrap(t));
+                } finally {
+                    future.finish();
+                }
+            }
+        };
+        try {
+            if (executor != null) {
+                executor.execute(task);
+            } else {
+                getDispatcher().invokeLater(task);
+            }
+        } catch (RejectedExecutionException e) {
+            future.fail(new TwitterException("The call has been rejected.", e));
+            return future;
+        }
+        if (timeout > 0) {
+            final long millis = unit.toMillis(timeout);
+            final ScheduledFuture<?> timeoutTask = getTimer().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    future.timeout(millis);
+                }
+            }, millis, TimeUnit.MILLISECONDS);
+            future.whenDone(new Runnable() {
+                @Override
+                public void run() {
+                    timeoutTask.cancel(false);
+                }
+            });
+        }
+        return future;
+    }
+
+    @Override
+    public TwitterFuture<User> lookupUser(long userId) {
+        return getUserBatcher().get(userId);
+    }
+
+    @Override
+    public TwitterFuture<Status> lookupStatus(long statusId) {
+        return getStatusBatcher().get(statusId);
+    }
+
+    private synchronized LookupBatcher<User> getUserBatcher() {
+        if (userBatcher == null) {
+            userBatcher = new LookupBatcher<User>(this, conf.getAsyncBatchWindow(), "User") {
+                @Override
+                ResponseList<User> lookup(Twitter twitter, long[] ids) throws TwitterException {
+                    return twitter.lookupUsers(ids);
+                }
+
+                @Override
+                long idOf(User user) {
+                    return user.getId();
+                }
+
+                @Override
+                Dispatcher getCallbackDispatcher() {
+                    return AsyncTwitterImpl.this.getCallbackDispatcher();
+                }
+
+                @Override
+                ScheduledExecutorService getTimer() {
+                    return AsyncTwitterImpl.this.getTimer();
+                }
+            };
+        }
+        return userBatcher;
+    }
+
+    private synchronized LookupBatcher<Status> getStatusBatcher() {
+        if (statusBatcher == null) {
+            statusBatcher = new LookupBatcher<Status>(this, conf.getAsyncBatchWindow(), "Status") {
+                @Override
+                ResponseList<Status> lookup(Twitter twitter, long[] ids) throws TwitterException {
+                    return twitter.lookup(ids);
+                }
+
+                @Override
+                long idOf(Status status) {
+                    return status.getId();
+                }
+
+                @Override
+                Dispatcher getCallbackDispatcher() {
+                    return AsyncTwitterImpl.this.getCallbackDispatcher();
+                }
+
+                @Override
+                ScheduledExecutorService getTimer() {
+                    return AsyncTwitterImpl.this.getTimer();
+                }
+            };
+        }
+        return statusBatcher;
+    }
+
+    private Dispatcher getCallbackDispatcher() {
+        if (null == AsyncTwitterImpl.callbackDispatcher) {
+            synchronized (AsyncTwitterImpl.class) {
+                if (null == AsyncTwitterImpl.callbackDispatcher) {
+                    AsyncTwitterImpl.callbackDispatcher = new DispatcherImpl(conf, "Twitter4J Async Callback"
+                            , Math.max(1, conf.getAsyncNumCallbackThreads()), -1, true);
+                }
+            }
+        }
+        return AsyncTwitterImpl.callbackDispatcher;
+    }
+
+    private ScheduledExecutorService getTimer() {
+        if (null == AsyncTwitterImpl.timer) {
+            synchronized (AsyncTwitterImpl.class) {
+                if (null == AsyncTwitterImpl.timer) {
+                    AsyncTwitterImpl.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "Twitter4J Async Timer");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
         }
+        return AsyncTwitterImpl.timer;
     }
 
     private Dispatcher getDispatcher() {
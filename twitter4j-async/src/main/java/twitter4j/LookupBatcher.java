@@ -0,0 +1,205 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.util.function.Consumer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces lookups of single items made within a short window into calls to a lookup endpoint taking up to 100 ids,
+ * e.g. users/lookup for showUser(). Each caller receives its own item, or a {@link TwitterException} with status code 404
+ * when the endpoint doesn't return it. A batch is sent once it has 100 ids, or when the window of its first lookup has passed.<br>
+ * Lookups are batched by the {@link RequestPriority} lane of the caller, and each batch is called in its lane.
+ *
+ * @param <T> item type
+ * @since Twitter4J 4.0.7
+ */
+abstract class LookupBatcher<T> {
+    // the lookup endpoints take up to 100 ids per call
+    static final int MAX_BATCH_SIZE = 100;
+
+    private final AsyncTwitter async;
+    private final long window;
+    private final String kind;
+    // by lane
+    private final List<Batch> batches = new ArrayList<Batch>();
+
+    /**
+     * @param async  instance making the lookup calls
+     * @param window time a lookup waits for others in milliseconds
+     * @param kind   name of the items in messages, e.g. "User"
+     */
+    LookupBatcher(AsyncTwitter async, long window, String kind) {
+        this.async = async;
+        this.window = window;
+        this.kind = kind;
+        for (RequestPriority priority : RequestPriority.values()) {
+            batches.add(new Batch(priority));
+        }
+    }
+
+    /**
+     * @param twitter instance to make the call with
+     * @param ids     ids to look up, at most 100
+     * @return items found
+     * @throws TwitterException when the call fails
+     */
+    abstract ResponseList<T> lookup(Twitter twitter, long[] ids) throws TwitterException;
+
+    abstract long idOf(T item);
+
+    /**
+     * Looked up on each lookup, as the dispatcher is replaced once {@link AsyncTwitter#shutdown()} has been called.
+     *
+     * @return callback threads of the futures
+     */
+    abstract Dispatcher getCallbackDispatcher();
+
+    /**
+     * Looked up on each batch, as the timer is replaced once {@link AsyncTwitter#shutdown()} has been called.
+     *
+     * @return timer flushing batches
+     */
+    abstract ScheduledExecutorService getTimer();
+
+    TwitterFuture<T> get(long id) {
+        TwitterFuture<T> future = new TwitterFuture<T>(getCallbackDispatcher());
+        final Batch lane = batches.get(RequestPriority.current().ordinal());
+        boolean full;
+        boolean schedule = false;
+        synchronized (this) {
+            List<TwitterFuture<T>> waiting = lane.pending.get(id);
+            if (waiting == null) {
+                waiting = new ArrayList<TwitterFuture<T>>(1);
+                lane.pending.put(id, waiting);
+            }
+            waiting.add(future);
+            full = lane.pending.size() >= MAX_BATCH_SIZE;
+            if (!full && !lane.scheduled) {
+                lane.scheduled = schedule = true;
+            }
+        }
+        if (full) {
+            flush(lane);
+        } else if (schedule) {
+            try {
+                getTimer().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(lane);
+                    }
+                }, window, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // the timer has been shut down meanwhile, don't wait for a flush which will never come
+                flush(lane);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * @return number of distinct ids waiting for the next batch of each lane
+     */
+    synchronized int getPendingCount() {
+        int count = 0;
+        for (Batch lane : batches) {
+            count += lane.pending.size();
+        }
+        return count;
+    }
+
+    /**
+     * Sends the batches of all lanes now.
+     */
+    void flush() {
+        for (Batch lane : batches) {
+            flush(lane);
+        }
+    }
+
+    private void flush(Batch lane) {
+        final Map<Long, List<TwitterFuture<T>>> batch;
+        synchronized (this) {
+            lane.scheduled = false;
+            if (lane.pending.isEmpty()) {
+                return;
+            }
+            batch = lane.pending;
+            lane.pending = new LinkedHashMap<Long, List<TwitterFuture<T>>>();
+        }
+        final long[] ids = new long[batch.size()];
+        int i = 0;
+        for (Long id : batch.keySet()) {
+            ids[i++] = id;
+        }
+        // flushed by the timer or by the caller filling the batch, call in the lane of the batch
+        lane.priority.view(async).submit(new TwitterCall<ResponseList<T>>() {
+            @Override
+            public ResponseList<T> call(Twitter twitter) throws TwitterException {
+                return lookup(twitter, ids);
+            }
+        }).onSuccess(new Consumer<ResponseList<T>>() {
+            @Override
+            public void accept(ResponseList<T> items) {
+                for (T item : items) {
+                    List<TwitterFuture<T>> waiting = batch.remove(idOf(item));
+                    if (waiting != null) {
+                        for (TwitterFuture<T> future : waiting) {
+                            future.complete(item);
+                        }
+                    }
+                }
+                for (Map.Entry<Long, List<TwitterFuture<T>>> missing : batch.entrySet()) {
+                    TwitterException notFound = new TwitterException(kind + " " + missing.getKey() + " has not been found."
+                            , null, HttpResponseCode.NOT_FOUND);
+                    for (TwitterFuture<T> future : missing.getValue()) {
+                        future.fail(notFound);
+                    }
+                }
+            }
+        }).onFailure(new Consumer<TwitterException>() {
+            @Override
+            public void accept(TwitterException e) {
+                for (List<TwitterFuture<T>> waiting : batch.values()) {
+                    for (TwitterFuture<T> future : waiting) {
+                        future.fail(e);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Lookups of a lane waiting for the next batch.
+     */
+    private final class Batch {
+        private final RequestPriority priority;
+        // guarded by LookupBatcher.this
+        private Map<Long, List<TwitterFuture<T>>> pending = new LinkedHashMap<Long, List<TwitterFuture<T>>>();
+        private boolean scheduled = false;
+
+        Batch(RequestPriority priority) {
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+/**
+ * A call to any of the methods of {@link Twitter}, to be made asynchronously with {@link AsyncTwitter#submit(TwitterCall)}:
+ * <pre>
+ * TwitterFuture&lt;User&gt; user = async.submit(new TwitterCall&lt;User&gt;() {
+ *     public User call(Twitter twitter) throws TwitterException {
+ *         return twitter.showUser(id);
+ *     }
+ * });
+ * </pre>
+ *
+ * @param <T> result type
+ * @since Twitter4J 4.0.7
+ */
+public interface TwitterCall<T> {
+    /**
+     * @param twitter instance to make the call with
+     * @return result
+     * @throws TwitterException when the call fails
+     */
+    T call(Twitter twitter) throws TwitterException;
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.util.function.Consumer;
+import twitter4j.util.function.Function;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result of a call made with {@link AsyncTwitter#submit(TwitterCall)}.<br>
+ * Actions added with {@link #onSuccess(Consumer)}, {@link #onFailure(Consumer)}, {@link #thenApply(Function)} and
+ * {@link #thenCompose(Function)} run on the callback threads, <code>async.numCallbackThreads</code>, so that they never hold up the
+ * threads making the calls. Calls which time out or are cancelled fail with a {@link TwitterException}, and the thread making them
+ * is interrupted.
+ *
+ * @param <T> result type
+ * @since Twitter4J 4.0.7
+ */
+public final class TwitterFuture<T> implements Future<T> {
+    private static final Logger logger = Logger.getLogger(TwitterFuture.class);
+    private static final int PENDING = 0;
+    private static final int SUCCEEDED = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+
+    private final Dispatcher callbacks;
+    // guarded by this
+    private int state = PENDING;
+    private T result;
+    private TwitterException failure;
+    private Thread runner;
+    private boolean interrupted = false;
+    private List<Runnable> actions = new ArrayList<Runnable>(2);
+
+    TwitterFuture(Dispatcher callbacks) {
+        this.callbacks = callbacks;
+    }
+
+    /**
+     * @param thread thread about to make the call
+     * @return false if the call is not to be made, as it has been cancelled or has timed out in the meantime
+     */
+    synchronized boolean start(Thread thread) {
+        if (state != PENDING) {
+            return false;
+        }
+        runner = thread;
+        return true;
+    }
+
+    /**
+     * Called by the thread which made the call once it is done.
+     */
+    void finish() {
+        synchronized (this) {
+            runner = null;
+            if (!interrupted) {
+                return;
+            }
+        }
+        // the call may have been interrupted after it has been made, don't leave it to the next task on the thread
+        Thread.interrupted();
+    }
+
+    boolean complete(T value) {
+        return settle(SUCCEEDED, value, null, false);
+    }
+
+    boolean fail(TwitterException e) {
+        return settle(FAILED, null, e, false);
+    }
+
+    /**
+     * @param timeout time the call has been given in milliseconds
+     * @return true if the call has been pending
+     */
+    boolean timeout(long timeout) {
+        return settle(FAILED, null, new TwitterException("The call has timed out after " + timeout + " ms."
+                , new TimeoutException()), true);
+    }
+
+    private boolean settle(int state, T value, TwitterException e, boolean interrupt) {
+        List<Runnable> pending;
+        synchronized (this) {
+            if (this.state != PENDING) {
+                return false;
+            }
+            this.state = state;
+            this.result = value;
+            this.failure = e;
+            if (interrupt && runner != null) {
+                runner.interrupt();
+                interrupted = true;
+            }
+            pending = actions;
+            actions = null;
+            notifyAll();
+        }
+        for (Runnable action : pending) {
+            dispatch(action);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return settle(CANCELLED, null, new TwitterException("The call has been cancelled.", new CancellationException())
+                , mayInterruptIfRunning);
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return state != PENDING;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (state == PENDING) {
+            wait();
+        }
+        return report();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (state == PENDING) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+        return report();
+    }
+
+    private T report() throws ExecutionException {
+        if (state == CANCELLED) {
+            throw new CancellationException();
+        } else if (state == FAILED) {
+            throw new ExecutionException(failure);
+        }
+        return result;
+    }
+
+    /**
+     * Waits for the call to complete.
+     *
+     * @return result
+     * @throws TwitterException when the call fails, times out or is cancelled, or the current thread is interrupted while waiting
+     */
+    public T join() throws TwitterException {
+        synchronized (this) {
+            try {
+                while (state == PENDING) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TwitterException("Interrupted while waiting for the call to complete.", e);
+            }
+            if (state != SUCCEEDED) {
+                throw failure;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * @param action action to run with the result once the call succeeds
+     * @return this future
+     */
+    public TwitterFuture<T> onSuccess(final Consumer<? super T> action) {
+        whenDone(new Runnable() {
+            @Override
+            public void run() {
+                if (state == SUCCEEDED) {
+                    action.accept(result);
+                }
+            }
+        });
+        return this;
+    }
+
+    /**
+     * @param action action to run with the exception once the call fails, times out or is cancelled
+     * @return this future
+     */
+    public TwitterFuture<T> onFailure(final Consumer<? super TwitterException> action) {
+        whenDone(new Runnable() {
+            @Override
+            public void run() {
+                if (state != SUCCEEDED) {
+                    action.accept(failure);
+                }
+            }
+        });
+        return this;
+    }
+
+    /**
+     * @param function function transforming the result
+     * @param <U>      type of the transformed result
+     * @return future of the transformed result, which fails if this call fails or the function throws
+     */
+    public <U> TwitterFuture<U> thenApply(final Function<? super T, ? extends U> function) {
+        final TwitterFuture<U> next = new TwitterFuture<U>(callbacks);
+        whenDone(new Runnable() {
+            @Override
+            public void run() {
+                if (state != SUCCEEDED) {
+                    next.fail(failure);
+                    return;
+                }
+                try {
+                    next.complete(function.apply(result));
+                } catch (Throwable t) {
+                    next.fail(wrap(t));
+                }
+            }
+        });
+        return next;
+    }
+
+    /**
+     * @param function function making a further call with the result, e.g. with {@link AsyncTwitter#submit(TwitterCall)}
+     * @param <U>      result type of the further call
+     * @return future of the further call, which fails if this call fails or the function throws
+     */
+    public <U> TwitterFuture<U> thenCompose(final Function<? super T, TwitterFuture<U>> function) {
+        final TwitterFuture<U> next = new TwitterFuture<U>(callbacks);
+        whenDone(new Runnable() {
+            @Override
+            public void run() {
+                if (state != SUCCEEDED) {
+                    next.fail(failure);
+                    return;
+                }
+                TwitterFuture<U> further;
+                try {
+                    further = function.apply(result);
+                } catch (Throwable t) {
+                    next.fail(wrap(t));
+                    return;
+                }
+                further.onSuccess(new Consumer<U>() {
+                    @Override
+                    public void accept(U value) {
+                        next.complete(value);
+                    }
+                }).onFailure(new Consumer<TwitterException>() {
+                    @Override
+                    public void accept(TwitterException e) {
+                        next.fail(e);
+                    }
+                });
+            }
+        });
+        return next;
+    }
+
+    /**
+     * @param t exception or error thrown by a call or a function
+     * @return failure of the future, never leaving it pending
+     */
+    static TwitterException wrap(Throwable t) {
+        if (t instanceof TwitterException) {
+            return (TwitterException) t;
+        }
+        return t instanceof Exception ? new TwitterException((Exception) t) : new TwitterException(String.valueOf(t), t);
+    }
+
+    /**
+     * @param action action to run on the callback threads once the call is done, however it ends
+     */
+    void whenDone(Runnable action) {
+        synchronized (this) {
+            if (actions != null) {
+                actions.add(action);
+                return;
+            }
+        }
+        dispatch(action);
+    }
+
+    private void dispatch(final Runnable action) {
+        Runnable safe = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    logger.warn("Exception in a callback: ", String.valueOf(e));
+                }
+            }
+        };
+        try {
+            callbacks.invokeLater(safe);
+        } catch (RejectedExecutionException e) {
+            // the callback threads have been shut down
+            safe.run();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TwitterFuture{" +
+                "state=" + (state == PENDING ? "pending" : state == SUCCEEDED ? "succeeded" : state == FAILED ? "failed" : "cancelled") +
+                '}';
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.ConfigurationBuilder;
+import twitter4j.conf.ConfigurationContext;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class LookupBatcherTest extends TestCase {
+    private AsyncTwitter async;
+    private Dispatcher callbacks;
+    private ScheduledExecutorService timer;
+    private final List<long[]> calls = Collections.synchronizedList(new ArrayList<long[]>());
+
+    public LookupBatcherTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        async = new AsyncTwitterFactory(new ConfigurationBuilder().setAsyncNumThreads(2).build()).getInstance();
+        callbacks = new DispatcherImpl(ConfigurationContext.getInstance(), "Twitter4J Lookup Callback", 1, 100);
+        timer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        timer.shutdownNow();
+        callbacks.shutdown();
+        super.tearDown();
+    }
+
+    private abstract class ItemBatcher extends LookupBatcher<Long> {
+        ItemBatcher(long window) {
+            super(async, window, "Item");
+        }
+
+        @Override
+        long idOf(Long item) {
+            return item;
+        }
+
+        @Override
+        Dispatcher getCallbackDispatcher() {
+            return callbacks;
+        }
+
+        @Override
+        ScheduledExecutorService getTimer() {
+            return timer;
+        }
+    }
+
+    private LookupBatcher<Long> batcher(long window) {
+        return new ItemBatcher(window) {
+            @Override
+            ResponseList<Long> lookup(Twitter twitter, long[] ids) {
+                calls.add(ids);
+                // ids from 1000 on don't exist
+                ResponseList<Long> found = new ResponseListImpl<Long>(null, 0);
+                for (int i = ids.length - 1; i >= 0; i--) {
+                    if (ids[i] < 1000) {
+                        found.add(ids[i]);
+                    }
+                }
+                return found;
+            }
+        };
+    }
+
+    public void testCoalesce() throws Exception {
+        LookupBatcher<Long> batcher = batcher(100);
+        TwitterFuture<Long> first = batcher.get(1);
+        TwitterFuture<Long> second = batcher.get(2);
+        TwitterFuture<Long> again = batcher.get(1);
+        TwitterFuture<Long> missing = batcher.get(1000);
+        assertEquals(3, batcher.getPendingCount());
+
+        assertEquals(Long.valueOf(1), first.join());
+        assertEquals(Long.valueOf(2), second.join());
+        assertEquals(Long.valueOf(1), again.join());
+        try {
+            missing.join();
+            fail();
+        } catch (TwitterException expected) {
+            assertEquals(404, expected.getStatusCode());
+        }
+        assertEquals(1, calls.size());
+        assertEquals(3, calls.get(0).length);
+        assertEquals(0, batcher.getPendingCount());
+    }
+
+    public void testBatchedByLane() throws Exception {
+        final List<Boolean> views = Collections.synchronizedList(new ArrayList<Boolean>());
+        final LookupBatcher<Long> batcher = new ItemBatcher(100) {
+            @Override
+            ResponseList<Long> lookup(Twitter twitter, long[] ids) {
+                calls.add(ids);
+                // calls of other lanes than NORMAL are made through a view
+                views.add(Proxy.isProxyClass(twitter.getClass()));
+                ResponseList<Long> found = new ResponseListImpl<Long>(null, 0);
+                for (long id : ids) {
+                    found.add(id);
+                }
+                return found;
+            }
+        };
+        Callable<TwitterFuture<Long>> lookup = new Callable<TwitterFuture<Long>>() {
+            @Override
+            public TwitterFuture<Long> call() {
+                return batcher.get(1);
+            }
+        };
+        TwitterFuture<Long> low = RequestPriority.LOW.view(lookup).call();
+        TwitterFuture<Long> normal = lookup.call();
+        assertEquals(2, batcher.getPendingCount());
+        assertEquals(Long.valueOf(1), low.join());
+        assertEquals(Long.valueOf(1), normal.join());
+        assertEquals(2, calls.size());
+        assertEquals(1, calls.get(0).length);
+        assertTrue(views.contains(Boolean.TRUE));
+        assertTrue(views.contains(Boolean.FALSE));
+    }
+
+    public void testBatchSize() throws Exception {
+        // batches are sent as soon as they are full
+        LookupBatcher<Long> batcher = batcher(60000);
+        List<TwitterFuture<Long>> futures = new ArrayList<TwitterFuture<Long>>();
+        for (long id = 0; id < 250; id++) {
+            futures.add(batcher.get(id));
+        }
+        for (int i = 0; i < 200; i++) {
+            assertEquals(Long.valueOf(i), futures.get(i).join());
+        }
+        assertEquals(2, calls.size());
+        assertEquals(LookupBatcher.MAX_BATCH_SIZE, calls.get(0).length);
+        assertEquals(LookupBatcher.MAX_BATCH_SIZE, calls.get(1).length);
+        assertEquals(50, batcher.getPendingCount());
+        batcher.flush();
+        assertEquals(Long.valueOf(249), futures.get(249).join());
+        assertEquals(3, calls.size());
+    }
+
+    public void testTimerShutDown() throws Exception {
+        LookupBatcher<Long> batcher = batcher(60000);
+        timer.shutdownNow();
+        // sent right away instead of waiting for 100 ids
+        assertEquals(Long.valueOf(1), batcher.get(1).join());
+        assertEquals(0, batcher.getPendingCount());
+        // a new timer is picked up by later lookups
+        timer = Executors.newSingleThreadScheduledExecutor();
+        batcher.get(2);
+        assertEquals(1, batcher.getPendingCount());
+        batcher.flush();
+    }
+
+    public void testFailure() throws Exception {
+        LookupBatcher<Long> batcher = new ItemBatcher(10) {
+            @Override
+            ResponseList<Long> lookup(Twitter twitter, long[] ids) throws TwitterException {
+                throw new TwitterException("failed");
+            }
+        };
+        TwitterFuture<Long> first = batcher.get(1);
+        TwitterFuture<Long> second = batcher.get(2);
+        for (TwitterFuture<Long> future : new TwitterFuture[]{first, second}) {
+            try {
+                future.join();
+                fail();
+            } catch (TwitterException expected) {
+                assertEquals("failed", expected.getMessage());
+            }
+        }
+    }
+}
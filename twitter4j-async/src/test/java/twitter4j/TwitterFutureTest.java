@@ -0,0 +1,208 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.ConfigurationBuilder;
+import twitter4j.util.function.Consumer;
+import twitter4j.util.function.Function;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TwitterFutureTest extends TestCase {
+    private AsyncTwitter async;
+
+    public TwitterFutureTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        async = new AsyncTwitterFactory(new ConfigurationBuilder().setAsyncNumThreads(2).build()).getInstance();
+    }
+
+    private static <T> TwitterCall<T> returning(final T value, final long delay) {
+        return new TwitterCall<T>() {
+            @Override
+            public T call(Twitter twitter) throws TwitterException {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    throw new TwitterException("interrupted", e);
+                }
+                return value;
+            }
+        };
+    }
+
+    public void testComplete() throws Exception {
+        TwitterFuture<String> future = async.submit(returning("result", 0));
+        assertEquals("result", future.join());
+        assertEquals("result", future.get());
+        assertTrue(future.isDone());
+        assertFalse(future.isCancelled());
+    }
+
+    public void testFailure() throws Exception {
+        TwitterFuture<String> future = async.submit(new TwitterCall<String>() {
+            @Override
+            public String call(Twitter twitter) throws TwitterException {
+                throw new TwitterException("failed");
+            }
+        });
+        final AtomicReference<TwitterException> failure = new AtomicReference<TwitterException>();
+        final CountDownLatch failed = new CountDownLatch(1);
+        future.onFailure(new Consumer<TwitterException>() {
+            @Override
+            public void accept(TwitterException e) {
+                failure.set(e);
+                failed.countDown();
+            }
+        });
+        try {
+            future.join();
+            fail();
+        } catch (TwitterException expected) {
+            assertEquals("failed", expected.getMessage());
+        }
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException expected) {
+            assertEquals("failed", expected.getCause().getMessage());
+        }
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertEquals("failed", failure.get().getMessage());
+    }
+
+    public void testErrorFailsTheFuture() throws Exception {
+        TwitterFuture<String> future = async.submit(new TwitterCall<String>() {
+            @Override
+            public String call(Twitter twitter) {
+                throw new AssertionError("call");
+            }
+        });
+        try {
+            future.join();
+            fail();
+        } catch (TwitterException expected) {
+            assertTrue(expected.getCause() instanceof AssertionError);
+        }
+        TwitterFuture<Integer> applied = async.submit(returning("result", 0)).thenApply(new Function<String, Integer>() {
+            @Override
+            public Integer apply(String value) {
+                throw new AssertionError("apply");
+            }
+        });
+        try {
+            applied.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause().getCause() instanceof AssertionError);
+        }
+        TwitterFuture<String> composed = async.submit(returning(1L, 0)).thenCompose(new Function<Long, TwitterFuture<String>>() {
+            @Override
+            public TwitterFuture<String> apply(Long id) {
+                throw new AssertionError("compose");
+            }
+        });
+        try {
+            composed.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause().getCause() instanceof AssertionError);
+        }
+    }
+
+    public void testCallbacksRunOffTheCallingThreads() throws Exception {
+        final AtomicReference<String> callbackThread = new AtomicReference<String>();
+        final AtomicReference<String> callThread = new AtomicReference<String>();
+        TwitterFuture<Integer> length = async.submit(new TwitterCall<String>() {
+            @Override
+            public String call(Twitter twitter) {
+                callThread.set(Thread.currentThread().getName());
+                return "twit4j";
+            }
+        }).thenApply(new Function<String, Integer>() {
+            @Override
+            public Integer apply(String value) {
+                callbackThread.set(Thread.currentThread().getName());
+                return value.length();
+            }
+        });
+        assertEquals(Integer.valueOf(6), length.join());
+        assertTrue(callThread.get(), callThread.get().startsWith("Twitter4J Async Dispatcher"));
+        assertTrue(callbackThread.get(), callbackThread.get().startsWith("Twitter4J Async Callback"));
+    }
+
+    public void testCompose() throws Exception {
+        TwitterFuture<String> composed = async.submit(returning(1L, 0)).thenCompose(new Function<Long, TwitterFuture<String>>() {
+            @Override
+            public TwitterFuture<String> apply(Long id) {
+                return async.submit(returning("user" + id, 0));
+            }
+        });
+        assertEquals("user1", composed.join());
+    }
+
+    public void testTimeout() throws Exception {
+        long start = System.currentTimeMillis();
+        TwitterFuture<String> future = async.submit(returning("late", 10000), 100, TimeUnit.MILLISECONDS);
+        try {
+            future.join();
+            fail();
+        } catch (TwitterException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("timed out"));
+        }
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        // the dispatcher thread has been interrupted and is available again
+        assertEquals("next", async.submit(returning("next", 0), 5, TimeUnit.SECONDS).join());
+    }
+
+    public void testCancel() throws Exception {
+        TwitterFuture<String> future = async.submit(returning("cancelled", 10000));
+        assertTrue(future.cancel(true));
+        assertFalse(future.cancel(true));
+        assertTrue(future.isCancelled());
+        try {
+            future.get();
+            fail();
+        } catch (CancellationException expected) {
+        }
+    }
+
+    public void testExecutor() throws Exception {
+        final AtomicInteger executed = new AtomicInteger();
+        Executor callerRuns = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executed.incrementAndGet();
+                command.run();
+            }
+        };
+        TwitterFuture<String> future = async.submit(returning("executor", 0), callerRuns, 0, TimeUnit.MILLISECONDS);
+        assertTrue(future.isDone());
+        assertEquals("executor", future.join());
+        assertEquals(1, executed.get());
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+/**
+ * A task which needs to know when a dispatcher drops it without running it, e.g. to fail the future waiting for it.<br>
+ * {@link InstrumentedDispatcher} calls {@link #onDiscard()} for tasks dropped by the <code>discard</code> and <code>discardOldest</code>
+ * rejection policies, and dispatchers call it for tasks still queued when they are shut down.
+ *
+ * @since Twitter4J 4.0.7
+ */
+interface Discardable extends Runnable {
+    /**
+     * Called instead of {@link #run()} when the task has been dropped.
+     */
+    void onDiscard();
+}
@@ -17,10 +17,16 @@ package twitter4j;
 
 import twitter4j.conf.Configuration;
 
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Yusuke Yamamoto - yusuke at mac.com
@@ -28,42 +34,161 @@ import java.util.concurrent.TimeUnit;
  */
 final class DispatcherImpl implements Dispatcher {
     private final ExecutorService executorService;
+    // bounds the number of pending tasks in virtual thread per task mode
+    private final Semaphore permits;
+    // removed on shutdown(), so that dispatchers created and shut down repeatedly don't leak hooks
+    private Thread shutdownHook = null;
     private static final Logger logger = Logger.getLogger(DispatcherImpl.class);
     private static final long SHUTDOWN_TIME = 5000;
 
     public DispatcherImpl(final Configuration conf) {
-        executorService = Executors.newFixedThreadPool(conf.getAsyncNumThreads(),
+        this(conf, "Twitter4J Async Dispatcher", conf.getAsyncNumThreads(), -1, true);
+    }
+
+    /**
+     * Creates a dispatcher with a fixed number of threads, which are virtual threads when <code>async.virtualThreadsEnabled</code>
+     * is set. Tasks run in order with a single thread either way.
+     *
+     * @param conf       configuration
+     * @param name       prefix of the thread names
+     * @param numThreads number of threads
+     * @param queueSize  capacity of the task queue, or -1 for an unbounded queue. invokeLater() blocks while the queue is full.
+     */
+    DispatcherImpl(final Configuration conf, final String name, int numThreads, int queueSize) {
+        this(conf, name, numThreads, queueSize, false);
+    }
+
+    /**
+     * @param conf       configuration
+     * @param name       prefix of the thread names
+     * @param numThreads number of threads
+     * @param queueSize  capacity of the task queue, or -1 for an unbounded queue. invokeLater() blocks while the queue is full.
+     * @param perTask    true to start a virtual thread per task when <code>async.virtualThreadsEnabled</code> is set, for
+     *                   dispatchers running blocking calls which don't need to be ordered. numThreads doesn't apply then, and
+     *                   queueSize limits the number of tasks in flight.
+     */
+    DispatcherImpl(final Configuration conf, final String name, int numThreads, int queueSize, boolean perTask) {
+        if (perTask && VirtualThreads.isEnabled(conf)) {
+            executorService = VirtualThreads.newThreadPerTaskExecutor(name);
+            permits = queueSize > 0 ? new Semaphore(queueSize) : null;
+            return;
+        }
+        permits = null;
+        BlockingQueue<Runnable> queue = queueSize > 0 ? new LinkedBlockingQueue<Runnable>(queueSize)
+                : new LinkedBlockingQueue<Runnable>();
+        executorService = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS, queue,
                 new ThreadFactory() {
-                    int count = 0;
+                    // threads may be created by any thread calling invokeLater()
+                    final AtomicInteger count = new AtomicInteger();
 
                     @Override
                     public Thread newThread(Runnable r) {
-                        Thread thread = new Thread(r);
-                        thread.setName(String.format("Twitter4J Async Dispatcher[%d]", count++));
-                        thread.setDaemon(conf.isDaemonEnabled());
-                        return thread;
+                        return VirtualThreads.newThread(conf, String.format("%s[%d]", name, count.getAndIncrement()), r);
+                    }
+                }, new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("Dispatcher has been shut down.");
+                        }
+                        // the queue is full. block the caller until there is room
+                        try {
+                            executor.getQueue().put(r);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException(e);
+                        }
                     }
                 }
         );
-        Runtime.getRuntime().addShutdownHook(new Thread() {
+        shutdownHook = new Thread() {
             @Override
             public void run() {
                 executorService.shutdown();
             }
-        });
+        };
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
     }
 
     @Override
-    public synchronized void invokeLater(Runnable task) {
-        executorService.execute(task);
+    public void invokeLater(final Runnable task) {
+        if (permits == null) {
+            executorService.execute(task);
+            return;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+        try {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of threads, or -1 in virtual thread per task mode
+     */
+    int getNumThreads() {
+        return executorService instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executorService).getCorePoolSize() : -1;
+    }
+
+    /**
+     * Changes the number of threads. Does nothing in virtual thread per task mode.
+     *
+     * @param numThreads number of threads
+     * @return true if the number of threads has been changed
+     */
+    boolean setNumThreads(int numThreads) {
+        if (!(executorService instanceof ThreadPoolExecutor) || numThreads < 1) {
+            return false;
+        }
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) executorService;
+        synchronized (executor) {
+            int current = executor.getCorePoolSize();
+            if (numThreads > current) {
+                // the maximum must not be below the core size at any moment
+                executor.setMaximumPoolSize(numThreads);
+                executor.setCorePoolSize(numThreads);
+            } else if (numThreads < current) {
+                executor.setCorePoolSize(numThreads);
+                executor.setMaximumPoolSize(numThreads);
+            }
+            return numThreads != current;
+        }
     }
 
     @Override
     public synchronized void shutdown() {
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ignore) {
+                // the VM is shutting down already
+            }
+            shutdownHook = null;
+        }
         executorService.shutdown();
         try {
         	if (!executorService.awaitTermination(SHUTDOWN_TIME, TimeUnit.MILLISECONDS)) {
-        		executorService.shutdownNow();
+        		for (Runnable task : executorService.shutdownNow()) {
+        			if (task instanceof Discardable) {
+        				((Discardable) task).onDiscard();
+        			}
+        		}
         	}
         } catch (InterruptedException e) {
         	logger.warn(e.getMessage());
@@ -0,0 +1,451 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+import twitter4j.management.DispatcherStatistics;
+import twitter4j.management.DispatcherStatisticsMBean;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A dispatcher which never takes a lock to enqueue or dequeue tasks, <code>async.dispatcherImpl=twitter4j.InstrumentedDispatcher</code>.
+ * <br>
+ * Tasks wait in a lock free queue bounded to <code>async.queueSize</code> tasks. Tasks which don't fit are handed to the
+ * {@link RejectionPolicy} configured with <code>async.rejectionPolicy</code>. Idle threads park until a task arrives, and callers
+ * blocked by a full queue park until a task leaves it.<br>
+ * Queue depth, active threads and the time tasks spend queued and running are reported by {@link #getStatistics()}, and
+ * registered as an MBean when <code>mbeanEnabled</code> is set.<br>
+ * {@link #shutdown()} stops accepting tasks and lets the threads drain the queue for up to <code>async.drainTimeout</code>
+ * milliseconds. Tasks still queued after that are dropped and running tasks are interrupted.<br>
+ * Tasks dropped by the <code>discard</code> and <code>discardOldest</code> policies or on shutdown are told so if they are
+ * {@link Discardable}, e.g. the calls of AsyncTwitter fail their futures.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class InstrumentedDispatcher implements Dispatcher {
+    private static final Logger logger = Logger.getLogger(InstrumentedDispatcher.class);
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    private final ConcurrentLinkedQueue<Task> tasks = new ConcurrentLinkedQueue<Task>();
+    // number of tasks in the queue, or about to be added to it
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+    private final RejectionPolicy policy;
+    private final long drainTimeout;
+    private final Thread[] workers;
+    private final ConcurrentLinkedQueue<Thread> idle = new ConcurrentLinkedQueue<Thread>();
+    // callers blocked by a full queue
+    private final ConcurrentLinkedQueue<Thread> blocked = new ConcurrentLinkedQueue<Thread>();
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+    private volatile boolean accepting = true;
+    private volatile boolean abandoned = false;
+    private final DispatcherStatistics statistics;
+    private ObjectName objectName;
+    private final Thread shutdownHook;
+    private final TaskQueue queue = new TaskQueue();
+
+    /**
+     * View of the queue handed to the {@link RejectionPolicy}.
+     */
+    private final class TaskQueue extends AbstractQueue<Runnable> {
+        /**
+         * Waits for room in the queue.
+         *
+         * @param task task
+         * @throws RejectedExecutionException if the dispatcher has been shut down, or the caller has been interrupted
+         */
+        void put(Runnable task) {
+            Thread self = Thread.currentThread();
+            while (!enqueue(task)) {
+                blocked.offer(self);
+                // dequeue() wakes a blocked caller after it has made room, so the room cannot be missed
+                if (size.get() < capacity || !accepting) {
+                    blocked.remove(self);
+                    continue;
+                }
+                LockSupport.park(this);
+                blocked.remove(self);
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for room in the queue.");
+                }
+            }
+        }
+
+        @Override
+        public boolean offer(Runnable task) {
+            return enqueue(task);
+        }
+
+        @Override
+        public Runnable poll() {
+            Task task = dequeue();
+            if (task == null) {
+                return null;
+            }
+            statistics.onDiscard(1);
+            return task.runnable;
+        }
+
+        @Override
+        public Runnable peek() {
+            Task task = tasks.peek();
+            return task != null ? task.runnable : null;
+        }
+
+        @Override
+        public int size() {
+            return size.get();
+        }
+
+        @Override
+        public Iterator<Runnable> iterator() {
+            final Iterator<Task> iterator = tasks.iterator();
+            return new Iterator<Runnable>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Runnable next() {
+                    return iterator.next().runnable;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    public InstrumentedDispatcher(Configuration conf) {
+        this(conf, "Twitter4J Async Dispatcher", conf.getAsyncNumThreads(), conf.getAsyncQueueSize()
+                , policyOf(conf.getAsyncRejectionPolicy()), conf.getAsyncDrainTimeout());
+    }
+
+    /**
+     * @param conf         configuration
+     * @param name         prefix of the thread names
+     * @param numThreads   number of threads
+     * @param queueSize    capacity of the queue, or -1 for an unbounded queue
+     * @param policy       policy for tasks which don't fit in the queue
+     * @param drainTimeout time shutdown() lets the threads drain the queue in milliseconds
+     */
+    InstrumentedDispatcher(Configuration conf, String name, int numThreads, int queueSize, RejectionPolicy policy
+            , long drainTimeout) {
+        this.capacity = queueSize;
+        this.policy = policy;
+        this.drainTimeout = drainTimeout;
+        this.statistics = new DispatcherStatistics(name + " #" + instances.incrementAndGet());
+        if (conf.isMBeanEnabled()) {
+            register();
+        }
+        workers = new Thread[Math.max(1, numThreads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = VirtualThreads.newThread(conf, String.format("%s[%d]", name, i), new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            });
+            workers[i].start();
+        }
+        shutdownHook = new Thread() {
+            @Override
+            public void run() {
+                // let the threads finish the queue and exit, without holding up the VM
+                stopAccepting();
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * @param name name of a built in policy, or class name of a {@link RejectionPolicy}
+     * @return policy
+     */
+    static RejectionPolicy policyOf(String name) {
+        if (name == null || "block".equals(name)) {
+            return new RejectionPolicy() {
+                @Override
+                public void rejected(Runnable task, Queue<Runnable> queue) {
+                    ((TaskQueue) queue).put(task);
+                }
+            };
+        } else if ("callerRuns".equals(name)) {
+            return new RejectionPolicy() {
+                @Override
+                public void rejected(Runnable task, Queue<Runnable> queue) {
+                    task.run();
+                }
+            };
+        } else if ("discard".equals(name)) {
+            return new RejectionPolicy() {
+                @Override
+                public void rejected(Runnable task, Queue<Runnable> queue) {
+                    logger.debug("Queue is full. Discarded a task.");
+                    discarded(task);
+                }
+            };
+        } else if ("discardOldest".equals(name)) {
+            return new RejectionPolicy() {
+                @Override
+                public void rejected(Runnable task, Queue<Runnable> queue) {
+                    do {
+                        discarded(queue.poll());
+                    } while (!queue.offer(task));
+                }
+            };
+        } else if ("abort".equals(name)) {
+            return new RejectionPolicy() {
+                @Override
+                public void rejected(Runnable task, Queue<Runnable> queue) {
+                    throw new RejectedExecutionException("Queue is full.");
+                }
+            };
+        }
+        try {
+            return (RejectionPolicy) Class.forName(name).newInstance();
+        } catch (InstantiationException e) {
+            throw new AssertionError(e);
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        } catch (ClassNotFoundException e) {
+            throw new AssertionError(e);
+        } catch (ClassCastException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void discarded(Runnable task) {
+        if (task instanceof Discardable) {
+            try {
+                ((Discardable) task).onDiscard();
+            } catch (RuntimeException e) {
+                logger.warn("Exception in a discarded task: ", String.valueOf(e));
+            }
+        }
+    }
+
+    @Override
+    public void invokeLater(Runnable task) {
+        if (!enqueue(task)) {
+            statistics.onReject();
+            policy.rejected(task, queue);
+        }
+    }
+
+    private boolean enqueue(Runnable task) {
+        if (!accepting) {
+            throw new RejectedExecutionException("Dispatcher has been shut down.");
+        }
+        if (capacity > 0) {
+            while (true) {
+                int current = size.get();
+                if (current >= capacity) {
+                    return false;
+                }
+                if (size.compareAndSet(current, current + 1)) {
+                    break;
+                }
+            }
+        } else {
+            size.incrementAndGet();
+        }
+        statistics.onEnqueue();
+        tasks.offer(new Task(task));
+        // the worker checks the queue again after it has offered itself as idle, so the task cannot be missed
+        Thread worker = idle.poll();
+        if (worker != null) {
+            LockSupport.unpark(worker);
+        }
+        return true;
+    }
+
+    private Task dequeue() {
+        Task task = tasks.poll();
+        if (task != null) {
+            size.decrementAndGet();
+            Thread caller = blocked.poll();
+            if (caller != null) {
+                LockSupport.unpark(caller);
+            }
+        }
+        return task;
+    }
+
+    private void work() {
+        Thread self = Thread.currentThread();
+        while (!abandoned) {
+            Task task = dequeue();
+            if (task != null) {
+                run(task);
+                continue;
+            }
+            if (!accepting) {
+                // drained
+                return;
+            }
+            idle.offer(self);
+            if (!tasks.isEmpty() || !accepting) {
+                idle.remove(self);
+                continue;
+            }
+            LockSupport.park(this);
+            // may have woken up spuriously, or have been interrupted on shutdown
+            idle.remove(self);
+            Thread.interrupted();
+        }
+    }
+
+    private void run(Task task) {
+        long start = System.nanoTime();
+        statistics.onStart(start - task.enqueued);
+        boolean success = false;
+        try {
+            task.runnable.run();
+            success = true;
+        } catch (Throwable t) {
+            // an Error must not take the worker down, no one would replace it
+            logger.warn("Exception in a dispatched task: ", String.valueOf(t));
+        } finally {
+            statistics.onComplete(System.nanoTime() - start, success);
+        }
+    }
+
+    private void stopAccepting() {
+        accepting = false;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        for (Thread caller : blocked) {
+            LockSupport.unpark(caller);
+        }
+    }
+
+    /**
+     * @return statistics of the dispatcher
+     */
+    DispatcherStatisticsMBean getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return number of tasks in the queue
+     */
+    int getQueueSize() {
+        return size.get();
+    }
+
+    @Override
+    public void shutdown() {
+        if (!shutdown.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ignore) {
+            // the VM is shutting down already
+        }
+        stopAccepting();
+        long deadline = System.currentTimeMillis() + drainTimeout;
+        try {
+            for (Thread worker : workers) {
+                long left = deadline - System.currentTimeMillis();
+                if (worker != Thread.currentThread() && left > 0) {
+                    worker.join(left);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int dropped = 0;
+        boolean running = false;
+        for (Thread worker : workers) {
+            running |= worker.isAlive() && worker != Thread.currentThread();
+        }
+        if (running) {
+            abandoned = true;
+            Task task;
+            while ((task = dequeue()) != null) {
+                discarded(task.runnable);
+                dropped++;
+            }
+            statistics.onDiscard(dropped);
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            logger.warn("Dispatcher has not drained within the timeout. Dropped tasks: ", String.valueOf(dropped));
+        }
+        unregister();
+    }
+
+    private synchronized void register() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName("twitter4j.mbean:type=DispatcherStatistics,name="
+                    + ObjectName.quote(statistics.getName()));
+            mbs.registerMBean(statistics, objectName);
+        } catch (JMException e) {
+            logger.warn("Failed to register the dispatcher statistics: ", String.valueOf(e));
+            objectName = null;
+        }
+    }
+
+    private synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            logger.warn("Failed to unregister the dispatcher statistics: ", String.valueOf(e));
+        }
+        objectName = null;
+    }
+
+    @Override
+    public String toString() {
+        return "InstrumentedDispatcher{" +
+                "capacity=" + capacity +
+                ", threads=" + workers.length +
+                ", statistics=" + statistics +
+                '}';
+    }
+
+    private static final class Task {
+        final Runnable runnable;
+        final long enqueued = System.nanoTime();
+
+        Task(Runnable runnable) {
+            this.runnable = runnable;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.util.Queue;
+
+/**
+ * Decides what happens to a task which doesn't fit in the bounded queue of a dispatcher, <code>async.rejectionPolicy</code>.<br>
+ * Built in policies are <code>block</code>, <code>callerRuns</code>, <code>discard</code>, <code>discardOldest</code> and
+ * <code>abort</code>. Other policies are configured by class name and need a public no-argument constructor.
+ * Policies which drop tasks should call {@link Discardable#onDiscard()} on them, otherwise whoever waits for them waits forever.
+ *
+ * @since Twitter4J 4.0.7
+ */
+public interface RejectionPolicy {
+    /**
+     * @param task  task which doesn't fit in the queue
+     * @param queue queue of the dispatcher. {@link Queue#offer(Object)} returns false while it is full and throws
+     *              {@link java.util.concurrent.RejectedExecutionException} once the dispatcher has been shut down,
+     *              {@link Queue#poll()} removes the oldest task
+     * @throws java.util.concurrent.RejectedExecutionException to reject the task to the caller
+     */
+    void rejected(Runnable task, Queue<Runnable> queue);
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the threads of dispatchers and stream consumers.<br>
+ * When <code>async.virtualThreadsEnabled</code> is set and the JVM supports virtual threads (Java 21+), virtual threads are created.
+ * Otherwise platform threads are created, so the same binary keeps working on older JVMs.
+ * Virtual threads are looked up reflectively as the library is compiled for Java 6.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class VirtualThreads {
+    private static final Logger logger = Logger.getLogger(VirtualThreads.class);
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method NAME_WITH_COUNTER;
+    private static final Method UNSTARTED;
+    private static final Method FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+    private static boolean warned = false;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method nameWithCounter = null;
+        Method unstarted = null;
+        Method factory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class);
+            nameWithCounter = builder.getMethod("name", String.class, long.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+            factory = builder.getMethod("factory");
+            newThreadPerTaskExecutor = java.util.concurrent.Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ClassNotFoundException ignore) {
+            ofVirtual = null;
+        } catch (NoSuchMethodException ignore) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        NAME_WITH_COUNTER = nameWithCounter;
+        UNSTARTED = unstarted;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private VirtualThreads() {
+        throw new AssertionError();
+    }
+
+    /**
+     * @return true if the JVM supports virtual threads
+     */
+    static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @param conf configuration
+     * @return true if virtual threads are enabled by the configuration and supported by the JVM
+     */
+    static boolean isEnabled(Configuration conf) {
+        if (!conf.isVirtualThreadsEnabled()) {
+            return false;
+        }
+        if (!isSupported()) {
+            synchronized (VirtualThreads.class) {
+                if (!warned) {
+                    warned = true;
+                    logger.warn("Virtual threads are not supported by this JVM. Falling back to platform threads.");
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Creates an unstarted thread. Virtual threads are always daemon threads, platform threads follow <code>async.daemonEnabled</code>.
+     *
+     * @param conf configuration
+     * @param name thread name
+     * @param task task
+     * @return unstarted thread
+     */
+    static Thread newThread(Configuration conf, String name, Runnable task) {
+        if (isEnabled(conf)) {
+            return (Thread) invoke(UNSTARTED, invoke(NAME, invoke(OF_VIRTUAL, null), name), task);
+        }
+        Thread thread = new Thread(task);
+        thread.setName(name);
+        thread.setDaemon(conf.isDaemonEnabled());
+        return thread;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task. Must be called only if {@link #isEnabled(Configuration)} returns true.
+     *
+     * @param name prefix of the thread names
+     * @return executor
+     */
+    static ExecutorService newThreadPerTaskExecutor(String name) {
+        Object builder = invoke(NAME_WITH_COUNTER, invoke(OF_VIRTUAL, null), name + "-", 0L);
+        return (ExecutorService) invoke(NEW_THREAD_PER_TASK_EXECUTOR, null, invoke(FACTORY, builder));
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        } catch (InvocationTargetException e) {
+            throw new AssertionError(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A pool of threads shared by several lanes. Each lane is a Dispatcher with its own bounded queue and a weight.<br>
+ * Busy lanes receive thread time in proportion to their weights (stride scheduling), so a lane with a slow listener
+ * cannot starve the other lanes, while idle lanes don't hold any capacity.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class WeightedFairDispatcher {
+    private static final Logger logger = Logger.getLogger(WeightedFairDispatcher.class);
+    private static final long STRIDE_BASE = 1L << 20;
+
+    private final Object lock = new Object();
+    private final List<Lane> lanes = new ArrayList<Lane>();
+    private final Thread[] workers;
+    private long virtualTime = 0;
+    private boolean shutdown = false;
+
+    WeightedFairDispatcher(Configuration conf, String name, int numThreads) {
+        workers = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            workers[i] = VirtualThreads.newThread(conf, String.format("%s[%d]", name, i), new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            });
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Creates a new lane.
+     *
+     * @param weight    relative share of the thread time. must be positive
+     * @param queueSize capacity of the queue, or -1 for an unbounded queue. invokeLater() blocks while the queue is full.
+     * @return lane
+     */
+    Dispatcher newLane(int weight, int queueSize) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("weight must be positive: " + weight);
+        }
+        Lane lane = new Lane(weight, queueSize);
+        synchronized (lock) {
+            lanes.add(lane);
+        }
+        return lane;
+    }
+
+    void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Runnable task;
+            synchronized (lock) {
+                Lane lane;
+                while ((lane = nextLane()) == null) {
+                    if (shutdown) {
+                        return;
+                    }
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                task = lane.queue.removeFirst();
+                if (lane.closed && lane.queue.isEmpty()) {
+                    lanes.remove(lane);
+                }
+                virtualTime = lane.pass;
+                lane.pass += lane.stride;
+                // wakes up producers blocked on a full queue
+                lock.notifyAll();
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.warn(t.getMessage());
+            }
+        }
+    }
+
+    // must be called with the lock held
+    private Lane nextLane() {
+        Lane next = null;
+        for (Lane lane : lanes) {
+            if (!lane.queue.isEmpty() && (next == null || lane.pass < next.pass)) {
+                next = lane;
+            }
+        }
+        return next;
+    }
+
+    private final class Lane implements Dispatcher {
+        private final LinkedList<Runnable> queue = new LinkedList<Runnable>();
+        private final long stride;
+        private final int capacity;
+        private long pass;
+        private boolean closed = false;
+
+        Lane(int weight, int capacity) {
+            this.stride = STRIDE_BASE / weight;
+            this.capacity = capacity;
+        }
+
+        @Override
+        public void invokeLater(Runnable task) {
+            synchronized (lock) {
+                while (capacity > 0 && queue.size() >= capacity && !closed && !shutdown) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(e);
+                    }
+                }
+                if (closed || shutdown) {
+                    throw new RejectedExecutionException("Dispatcher has been shut down.");
+                }
+                if (queue.isEmpty() && pass < virtualTime) {
+                    // a lane becoming busy doesn't get credit for the time it was idle
+                    pass = virtualTime;
+                }
+                queue.addLast(task);
+                lock.notifyAll();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            synchronized (lock) {
+                // already queued tasks are still processed
+                closed = true;
+                if (queue.isEmpty()) {
+                    lanes.remove(this);
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+}
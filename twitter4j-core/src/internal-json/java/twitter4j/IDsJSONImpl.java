@@ -47,32 +47,42 @@ import java.util.Arrays;
     }
 
     private void init(String jsonStr) throws TwitterException {
-        JSONArray idList;
+        // ids are read straight into long[], a page has up to 5000 of them
+        JSONTokener x = new JSONTokener(jsonStr);
         try {
             if (jsonStr.startsWith("{")) {
-                JSONObject json = new JSONObject(jsonStr);
-                idList = json.getJSONArray("ids");
-                ids = new long[idList.length()];
-                for (int i = 0; i < idList.length(); i++) {
-                    try {
-                        ids[i] = Long.parseLong(idList.getString(i));
-                    } catch (NumberFormatException nfe) {
-                        throw new TwitterException("Twitter API returned malformed response: " + json, nfe);
+                x.next('{');
+                for (char c = x.nextClean(); c != '}'; ) {
+                    if (c == 0) {
+                        throw x.syntaxError("A JSONObject text must end with '}'");
                     }
-                }
-                previousCursor = ParseUtil.getLong("previous_cursor", json);
-                nextCursor = ParseUtil.getLong("next_cursor", json);
-            } else {
-                idList = new JSONArray(jsonStr);
-                ids = new long[idList.length()];
-                for (int i = 0; i < idList.length(); i++) {
-                    try {
-                        ids[i] = Long.parseLong(idList.getString(i));
-                    } catch (NumberFormatException nfe) {
-                        throw new TwitterException("Twitter API returned malformed response: " + idList, nfe);
+                    x.back();
+                    String key = x.nextValue().toString();
+                    x.next(':');
+                    if ("ids".equals(key)) {
+                        ids = x.nextLongArray();
+                    } else if ("previous_cursor".equals(key)) {
+                        previousCursor = ParseUtil.getLong(x.nextValue().toString());
+                    } else if ("next_cursor".equals(key)) {
+                        nextCursor = ParseUtil.getLong(x.nextValue().toString());
+                    } else {
+                        x.nextValue();
+                    }
+                    c = x.nextClean();
+                    if (c == ',') {
+                        c = x.nextClean();
+                    } else if (c != '}') {
+                        throw x.syntaxError("Expected a ',' or '}'");
                     }
                 }
+                if (ids == null) {
+                    throw new TwitterException("Twitter API returned malformed response: " + jsonStr);
+                }
+            } else {
+                ids = x.nextLongArray();
             }
+        } catch (NumberFormatException nfe) {
+            throw new TwitterException("Twitter API returned malformed response: " + jsonStr, nfe);
         } catch (JSONException jsone) {
             throw new TwitterException(jsone);
         }
@@ -1,6 +1,7 @@
 package twitter4j;
 
 import java.io.*;
+import java.util.Arrays;
 
 /*
 Copyright (c) 2002 JSON.org
@@ -329,6 +330,70 @@ public class JSONTokener {
     }
 
 
+    /**
+     * Get the next array of integers as primitive longs, without creating a
+     * JSONArray or boxing the values. Elements may be quoted, as those of the
+     * <code>*_str</code> fields of the API are.
+     *
+     * @return An array of longs.
+     * @throws JSONException If the next value is not an array of integers.
+     */
+    public long[] nextLongArray() throws JSONException {
+        if (nextClean() != '[') {
+            throw syntaxError("A JSONArray text must start with '['");
+        }
+        char c = nextClean();
+        if (c == ']') {
+            return new long[0];
+        }
+        long[] values = new long[16];
+        int size = 0;
+        for (; ; ) {
+            boolean quoted = c == '"';
+            if (quoted) {
+                c = next();
+            }
+            boolean negative = c == '-';
+            if (negative) {
+                c = next();
+            }
+            if (c < '0' || c > '9') {
+                throw syntaxError("Expected an integer");
+            }
+            long value = 0;
+            while (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                if (value > (Long.MAX_VALUE - digit) / 10) {
+                    throw syntaxError("Integer out of range");
+                }
+                value = value * 10 + digit;
+                c = next();
+            }
+            if (quoted) {
+                if (c != '"') {
+                    throw syntaxError("Unterminated string");
+                }
+                c = nextClean();
+            } else if (c <= ' ') {
+                c = nextClean();
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = negative ? -value : value;
+            switch (c) {
+                case ',':
+                    c = nextClean();
+                    break;
+                case ']':
+                    return size == values.length ? values : Arrays.copyOf(values, size);
+                default:
+                    throw syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+
+
     /**
      * Make a JSONException to signal a syntax error.
      *
@@ -68,7 +68,7 @@ import java.util.Map;
         }
     }
 
-    private RateLimitStatusJSONImpl(int limit, int remaining, int resetTimeInSeconds) {
+    /*package*/ RateLimitStatusJSONImpl(int limit, int remaining, int resetTimeInSeconds) {
         this.limit = limit;
         this.remaining = remaining;
         this.resetTimeInSeconds = resetTimeInSeconds;
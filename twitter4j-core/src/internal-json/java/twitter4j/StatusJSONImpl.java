@@ -124,7 +124,7 @@ import static twitter4j.ParseUtil.getDate;
                 JSONArray contributorsArray = json.getJSONArray("contributors");
                 contributorsIDs = new long[contributorsArray.length()];
                 for (int i = 0; i < contributorsArray.length(); i++) {
-                    contributorsIDs[i] = Long.parseLong(contributorsArray.getString(i));
+                    contributorsIDs[i] = contributorsArray.getLong(i);
                 }
             } else {
                 contributorsIDs = new long[0];
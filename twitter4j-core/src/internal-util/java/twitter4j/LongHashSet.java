@@ -0,0 +1,195 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An open addressing hash set of primitive longs.<br>
+ * Not thread safe.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class LongHashSet {
+    private static final int MIN_CAPACITY = 16;
+    // 0 marks an empty slot, so the value 0 is tracked separately
+    private long[] slots;
+    private boolean containsZero = false;
+    private int size = 0;
+    private int mask;
+
+    LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of values to be stored without resizing
+     */
+    LongHashSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        // keep the load factor under 0.5
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        slots = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        int i = hash(value) & mask;
+        long slot;
+        while ((slot = slots[i]) != 0) {
+            if (slot == value) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @param value value
+     * @return true if the value has been added, false if it was already contained
+     */
+    boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int i = hash(value) & mask;
+        long slot;
+        while ((slot = slots[i]) != 0) {
+            if (slot == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = value;
+        if (++size * 2 > slots.length) {
+            resize(slots.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * @param value value
+     * @return true if the value has been removed, false if it was not contained
+     */
+    boolean remove(long value) {
+        if (value == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int i = hash(value) & mask;
+        long slot;
+        while ((slot = slots[i]) != value) {
+            if (slot == 0) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        // shift back the values after the slot which would not be found past the hole otherwise
+        int hole = i;
+        for (i = (i + 1) & mask; (slot = slots[i]) != 0; i = (i + 1) & mask) {
+            int home = hash(slot) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                slots[hole] = slot;
+                hole = i;
+            }
+        }
+        slots[hole] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * @return iterator over the values, in no particular order. The set must not be modified while iterating.
+     */
+    LongIterator iterator() {
+        return new LongIterator() {
+            private boolean zero = containsZero;
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                if (zero) {
+                    return true;
+                }
+                while (index < slots.length) {
+                    if (slots[index] != 0) {
+                        return true;
+                    }
+                    index++;
+                }
+                return false;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (zero) {
+                    zero = false;
+                    return 0;
+                }
+                return slots[index++];
+            }
+        };
+    }
+
+    private void resize(int capacity) {
+        long[] old = slots;
+        slots = new long[capacity];
+        mask = capacity - 1;
+        for (long value : old) {
+            if (value != 0) {
+                int i = hash(value) & mask;
+                while (slots[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = value;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(slots, 0L);
+        containsZero = false;
+        size = 0;
+    }
+}
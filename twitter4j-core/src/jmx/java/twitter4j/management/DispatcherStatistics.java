@@ -0,0 +1,173 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j.management;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects queue depth, active threads and task latency statistics of a dispatcher.<br>
+ * All updates are lock free.
+ *
+ * @since Twitter4J 4.0.7
+ */
+public class DispatcherStatistics implements DispatcherStatisticsMBean {
+    private final String name;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final Histogram queueTime = new Histogram();
+    private final Histogram runTime = new Histogram();
+
+    /**
+     * @param name the name of the dispatcher
+     */
+    public DispatcherStatistics(String name) {
+        this.name = name;
+    }
+
+    public void onEnqueue() {
+        submitted.incrementAndGet();
+        queueDepth.incrementAndGet();
+    }
+
+    /**
+     * @param queueNanos time the task has spent in the queue
+     */
+    public void onStart(long queueNanos) {
+        queueDepth.decrementAndGet();
+        active.incrementAndGet();
+        queueTime.record(queueNanos / 1000);
+    }
+
+    /**
+     * @param runNanos time the task has run
+     * @param success  false if the task has thrown
+     */
+    public void onComplete(long runNanos, boolean success) {
+        active.decrementAndGet();
+        completed.incrementAndGet();
+        if (!success) {
+            failed.incrementAndGet();
+        }
+        runTime.record(runNanos / 1000);
+    }
+
+    /**
+     * @param count number of tasks dropped from the queue without being run
+     */
+    public void onDiscard(int count) {
+        queueDepth.addAndGet(-count);
+    }
+
+    public void onReject() {
+        rejected.incrementAndGet();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    @Override
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public long getAverageQueueTime() {
+        return queueTime.getAverage();
+    }
+
+    @Override
+    public long get99thPercentileQueueTime() {
+        return queueTime.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxQueueTime() {
+        return queueTime.getMax();
+    }
+
+    @Override
+    public long getAverageRunTime() {
+        return runTime.getAverage();
+    }
+
+    @Override
+    public long get99thPercentileRunTime() {
+        return runTime.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxRunTime() {
+        return runTime.getMax();
+    }
+
+    @Override
+    public void reset() {
+        submitted.set(0);
+        completed.set(0);
+        failed.set(0);
+        rejected.set(0);
+        queueTime.reset();
+        runTime.reset();
+        // queue depth and active threads are gauges and are not reset
+    }
+
+    @Override
+    public String toString() {
+        return "DispatcherStatistics{" +
+                "name='" + name + '\'' +
+                ", queueDepth=" + getQueueDepth() +
+                ", active=" + getActiveCount() +
+                ", submitted=" + getSubmittedCount() +
+                ", completed=" + getCompletedCount() +
+                ", failed=" + getFailedCount() +
+                ", rejected=" + getRejectedCount() +
+                ", averageQueueTime=" + getAverageQueueTime() +
+                ", averageRunTime=" + getAverageRunTime() +
+                '}';
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j.management;
+
+/**
+ * MBean interface for DispatcherStatistics. Times are in microseconds.
+ * @since Twitter4J 4.0.7
+ */
+public interface DispatcherStatisticsMBean {
+    String getName();
+
+    int getQueueDepth();
+
+    int getActiveCount();
+
+    long getSubmittedCount();
+
+    long getCompletedCount();
+
+    long getFailedCount();
+
+    long getRejectedCount();
+
+    long getAverageQueueTime();
+
+    long get99thPercentileQueueTime();
+
+    long getMaxQueueTime();
+
+    long getAverageRunTime();
+
+    long get99thPercentileRunTime();
+
+    long getMaxRunTime();
+
+    void reset();
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j.management;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts events in one-second slots and reports the per second rate over the last completed slots.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class RateMeter {
+    private static final int SLOTS = 11;
+    private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray seconds = new AtomicLongArray(SLOTS);
+    private final AtomicLong total = new AtomicLong();
+
+    void mark(long n) {
+        total.addAndGet(n);
+        long now = currentSecond();
+        int index = (int) (now % SLOTS);
+        long slotSecond = seconds.get(index);
+        if (slotSecond != now && seconds.compareAndSet(index, slotSecond, now)) {
+            counts.set(index, 0);
+        }
+        counts.addAndGet(index, n);
+    }
+
+    long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * @return average rate per second over the last completed slots (the current, partial second is excluded)
+     */
+    double getRate() {
+        long now = currentSecond();
+        long sum = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            long slotSecond = seconds.get(i);
+            if (slotSecond < now && slotSecond >= now - (SLOTS - 1)) {
+                sum += counts.get(i);
+            }
+        }
+        return sum / (double) (SLOTS - 1);
+    }
+
+    void reset() {
+        for (int i = 0; i < SLOTS; i++) {
+            counts.set(i, 0);
+            seconds.set(i, 0);
+        }
+        total.set(0);
+    }
+
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j.management;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects throughput, parse time, queue depth, listener latency and lag statistics of a single TwitterStream.<br>
+ * All updates are lock free.
+ *
+ * @since Twitter4J 4.0.7
+ */
+public class StreamStatistics implements StreamStatisticsMBean, StreamStatisticsListener {
+    private final String name;
+    private final RateMeter messages = new RateMeter();
+    private final RateMeter bytes = new RateMeter();
+    private final Histogram parseTime = new Histogram();
+    private final Histogram queueTime = new Histogram();
+    private final Histogram lag = new Histogram();
+    private final AtomicLong lastLag = new AtomicLong();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong reconnectCount = new AtomicLong();
+    private final AtomicLong limitDroppedBeforeReconnect = new AtomicLong();
+    private final AtomicLong limitDroppedSinceReconnect = new AtomicLong();
+    private final AtomicLong shedCount = new AtomicLong();
+    private final AtomicLong spilledMessages = new AtomicLong();
+    private final AtomicLong spilledBytes = new AtomicLong();
+    private final RateMeter drained = new RateMeter();
+    private final ConcurrentMap<String, Histogram> listenerLatencies = new ConcurrentHashMap<String, Histogram>();
+    private final ConcurrentMap<String, Histogram> listenerLags = new ConcurrentHashMap<String, Histogram>();
+    private final ConcurrentMap<String, AtomicLong> listenerDrops = new ConcurrentHashMap<String, AtomicLong>();
+
+    /**
+     * @param name the name of the stream
+     */
+    public StreamStatistics(String name) {
+        this.name = name;
+    }
+
+    /* StreamStatisticsListener implementation */
+
+    @Override
+    public void onMessage(int bytes) {
+        messages.mark(1);
+        this.bytes.mark(bytes);
+    }
+
+    @Override
+    public void onEnqueue() {
+        queueDepth.incrementAndGet();
+    }
+
+    @Override
+    public void onDequeue(long sojournNanos) {
+        queueDepth.decrementAndGet();
+        queueTime.record(sojournNanos / 1000);
+    }
+
+    @Override
+    public void onParse(long nanos) {
+        parseTime.record(nanos / 1000);
+    }
+
+    @Override
+    public void onListenerInvoked(String listener, long nanos) {
+        histogram(listenerLatencies, listener).record(nanos / 1000);
+    }
+
+    @Override
+    public void onListenerLag(String listener, long nanos) {
+        histogram(listenerLags, listener).record(nanos / 1000);
+    }
+
+    @Override
+    public void onListenerDrop(String listener) {
+        AtomicLong drops = listenerDrops.get(listener);
+        if (drops == null) {
+            drops = new AtomicLong();
+            AtomicLong existing = listenerDrops.putIfAbsent(listener, drops);
+            if (existing != null) {
+                drops = existing;
+            }
+        }
+        drops.incrementAndGet();
+    }
+
+    private static Histogram histogram(ConcurrentMap<String, Histogram> histograms, String listener) {
+        Histogram histogram = histograms.get(listener);
+        if (histogram == null) {
+            histogram = new Histogram();
+            Histogram existing = histograms.putIfAbsent(listener, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+
+    @Override
+    public void onLag(long millis) {
+        lastLag.set(millis);
+        lag.record(millis);
+    }
+
+    @Override
+    public void onReconnect() {
+        reconnectCount.incrementAndGet();
+        limitDroppedBeforeReconnect.addAndGet(limitDroppedSinceReconnect.getAndSet(0));
+    }
+
+    @Override
+    public void onLimitNotice(long dropped) {
+        // the number reported is cumulative for the connection
+        long current;
+        while (dropped > (current = limitDroppedSinceReconnect.get())) {
+            if (limitDroppedSinceReconnect.compareAndSet(current, dropped)) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void onShed() {
+        shedCount.incrementAndGet();
+    }
+
+    @Override
+    public void onSpill(int bytes) {
+        spilledMessages.incrementAndGet();
+        spilledBytes.addAndGet(bytes);
+    }
+
+    @Override
+    public void onDrain(int bytes) {
+        spilledMessages.decrementAndGet();
+        spilledBytes.addAndGet(-bytes);
+        drained.mark(1);
+    }
+
+    /* StreamStatisticsMBean implementation */
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getMessageCount() {
+        return messages.getTotal();
+    }
+
+    @Override
+    public long getByteCount() {
+        return bytes.getTotal();
+    }
+
+    @Override
+    public double getMessagesPerSecond() {
+        return messages.getRate();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return bytes.getRate();
+    }
+
+    @Override
+    public long getParseCount() {
+        return parseTime.getCount();
+    }
+
+    @Override
+    public long getAverageParseTime() {
+        return parseTime.getAverage();
+    }
+
+    @Override
+    public long getMedianParseTime() {
+        return parseTime.getPercentile(50);
+    }
+
+    @Override
+    public long get99thPercentileParseTime() {
+        return parseTime.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxParseTime() {
+        return parseTime.getMax();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public long getAverageQueueTime() {
+        return queueTime.getAverage();
+    }
+
+    @Override
+    public long getLagMillis() {
+        return lastLag.get();
+    }
+
+    @Override
+    public long getAverageLagMillis() {
+        return lag.getAverage();
+    }
+
+    @Override
+    public long getReconnectCount() {
+        return reconnectCount.get();
+    }
+
+    @Override
+    public long getLimitDroppedCount() {
+        return limitDroppedBeforeReconnect.get() + limitDroppedSinceReconnect.get();
+    }
+
+    @Override
+    public long getShedCount() {
+        return shedCount.get();
+    }
+
+    @Override
+    public long getSpilledMessageCount() {
+        return spilledMessages.get();
+    }
+
+    @Override
+    public long getSpilledBytes() {
+        return spilledBytes.get();
+    }
+
+    @Override
+    public double getDrainedMessagesPerSecond() {
+        return drained.getRate();
+    }
+
+    @Override
+    public Map<String, String> getListenerLatencySummaries() {
+        return summaries(listenerLatencies);
+    }
+
+    @Override
+    public Map<String, String> getListenerLagSummaries() {
+        return summaries(listenerLags);
+    }
+
+    @Override
+    public Map<String, Long> getListenerDropCounts() {
+        Map<String, Long> counts = new HashMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : listenerDrops.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    private static Map<String, String> summaries(ConcurrentMap<String, Histogram> histograms) {
+        Map<String, String> summaries = new HashMap<String, String>();
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            summaries.put(entry.getKey(), entry.getValue().toString());
+        }
+        return summaries;
+    }
+
+    @Override
+    public void reset() {
+        messages.reset();
+        bytes.reset();
+        parseTime.reset();
+        queueTime.reset();
+        lag.reset();
+        lastLag.set(0);
+        reconnectCount.set(0);
+        limitDroppedBeforeReconnect.set(0);
+        limitDroppedSinceReconnect.set(0);
+        shedCount.set(0);
+        drained.reset();
+        listenerLatencies.clear();
+        listenerLags.clear();
+        listenerDrops.clear();
+        // queue depth and spilled messages are gauges and are not reset
+    }
+
+    @Override
+    public String toString() {
+        return "StreamStatistics{" +
+                "name='" + name + '\'' +
+                ", messageCount=" + getMessageCount() +
+                ", byteCount=" + getByteCount() +
+                ", parseTime=" + parseTime +
+                ", queueDepth=" + getQueueDepth() +
+                ", lag=" + lag +
+                ", reconnectCount=" + getReconnectCount() +
+                ", limitDroppedCount=" + getLimitDroppedCount() +
+                ", shedCount=" + getShedCount() +
+                ", spilledMessageCount=" + getSpilledMessageCount() +
+                '}';
+    }
+}
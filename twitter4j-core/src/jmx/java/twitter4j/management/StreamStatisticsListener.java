@@ -0,0 +1,111 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j.management;
+
+/**
+ * SPI receiving raw observations from a TwitterStream.<br>
+ * Implementations are called from the stream consumer thread and from dispatcher threads, so they must be thread safe and must return quickly.
+ *
+ * @since Twitter4J 4.0.7
+ */
+public interface StreamStatisticsListener {
+    /**
+     * Called when a message has been read from the connection.
+     *
+     * @param bytes number of bytes read for the message
+     */
+    void onMessage(int bytes);
+
+    /**
+     * Called when a message has been handed to the dispatcher.
+     */
+    void onEnqueue();
+
+    /**
+     * Called when a dispatcher thread has picked up a message.
+     *
+     * @param sojournNanos time the message spent waiting in the dispatcher queue
+     */
+    void onDequeue(long sojournNanos);
+
+    /**
+     * Called when a message has been parsed.
+     *
+     * @param nanos time spent parsing the message
+     */
+    void onParse(long nanos);
+
+    /**
+     * Called when a listener callback has returned.
+     *
+     * @param listener name of the listener
+     * @param nanos    time spent in the callback
+     */
+    void onListenerInvoked(String listener, long nanos);
+
+    /**
+     * Called when a listener running on its own worker picks up a callback.
+     *
+     * @param listener name of the listener
+     * @param nanos    time the callback waited in the queue of the listener
+     */
+    void onListenerLag(String listener, long nanos);
+
+    /**
+     * Called when a callback has been dropped because the queue of the listener was full.
+     *
+     * @param listener name of the listener
+     */
+    void onListenerDrop(String listener);
+
+    /**
+     * Called when a message carrying <code>timestamp_ms</code> has been parsed.
+     *
+     * @param millis difference between the time the message was received and <code>timestamp_ms</code>
+     */
+    void onLag(long millis);
+
+    /**
+     * Called when the stream re-established the connection.
+     */
+    void onReconnect();
+
+    /**
+     * Called upon limit notices.
+     *
+     * @param dropped number of undelivered messages since the connection was established, as reported by Twitter
+     */
+    void onLimitNotice(long dropped);
+
+    /**
+     * Called when a message has been dropped by load shedding.
+     */
+    void onShed();
+
+    /**
+     * Called when a message has been written to the spill file because too many messages were waiting in memory.
+     *
+     * @param bytes number of bytes written
+     */
+    void onSpill(int bytes);
+
+    /**
+     * Called when a message has been read back from the spill file.
+     *
+     * @param bytes number of bytes read
+     */
+    void onDrain(int bytes);
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j.management;
+
+import java.util.Map;
+
+/**
+ * MBean interface for StreamStatistics. Times are in microseconds unless the name says otherwise.
+ *
+ * @since Twitter4J 4.0.7
+ */
+public interface StreamStatisticsMBean {
+    String getName();
+
+    long getMessageCount();
+
+    long getByteCount();
+
+    double getMessagesPerSecond();
+
+    double getBytesPerSecond();
+
+    long getParseCount();
+
+    long getAverageParseTime();
+
+    long getMedianParseTime();
+
+    long get99thPercentileParseTime();
+
+    long getMaxParseTime();
+
+    int getQueueDepth();
+
+    long getAverageQueueTime();
+
+    long getLagMillis();
+
+    long getAverageLagMillis();
+
+    long getReconnectCount();
+
+    long getLimitDroppedCount();
+
+    long getShedCount();
+
+    long getSpilledMessageCount();
+
+    long getSpilledBytes();
+
+    double getDrainedMessagesPerSecond();
+
+    Map<String, String> getListenerLatencySummaries();
+
+    Map<String, String> getListenerLagSummaries();
+
+    Map<String, Long> getListenerDropCounts();
+
+    void reset();
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+
+/**
+ * Iterates over all elements of a cursored collection, fetching the next page in the background while the current one is
+ * consumed:
+ * <pre>
+ * Iterator&lt;User&gt; friends = new CursorIterator&lt;User&gt;() {
+ *     protected PagableResponseList&lt;User&gt; fetch(long cursor) throws TwitterException {
+ *         return twitter.getFriendsList(userId, cursor);
+ *     }
+ * };
+ * </pre>
+ * The next page is not prefetched once the rate limit of the endpoint is exhausted. {@link #hasNext()} and {@link #next()} throw
+ * {@link TwitterRuntimeException} wrapping the {@link TwitterException} when a page cannot be fetched, and try again when called
+ * again.
+ *
+ * @param <T> element type
+ * @see IDsIterator
+ * @since Twitter4J 4.0.7
+ */
+public abstract class CursorIterator<T extends TwitterResponse> implements Iterator<T> {
+    private final CursorPages<PagableResponseList<T>> pages;
+    private Iterator<T> page = null;
+
+    /**
+     * Iterates from the first page, prefetching pages with a shared pool of daemon threads.
+     */
+    public CursorIterator() {
+        this(CursorSupport.START, null);
+    }
+
+    /**
+     * @param cursor   cursor of the first page
+     * @param executor executor to prefetch pages with, or null to use a shared pool of daemon threads
+     */
+    public CursorIterator(long cursor, Executor executor) {
+        pages = new CursorPages<PagableResponseList<T>>(cursor, executor) {
+            @Override
+            PagableResponseList<T> fetch(long cursor) throws TwitterException {
+                return CursorIterator.this.fetch(cursor);
+            }
+        };
+    }
+
+    /**
+     * Fetches a page, e.g. with {@link Twitter#getFriendsList(long, long)}. Called on the thread of the executor, except for the
+     * first page and pages not prefetched.
+     *
+     * @param cursor cursor of the page
+     * @return page
+     * @throws TwitterException when the page cannot be fetched
+     */
+    protected abstract PagableResponseList<T> fetch(long cursor) throws TwitterException;
+
+    /**
+     * @return cursor of the page after the current one, to resume with later, or 0 if the current page is the last one
+     */
+    public long getNextCursor() {
+        return pages.getCursor();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (page == null || !page.hasNext()) {
+            PagableResponseList<T> next = pages.nextPage();
+            if (next == null) {
+                return false;
+            }
+            page = next.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
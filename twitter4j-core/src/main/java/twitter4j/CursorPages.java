@@ -0,0 +1,127 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pages of a cursored collection, fetching the next page in the background while the current one is consumed.<br>
+ * The next page is not prefetched once the current page reports that the rate limit of the endpoint is exhausted. It is fetched
+ * when asked for then, so that the caller sees the failure, or the wait of <code>rateLimit.policy</code>.
+ *
+ * @param <P> page type
+ * @since Twitter4J 4.0.7
+ */
+abstract class CursorPages<P extends CursorSupport & TwitterResponse> {
+    private static final Logger logger = Logger.getLogger(CursorPages.class);
+    private static ExecutorService prefetcher;
+
+    private final Executor executor;
+    private long cursor;
+    private boolean last = false;
+    private FutureTask<P> next;
+
+    /**
+     * @param cursor   cursor of the first page
+     * @param executor executor to prefetch pages with, or null to use a shared pool of daemon threads
+     */
+    CursorPages(long cursor, Executor executor) {
+        this.cursor = cursor;
+        this.executor = executor != null ? executor : prefetcher();
+    }
+
+    private static synchronized ExecutorService prefetcher() {
+        if (prefetcher == null) {
+            prefetcher = Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Twitter4J Cursor Prefetcher[" + count.incrementAndGet() + "]");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return prefetcher;
+    }
+
+    abstract P fetch(long cursor) throws TwitterException;
+
+    /**
+     * @return cursor of the page {@link #nextPage()} returns next, or 0 if there are no more pages
+     */
+    long getCursor() {
+        return last ? 0 : cursor;
+    }
+
+    /**
+     * Returns the next page and starts fetching the one after it. When the page cannot be fetched, the next call tries again.
+     *
+     * @return next page, or null if there are no more pages
+     * @throws TwitterRuntimeException when the page cannot be fetched
+     */
+    P nextPage() {
+        if (last) {
+            return null;
+        }
+        P page;
+        if (next != null) {
+            try {
+                page = next.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TwitterRuntimeException(e);
+            } catch (ExecutionException e) {
+                next = null;
+                throw new TwitterRuntimeException(e.getCause());
+            }
+            next = null;
+        } else {
+            try {
+                page = fetch(cursor);
+            } catch (TwitterException e) {
+                throw new TwitterRuntimeException(e);
+            }
+        }
+        if (!page.hasNext()) {
+            last = true;
+            return page;
+        }
+        cursor = page.getNextCursor();
+        RateLimitStatus status = page.getRateLimitStatus();
+        if (status == null || status.getRemaining() > 0) {
+            final long nextCursor = cursor;
+            next = new FutureTask<P>(new Callable<P>() {
+                @Override
+                public P call() throws TwitterException {
+                    return fetch(nextCursor);
+                }
+            });
+            executor.execute(next);
+        } else {
+            logger.debug("Rate limit exhausted, not prefetching cursor ", String.valueOf(cursor));
+        }
+        return page;
+    }
+}
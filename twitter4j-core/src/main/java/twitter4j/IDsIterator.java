@@ -0,0 +1,103 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+
+/**
+ * Iterates over all ids of a cursored collection of ids without boxing them, fetching the next page in the background while the
+ * current one is consumed:
+ * <pre>
+ * LongIterator followers = new IDsIterator() {
+ *     protected IDs fetch(long cursor) throws TwitterException {
+ *         return twitter.getFollowersIDs(userId, cursor);
+ *     }
+ * };
+ * while (followers.hasNext()) {
+ *     long id = followers.nextLong();
+ * }
+ * </pre>
+ * The next page is not prefetched once the rate limit of the endpoint is exhausted. {@link #hasNext()} and {@link #nextLong()}
+ * throw {@link TwitterRuntimeException} wrapping the {@link TwitterException} when a page cannot be fetched, and try again when
+ * called again.
+ *
+ * @see CursorIterator
+ * @since Twitter4J 4.0.7
+ */
+public abstract class IDsIterator implements LongIterator {
+    private final CursorPages<IDs> pages;
+    private long[] ids = null;
+    private int index = 0;
+
+    /**
+     * Iterates from the first page, prefetching pages with a shared pool of daemon threads.
+     */
+    public IDsIterator() {
+        this(CursorSupport.START, null);
+    }
+
+    /**
+     * @param cursor   cursor of the first page
+     * @param executor executor to prefetch pages with, or null to use a shared pool of daemon threads
+     */
+    public IDsIterator(long cursor, Executor executor) {
+        pages = new CursorPages<IDs>(cursor, executor) {
+            @Override
+            IDs fetch(long cursor) throws TwitterException {
+                return IDsIterator.this.fetch(cursor);
+            }
+        };
+    }
+
+    /**
+     * Fetches a page, e.g. with {@link Twitter#getFollowersIDs(long, long)}. Called on the thread of the executor, except for the
+     * first page and pages not prefetched.
+     *
+     * @param cursor cursor of the page
+     * @return page
+     * @throws TwitterException when the page cannot be fetched
+     */
+    protected abstract IDs fetch(long cursor) throws TwitterException;
+
+    /**
+     * @return cursor of the page after the current one, to resume with later, or 0 if the current page is the last one
+     */
+    public long getNextCursor() {
+        return pages.getCursor();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (ids == null || index >= ids.length) {
+            IDs next = pages.nextPage();
+            if (next == null) {
+                return false;
+            }
+            ids = next.getIDs();
+            index = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public long nextLong() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return ids[index++];
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over primitive longs, e.g. user ids, which doesn't box its elements.
+ *
+ * @since Twitter4J 4.0.7
+ */
+public interface LongIterator {
+    /**
+     * @return true if there are more elements
+     */
+    boolean hasNext();
+
+    /**
+     * @return next element
+     * @throws NoSuchElementException when there are no more elements
+     */
+    long nextLong();
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A growable list of primitive longs, e.g. to merge the ids of several {@link IDs} pages without boxing them:
+ * <pre>
+ * LongList followers = new LongList();
+ * followers.addAll(new IDsIterator() {
+ *     protected IDs fetch(long cursor) throws TwitterException {
+ *         return twitter.getFollowersIDs(userId, cursor);
+ *     }
+ * });
+ * </pre>
+ * Not thread safe.
+ *
+ * @see LongSet
+ * @since Twitter4J 4.0.7
+ */
+public final class LongList {
+    private long[] values;
+    private int size = 0;
+
+    public LongList() {
+        this(16);
+    }
+
+    /**
+     * @param capacity number of elements to be stored without growing
+     */
+    public LongList(int capacity) {
+        values = new long[Math.max(1, capacity)];
+    }
+
+    /**
+     * @param values elements
+     */
+    public LongList(long[] values) {
+        this(values.length);
+        addAll(values);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+        }
+    }
+
+    public void add(long value) {
+        ensureCapacity(size + 1);
+        values[size++] = value;
+    }
+
+    /**
+     * @param values elements, e.g. {@link IDs#getIDs()} of a page
+     */
+    public void addAll(long[] values) {
+        ensureCapacity(size + values.length);
+        System.arraycopy(values, 0, this.values, size, values.length);
+        size += values.length;
+    }
+
+    /**
+     * @param values elements, e.g. those of an {@link IDsIterator}
+     */
+    public void addAll(LongIterator values) {
+        while (values.hasNext()) {
+            add(values.nextLong());
+        }
+    }
+
+    /**
+     * @param index index
+     * @return element at the index
+     * @throws IndexOutOfBoundsException when the index is out of range
+     */
+    public long get(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * @param index index
+     * @param value element
+     * @return element previously at the index
+     * @throws IndexOutOfBoundsException when the index is out of range
+     */
+    public long set(int index, long value) {
+        checkIndex(index);
+        long previous = values[index];
+        values[index] = value;
+        return previous;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * @param value element
+     * @return index of the first occurrence of the element, or -1 if it is not contained
+     */
+    public int indexOf(long value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(long value) {
+        return indexOf(value) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Sorts the elements in ascending order.
+     */
+    public void sort() {
+        Arrays.sort(values, 0, size);
+    }
+
+    /**
+     * @return iterator over the elements. The list must not be modified while iterating.
+     */
+    public LongIterator iterator() {
+        return new LongIterator() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public long nextLong() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return values[index++];
+            }
+        };
+    }
+
+    /**
+     * @return elements
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * @return new set of the elements
+     */
+    public LongSet toSet() {
+        LongSet set = new LongSet(size);
+        for (int i = 0; i < size; i++) {
+            set.add(values[i]);
+        }
+        return set;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LongList)) return false;
+
+        LongList other = (LongList) o;
+        if (size != other.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (values[i] != other.values[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        // as List<Long> does
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + (int) (values[i] ^ (values[i] >>> 32));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "LongList{" +
+                "size=" + size +
+                '}';
+    }
+}
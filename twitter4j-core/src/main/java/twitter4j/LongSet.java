@@ -0,0 +1,234 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+/**
+ * A set of primitive longs, e.g. user ids, which doesn't box its elements:
+ * <pre>
+ * LongSet followers = new LongSet(twitter.getFollowersIDs(cursor).getIDs());
+ * LongSet friends = new LongSet(twitter.getFriendsIDs(cursor).getIDs());
+ * LongSet notFollowingBack = LongSet.difference(friends, followers);
+ * </pre>
+ * Not thread safe.
+ *
+ * @see LongList
+ * @since Twitter4J 4.0.7
+ */
+public final class LongSet {
+    private final LongHashSet set;
+
+    public LongSet() {
+        set = new LongHashSet();
+    }
+
+    /**
+     * @param expectedSize number of elements to be stored without resizing
+     */
+    public LongSet(int expectedSize) {
+        set = new LongHashSet(expectedSize);
+    }
+
+    /**
+     * @param values elements
+     */
+    public LongSet(long[] values) {
+        this(values.length);
+        addAll(values);
+    }
+
+    /**
+     * @param value element
+     * @return true if the element has been added, false if it was already contained
+     */
+    public boolean add(long value) {
+        return set.add(value);
+    }
+
+    /**
+     * @param values elements
+     * @return true if any element has been added
+     */
+    public boolean addAll(long[] values) {
+        boolean changed = false;
+        for (long value : values) {
+            changed |= set.add(value);
+        }
+        return changed;
+    }
+
+    /**
+     * @param values elements, e.g. those of an {@link IDsIterator}
+     * @return true if any element has been added
+     */
+    public boolean addAll(LongIterator values) {
+        boolean changed = false;
+        while (values.hasNext()) {
+            changed |= set.add(values.nextLong());
+        }
+        return changed;
+    }
+
+    /**
+     * @param value element
+     * @return true if the element has been removed, false if it was not contained
+     */
+    public boolean remove(long value) {
+        return set.remove(value);
+    }
+
+    /**
+     * Removes all elements of the other set from this set.
+     *
+     * @param other other set
+     * @return true if any element has been removed
+     */
+    public boolean removeAll(LongSet other) {
+        boolean changed = false;
+        for (LongIterator i = other.iterator(); i.hasNext(); ) {
+            changed |= set.remove(i.nextLong());
+        }
+        return changed;
+    }
+
+    /**
+     * Removes all elements not in the other set from this set.
+     *
+     * @param other other set
+     * @return true if any element has been removed
+     */
+    public boolean retainAll(LongSet other) {
+        long[] values = toArray();
+        boolean changed = false;
+        for (long value : values) {
+            if (!other.contains(value)) {
+                changed |= set.remove(value);
+            }
+        }
+        return changed;
+    }
+
+    public boolean contains(long value) {
+        return set.contains(value);
+    }
+
+    public int size() {
+        return set.size();
+    }
+
+    public boolean isEmpty() {
+        return set.size() == 0;
+    }
+
+    public void clear() {
+        set.clear();
+    }
+
+    /**
+     * @return iterator over the elements, in no particular order. The set must not be modified while iterating.
+     */
+    public LongIterator iterator() {
+        return set.iterator();
+    }
+
+    /**
+     * @return elements in no particular order
+     */
+    public long[] toArray() {
+        long[] values = new long[set.size()];
+        int i = 0;
+        for (LongIterator iterator = set.iterator(); iterator.hasNext(); ) {
+            values[i++] = iterator.nextLong();
+        }
+        return values;
+    }
+
+    /**
+     * @param a a set
+     * @param b another set
+     * @return new set of the elements in either set
+     */
+    public static LongSet union(LongSet a, LongSet b) {
+        LongSet union = new LongSet(a.size() + b.size());
+        union.addAll(a.iterator());
+        union.addAll(b.iterator());
+        return union;
+    }
+
+    /**
+     * @param a a set
+     * @param b another set
+     * @return new set of the elements in both sets
+     */
+    public static LongSet intersection(LongSet a, LongSet b) {
+        LongSet smaller = a.size() <= b.size() ? a : b;
+        LongSet larger = smaller == a ? b : a;
+        LongSet intersection = new LongSet(smaller.size());
+        for (LongIterator i = smaller.iterator(); i.hasNext(); ) {
+            long value = i.nextLong();
+            if (larger.contains(value)) {
+                intersection.add(value);
+            }
+        }
+        return intersection;
+    }
+
+    /**
+     * @param a a set
+     * @param b another set
+     * @return new set of the elements in <code>a</code> but not in <code>b</code>
+     */
+    public static LongSet difference(LongSet a, LongSet b) {
+        LongSet difference = new LongSet(a.size());
+        for (LongIterator i = a.iterator(); i.hasNext(); ) {
+            long value = i.nextLong();
+            if (!b.contains(value)) {
+                difference.add(value);
+            }
+        }
+        return difference;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LongSet)) return false;
+
+        LongSet other = (LongSet) o;
+        if (size() != other.size()) return false;
+        for (LongIterator i = iterator(); i.hasNext(); ) {
+            if (!other.contains(i.nextLong())) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        // as Set<Long> does
+        int hash = 0;
+        for (LongIterator i = iterator(); i.hasNext(); ) {
+            long value = i.nextLong();
+            hash += (int) (value ^ (value >>> 32));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "LongSet{" +
+                "size=" + size() +
+                '}';
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Keeps the quota in a memory-mapped file shared by all processes on the host, <code>rateLimit.storeFile</code>.<br>
+ * The file is a hash table of <code>rateLimit.storeSlots</code> slots, fixed by the process creating it. A slot holds a 64 bit hash
+ * of the key and the quota packed into 64 bits, and is updated with compare-and-swap instructions on the mapped memory, so processes
+ * never wait for each other. Keys are never removed. When the table is full, quotas of further keys are not tracked.<br>
+ * Limits and remaining calls above 32767 are stored as 32767.
+ *
+ * @since Twitter4J 4.0.7
+ */
+public final class MappedRateLimitStore implements RateLimitStore {
+    private static final Logger logger = Logger.getLogger(MappedRateLimitStore.class);
+    // "T4JR"
+    private static final long MAGIC = 0x54344A52L;
+    private static final int HEADER_SIZE = 8;
+    private static final int SLOT_SIZE = 16;
+    private static final int MAX_VALUE = 0x7FFF;
+
+    private final File file;
+    // keeps the mapping alive
+    private final MappedByteBuffer buffer;
+    private final long address;
+    private final int slots;
+    private volatile boolean fullReported = false;
+
+    public MappedRateLimitStore(Configuration conf) throws IOException {
+        if (Atomics.UNSAFE == null) {
+            throw new IllegalStateException("Compare-and-swap on mapped memory is not supported by this VM.");
+        }
+        String path = conf.getRateLimitStoreFile();
+        this.file = path != null ? new File(path) : new File(System.getProperty("java.io.tmpdir"), "twitter4j-rate-limits");
+        long size = HEADER_SIZE + (long) Math.max(1, conf.getRateLimitStoreSlots()) * SLOT_SIZE;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() < size) {
+                raf.setLength(size);
+            }
+            size = raf.length();
+            // the mapping stays valid after the channel has been closed
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            raf.close();
+        }
+        address = Atomics.addressOf(buffer);
+        long header = MAGIC << 32 | (size - HEADER_SIZE) / SLOT_SIZE;
+        // the first process to open the file fixes the number of slots
+        Atomics.compareAndSwap(address, 0, header);
+        header = Atomics.getVolatile(address);
+        if (header >>> 32 != MAGIC || HEADER_SIZE + (header & 0xFFFFFFFFL) * SLOT_SIZE > size) {
+            throw new IllegalStateException(file + " is not a rate limit store.");
+        }
+        slots = (int) (header & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public Quota get(String key) {
+        long slot = find(hash(key), false);
+        return slot < 0 ? null : unpack(Atomics.getVolatile(slot + 8));
+    }
+
+    @Override
+    public boolean compareAndSet(String key, Quota expected, Quota update) {
+        long slot = find(hash(key), true);
+        if (slot < 0) {
+            if (!fullReported) {
+                fullReported = true;
+                logger.warn("Rate limit store is full. Quotas of further endpoints are not tracked: ", file.getAbsolutePath());
+            }
+            return true;
+        }
+        return Atomics.compareAndSwap(slot + 8, pack(expected), pack(update));
+    }
+
+    /**
+     * @param hash  hash of the key
+     * @param claim true to claim a free slot if the key is not found
+     * @return address of the slot, or -1
+     */
+    private long find(long hash, boolean claim) {
+        int index = (int) ((hash ^ (hash >>> 32)) & Integer.MAX_VALUE) % slots;
+        for (int i = 0; i < slots; i++) {
+            long slot = address + HEADER_SIZE + (long) ((index + i) % slots) * SLOT_SIZE;
+            long current = Atomics.getVolatile(slot);
+            if (current == 0) {
+                if (!claim) {
+                    return -1;
+                }
+                if (Atomics.compareAndSwap(slot, 0, hash)) {
+                    return slot;
+                }
+                // claimed by another thread or process in the meantime
+                current = Atomics.getVolatile(slot);
+            }
+            if (current == hash) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param key key
+     * @return 64 bit FNV-1a hash of the key, never 0 which marks free slots
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash != 0 ? hash : 1;
+    }
+
+    static long pack(Quota quota) {
+        if (quota == null) {
+            return 0;
+        }
+        return (quota.getResetTimeInSeconds() & 0xFFFFFFFFL) << 32
+                | (long) Math.max(0, Math.min(MAX_VALUE, quota.getRemaining())) << 16
+                | (long) Math.max(0, Math.min(MAX_VALUE, quota.getLimit())) << 1
+                | (quota.isEstimated() ? 1 : 0);
+    }
+
+    static Quota unpack(long state) {
+        if (state == 0) {
+            return null;
+        }
+        return new Quota((int) (state >>> 1) & MAX_VALUE, (int) (state >>> 16) & 0xFFFF, (int) (state >>> 32), (state & 1) == 1);
+    }
+
+    @Override
+    public String toString() {
+        return "MappedRateLimitStore{" +
+                "file=" + file +
+                ", slots=" + slots +
+                '}';
+    }
+
+    /**
+     * Atomic access to native memory through sun.misc.Unsafe, looked up reflectively as it is not part of the platform API.
+     */
+    private static final class Atomics {
+        static final Object UNSAFE;
+        private static final Method GET_LONG;
+        private static final Method GET_LONG_VOLATILE;
+        private static final Method COMPARE_AND_SWAP_LONG;
+        private static final long ADDRESS_OFFSET;
+
+        static {
+            Object unsafe = null;
+            Method getLong = null;
+            Method getLongVolatile = null;
+            Method compareAndSwapLong = null;
+            long addressOffset = -1;
+            try {
+                Class<?> clazz = Class.forName("sun.misc.Unsafe");
+                Field field = clazz.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                getLong = clazz.getMethod("getLong", Object.class, long.class);
+                getLongVolatile = clazz.getMethod("getLongVolatile", Object.class, long.class);
+                compareAndSwapLong = clazz.getMethod("compareAndSwapLong", Object.class, long.class, long.class, long.class);
+                Object instance = field.get(null);
+                addressOffset = (Long) clazz.getMethod("objectFieldOffset", Field.class)
+                        .invoke(instance, Buffer.class.getDeclaredField("address"));
+                unsafe = instance;
+            } catch (Exception e) {
+                logger.warn("sun.misc.Unsafe is not available: ", String.valueOf(e));
+            }
+            UNSAFE = unsafe;
+            GET_LONG = getLong;
+            GET_LONG_VOLATILE = getLongVolatile;
+            COMPARE_AND_SWAP_LONG = compareAndSwapLong;
+            ADDRESS_OFFSET = addressOffset;
+        }
+
+        static long addressOf(Buffer buffer) {
+            return (Long) invoke(GET_LONG, buffer, ADDRESS_OFFSET);
+        }
+
+        static long getVolatile(long address) {
+            return (Long) invoke(GET_LONG_VOLATILE, null, address);
+        }
+
+        static boolean compareAndSwap(long address, long expected, long update) {
+            return (Boolean) invoke(COMPARE_AND_SWAP_LONG, null, address, expected, update);
+        }
+
+        private static Object invoke(Method method, Object... args) {
+            try {
+                return method.invoke(UNSAFE, args);
+            } catch (IllegalAccessException e) {
+                throw new AssertionError(e);
+            } catch (InvocationTargetException e) {
+                throw new AssertionError(e.getCause());
+            }
+        }
+    }
+}
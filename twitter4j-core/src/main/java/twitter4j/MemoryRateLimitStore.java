@@ -0,0 +1,43 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the quota in the heap of the VM. The default {@link RateLimitStore}.
+ *
+ * @since Twitter4J 4.0.7
+ */
+public final class MemoryRateLimitStore implements RateLimitStore {
+    private final ConcurrentMap<String, Quota> quotas = new ConcurrentHashMap<String, Quota>();
+
+    public MemoryRateLimitStore(Configuration conf) {
+    }
+
+    @Override
+    public Quota get(String key) {
+        return quotas.get(key);
+    }
+
+    @Override
+    public boolean compareAndSet(String key, Quota expected, Quota update) {
+        return expected == null ? quotas.putIfAbsent(key, update) == null : quotas.replace(key, expected, update);
+    }
+}
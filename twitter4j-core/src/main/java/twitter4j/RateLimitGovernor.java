@@ -0,0 +1,555 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.auth.Authorization;
+import twitter4j.conf.Configuration;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps REST calls within the rate limits reported by the <code>x-rate-limit-*</code> response headers.<br>
+ * The remaining quota is tracked per endpoint, e.g. <code>/statuses/show/:id</code>, per token, and shared by all instances in the VM.
+ * Each call takes one from the quota before it is sent. When the quota is exhausted, <code>rateLimit.policy</code> decides:
+ * <ul>
+ * <li><code>wait</code> blocks the call until the window resets</li>
+ * <li><code>fail</code> throws a {@link TwitterException} with status code 429 without sending the request</li>
+ * <li><code>queue</code> blocks the call until the window resets, releasing calls in the order they were made.
+ * At most <code>rateLimit.queueSize</code> calls wait per endpoint, further calls fail</li>
+ * <li><code>track</code> only keeps track of the quota, e.g. for {@link TwitterPool} to route calls by</li>
+ * </ul>
+ * Calls which would wait longer than <code>rateLimit.maxWait</code> seconds fail.<br>
+ * Calls of lower {@link RequestPriority} lanes leave <code>priority.reservedQuotaPercent</code> percent of the limit to each lane above,
+ * and wait or fail as if the quota was exhausted once it is down to their reserve. Queued calls are released by lane first.<br>
+ * The quota is kept in the {@link RateLimitStore} configured with <code>rateLimit.storeImpl</code>, so that processes sharing tokens
+ * can share it. Waiting calls are coordinated within the VM only, and check for windows reset by other processes once a second.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class RateLimitGovernor {
+    private static final Logger logger = Logger.getLogger(RateLimitGovernor.class);
+    // rate limit windows of the REST API are 15 minutes
+    private static final long WINDOW = TimeUnit.MINUTES.toMillis(15);
+    // waiting calls look for windows reset by other processes at this interval
+    private static final long POLL_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+    // idle windows are looked for at this interval
+    private static final long SWEEP_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    private static final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<String, Window>();
+    private static volatile long nextSweep = 0;
+    private static final ConcurrentMap<String, RateLimitStore> stores = new ConcurrentHashMap<String, RateLimitStore>();
+    // endpoints with parameters in the path, named the way the API does.
+    // "path -> endpoint" names endpoints the API names after a parameter which is passed in the query instead
+    private static final String[][] TEMPLATES = templates(
+            "/users/show -> /users/show/:id",
+            "/statuses/show -> /statuses/show/:id",
+            "/statuses/show/:id",
+            "/statuses/retweets/:id",
+            "/statuses/retweet/:id",
+            "/statuses/destroy/:id",
+            "/saved_searches/show/:id",
+            "/saved_searches/destroy/:id",
+            "/geo/id/:place_id",
+            "/users/suggestions/:slug",
+            "/users/suggestions/:slug/members");
+    // endpoint of the last call made by the thread
+    private static final ThreadLocal<String> lastResource = new ThreadLocal<String>();
+
+    enum Policy {
+        WAIT, FAIL, QUEUE, TRACK
+    }
+
+    private final Policy policy;
+    private final int queueSize;
+    private final long maxWait;
+    private final RateLimitStore store;
+    private final int reservedPercent;
+
+    private RateLimitGovernor(Policy policy, int queueSize, long maxWait, RateLimitStore store, int reservedPercent) {
+        this.policy = policy;
+        this.queueSize = queueSize;
+        this.maxWait = maxWait;
+        this.store = store;
+        this.reservedPercent = Math.max(0, Math.min(100, reservedPercent));
+    }
+
+    /**
+     * @param conf configuration
+     * @return governor, or null if <code>rateLimit.policy</code> is not set
+     */
+    static RateLimitGovernor getInstance(Configuration conf) {
+        String policy = conf.getRateLimitPolicy();
+        if (policy == null || policy.length() == 0) {
+            return null;
+        }
+        return new RateLimitGovernor(Policy.valueOf(policy.toUpperCase()), Math.max(1, conf.getRateLimitQueueSize())
+                , TimeUnit.SECONDS.toMillis(conf.getRateLimitMaxWait()), storeOf(conf), conf.getPriorityReservedQuotaPercent());
+    }
+
+    /**
+     * @param conf configuration
+     * @return governor which only keeps track of the quota
+     */
+    static RateLimitGovernor tracking(Configuration conf) {
+        return new RateLimitGovernor(Policy.TRACK, 1, Long.MAX_VALUE, storeOf(conf), 0);
+    }
+
+    /**
+     * @param conf configuration
+     * @return the store shared by instances configured with the same <code>rateLimit.storeImpl</code> and <code>rateLimit.storeFile</code>
+     */
+    static RateLimitStore storeOf(Configuration conf) {
+        String key = conf.getRateLimitStoreImpl() + " " + conf.getRateLimitStoreFile();
+        RateLimitStore store = stores.get(key);
+        if (store == null) {
+            RateLimitStore newStore = newStore(conf);
+            store = stores.putIfAbsent(key, newStore);
+            if (store == null) {
+                store = newStore;
+            }
+        }
+        return store;
+    }
+
+    private static RateLimitStore newStore(Configuration conf) {
+        try {
+            return (RateLimitStore) Class.forName(conf.getRateLimitStoreImpl())
+                    .getConstructor(Configuration.class).newInstance(conf);
+        } catch (InvocationTargetException e) {
+            // e.g. the file cannot be mapped
+            logger.warn("Failed to open the rate limit store. Keeping the quota in memory: ", String.valueOf(e.getCause()));
+            return new MemoryRateLimitStore(conf);
+        } catch (InstantiationException e) {
+            throw new AssertionError(e);
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        } catch (ClassNotFoundException e) {
+            throw new AssertionError(e);
+        } catch (ClassCastException e) {
+            throw new AssertionError(e);
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    Policy getPolicy() {
+        return policy;
+    }
+
+    RateLimitStore getStore() {
+        return store;
+    }
+
+    /**
+     * Takes one call from the quota of the endpoint in the lane of the current thread, see {@link RequestPriority#current()}.
+     *
+     * @param token token the call is made with, see {@link #tokenOf(Authorization)}
+     * @param url   URL of the call
+     * @throws TwitterException when the quota is exhausted and the call cannot wait
+     */
+    void acquire(String token, String url) throws TwitterException {
+        acquire(token, url, RequestPriority.current());
+    }
+
+    /**
+     * Takes one call from the quota of the endpoint, waiting for the window to reset if the policy says so.
+     *
+     * @param token    token the call is made with, see {@link #tokenOf(Authorization)}
+     * @param url      URL of the call
+     * @param priority lane of the call
+     * @throws TwitterException when the quota is exhausted and the call cannot wait
+     */
+    void acquire(String token, String url, RequestPriority priority) throws TwitterException {
+        String resource = resourceOf(url);
+        lastResource.set(resource);
+        String key = token + " " + resource;
+        while (!windowOf(key).acquire(store, key, resource, policy, queueSize, maxWait, priority, reservedPercent)) {
+            // the window has been swept in the meantime
+        }
+    }
+
+    /**
+     * @param token  token the call has been made with
+     * @param url    URL of the call
+     * @param status rate limit status reported by the response
+     */
+    void update(String token, String url, RateLimitStatus status) {
+        String key = token + " " + resourceOf(url);
+        Window.update(store, key, status, windows.get(key));
+    }
+
+    /**
+     * @param token    token
+     * @param resource endpoint, see {@link #resourceOf(String)}
+     * @return remaining calls known for the endpoint, or -1 if nothing is known yet
+     */
+    int getRemaining(String token, String resource) {
+        RateLimitStore.Quota quota = store.get(token + " " + resource);
+        if (quota == null) {
+            return -1;
+        }
+        return System.currentTimeMillis() >= quota.getResetTimeInSeconds() * 1000L ? quota.getLimit() : quota.getRemaining();
+    }
+
+    /**
+     * @param token    token
+     * @param resource endpoint, see {@link #resourceOf(String)}
+     * @return time the window of the endpoint resets in milliseconds, or 0 if nothing is known yet
+     */
+    long getResetTime(String token, String resource) {
+        RateLimitStore.Quota quota = store.get(token + " " + resource);
+        return quota != null ? quota.getResetTimeInSeconds() * 1000L : 0;
+    }
+
+    /**
+     * Returns and forgets the endpoint of the last call made by the current thread.
+     *
+     * @return endpoint, or null if no call has been made since the last time
+     */
+    static String takeLastResource() {
+        String resource = lastResource.get();
+        lastResource.remove();
+        return resource;
+    }
+
+    private static Window windowOf(String key) {
+        long now = System.currentTimeMillis();
+        if (now >= nextSweep) {
+            nextSweep = now + SWEEP_INTERVAL;
+            sweep(now);
+        }
+        Window window = windows.get(key);
+        if (window == null) {
+            Window newWindow = new Window();
+            window = windows.putIfAbsent(key, newWindow);
+            if (window == null) {
+                window = newWindow;
+            }
+        }
+        return window;
+    }
+
+    /**
+     * Removes the windows which have been reset and have no calls waiting.
+     *
+     * @param now current time in milliseconds
+     */
+    static void sweep(long now) {
+        for (Map.Entry<String, Window> entry : windows.entrySet()) {
+            if (entry.getValue().retire(now)) {
+                windows.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @param token    token
+     * @param resource endpoint, see {@link #resourceOf(String)}
+     * @return true if a window of the endpoint is kept
+     */
+    static boolean hasWindow(String token, String resource) {
+        return windows.containsKey(token + " " + resource);
+    }
+
+    /**
+     * Identifies the rate limited endpoint of a URL, the way the API names them in <code>application/rate_limit_status</code>.
+     *
+     * @param url URL, e.g. <code>https://api.twitter.com/1.1/statuses/show/123.json?trim_user=true</code>
+     * @return endpoint, e.g. <code>/statuses/show/:id</code>
+     */
+    static String resourceOf(String url) {
+        int end = url.indexOf('?');
+        if (end < 0) {
+            end = url.length();
+        }
+        if (url.regionMatches(end - 5, ".json", 0, 5)) {
+            end -= 5;
+        }
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : url.indexOf('/', start + 3);
+        if (start < 0) {
+            return "/";
+        }
+        List<String> segments = new ArrayList<String>();
+        boolean first = true;
+        for (String segment : url.substring(start + 1, end).split("/")) {
+            if (segment.length() == 0) {
+                continue;
+            }
+            // the API version, e.g. 1.1
+            if (first && Character.isDigit(segment.charAt(0))) {
+                first = false;
+                continue;
+            }
+            first = false;
+            segments.add(segment);
+        }
+        for (String[] template : TEMPLATES) {
+            if (matches(template, segments)) {
+                return template[template.length - 1];
+            }
+        }
+        StringBuilder resource = new StringBuilder(end - start);
+        for (String segment : segments) {
+            resource.append('/').append(isNumber(segment) ? ":id" : segment);
+        }
+        return resource.length() == 0 ? "/" : resource.toString();
+    }
+
+    /**
+     * @param templates endpoints, e.g. <code>/geo/id/:place_id</code>, or paths followed by the endpoint they belong to,
+     *                  e.g. <code>/users/show -&gt; /users/show/:id</code>
+     * @return segments of each path, followed by the endpoint
+     */
+    private static String[][] templates(String... templates) {
+        String[][] parsed = new String[templates.length][];
+        for (int i = 0; i < templates.length; i++) {
+            int arrow = templates[i].indexOf(" -> ");
+            String path = arrow < 0 ? templates[i] : templates[i].substring(0, arrow);
+            String[] segments = path.substring(1).split("/");
+            parsed[i] = new String[segments.length + 1];
+            System.arraycopy(segments, 0, parsed[i], 0, segments.length);
+            parsed[i][segments.length] = arrow < 0 ? templates[i] : templates[i].substring(arrow + 4);
+        }
+        return parsed;
+    }
+
+    private static boolean matches(String[] template, List<String> segments) {
+        if (template.length - 1 != segments.size()) {
+            return false;
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            if (template[i].charAt(0) != ':' && !template[i].equals(segments.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNumber(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rate limits apply per user and application, or per application with application-only authentication.
+     * The token is identified by a digest of {@link Authorization#toString()}, which names both, so that secrets aren't kept as keys.
+     *
+     * @param auth authorization
+     * @return identifier of the token
+     */
+    static String tokenOf(Authorization auth) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(String.valueOf(auth).getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @param limit           rate limit of the endpoint
+     * @param priority        lane of the call
+     * @param reservedPercent percent of the limit left to each lane above
+     * @return calls the lane leaves to the lanes above
+     */
+    static int reserveOf(int limit, RequestPriority priority, int reservedPercent) {
+        return (int) Math.ceil(limit * (double) reservedPercent * priority.ordinal() / 100);
+    }
+
+    /**
+     * Place of a queued call in line, by lane first and then in the order the calls were made.
+     */
+    private static final class Ticket implements Comparable<Ticket> {
+        private final RequestPriority priority;
+        private final long sequence;
+
+        Ticket(RequestPriority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Ticket that) {
+            if (priority != that.priority) {
+                return priority.compareTo(that.priority);
+            }
+            return sequence < that.sequence ? -1 : (sequence == that.sequence ? 0 : 1);
+        }
+    }
+
+    /**
+     * Calls waiting for the quota of an endpoint for a token. Removed from {@link #windows} once it has been reset and no call is
+     * waiting, see {@link #sweep(long)}.
+     */
+    private static final class Window {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition reset = lock.newCondition();
+        // guarded by lock
+        private final Queue<Ticket> line = new PriorityQueue<Ticket>();
+        private long tickets = 0;
+        private int callers = 0;
+        private boolean retired = false;
+        private long resetTime = 0;
+
+        /**
+         * @return false if the window has been swept, and the call is to be made on a new one
+         */
+        boolean acquire(RateLimitStore store, String key, String resource, Policy policy, int queueSize, long maxWait
+                , RequestPriority priority, int reservedPercent) throws TwitterException {
+            lock.lock();
+            if (retired) {
+                lock.unlock();
+                return false;
+            }
+            callers++;
+            // identifies the place of the call in line
+            Ticket ticket = null;
+            try {
+                while (true) {
+                    long now = System.currentTimeMillis();
+                    RateLimitStore.Quota stored = store.get(key);
+                    if (stored == null) {
+                        // nothing known yet
+                        return true;
+                    }
+                    RateLimitStore.Quota quota = stored;
+                    if (now >= quota.getResetTimeInSeconds() * 1000L) {
+                        // the window has been reset, but no response has reported the new one yet
+                        quota = new RateLimitStore.Quota(quota.getLimit(), quota.getLimit(), (int) ((now + WINDOW) / 1000), true);
+                    }
+                    resetTime = quota.getResetTimeInSeconds() * 1000L;
+                    long wait = resetTime - now;
+                    boolean available = quota.getRemaining() > reserveOf(quota.getLimit(), priority, reservedPercent);
+                    if (available) {
+                        if (policy != Policy.QUEUE || line.peek() == ticket) {
+                            if (store.compareAndSet(key, stored, quota.withRemaining(quota.getRemaining() - 1))) {
+                                return true;
+                            }
+                            // taken by another thread or process in the meantime
+                            continue;
+                        }
+                    } else if (policy == Policy.TRACK) {
+                        return true;
+                    } else if (policy == Policy.FAIL || wait > maxWait) {
+                        throw exhausted(resource, wait);
+                    }
+                    if (policy == Policy.QUEUE && ticket == null) {
+                        if (line.size() >= queueSize) {
+                            throw exhausted(resource, wait);
+                        }
+                        ticket = new Ticket(priority, tickets++);
+                        line.add(ticket);
+                        if (available && line.peek() == ticket) {
+                            // ahead of the calls of lower lanes waiting for their reserve
+                            continue;
+                        }
+                        logger.debug("Waiting for the rate limit of " + resource + " to reset in ms: ", String.valueOf(wait));
+                    }
+                    reset.await(Math.min(wait, POLL_INTERVAL), TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TwitterException("Interrupted while waiting for the rate limit of " + resource, e);
+            } finally {
+                if (ticket != null) {
+                    line.remove(ticket);
+                    // let the next call in line through
+                    reset.signalAll();
+                }
+                callers--;
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @param now current time in milliseconds
+         * @return true if the window has been reset and no call is waiting, in which case it is not to be used anymore
+         */
+        boolean retire(long now) {
+            if (!lock.tryLock()) {
+                return false;
+            }
+            try {
+                if (callers == 0 && now >= resetTime) {
+                    retired = true;
+                }
+                return retired;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @param window window of the key, or null if no call has waited for it recently
+         */
+        static void update(RateLimitStore store, String key, RateLimitStatus status, Window window) {
+            while (true) {
+                RateLimitStore.Quota stored = store.get(key);
+                RateLimitStore.Quota quota;
+                if (stored == null || stored.isEstimated() || status.getResetTimeInSeconds() > stored.getResetTimeInSeconds()) {
+                    // a new window
+                    quota = new RateLimitStore.Quota(status.getLimit(), status.getRemaining(), status.getResetTimeInSeconds(), false);
+                } else if (status.getResetTimeInSeconds() == stored.getResetTimeInSeconds()
+                        && status.getRemaining() < stored.getRemaining()) {
+                    // calls in flight are already taken from the stored count, responses may arrive out of order
+                    quota = stored.withRemaining(status.getRemaining());
+                } else {
+                    // nothing new, or a response from an earlier window
+                    return;
+                }
+                if (store.compareAndSet(key, stored, quota)) {
+                    if (window != null && quota.getRemaining() > 0) {
+                        window.lock.lock();
+                        try {
+                            window.reset.signalAll();
+                        } finally {
+                            window.lock.unlock();
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private static TwitterException exhausted(String resource, long wait) {
+        return new TwitterException("Rate limit of " + resource + " exhausted. The request has not been sent. Resets in "
+                + TimeUnit.MILLISECONDS.toSeconds(wait) + " seconds.", null, HttpResponseCode.TOO_MANY_REQUESTS);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the rate limit status of all endpoints of a token current, so that callers can plan their calls without spending any on
+ * <code>application/rate_limit_status</code> themselves.<br>
+ * The status of all endpoints is fetched with {@link HelpResources#getRateLimitStatus()} every <code>rateLimit.refreshInterval</code>
+ * seconds on a background thread, and the <code>x-rate-limit-*</code> headers of every response received for the token in between
+ * are merged in. Lookups never make calls:
+ * <pre>
+ * RateLimitStatusCache cache = RateLimitStatusCache.getInstance(twitter);
+ * RateLimitStatus status = cache.get("/followers/ids");
+ * </pre>
+ *
+ * @since Twitter4J 4.0.7
+ */
+public final class RateLimitStatusCache {
+    private static final Logger logger = Logger.getLogger(RateLimitStatusCache.class);
+    // rate limit windows of the REST API are 15 minutes
+    private static final int WINDOW_SECONDS = 15 * 60;
+    private static final ConcurrentMap<String, RateLimitStatusCache> caches = new ConcurrentHashMap<String, RateLimitStatusCache>();
+    private static ScheduledExecutorService refresher;
+
+    private final String token;
+    private final Twitter twitter;
+    private final ConcurrentMap<String, RateLimitStatus> statuses = new ConcurrentHashMap<String, RateLimitStatus>();
+    private volatile long lastRefreshed = 0;
+    private ScheduledFuture<?> refreshing;
+
+    private RateLimitStatusCache(String token, Twitter twitter) {
+        this.token = token;
+        this.twitter = twitter;
+    }
+
+    /**
+     * Returns the cache of the token of the instance, and starts refreshing it with the instance when there is none yet.
+     * Instances using the same token share the cache.
+     *
+     * @param twitter instance
+     * @return cache
+     */
+    public static RateLimitStatusCache getInstance(Twitter twitter) {
+        String token = RateLimitGovernor.tokenOf(twitter.getAuthorization());
+        RateLimitStatusCache cache = caches.get(token);
+        if (cache == null) {
+            RateLimitStatusCache newCache = new RateLimitStatusCache(token, twitter);
+            cache = caches.putIfAbsent(token, newCache);
+            if (cache == null) {
+                cache = newCache;
+                cache.start(twitter.getConfiguration().getRateLimitRefreshInterval());
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @return true if there is any cache to merge responses into
+     */
+    static boolean isActive() {
+        return !caches.isEmpty();
+    }
+
+    /**
+     * Merges the rate limit status reported by the headers of a response into the cache of the token, if there is one.
+     *
+     * @param token  token the call has been made with, see {@link RateLimitGovernor#tokenOf(twitter4j.auth.Authorization)}
+     * @param url    URL of the call
+     * @param status rate limit status reported by the response
+     */
+    static void merge(String token, String url, RateLimitStatus status) {
+        RateLimitStatusCache cache = caches.get(token);
+        if (cache != null) {
+            cache.merge(RateLimitGovernor.resourceOf(url), status);
+        }
+    }
+
+    private synchronized void start(int intervalInSeconds) {
+        if (intervalInSeconds <= 0) {
+            return;
+        }
+        refreshing = refresher().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refresh();
+                } catch (TwitterException e) {
+                    logger.warn("Failed to refresh the rate limit status: ", String.valueOf(e));
+                }
+            }
+        }, 0, intervalInSeconds, TimeUnit.SECONDS);
+    }
+
+    private static synchronized ScheduledExecutorService refresher() {
+        if (refresher == null) {
+            refresher = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Twitter4J Rate Limit Refresher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return refresher;
+    }
+
+    /**
+     * Fetches the rate limit status of all endpoints now.
+     *
+     * @throws TwitterException when the status cannot be fetched
+     */
+    public void refresh() throws TwitterException {
+        Map<String, RateLimitStatus> fetched = twitter.getRateLimitStatus();
+        for (Map.Entry<String, RateLimitStatus> entry : fetched.entrySet()) {
+            merge(entry.getKey(), entry.getValue());
+        }
+        lastRefreshed = System.currentTimeMillis();
+    }
+
+    private void merge(String resource, RateLimitStatus status) {
+        while (true) {
+            RateLimitStatus cached = statuses.get(resource);
+            if (cached == null) {
+                if (statuses.putIfAbsent(resource, status) == null) {
+                    return;
+                }
+            } else if (status.getResetTimeInSeconds() > cached.getResetTimeInSeconds()
+                    || status.getResetTimeInSeconds() == cached.getResetTimeInSeconds()
+                    && status.getRemaining() < cached.getRemaining()) {
+                // a new window, or a later count of the same one. Responses may arrive out of order
+                if (statuses.replace(resource, cached, status)) {
+                    return;
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param resource endpoint, e.g. <code>/statuses/show/:id</code>
+     * @return rate limit status of the endpoint, or null if nothing is known about it yet.
+     * Once the window has reset, the full limit is returned until the next window is reported.
+     */
+    public RateLimitStatus get(String resource) {
+        return current(statuses.get(resource));
+    }
+
+    /**
+     * @return rate limit status of all endpoints known
+     */
+    public Map<String, RateLimitStatus> getSnapshot() {
+        Map<String, RateLimitStatus> snapshot = new HashMap<String, RateLimitStatus>(statuses.size() * 2);
+        for (Map.Entry<String, RateLimitStatus> entry : statuses.entrySet()) {
+            snapshot.put(entry.getKey(), current(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    private static RateLimitStatus current(RateLimitStatus status) {
+        if (status == null) {
+            return null;
+        }
+        int now = (int) (System.currentTimeMillis() / 1000);
+        if (now < status.getResetTimeInSeconds()) {
+            return status;
+        }
+        return new RateLimitStatusJSONImpl(status.getLimit(), status.getLimit(), now + WINDOW_SECONDS);
+    }
+
+    /**
+     * @return time of the last refresh in milliseconds, or 0 if the cache has not been refreshed yet
+     */
+    public long getLastRefreshed() {
+        return lastRefreshed;
+    }
+
+    /**
+     * Stops refreshing and forgets the cache. The next {@link #getInstance(Twitter)} for the token starts over.
+     */
+    public synchronized void shutdown() {
+        caches.remove(token, this);
+        if (refreshing != null) {
+            refreshing.cancel(false);
+            refreshing = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitStatusCache{" +
+                "endpoints=" + statuses.size() +
+                ", lastRefreshed=" + lastRefreshed +
+                '}';
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+/**
+ * Holds the remaining quota of rate limited endpoints, as tracked with <code>rateLimit.policy</code>.<br>
+ * The implementation is chosen with <code>rateLimit.storeImpl</code> and instantiated with a public constructor taking a
+ * {@link twitter4j.conf.Configuration}. One instance is shared by all instances configured with the same implementation and
+ * <code>rateLimit.storeFile</code>.<br>
+ * Twitter4J ships with {@link MemoryRateLimitStore}, the default, which tracks calls made by the VM, and {@link MappedRateLimitStore},
+ * which tracks calls made by all processes on the host sharing a file. Stores shared by processes on other hosts, e.g. backed by a
+ * key value store, can be plugged in the same way.<br>
+ * Implementations must be thread safe. Updates are made with {@link #compareAndSet(String, Quota, Quota)}, so no lock needs to be
+ * held across calls.
+ *
+ * @since Twitter4J 4.0.7
+ */
+public interface RateLimitStore {
+    /**
+     * @param key identifies the token and the endpoint
+     * @return the quota, or null if nothing is stored for the key
+     */
+    Quota get(String key);
+
+    /**
+     * Stores the quota if the stored quota is still equal to the expected one.
+     *
+     * @param key      identifies the token and the endpoint
+     * @param expected quota returned by {@link #get(String)}, or null if nothing was stored
+     * @param update   quota to be stored
+     * @return true if the quota has been stored, false if it has been changed in the meantime
+     */
+    boolean compareAndSet(String key, Quota expected, Quota update);
+
+    /**
+     * Remaining calls of an endpoint for a token within a rate limit window.
+     */
+    final class Quota implements java.io.Serializable {
+        private static final long serialVersionUID = 2204306624562302316L;
+        private final int limit;
+        private final int remaining;
+        private final int resetTimeInSeconds;
+        private final boolean estimated;
+
+        /**
+         * @param limit              calls allowed per window
+         * @param remaining          calls remaining in the window
+         * @param resetTimeInSeconds time the window resets, in seconds since the epoch
+         * @param estimated          true if the window is assumed rather than reported by a response
+         */
+        public Quota(int limit, int remaining, int resetTimeInSeconds, boolean estimated) {
+            this.limit = limit;
+            this.remaining = remaining;
+            this.resetTimeInSeconds = resetTimeInSeconds;
+            this.estimated = estimated;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public int getRemaining() {
+            return remaining;
+        }
+
+        public int getResetTimeInSeconds() {
+            return resetTimeInSeconds;
+        }
+
+        public boolean isEstimated() {
+            return estimated;
+        }
+
+        /**
+         * @param remaining calls remaining
+         * @return quota of the same window with the given number of calls remaining
+         */
+        public Quota withRemaining(int remaining) {
+            return new Quota(limit, remaining, resetTimeInSeconds, estimated);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Quota quota = (Quota) o;
+
+            if (limit != quota.limit) return false;
+            if (remaining != quota.remaining) return false;
+            if (resetTimeInSeconds != quota.resetTimeInSeconds) return false;
+            return estimated == quota.estimated;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = limit;
+            result = 31 * result + remaining;
+            result = 31 * result + resetTimeInSeconds;
+            result = 31 * result + (estimated ? 1 : 0);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Quota{" +
+                    "limit=" + limit +
+                    ", remaining=" + remaining +
+                    ", resetTimeInSeconds=" + resetTimeInSeconds +
+                    ", estimated=" + estimated +
+                    '}';
+        }
+    }
+}
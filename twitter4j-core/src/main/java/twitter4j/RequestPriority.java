@@ -0,0 +1,106 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Priority lane of REST calls, e.g. to keep interactive calls responsive while background crawls run on the same token.<br>
+ * Calls are made in the {@link #NORMAL} lane unless they are made through a view returned by {@link #view(Object)}:
+ * <pre>
+ * Twitter crawler = RequestPriority.LOW.view(twitter);
+ * IDs ids = crawler.getFollowersIDs(cursor);
+ * </pre>
+ * Lower lanes are starved first, as configured:
+ * <ul>
+ * <li>each lane leaves <code>priority.reservedQuotaPercent</code> percent of the rate limit of an endpoint to every lane above it,
+ * and treats the quota as exhausted beyond that, see <code>rateLimit.policy</code></li>
+ * <li>when <code>priority.maxConcurrency</code> is set, each lane leaves <code>priority.reservedConcurrency</code> connections to every
+ * lane above it, and freed connections go to waiting calls of the highest lane first</li>
+ * </ul>
+ *
+ * @since Twitter4J 4.0.7
+ */
+public enum RequestPriority {
+    /**
+     * Interactive calls, e.g. showing a user or updating the status
+     */
+    HIGH,
+    /**
+     * The default lane
+     */
+    NORMAL,
+    /**
+     * Background calls, e.g. crawling followers
+     */
+    LOW;
+
+    private static final ThreadLocal<RequestPriority> current = new ThreadLocal<RequestPriority>();
+
+    /**
+     * @return lane of calls made by the current thread
+     */
+    static RequestPriority current() {
+        RequestPriority priority = current.get();
+        return priority != null ? priority : NORMAL;
+    }
+
+    /**
+     * Returns a view of the instance making its calls in this lane. The view implements all interfaces of the instance,
+     * e.g. {@link Twitter} or {@link TwitterPool}, and is cast to the type of the argument, which has to be an interface.<br>
+     * Calls which run on other threads, e.g. those of {@link AsyncTwitter}, are not affected.
+     *
+     * @param twitter instance
+     * @param <T>     interface type of the instance
+     * @return view
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T view(final T twitter) {
+        if (twitter == null) {
+            throw new NullPointerException("twitter");
+        }
+        Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+        for (Class<?> clazz = twitter.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            for (Class<?> type : clazz.getInterfaces()) {
+                interfaces.add(type);
+            }
+        }
+        return (T) Proxy.newProxyInstance(twitter.getClass().getClassLoader()
+                , interfaces.toArray(new Class<?>[interfaces.size()]), new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        RequestPriority previous = current.get();
+                        current.set(RequestPriority.this);
+                        try {
+                            return method.invoke(twitter, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        } finally {
+                            if (previous != null) {
+                                current.set(previous);
+                            } else {
+                                current.remove();
+                            }
+                        }
+                    }
+                });
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.auth.Authorization;
+import twitter4j.conf.Configuration;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of requests in flight to <code>priority.maxConcurrency</code>, by {@link RequestPriority} lane.<br>
+ * Each lane leaves <code>priority.reservedConcurrency</code> connections to every lane above it, but can always make at least one
+ * request at a time. Freed connections go to waiting requests of the highest lane first, and requests never overtake waiting
+ * requests of a higher lane. The lane is that of the calling thread.<br>
+ * Instances sharing an HTTP client and the same <code>priority.maxConcurrency</code> and <code>priority.reservedConcurrency</code>
+ * share a scheduler.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class RequestScheduler implements HttpClient {
+    private static final ConcurrentMap<Key, RequestScheduler> schedulers = new ConcurrentHashMap<Key, RequestScheduler>();
+
+    private final HttpClient http;
+    private final int maxConcurrency;
+    private final int reservedConcurrency;
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final Condition[] lanes = new Condition[RequestPriority.values().length];
+    private final int[] waiting = new int[RequestPriority.values().length];
+    private int inFlight = 0;
+
+    RequestScheduler(HttpClient http, int maxConcurrency, int reservedConcurrency) {
+        this.http = http;
+        this.maxConcurrency = maxConcurrency;
+        this.reservedConcurrency = Math.max(0, reservedConcurrency);
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = lock.newCondition();
+        }
+    }
+
+    /**
+     * @param http HTTP client
+     * @param conf configuration
+     * @return the scheduler in front of the client, or the client itself if <code>priority.maxConcurrency</code> is not set
+     */
+    static HttpClient schedule(HttpClient http, Configuration conf) {
+        if (conf.getPriorityMaxConcurrency() <= 0) {
+            return http;
+        }
+        Key key = new Key(http, conf.getPriorityMaxConcurrency(), conf.getPriorityReservedConcurrency());
+        RequestScheduler scheduler = schedulers.get(key);
+        if (scheduler == null) {
+            RequestScheduler newScheduler = new RequestScheduler(http, conf.getPriorityMaxConcurrency()
+                    , conf.getPriorityReservedConcurrency());
+            scheduler = schedulers.putIfAbsent(key, newScheduler);
+            if (scheduler == null) {
+                scheduler = newScheduler;
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * @param priority lane
+     * @return number of requests the lane may have in flight along with those of other lanes
+     */
+    int capacityOf(RequestPriority priority) {
+        return Math.max(1, maxConcurrency - reservedConcurrency * priority.ordinal());
+    }
+
+    /**
+     * @return number of requests in flight
+     */
+    int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param priority lane
+     * @return number of requests of the lane waiting for a connection
+     */
+    int getWaiting(RequestPriority priority) {
+        lock.lock();
+        try {
+            return waiting[priority.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void acquire(RequestPriority priority) throws TwitterException {
+        int lane = priority.ordinal();
+        lock.lock();
+        try {
+            waiting[lane]++;
+            try {
+                while (inFlight >= capacityOf(priority) || higherWaiting(lane)) {
+                    lanes[lane].await();
+                }
+            } finally {
+                waiting[lane]--;
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            // pass on a signal this thread may have taken
+            signalNext();
+            Thread.currentThread().interrupt();
+            throw new TwitterException("Interrupted while waiting for a connection", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            signalNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalNext() {
+        // lower lanes have less capacity, so if the highest waiting lane cannot proceed none can
+        for (int i = 0; i < lanes.length; i++) {
+            if (waiting[i] > 0) {
+                lanes[i].signal();
+                return;
+            }
+        }
+    }
+
+    private boolean higherWaiting(int lane) {
+        for (int i = 0; i < lane; i++) {
+            if (waiting[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void addDefaultRequestHeader(String name, String value) {
+        http.addDefaultRequestHeader(name, value);
+    }
+
+    @Override
+    public Map<String, String> getRequestHeaders() {
+        return http.getRequestHeaders();
+    }
+
+    @Override
+    public HttpResponse request(HttpRequest req) throws TwitterException {
+        acquire(RequestPriority.current());
+        try {
+            return http.request(req);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public HttpResponse request(HttpRequest req, HttpResponseListener listener) throws TwitterException {
+        acquire(RequestPriority.current());
+        try {
+            return http.request(req, listener);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public HttpResponse get(String url, HttpParameter[] parameters, Authorization authorization
+            , HttpResponseListener listener) throws TwitterException {
+        acquire(RequestPriority.current());
+        try {
+            return http.get(url, parameters, authorization, listener);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public HttpResponse get(String url) throws TwitterException {
+        acquire(RequestPriority.current());
+        try {
+            return http.get(url);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public HttpResponse post(String url, HttpParameter[] parameters, Authorization authorization
+            , HttpResponseListener listener) throws TwitterException {
+        acquire(RequestPriority.current());
+        try {
+            return http.post(url, parameters, authorization, listener);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public HttpResponse post(String url) throws TwitterException {
+        acquire(RequestPriority.current());
+        try {
+            return http.post(url);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public HttpResponse delete(String url, HttpParameter[] parameters, Authorization authorization
+            , HttpResponseListener listener) throws TwitterException {
+        acquire(RequestPriority.current());
+        try {
+            return http.delete(url, parameters, authorization, listener);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public HttpResponse delete(String url) throws TwitterException {
+        acquire(RequestPriority.current());
+        try {
+            return http.delete(url);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public HttpResponse head(String url) throws TwitterException {
+        acquire(RequestPriority.current());
+        try {
+            return http.head(url);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public HttpResponse put(String url, HttpParameter[] parameters, Authorization authorization
+            , HttpResponseListener listener) throws TwitterException {
+        acquire(RequestPriority.current());
+        try {
+            return http.put(url, parameters, authorization, listener);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public HttpResponse put(String url) throws TwitterException {
+        acquire(RequestPriority.current());
+        try {
+            return http.put(url);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RequestScheduler{" +
+                "http=" + http +
+                ", maxConcurrency=" + maxConcurrency +
+                ", reservedConcurrency=" + reservedConcurrency +
+                '}';
+    }
+
+    /**
+     * Identifies the schedulers shared by instances.
+     */
+    private static final class Key {
+        private final HttpClient http;
+        private final int maxConcurrency;
+        private final int reservedConcurrency;
+
+        Key(HttpClient http, int maxConcurrency, int reservedConcurrency) {
+            this.http = http;
+            this.maxConcurrency = maxConcurrency;
+            this.reservedConcurrency = reservedConcurrency;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return http == that.http && maxConcurrency == that.maxConcurrency && reservedConcurrency == that.reservedConcurrency;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(http);
+            result = 31 * result + maxConcurrency;
+            result = 31 * result + reservedConcurrency;
+            return result;
+        }
+    }
+}
@@ -41,6 +41,7 @@ abstract class TwitterBaseImpl implements TwitterBase, java.io.Serializable, OAu
     private transient long id = 0;
 
     transient HttpClient http;
+    transient RateLimitGovernor governor;
     private List<RateLimitStatusListener> rateLimitStatusListeners = new ArrayList<RateLimitStatusListener>(0);
 
     ObjectFactory factory;
@@ -82,7 +83,8 @@ abstract class TwitterBaseImpl implements TwitterBase, java.io.Serializable, OAu
                 this.auth = NullAuthorization.getInstance();
             }
         }
-        http = HttpClientFactory.getInstance(conf.getHttpClientConfiguration());
+        http = RequestScheduler.schedule(HttpClientFactory.getInstance(conf.getHttpClientConfiguration()), conf);
+        governor = RateLimitGovernor.getInstance(conf);
         setFactory();
     }
 
@@ -130,6 +132,7 @@ abstract class TwitterBaseImpl implements TwitterBase, java.io.Serializable, OAu
     
     User fillInIDAndScreenName(HttpParameter[] parameters) throws TwitterException {
         ensureAuthorizationEnabled();
+        ensureRateLimitAvailable(conf.getRestBaseURL() + "account/verify_credentials.json");
         User user = new UserJSONImpl(http.get(conf.getRestBaseURL() + "account/verify_credentials.json", parameters, auth, this), conf);
         this.screenName = user.getScreenName();
         this.id = user.getId();
@@ -171,7 +174,7 @@ abstract class TwitterBaseImpl implements TwitterBase, java.io.Serializable, OAu
 
     @Override
     public void httpResponseReceived(HttpResponseEvent event) {
-        if (rateLimitStatusListeners.size() != 0) {
+        if (rateLimitStatusListeners.size() != 0 || governor != null || RateLimitStatusCache.isActive()) {
             HttpResponse res = event.getResponse();
             TwitterException te = event.getTwitterException();
             RateLimitStatus rateLimitStatus;
@@ -184,6 +187,13 @@ abstract class TwitterBaseImpl implements TwitterBase, java.io.Serializable, OAu
                 statusCode = res.getStatusCode();
             }
             if (rateLimitStatus != null) {
+                if (governor != null || RateLimitStatusCache.isActive()) {
+                    String token = RateLimitGovernor.tokenOf(event.getRequest().getAuthorization());
+                    if (governor != null) {
+                        governor.update(token, event.getRequest().getURL(), rateLimitStatus);
+                    }
+                    RateLimitStatusCache.merge(token, event.getRequest().getURL(), rateLimitStatus);
+                }
                 RateLimitStatusEvent statusEvent
                         = new RateLimitStatusEvent(this, rateLimitStatus, event.isAuthenticated());
                 if (statusCode == ENHANCE_YOUR_CLAIM
@@ -221,6 +231,19 @@ abstract class TwitterBaseImpl implements TwitterBase, java.io.Serializable, OAu
         }
     }
 
+    /**
+     * Waits for the rate limit of the endpoint to reset, or fails, when its quota is exhausted.
+     * Does nothing unless <code>rateLimit.policy</code> is configured.
+     *
+     * @param url URL to be called
+     * @throws TwitterException when the quota is exhausted and the call cannot wait
+     */
+    final void ensureRateLimitAvailable(String url) throws TwitterException {
+        if (governor != null) {
+            governor.acquire(RateLimitGovernor.tokenOf(auth), url);
+        }
+    }
+
     final void ensureOAuthEnabled() {
         if (!(auth instanceof OAuthAuthorization)) {
             throw new IllegalStateException(
@@ -252,7 +275,8 @@ abstract class TwitterBaseImpl implements TwitterBase, java.io.Serializable, OAu
         conf = (Configuration) stream.readObject();
         auth = (Authorization) stream.readObject();
         rateLimitStatusListeners = (List<RateLimitStatusListener>) stream.readObject();
-        http = HttpClientFactory.getInstance(conf.getHttpClientConfiguration());
+        http = RequestScheduler.schedule(HttpClientFactory.getInstance(conf.getHttpClientConfiguration()), conf);
+        governor = RateLimitGovernor.getInstance(conf);
         setFactory();
     }
 
@@ -25,6 +25,9 @@ import twitter4j.conf.ConfigurationContext;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * A factory class for Twitter.
@@ -157,6 +160,21 @@ public class TwitterFactory implements java.io.Serializable {
         }
     }
 
+    /**
+     * Returns a pool spreading read calls over the given tokens by their remaining quota.
+     *
+     * @param authorizations tokens, e.g. {@link OAuthAuthorization}s of users or {@link twitter4j.auth.OAuth2Authorization}s of applications
+     * @return a pool
+     * @since Twitter4J 4.0.7
+     */
+    public TwitterPool getPool(Collection<? extends Authorization> authorizations) {
+        List<Twitter> members = new ArrayList<Twitter>(authorizations.size());
+        for (Authorization auth : authorizations) {
+            members.add(getInstance(auth));
+        }
+        return TwitterPoolImpl.create(members);
+    }
+
     /**
      * Returns default singleton Twitter instance.
      *
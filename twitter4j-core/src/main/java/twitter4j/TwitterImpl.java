@@ -1800,6 +1800,7 @@ class TwitterImpl extends TwitterBaseImpl implements Twitter {
 
     private HttpResponse get(String url) throws TwitterException {
         ensureAuthorizationEnabled();
+        ensureRateLimitAvailable(url);
         if (IMPLICIT_PARAMS_STR.length() > 0) {
             if (url.contains("?")) {
                 url = url + "&" + IMPLICIT_PARAMS_STR;
@@ -1825,6 +1826,7 @@ class TwitterImpl extends TwitterBaseImpl implements Twitter {
 
     private HttpResponse get(String url, HttpParameter... params) throws TwitterException {
         ensureAuthorizationEnabled();
+        ensureRateLimitAvailable(url);
         if (!conf.isMBeanEnabled()) {
             return http.get(url, mergeImplicitParams(params), auth, this);
         } else {
@@ -1843,6 +1845,7 @@ class TwitterImpl extends TwitterBaseImpl implements Twitter {
 
     private HttpResponse post(String url) throws TwitterException {
         ensureAuthorizationEnabled();
+        ensureRateLimitAvailable(url);
         if (!conf.isMBeanEnabled()) {
             return http.post(url, IMPLICIT_PARAMS, auth, this);
         } else {
@@ -1861,6 +1864,7 @@ class TwitterImpl extends TwitterBaseImpl implements Twitter {
 
     private HttpResponse post(String url, HttpParameter... params) throws TwitterException {
         ensureAuthorizationEnabled();
+        ensureRateLimitAvailable(url);
         if (!conf.isMBeanEnabled()) {
             return http.post(url, mergeImplicitParams(params), auth, this);
         } else {
@@ -1879,6 +1883,7 @@ class TwitterImpl extends TwitterBaseImpl implements Twitter {
 
     private HttpResponse post(String url, JSONObject json) throws TwitterException {
         ensureAuthorizationEnabled();
+        ensureRateLimitAvailable(url);
         if (!conf.isMBeanEnabled()) {
             return http.post(url, new HttpParameter[]{new HttpParameter(json)}, auth, this);
         } else {
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.api.FriendsFollowersResources;
+import twitter4j.api.SearchResource;
+import twitter4j.api.TimelinesResources;
+import twitter4j.api.UsersResources;
+
+/**
+ * Read resources served by a pool of tokens, obtained with {@link TwitterFactory#getPool(java.util.Collection)}.<br>
+ * Each call is routed to the token with the most remaining quota for the endpoint, as reported by the <code>x-rate-limit-*</code>
+ * response headers. Tokens are left out while they are rate limited for the endpoint. A call rejected for the rate limit is retried
+ * with another token, as long as one is available.<br>
+ * Calls are not bound to a user, so only methods reading public data are exposed. Writes and methods acting on the authenticating
+ * user, e.g. {@link UsersResources#getBlocksList()}, are to be called on the {@link Twitter} instance of the token.
+ *
+ * @since Twitter4J 4.0.7
+ */
+public interface TwitterPool {
+    /**
+     * @return number of tokens in the pool
+     */
+    int size();
+
+    /**
+     * Returns the number of tokens which are not rate limited for the endpoint.
+     *
+     * @param resource endpoint as named in <code>application/rate_limit_status</code>, e.g. <code>/statuses/user_timeline</code>
+     * @return number of tokens available
+     */
+    int getAvailableCount(String resource);
+
+    /**
+     * @see TimelinesResources#getUserTimeline(String, Paging)
+     */
+    ResponseList<Status> getUserTimeline(String screenName, Paging paging) throws TwitterException;
+
+    /**
+     * @see TimelinesResources#getUserTimeline(long, Paging)
+     */
+    ResponseList<Status> getUserTimeline(long userId, Paging paging) throws TwitterException;
+
+    /**
+     * @see TimelinesResources#getUserTimeline(String)
+     */
+    ResponseList<Status> getUserTimeline(String screenName) throws TwitterException;
+
+    /**
+     * @see TimelinesResources#getUserTimeline(long)
+     */
+    ResponseList<Status> getUserTimeline(long userId) throws TwitterException;
+
+    /**
+     * @see UsersResources#lookupUsers(long...)
+     */
+    ResponseList<User> lookupUsers(long... ids) throws TwitterException;
+
+    /**
+     * @see UsersResources#lookupUsers(String...)
+     */
+    ResponseList<User> lookupUsers(String... screenNames) throws TwitterException;
+
+    /**
+     * @see UsersResources#showUser(long)
+     */
+    User showUser(long userId) throws TwitterException;
+
+    /**
+     * @see UsersResources#showUser(String)
+     */
+    User showUser(String screenName) throws TwitterException;
+
+    /**
+     * @see UsersResources#searchUsers(String, int)
+     */
+    ResponseList<User> searchUsers(String query, int page) throws TwitterException;
+
+    /**
+     * @see UsersResources#getContributees(long)
+     */
+    ResponseList<User> getContributees(long userId) throws TwitterException;
+
+    /**
+     * @see UsersResources#getContributees(String)
+     */
+    ResponseList<User> getContributees(String screenName) throws TwitterException;
+
+    /**
+     * @see UsersResources#getContributors(long)
+     */
+    ResponseList<User> getContributors(long userId) throws TwitterException;
+
+    /**
+     * @see UsersResources#getContributors(String)
+     */
+    ResponseList<User> getContributors(String screenName) throws TwitterException;
+
+    /**
+     * @see SearchResource#search(Query)
+     */
+    QueryResult search(Query query) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFriendsIDs(long, long)
+     */
+    IDs getFriendsIDs(long userId, long cursor) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFriendsIDs(long, long, int)
+     */
+    IDs getFriendsIDs(long userId, long cursor, int count) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFriendsIDs(String, long)
+     */
+    IDs getFriendsIDs(String screenName, long cursor) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFriendsIDs(String, long, int)
+     */
+    IDs getFriendsIDs(String screenName, long cursor, int count) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFollowersIDs(long, long)
+     */
+    IDs getFollowersIDs(long userId, long cursor) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFollowersIDs(long, long, int)
+     */
+    IDs getFollowersIDs(long userId, long cursor, int count) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFollowersIDs(String, long)
+     */
+    IDs getFollowersIDs(String screenName, long cursor) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFollowersIDs(String, long, int)
+     */
+    IDs getFollowersIDs(String screenName, long cursor, int count) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#showFriendship(long, long)
+     */
+    Relationship showFriendship(long sourceId, long targetId) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#showFriendship(String, String)
+     */
+    Relationship showFriendship(String sourceScreenName, String targetScreenName) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFriendsList(long, long)
+     */
+    PagableResponseList<User> getFriendsList(long userId, long cursor) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFriendsList(long, long, int)
+     */
+    PagableResponseList<User> getFriendsList(long userId, long cursor, int count) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFriendsList(long, long, int, boolean, boolean)
+     */
+    PagableResponseList<User> getFriendsList(long userId, long cursor, int count, boolean skipStatus, boolean includeUserEntities) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFriendsList(String, long)
+     */
+    PagableResponseList<User> getFriendsList(String screenName, long cursor) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFriendsList(String, long, int)
+     */
+    PagableResponseList<User> getFriendsList(String screenName, long cursor, int count) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFriendsList(String, long, int, boolean, boolean)
+     */
+    PagableResponseList<User> getFriendsList(String screenName, long cursor, int count, boolean skipStatus, boolean includeUserEntities) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFollowersList(long, long)
+     */
+    PagableResponseList<User> getFollowersList(long userId, long cursor) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFollowersList(long, long, int)
+     */
+    PagableResponseList<User> getFollowersList(long userId, long cursor, int count) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFollowersList(long, long, int, boolean, boolean)
+     */
+    PagableResponseList<User> getFollowersList(long userId, long cursor, int count, boolean skipStatus, boolean includeUserEntities) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFollowersList(String, long)
+     */
+    PagableResponseList<User> getFollowersList(String screenName, long cursor) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFollowersList(String, long, int)
+     */
+    PagableResponseList<User> getFollowersList(String screenName, long cursor, int count) throws TwitterException;
+
+    /**
+     * @see FriendsFollowersResources#getFollowersList(String, long, int, boolean, boolean)
+     */
+    PagableResponseList<User> getFollowersList(String screenName, long cursor, int count, boolean skipStatus, boolean includeUserEntities) throws TwitterException;
+}
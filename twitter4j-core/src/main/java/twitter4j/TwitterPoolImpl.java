@@ -0,0 +1,192 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes the calls of a {@link TwitterPool} to the same methods of its members.<br>
+ * The endpoint a method calls is learned from its first call, and looked up in {@link RateLimitGovernor} on later calls.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class TwitterPoolImpl implements InvocationHandler {
+    private static final Logger logger = Logger.getLogger(TwitterPoolImpl.class);
+    // methods of the pool, mapped to those of the members
+    private static final Map<Method, Method> targets = targetsOf(TwitterPool.class);
+    private final Twitter[] members;
+    private final String[] tokens;
+    private final RateLimitGovernor[] governors;
+    private final ConcurrentMap<Method, String> resources = new ConcurrentHashMap<Method, String>();
+    // spreads calls over members with the same quota
+    private final AtomicInteger rotation = new AtomicInteger();
+
+    private TwitterPoolImpl(List<Twitter> members) {
+        this.members = members.toArray(new Twitter[members.size()]);
+        this.tokens = new String[this.members.length];
+        this.governors = new RateLimitGovernor[this.members.length];
+        for (int i = 0; i < this.members.length; i++) {
+            TwitterBaseImpl member = (TwitterBaseImpl) this.members[i];
+            if (member.governor == null) {
+                // the quota is tracked even if no policy is configured
+                member.governor = RateLimitGovernor.tracking(member.getConfiguration());
+            }
+            governors[i] = member.governor;
+            tokens[i] = RateLimitGovernor.tokenOf(member.getAuthorization());
+        }
+    }
+
+    /**
+     * @param members instances bound to the tokens of the pool
+     * @return pool
+     */
+    static TwitterPool create(List<Twitter> members) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("No tokens supplied.");
+        }
+        return (TwitterPool) Proxy.newProxyInstance(TwitterPool.class.getClassLoader()
+                , new Class<?>[]{TwitterPool.class}, new TwitterPoolImpl(members));
+    }
+
+    private static Map<Method, Method> targetsOf(Class<?> pool) {
+        Map<Method, Method> targets = new HashMap<Method, Method>();
+        for (Method method : pool.getMethods()) {
+            try {
+                targets.put(method, Twitter.class.getMethod(method.getName(), method.getParameterTypes()));
+            } catch (NoSuchMethodException ignore) {
+                // served by the pool itself
+            }
+        }
+        return targets;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            if ("equals".equals(method.getName())) {
+                return proxy == args[0];
+            }
+            return method.invoke(this, args);
+        }
+        Method target = targets.get(method);
+        if (target == null) {
+            if ("size".equals(method.getName())) {
+                return members.length;
+            }
+            return getAvailableCount((String) args[0]);
+        }
+        boolean[] tried = new boolean[members.length];
+        while (true) {
+            String resource = resources.get(method);
+            int member = choose(resource, tried);
+            tried[member] = true;
+            RateLimitGovernor.takeLastResource();
+            try {
+                Object result = target.invoke(members[member], args);
+                learn(method);
+                return result;
+            } catch (InvocationTargetException ite) {
+                learn(method);
+                Throwable cause = ite.getCause();
+                resource = resources.get(method);
+                if (cause instanceof TwitterException && ((TwitterException) cause).exceededRateLimitation()
+                        && resource != null && hasAvailable(resource, tried)) {
+                    logger.debug("Rate limited. Retrying with another token: ", resource);
+                    continue;
+                }
+                throw cause;
+            }
+        }
+    }
+
+    private void learn(Method method) {
+        String resource = RateLimitGovernor.takeLastResource();
+        if (resource != null && !resources.containsKey(method)) {
+            resources.put(method, resource);
+        }
+    }
+
+    /**
+     * @param resource endpoint, or null if not known yet
+     * @param tried    members already tried for the call
+     * @return index of the member with the most remaining quota, or the one resetting first if all are rate limited
+     */
+    private int choose(String resource, boolean[] tried) {
+        int offset = (rotation.getAndIncrement() & Integer.MAX_VALUE) % members.length;
+        int best = -1;
+        long bestRemaining = -1;
+        int earliest = -1;
+        long earliestReset = Long.MAX_VALUE;
+        for (int n = 0; n < members.length; n++) {
+            int i = (offset + n) % members.length;
+            if (tried[i]) {
+                continue;
+            }
+            int remaining = resource != null ? governors[i].getRemaining(tokens[i], resource) : -1;
+            // nothing known yet, so presumably unused
+            long score = remaining < 0 ? Long.MAX_VALUE : remaining;
+            if (score > bestRemaining) {
+                best = i;
+                bestRemaining = score;
+            }
+            long reset = resource != null ? governors[i].getResetTime(tokens[i], resource) : 0;
+            if (reset < earliestReset) {
+                earliest = i;
+                earliestReset = reset;
+            }
+        }
+        if (best < 0) {
+            // every member has been tried
+            return offset;
+        }
+        return bestRemaining > 0 ? best : earliest;
+    }
+
+    private boolean hasAvailable(String resource, boolean[] tried) {
+        for (int i = 0; i < members.length; i++) {
+            if (!tried[i] && governors[i].getRemaining(tokens[i], resource) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int getAvailableCount(String resource) {
+        int count = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (governors[i].getRemaining(tokens[i], resource) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "TwitterPool{" +
+                "size=" + members.length +
+                '}';
+    }
+}
@@ -124,4 +124,104 @@ public interface Configuration extends AuthorizationConfiguration, java.io.Seria
     boolean isIncludeEmailEnabled();
 
     String getStreamThreadName();
+
+    String getStreamDispatcherGroup();
+
+    int getStreamDispatcherQueueSize();
+
+    int getStreamDispatcherWeight();
+
+    boolean isStreamNioEnabled();
+
+    int getStreamNioNumThreads();
+
+    boolean isVirtualThreadsEnabled();
+
+    int getSiteStreamStatusCacheSize();
+
+    int getSiteStreamUsersPerConnection();
+
+    int getSiteStreamControlBatchSize();
+
+    long getSiteStreamRebalanceTimeout();
+
+    int getSiteStreamControlParallelism();
+
+    boolean isStreamDedupEnabled();
+
+    long getStreamDedupWindow();
+
+    int getStreamDedupCapacity();
+
+    boolean isStreamBackfillEnabled();
+
+    int getStreamBackfillCount();
+
+    boolean isStreamAdaptiveDispatchEnabled();
+
+    int getStreamAdaptiveMaxThreads();
+
+    long getStreamAdaptiveSojournThreshold();
+
+    int getStreamAdaptivePercentFullThreshold();
+
+    boolean isStreamSheddingEnabled();
+
+    int getStreamSheddingQueueDepth();
+
+    int getStreamSheddingRetweetSamplePercent();
+
+    int getStreamSheddingStatusSamplePercent();
+
+    boolean isStreamFanOutEnabled();
+
+    int getStreamFanOutQueueSize();
+
+    boolean isStreamParallelParsingEnabled();
+
+    boolean isStreamSpillEnabled();
+
+    int getStreamSpillThreshold();
+
+    String getStreamSpillDirectory();
+
+    int getStreamSpillSegmentSize();
+
+    String getRateLimitPolicy();
+
+    int getRateLimitQueueSize();
+
+    int getRateLimitMaxWait();
+
+    String getRateLimitStoreImpl();
+
+    String getRateLimitStoreFile();
+
+    int getRateLimitStoreSlots();
+
+    int getPriorityReservedQuotaPercent();
+
+    int getPriorityMaxConcurrency();
+
+    int getPriorityReservedConcurrency();
+
+    int getRateLimitRefreshInterval();
+
+    int getAsyncNumCallbackThreads();
+
+    int getAsyncTimeout();
+
+    int getAsyncQueueSize();
+
+    String getAsyncRejectionPolicy();
+
+    int getAsyncDrainTimeout();
+
+    int getAsyncBatchWindow();
+
+    int getStreamNioHandoffNumThreads();
+
+    String getStreamDedupGroup();
+
+    String getStreamSheddingPriorities();
 }
@@ -92,6 +92,56 @@ class ConfigurationBase implements Configuration, java.io.Serializable {
     private boolean daemonEnabled = true;
 
     private String streamThreadName = "";
+    private String streamDispatcherGroup = null;
+    private int streamDispatcherQueueSize = -1;
+    private int streamDispatcherWeight = 0;
+    private boolean streamNioEnabled = false;
+    private int streamNioNumThreads = 2;
+    private boolean virtualThreadsEnabled = false;
+    private int siteStreamStatusCacheSize = 0;
+    private int siteStreamUsersPerConnection = 1000;
+    private int siteStreamControlBatchSize = 100;
+    private long siteStreamRebalanceTimeout = 60000;
+    private int siteStreamControlParallelism = 4;
+    private boolean streamDedupEnabled = false;
+    private long streamDedupWindow = 300000;
+    private int streamDedupCapacity = 200000;
+    private boolean streamBackfillEnabled = false;
+    private int streamBackfillCount = 1000;
+    private boolean streamAdaptiveDispatchEnabled = false;
+    private int streamAdaptiveMaxThreads = 16;
+    private long streamAdaptiveSojournThreshold = 200;
+    private int streamAdaptivePercentFullThreshold = 20;
+    private boolean streamSheddingEnabled = false;
+    private int streamSheddingQueueDepth = 1000;
+    private int streamSheddingRetweetSamplePercent = 10;
+    private int streamSheddingStatusSamplePercent = 50;
+    private boolean streamFanOutEnabled = false;
+    private int streamFanOutQueueSize = 10000;
+    private boolean streamParallelParsingEnabled = false;
+    private boolean streamSpillEnabled = false;
+    private int streamSpillThreshold = 10000;
+    private String streamSpillDirectory = null;
+    private int streamSpillSegmentSize = 67108864;
+    private String rateLimitPolicy = null;
+    private int rateLimitQueueSize = 100;
+    private int rateLimitMaxWait = 900;
+    private String rateLimitStoreImpl = "twitter4j.MemoryRateLimitStore";
+    private String rateLimitStoreFile = null;
+    private int rateLimitStoreSlots = 4096;
+    private int priorityReservedQuotaPercent = 0;
+    private int priorityMaxConcurrency = 0;
+    private int priorityReservedConcurrency = 1;
+    private int rateLimitRefreshInterval = 60;
+    private int asyncNumCallbackThreads = 1;
+    private int asyncTimeout = 0;
+    private int asyncQueueSize = 10000;
+    private String asyncRejectionPolicy = "block";
+    private int asyncDrainTimeout = 5000;
+    private int asyncBatchWindow = 10;
+    private int streamNioHandoffNumThreads = 4;
+    private String streamDedupGroup = null;
+    private String streamSheddingPriorities = "retweet;status";
 
     protected ConfigurationBase() {
         httpConf = new MyHttpClientConfiguration(null // proxy host
@@ -746,6 +796,456 @@ class ConfigurationBase implements Configuration, java.io.Serializable {
         this.streamThreadName = streamThreadName;
     }
 
+    @Override
+    public String getStreamDispatcherGroup() {
+        return streamDispatcherGroup;
+    }
+
+    protected final void setStreamDispatcherGroup(String streamDispatcherGroup) {
+        this.streamDispatcherGroup = streamDispatcherGroup;
+    }
+
+    @Override
+    public int getStreamDispatcherQueueSize() {
+        return streamDispatcherQueueSize;
+    }
+
+    protected final void setStreamDispatcherQueueSize(int streamDispatcherQueueSize) {
+        this.streamDispatcherQueueSize = streamDispatcherQueueSize;
+    }
+
+    @Override
+    public int getStreamDispatcherWeight() {
+        return streamDispatcherWeight;
+    }
+
+    protected final void setStreamDispatcherWeight(int streamDispatcherWeight) {
+        this.streamDispatcherWeight = streamDispatcherWeight;
+    }
+
+    @Override
+    public boolean isStreamNioEnabled() {
+        return streamNioEnabled;
+    }
+
+    protected final void setStreamNioEnabled(boolean streamNioEnabled) {
+        this.streamNioEnabled = streamNioEnabled;
+    }
+
+    @Override
+    public int getStreamNioNumThreads() {
+        return streamNioNumThreads;
+    }
+
+    protected final void setStreamNioNumThreads(int streamNioNumThreads) {
+        this.streamNioNumThreads = streamNioNumThreads;
+    }
+
+    @Override
+    public boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
+
+    protected final void setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+        this.virtualThreadsEnabled = virtualThreadsEnabled;
+    }
+
+    @Override
+    public int getSiteStreamStatusCacheSize() {
+        return siteStreamStatusCacheSize;
+    }
+
+    protected final void setSiteStreamStatusCacheSize(int siteStreamStatusCacheSize) {
+        this.siteStreamStatusCacheSize = siteStreamStatusCacheSize;
+    }
+
+    @Override
+    public int getSiteStreamUsersPerConnection() {
+        return siteStreamUsersPerConnection;
+    }
+
+    protected final void setSiteStreamUsersPerConnection(int siteStreamUsersPerConnection) {
+        this.siteStreamUsersPerConnection = siteStreamUsersPerConnection;
+    }
+
+    @Override
+    public int getSiteStreamControlBatchSize() {
+        return siteStreamControlBatchSize;
+    }
+
+    protected final void setSiteStreamControlBatchSize(int siteStreamControlBatchSize) {
+        this.siteStreamControlBatchSize = siteStreamControlBatchSize;
+    }
+
+    @Override
+    public long getSiteStreamRebalanceTimeout() {
+        return siteStreamRebalanceTimeout;
+    }
+
+    protected final void setSiteStreamRebalanceTimeout(long siteStreamRebalanceTimeout) {
+        this.siteStreamRebalanceTimeout = siteStreamRebalanceTimeout;
+    }
+
+    @Override
+    public int getSiteStreamControlParallelism() {
+        return siteStreamControlParallelism;
+    }
+
+    protected final void setSiteStreamControlParallelism(int siteStreamControlParallelism) {
+        this.siteStreamControlParallelism = siteStreamControlParallelism;
+    }
+
+    @Override
+    public boolean isStreamDedupEnabled() {
+        return streamDedupEnabled;
+    }
+
+    protected final void setStreamDedupEnabled(boolean streamDedupEnabled) {
+        this.streamDedupEnabled = streamDedupEnabled;
+    }
+
+    @Override
+    public long getStreamDedupWindow() {
+        return streamDedupWindow;
+    }
+
+    protected final void setStreamDedupWindow(long streamDedupWindow) {
+        this.streamDedupWindow = streamDedupWindow;
+    }
+
+    @Override
+    public int getStreamDedupCapacity() {
+        return streamDedupCapacity;
+    }
+
+    protected final void setStreamDedupCapacity(int streamDedupCapacity) {
+        this.streamDedupCapacity = streamDedupCapacity;
+    }
+
+    @Override
+    public boolean isStreamBackfillEnabled() {
+        return streamBackfillEnabled;
+    }
+
+    protected final void setStreamBackfillEnabled(boolean streamBackfillEnabled) {
+        this.streamBackfillEnabled = streamBackfillEnabled;
+    }
+
+    @Override
+    public int getStreamBackfillCount() {
+        return streamBackfillCount;
+    }
+
+    protected final void setStreamBackfillCount(int streamBackfillCount) {
+        this.streamBackfillCount = streamBackfillCount;
+    }
+
+    @Override
+    public boolean isStreamAdaptiveDispatchEnabled() {
+        return streamAdaptiveDispatchEnabled;
+    }
+
+    protected final void setStreamAdaptiveDispatchEnabled(boolean streamAdaptiveDispatchEnabled) {
+        this.streamAdaptiveDispatchEnabled = streamAdaptiveDispatchEnabled;
+    }
+
+    @Override
+    public int getStreamAdaptiveMaxThreads() {
+        return streamAdaptiveMaxThreads;
+    }
+
+    protected final void setStreamAdaptiveMaxThreads(int streamAdaptiveMaxThreads) {
+        this.streamAdaptiveMaxThreads = streamAdaptiveMaxThreads;
+    }
+
+    @Override
+    public long getStreamAdaptiveSojournThreshold() {
+        return streamAdaptiveSojournThreshold;
+    }
+
+    protected final void setStreamAdaptiveSojournThreshold(long streamAdaptiveSojournThreshold) {
+        this.streamAdaptiveSojournThreshold = streamAdaptiveSojournThreshold;
+    }
+
+    @Override
+    public int getStreamAdaptivePercentFullThreshold() {
+        return streamAdaptivePercentFullThreshold;
+    }
+
+    protected final void setStreamAdaptivePercentFullThreshold(int streamAdaptivePercentFullThreshold) {
+        this.streamAdaptivePercentFullThreshold = streamAdaptivePercentFullThreshold;
+    }
+
+    @Override
+    public boolean isStreamSheddingEnabled() {
+        return streamSheddingEnabled;
+    }
+
+    protected final void setStreamSheddingEnabled(boolean streamSheddingEnabled) {
+        this.streamSheddingEnabled = streamSheddingEnabled;
+    }
+
+    @Override
+    public int getStreamSheddingQueueDepth() {
+        return streamSheddingQueueDepth;
+    }
+
+    protected final void setStreamSheddingQueueDepth(int streamSheddingQueueDepth) {
+        this.streamSheddingQueueDepth = streamSheddingQueueDepth;
+    }
+
+    @Override
+    public int getStreamSheddingRetweetSamplePercent() {
+        return streamSheddingRetweetSamplePercent;
+    }
+
+    protected final void setStreamSheddingRetweetSamplePercent(int streamSheddingRetweetSamplePercent) {
+        this.streamSheddingRetweetSamplePercent = streamSheddingRetweetSamplePercent;
+    }
+
+    @Override
+    public int getStreamSheddingStatusSamplePercent() {
+        return streamSheddingStatusSamplePercent;
+    }
+
+    protected final void setStreamSheddingStatusSamplePercent(int streamSheddingStatusSamplePercent) {
+        this.streamSheddingStatusSamplePercent = streamSheddingStatusSamplePercent;
+    }
+
+    @Override
+    public boolean isStreamFanOutEnabled() {
+        return streamFanOutEnabled;
+    }
+
+    protected final void setStreamFanOutEnabled(boolean streamFanOutEnabled) {
+        this.streamFanOutEnabled = streamFanOutEnabled;
+    }
+
+    @Override
+    public int getStreamFanOutQueueSize() {
+        return streamFanOutQueueSize;
+    }
+
+    protected final void setStreamFanOutQueueSize(int streamFanOutQueueSize) {
+        this.streamFanOutQueueSize = streamFanOutQueueSize;
+    }
+
+    @Override
+    public boolean isStreamParallelParsingEnabled() {
+        return streamParallelParsingEnabled;
+    }
+
+    protected final void setStreamParallelParsingEnabled(boolean streamParallelParsingEnabled) {
+        this.streamParallelParsingEnabled = streamParallelParsingEnabled;
+    }
+
+    @Override
+    public boolean isStreamSpillEnabled() {
+        return streamSpillEnabled;
+    }
+
+    protected final void setStreamSpillEnabled(boolean streamSpillEnabled) {
+        this.streamSpillEnabled = streamSpillEnabled;
+    }
+
+    @Override
+    public int getStreamSpillThreshold() {
+        return streamSpillThreshold;
+    }
+
+    protected final void setStreamSpillThreshold(int streamSpillThreshold) {
+        this.streamSpillThreshold = streamSpillThreshold;
+    }
+
+    @Override
+    public String getStreamSpillDirectory() {
+        return streamSpillDirectory;
+    }
+
+    protected final void setStreamSpillDirectory(String streamSpillDirectory) {
+        this.streamSpillDirectory = streamSpillDirectory;
+    }
+
+    @Override
+    public int getStreamSpillSegmentSize() {
+        return streamSpillSegmentSize;
+    }
+
+    protected final void setStreamSpillSegmentSize(int streamSpillSegmentSize) {
+        this.streamSpillSegmentSize = streamSpillSegmentSize;
+    }
+
+    @Override
+    public String getRateLimitPolicy() {
+        return rateLimitPolicy;
+    }
+
+    protected final void setRateLimitPolicy(String rateLimitPolicy) {
+        this.rateLimitPolicy = rateLimitPolicy;
+    }
+
+    @Override
+    public int getRateLimitQueueSize() {
+        return rateLimitQueueSize;
+    }
+
+    protected final void setRateLimitQueueSize(int rateLimitQueueSize) {
+        this.rateLimitQueueSize = rateLimitQueueSize;
+    }
+
+    @Override
+    public int getRateLimitMaxWait() {
+        return rateLimitMaxWait;
+    }
+
+    protected final void setRateLimitMaxWait(int rateLimitMaxWait) {
+        this.rateLimitMaxWait = rateLimitMaxWait;
+    }
+
+    @Override
+    public String getRateLimitStoreImpl() {
+        return rateLimitStoreImpl;
+    }
+
+    protected final void setRateLimitStoreImpl(String rateLimitStoreImpl) {
+        this.rateLimitStoreImpl = rateLimitStoreImpl;
+    }
+
+    @Override
+    public String getRateLimitStoreFile() {
+        return rateLimitStoreFile;
+    }
+
+    protected final void setRateLimitStoreFile(String rateLimitStoreFile) {
+        this.rateLimitStoreFile = rateLimitStoreFile;
+    }
+
+    @Override
+    public int getRateLimitStoreSlots() {
+        return rateLimitStoreSlots;
+    }
+
+    protected final void setRateLimitStoreSlots(int rateLimitStoreSlots) {
+        this.rateLimitStoreSlots = rateLimitStoreSlots;
+    }
+
+    @Override
+    public int getPriorityReservedQuotaPercent() {
+        return priorityReservedQuotaPercent;
+    }
+
+    protected final void setPriorityReservedQuotaPercent(int priorityReservedQuotaPercent) {
+        this.priorityReservedQuotaPercent = priorityReservedQuotaPercent;
+    }
+
+    @Override
+    public int getPriorityMaxConcurrency() {
+        return priorityMaxConcurrency;
+    }
+
+    protected final void setPriorityMaxConcurrency(int priorityMaxConcurrency) {
+        this.priorityMaxConcurrency = priorityMaxConcurrency;
+    }
+
+    @Override
+    public int getPriorityReservedConcurrency() {
+        return priorityReservedConcurrency;
+    }
+
+    protected final void setPriorityReservedConcurrency(int priorityReservedConcurrency) {
+        this.priorityReservedConcurrency = priorityReservedConcurrency;
+    }
+
+    @Override
+    public int getRateLimitRefreshInterval() {
+        return rateLimitRefreshInterval;
+    }
+
+    protected final void setRateLimitRefreshInterval(int rateLimitRefreshInterval) {
+        this.rateLimitRefreshInterval = rateLimitRefreshInterval;
+    }
+
+    @Override
+    public int getAsyncNumCallbackThreads() {
+        return asyncNumCallbackThreads;
+    }
+
+    protected final void setAsyncNumCallbackThreads(int asyncNumCallbackThreads) {
+        this.asyncNumCallbackThreads = asyncNumCallbackThreads;
+    }
+
+    @Override
+    public int getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
+    protected final void setAsyncTimeout(int asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    @Override
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    protected final void setAsyncQueueSize(int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    @Override
+    public String getAsyncRejectionPolicy() {
+        return asyncRejectionPolicy;
+    }
+
+    protected final void setAsyncRejectionPolicy(String asyncRejectionPolicy) {
+        this.asyncRejectionPolicy = asyncRejectionPolicy;
+    }
+
+    @Override
+    public int getAsyncDrainTimeout() {
+        return asyncDrainTimeout;
+    }
+
+    protected final void setAsyncDrainTimeout(int asyncDrainTimeout) {
+        this.asyncDrainTimeout = asyncDrainTimeout;
+    }
+
+    @Override
+    public int getAsyncBatchWindow() {
+        return asyncBatchWindow;
+    }
+
+    protected final void setAsyncBatchWindow(int asyncBatchWindow) {
+        this.asyncBatchWindow = asyncBatchWindow;
+    }
+
+    @Override
+    public int getStreamNioHandoffNumThreads() {
+        return streamNioHandoffNumThreads;
+    }
+
+    protected final void setStreamNioHandoffNumThreads(int streamNioHandoffNumThreads) {
+        this.streamNioHandoffNumThreads = streamNioHandoffNumThreads;
+    }
+
+    @Override
+    public String getStreamDedupGroup() {
+        return streamDedupGroup;
+    }
+
+    protected final void setStreamDedupGroup(String streamDedupGroup) {
+        this.streamDedupGroup = streamDedupGroup;
+    }
+
+    @Override
+    public String getStreamSheddingPriorities() {
+        return streamSheddingPriorities;
+    }
+
+    protected final void setStreamSheddingPriorities(String streamSheddingPriorities) {
+        this.streamSheddingPriorities = streamSheddingPriorities;
+    }
+
     static String fixURL(boolean useSSL, String url) {
         if (null == url) {
             return null;
@@ -835,6 +1335,64 @@ class ConfigurationBase implements Configuration, java.io.Serializable {
             return false;
         if (mediaProviderParameters != null ? !mediaProviderParameters.equals(that.mediaProviderParameters) : that.mediaProviderParameters != null)
             return false;
+        if (streamDispatcherGroup != null ? !streamDispatcherGroup.equals(that.streamDispatcherGroup) : that.streamDispatcherGroup != null)
+            return false;
+        if (streamDispatcherQueueSize != that.streamDispatcherQueueSize) return false;
+        if (streamDispatcherWeight != that.streamDispatcherWeight) return false;
+        if (streamNioEnabled != that.streamNioEnabled) return false;
+        if (streamNioNumThreads != that.streamNioNumThreads) return false;
+        if (virtualThreadsEnabled != that.virtualThreadsEnabled) return false;
+        if (siteStreamStatusCacheSize != that.siteStreamStatusCacheSize) return false;
+        if (siteStreamUsersPerConnection != that.siteStreamUsersPerConnection) return false;
+        if (siteStreamControlBatchSize != that.siteStreamControlBatchSize) return false;
+        if (siteStreamRebalanceTimeout != that.siteStreamRebalanceTimeout) return false;
+        if (siteStreamControlParallelism != that.siteStreamControlParallelism) return false;
+        if (streamDedupEnabled != that.streamDedupEnabled) return false;
+        if (streamDedupWindow != that.streamDedupWindow) return false;
+        if (streamDedupCapacity != that.streamDedupCapacity) return false;
+        if (streamBackfillEnabled != that.streamBackfillEnabled) return false;
+        if (streamBackfillCount != that.streamBackfillCount) return false;
+        if (streamAdaptiveDispatchEnabled != that.streamAdaptiveDispatchEnabled) return false;
+        if (streamAdaptiveMaxThreads != that.streamAdaptiveMaxThreads) return false;
+        if (streamAdaptiveSojournThreshold != that.streamAdaptiveSojournThreshold) return false;
+        if (streamAdaptivePercentFullThreshold != that.streamAdaptivePercentFullThreshold) return false;
+        if (streamSheddingEnabled != that.streamSheddingEnabled) return false;
+        if (streamSheddingQueueDepth != that.streamSheddingQueueDepth) return false;
+        if (streamSheddingRetweetSamplePercent != that.streamSheddingRetweetSamplePercent) return false;
+        if (streamSheddingStatusSamplePercent != that.streamSheddingStatusSamplePercent) return false;
+        if (streamFanOutEnabled != that.streamFanOutEnabled) return false;
+        if (streamFanOutQueueSize != that.streamFanOutQueueSize) return false;
+        if (streamParallelParsingEnabled != that.streamParallelParsingEnabled) return false;
+        if (streamSpillEnabled != that.streamSpillEnabled) return false;
+        if (streamSpillThreshold != that.streamSpillThreshold) return false;
+        if (streamSpillDirectory != null ? !streamSpillDirectory.equals(that.streamSpillDirectory) : that.streamSpillDirectory != null)
+            return false;
+        if (streamSpillSegmentSize != that.streamSpillSegmentSize) return false;
+        if (rateLimitPolicy != null ? !rateLimitPolicy.equals(that.rateLimitPolicy) : that.rateLimitPolicy != null)
+            return false;
+        if (rateLimitQueueSize != that.rateLimitQueueSize) return false;
+        if (rateLimitMaxWait != that.rateLimitMaxWait) return false;
+        if (rateLimitStoreImpl != null ? !rateLimitStoreImpl.equals(that.rateLimitStoreImpl) : that.rateLimitStoreImpl != null)
+            return false;
+        if (rateLimitStoreFile != null ? !rateLimitStoreFile.equals(that.rateLimitStoreFile) : that.rateLimitStoreFile != null)
+            return false;
+        if (rateLimitStoreSlots != that.rateLimitStoreSlots) return false;
+        if (priorityReservedQuotaPercent != that.priorityReservedQuotaPercent) return false;
+        if (priorityMaxConcurrency != that.priorityMaxConcurrency) return false;
+        if (priorityReservedConcurrency != that.priorityReservedConcurrency) return false;
+        if (rateLimitRefreshInterval != that.rateLimitRefreshInterval) return false;
+        if (asyncNumCallbackThreads != that.asyncNumCallbackThreads) return false;
+        if (asyncTimeout != that.asyncTimeout) return false;
+        if (asyncQueueSize != that.asyncQueueSize) return false;
+        if (asyncRejectionPolicy != null ? !asyncRejectionPolicy.equals(that.asyncRejectionPolicy) : that.asyncRejectionPolicy != null)
+            return false;
+        if (asyncDrainTimeout != that.asyncDrainTimeout) return false;
+        if (asyncBatchWindow != that.asyncBatchWindow) return false;
+        if (streamNioHandoffNumThreads != that.streamNioHandoffNumThreads) return false;
+        if (streamDedupGroup != null ? !streamDedupGroup.equals(that.streamDedupGroup) : that.streamDedupGroup != null)
+            return false;
+        if (streamSheddingPriorities != null ? !streamSheddingPriorities.equals(that.streamSheddingPriorities) : that.streamSheddingPriorities != null)
+            return false;
         return streamThreadName != null ? streamThreadName.equals(that.streamThreadName) : that.streamThreadName == null;
 
     }
@@ -887,6 +1445,56 @@ class ConfigurationBase implements Configuration, java.io.Serializable {
         result = 31 * result + (mediaProviderParameters != null ? mediaProviderParameters.hashCode() : 0);
         result = 31 * result + (daemonEnabled ? 1 : 0);
         result = 31 * result + (streamThreadName != null ? streamThreadName.hashCode() : 0);
+        result = 31 * result + (streamDispatcherGroup != null ? streamDispatcherGroup.hashCode() : 0);
+        result = 31 * result + streamDispatcherQueueSize;
+        result = 31 * result + streamDispatcherWeight;
+        result = 31 * result + (streamNioEnabled ? 1 : 0);
+        result = 31 * result + streamNioNumThreads;
+        result = 31 * result + (virtualThreadsEnabled ? 1 : 0);
+        result = 31 * result + siteStreamStatusCacheSize;
+        result = 31 * result + siteStreamUsersPerConnection;
+        result = 31 * result + siteStreamControlBatchSize;
+        result = 31 * result + (int) (siteStreamRebalanceTimeout ^ (siteStreamRebalanceTimeout >>> 32));
+        result = 31 * result + siteStreamControlParallelism;
+        result = 31 * result + (streamDedupEnabled ? 1 : 0);
+        result = 31 * result + (int) (streamDedupWindow ^ (streamDedupWindow >>> 32));
+        result = 31 * result + streamDedupCapacity;
+        result = 31 * result + (streamBackfillEnabled ? 1 : 0);
+        result = 31 * result + streamBackfillCount;
+        result = 31 * result + (streamAdaptiveDispatchEnabled ? 1 : 0);
+        result = 31 * result + streamAdaptiveMaxThreads;
+        result = 31 * result + (int) (streamAdaptiveSojournThreshold ^ (streamAdaptiveSojournThreshold >>> 32));
+        result = 31 * result + streamAdaptivePercentFullThreshold;
+        result = 31 * result + (streamSheddingEnabled ? 1 : 0);
+        result = 31 * result + streamSheddingQueueDepth;
+        result = 31 * result + streamSheddingRetweetSamplePercent;
+        result = 31 * result + streamSheddingStatusSamplePercent;
+        result = 31 * result + (streamFanOutEnabled ? 1 : 0);
+        result = 31 * result + streamFanOutQueueSize;
+        result = 31 * result + (streamParallelParsingEnabled ? 1 : 0);
+        result = 31 * result + (streamSpillEnabled ? 1 : 0);
+        result = 31 * result + streamSpillThreshold;
+        result = 31 * result + (streamSpillDirectory != null ? streamSpillDirectory.hashCode() : 0);
+        result = 31 * result + streamSpillSegmentSize;
+        result = 31 * result + (rateLimitPolicy != null ? rateLimitPolicy.hashCode() : 0);
+        result = 31 * result + rateLimitQueueSize;
+        result = 31 * result + rateLimitMaxWait;
+        result = 31 * result + (rateLimitStoreImpl != null ? rateLimitStoreImpl.hashCode() : 0);
+        result = 31 * result + (rateLimitStoreFile != null ? rateLimitStoreFile.hashCode() : 0);
+        result = 31 * result + rateLimitStoreSlots;
+        result = 31 * result + priorityReservedQuotaPercent;
+        result = 31 * result + priorityMaxConcurrency;
+        result = 31 * result + priorityReservedConcurrency;
+        result = 31 * result + rateLimitRefreshInterval;
+        result = 31 * result + asyncNumCallbackThreads;
+        result = 31 * result + asyncTimeout;
+        result = 31 * result + asyncQueueSize;
+        result = 31 * result + (asyncRejectionPolicy != null ? asyncRejectionPolicy.hashCode() : 0);
+        result = 31 * result + asyncDrainTimeout;
+        result = 31 * result + asyncBatchWindow;
+        result = 31 * result + streamNioHandoffNumThreads;
+        result = 31 * result + (streamDedupGroup != null ? streamDedupGroup.hashCode() : 0);
+        result = 31 * result + (streamSheddingPriorities != null ? streamSheddingPriorities.hashCode() : 0);
         return result;
     }
 
@@ -939,6 +1547,56 @@ class ConfigurationBase implements Configuration, java.io.Serializable {
                 ", mediaProviderParameters=" + mediaProviderParameters +
                 ", daemonEnabled=" + daemonEnabled +
                 ", streamThreadName='" + streamThreadName + '\'' +
+                ", streamDispatcherGroup='" + streamDispatcherGroup + '\'' +
+                ", streamDispatcherQueueSize=" + streamDispatcherQueueSize +
+                ", streamDispatcherWeight=" + streamDispatcherWeight +
+                ", streamNioEnabled=" + streamNioEnabled +
+                ", streamNioNumThreads=" + streamNioNumThreads +
+                ", virtualThreadsEnabled=" + virtualThreadsEnabled +
+                ", siteStreamStatusCacheSize=" + siteStreamStatusCacheSize +
+                ", siteStreamUsersPerConnection=" + siteStreamUsersPerConnection +
+                ", siteStreamControlBatchSize=" + siteStreamControlBatchSize +
+                ", siteStreamRebalanceTimeout=" + siteStreamRebalanceTimeout +
+                ", siteStreamControlParallelism=" + siteStreamControlParallelism +
+                ", streamDedupEnabled=" + streamDedupEnabled +
+                ", streamDedupWindow=" + streamDedupWindow +
+                ", streamDedupCapacity=" + streamDedupCapacity +
+                ", streamBackfillEnabled=" + streamBackfillEnabled +
+                ", streamBackfillCount=" + streamBackfillCount +
+                ", streamAdaptiveDispatchEnabled=" + streamAdaptiveDispatchEnabled +
+                ", streamAdaptiveMaxThreads=" + streamAdaptiveMaxThreads +
+                ", streamAdaptiveSojournThreshold=" + streamAdaptiveSojournThreshold +
+                ", streamAdaptivePercentFullThreshold=" + streamAdaptivePercentFullThreshold +
+                ", streamSheddingEnabled=" + streamSheddingEnabled +
+                ", streamSheddingQueueDepth=" + streamSheddingQueueDepth +
+                ", streamSheddingRetweetSamplePercent=" + streamSheddingRetweetSamplePercent +
+                ", streamSheddingStatusSamplePercent=" + streamSheddingStatusSamplePercent +
+                ", streamFanOutEnabled=" + streamFanOutEnabled +
+                ", streamFanOutQueueSize=" + streamFanOutQueueSize +
+                ", streamParallelParsingEnabled=" + streamParallelParsingEnabled +
+                ", streamSpillEnabled=" + streamSpillEnabled +
+                ", streamSpillThreshold=" + streamSpillThreshold +
+                ", streamSpillDirectory='" + streamSpillDirectory + '\'' +
+                ", streamSpillSegmentSize=" + streamSpillSegmentSize +
+                ", rateLimitPolicy='" + rateLimitPolicy + '\'' +
+                ", rateLimitQueueSize=" + rateLimitQueueSize +
+                ", rateLimitMaxWait=" + rateLimitMaxWait +
+                ", rateLimitStoreImpl='" + rateLimitStoreImpl + '\'' +
+                ", rateLimitStoreFile='" + rateLimitStoreFile + '\'' +
+                ", rateLimitStoreSlots=" + rateLimitStoreSlots +
+                ", priorityReservedQuotaPercent=" + priorityReservedQuotaPercent +
+                ", priorityMaxConcurrency=" + priorityMaxConcurrency +
+                ", priorityReservedConcurrency=" + priorityReservedConcurrency +
+                ", rateLimitRefreshInterval=" + rateLimitRefreshInterval +
+                ", asyncNumCallbackThreads=" + asyncNumCallbackThreads +
+                ", asyncTimeout=" + asyncTimeout +
+                ", asyncQueueSize=" + asyncQueueSize +
+                ", asyncRejectionPolicy='" + asyncRejectionPolicy + '\'' +
+                ", asyncDrainTimeout=" + asyncDrainTimeout +
+                ", asyncBatchWindow=" + asyncBatchWindow +
+                ", streamNioHandoffNumThreads=" + streamNioHandoffNumThreads +
+                ", streamDedupGroup='" + streamDedupGroup + '\'' +
+                ", streamSheddingPriorities='" + streamSheddingPriorities + '\'' +
                 '}';
     }
 
@@ -324,6 +324,306 @@ public final class ConfigurationBuilder {
         return this;
     }
 
+    public ConfigurationBuilder setStreamDispatcherGroup(String streamDispatcherGroup) {
+        checkNotBuilt();
+        configurationBean.setStreamDispatcherGroup(streamDispatcherGroup);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamDispatcherQueueSize(int streamDispatcherQueueSize) {
+        checkNotBuilt();
+        configurationBean.setStreamDispatcherQueueSize(streamDispatcherQueueSize);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamDispatcherWeight(int streamDispatcherWeight) {
+        checkNotBuilt();
+        configurationBean.setStreamDispatcherWeight(streamDispatcherWeight);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamNioEnabled(boolean streamNioEnabled) {
+        checkNotBuilt();
+        configurationBean.setStreamNioEnabled(streamNioEnabled);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamNioNumThreads(int streamNioNumThreads) {
+        checkNotBuilt();
+        configurationBean.setStreamNioNumThreads(streamNioNumThreads);
+        return this;
+    }
+
+    public ConfigurationBuilder setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+        checkNotBuilt();
+        configurationBean.setVirtualThreadsEnabled(virtualThreadsEnabled);
+        return this;
+    }
+
+    public ConfigurationBuilder setSiteStreamStatusCacheSize(int siteStreamStatusCacheSize) {
+        checkNotBuilt();
+        configurationBean.setSiteStreamStatusCacheSize(siteStreamStatusCacheSize);
+        return this;
+    }
+
+    public ConfigurationBuilder setSiteStreamUsersPerConnection(int siteStreamUsersPerConnection) {
+        checkNotBuilt();
+        configurationBean.setSiteStreamUsersPerConnection(siteStreamUsersPerConnection);
+        return this;
+    }
+
+    public ConfigurationBuilder setSiteStreamControlBatchSize(int siteStreamControlBatchSize) {
+        checkNotBuilt();
+        configurationBean.setSiteStreamControlBatchSize(siteStreamControlBatchSize);
+        return this;
+    }
+
+    public ConfigurationBuilder setSiteStreamRebalanceTimeout(long siteStreamRebalanceTimeout) {
+        checkNotBuilt();
+        configurationBean.setSiteStreamRebalanceTimeout(siteStreamRebalanceTimeout);
+        return this;
+    }
+
+    public ConfigurationBuilder setSiteStreamControlParallelism(int siteStreamControlParallelism) {
+        checkNotBuilt();
+        configurationBean.setSiteStreamControlParallelism(siteStreamControlParallelism);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamDedupEnabled(boolean streamDedupEnabled) {
+        checkNotBuilt();
+        configurationBean.setStreamDedupEnabled(streamDedupEnabled);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamDedupWindow(long streamDedupWindow) {
+        checkNotBuilt();
+        configurationBean.setStreamDedupWindow(streamDedupWindow);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamDedupCapacity(int streamDedupCapacity) {
+        checkNotBuilt();
+        configurationBean.setStreamDedupCapacity(streamDedupCapacity);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamBackfillEnabled(boolean streamBackfillEnabled) {
+        checkNotBuilt();
+        configurationBean.setStreamBackfillEnabled(streamBackfillEnabled);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamBackfillCount(int streamBackfillCount) {
+        checkNotBuilt();
+        configurationBean.setStreamBackfillCount(streamBackfillCount);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamAdaptiveDispatchEnabled(boolean streamAdaptiveDispatchEnabled) {
+        checkNotBuilt();
+        configurationBean.setStreamAdaptiveDispatchEnabled(streamAdaptiveDispatchEnabled);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamAdaptiveMaxThreads(int streamAdaptiveMaxThreads) {
+        checkNotBuilt();
+        configurationBean.setStreamAdaptiveMaxThreads(streamAdaptiveMaxThreads);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamAdaptiveSojournThreshold(long streamAdaptiveSojournThreshold) {
+        checkNotBuilt();
+        configurationBean.setStreamAdaptiveSojournThreshold(streamAdaptiveSojournThreshold);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamAdaptivePercentFullThreshold(int streamAdaptivePercentFullThreshold) {
+        checkNotBuilt();
+        configurationBean.setStreamAdaptivePercentFullThreshold(streamAdaptivePercentFullThreshold);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamSheddingEnabled(boolean streamSheddingEnabled) {
+        checkNotBuilt();
+        configurationBean.setStreamSheddingEnabled(streamSheddingEnabled);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamSheddingQueueDepth(int streamSheddingQueueDepth) {
+        checkNotBuilt();
+        configurationBean.setStreamSheddingQueueDepth(streamSheddingQueueDepth);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamSheddingRetweetSamplePercent(int streamSheddingRetweetSamplePercent) {
+        checkNotBuilt();
+        configurationBean.setStreamSheddingRetweetSamplePercent(streamSheddingRetweetSamplePercent);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamSheddingStatusSamplePercent(int streamSheddingStatusSamplePercent) {
+        checkNotBuilt();
+        configurationBean.setStreamSheddingStatusSamplePercent(streamSheddingStatusSamplePercent);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamFanOutEnabled(boolean streamFanOutEnabled) {
+        checkNotBuilt();
+        configurationBean.setStreamFanOutEnabled(streamFanOutEnabled);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamFanOutQueueSize(int streamFanOutQueueSize) {
+        checkNotBuilt();
+        configurationBean.setStreamFanOutQueueSize(streamFanOutQueueSize);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamParallelParsingEnabled(boolean streamParallelParsingEnabled) {
+        checkNotBuilt();
+        configurationBean.setStreamParallelParsingEnabled(streamParallelParsingEnabled);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamSpillEnabled(boolean streamSpillEnabled) {
+        checkNotBuilt();
+        configurationBean.setStreamSpillEnabled(streamSpillEnabled);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamSpillThreshold(int streamSpillThreshold) {
+        checkNotBuilt();
+        configurationBean.setStreamSpillThreshold(streamSpillThreshold);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamSpillDirectory(String streamSpillDirectory) {
+        checkNotBuilt();
+        configurationBean.setStreamSpillDirectory(streamSpillDirectory);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamSpillSegmentSize(int streamSpillSegmentSize) {
+        checkNotBuilt();
+        configurationBean.setStreamSpillSegmentSize(streamSpillSegmentSize);
+        return this;
+    }
+
+    public ConfigurationBuilder setRateLimitPolicy(String rateLimitPolicy) {
+        checkNotBuilt();
+        configurationBean.setRateLimitPolicy(rateLimitPolicy);
+        return this;
+    }
+
+    public ConfigurationBuilder setRateLimitQueueSize(int rateLimitQueueSize) {
+        checkNotBuilt();
+        configurationBean.setRateLimitQueueSize(rateLimitQueueSize);
+        return this;
+    }
+
+    public ConfigurationBuilder setRateLimitMaxWait(int rateLimitMaxWait) {
+        checkNotBuilt();
+        configurationBean.setRateLimitMaxWait(rateLimitMaxWait);
+        return this;
+    }
+
+    public ConfigurationBuilder setRateLimitStoreImpl(String rateLimitStoreImpl) {
+        checkNotBuilt();
+        configurationBean.setRateLimitStoreImpl(rateLimitStoreImpl);
+        return this;
+    }
+
+    public ConfigurationBuilder setRateLimitStoreFile(String rateLimitStoreFile) {
+        checkNotBuilt();
+        configurationBean.setRateLimitStoreFile(rateLimitStoreFile);
+        return this;
+    }
+
+    public ConfigurationBuilder setRateLimitStoreSlots(int rateLimitStoreSlots) {
+        checkNotBuilt();
+        configurationBean.setRateLimitStoreSlots(rateLimitStoreSlots);
+        return this;
+    }
+
+    public ConfigurationBuilder setPriorityReservedQuotaPercent(int priorityReservedQuotaPercent) {
+        checkNotBuilt();
+        configurationBean.setPriorityReservedQuotaPercent(priorityReservedQuotaPercent);
+        return this;
+    }
+
+    public ConfigurationBuilder setPriorityMaxConcurrency(int priorityMaxConcurrency) {
+        checkNotBuilt();
+        configurationBean.setPriorityMaxConcurrency(priorityMaxConcurrency);
+        return this;
+    }
+
+    public ConfigurationBuilder setPriorityReservedConcurrency(int priorityReservedConcurrency) {
+        checkNotBuilt();
+        configurationBean.setPriorityReservedConcurrency(priorityReservedConcurrency);
+        return this;
+    }
+
+    public ConfigurationBuilder setRateLimitRefreshInterval(int rateLimitRefreshInterval) {
+        checkNotBuilt();
+        configurationBean.setRateLimitRefreshInterval(rateLimitRefreshInterval);
+        return this;
+    }
+
+    public ConfigurationBuilder setAsyncNumCallbackThreads(int asyncNumCallbackThreads) {
+        checkNotBuilt();
+        configurationBean.setAsyncNumCallbackThreads(asyncNumCallbackThreads);
+        return this;
+    }
+
+    public ConfigurationBuilder setAsyncTimeout(int asyncTimeout) {
+        checkNotBuilt();
+        configurationBean.setAsyncTimeout(asyncTimeout);
+        return this;
+    }
+
+    public ConfigurationBuilder setAsyncQueueSize(int asyncQueueSize) {
+        checkNotBuilt();
+        configurationBean.setAsyncQueueSize(asyncQueueSize);
+        return this;
+    }
+
+    public ConfigurationBuilder setAsyncRejectionPolicy(String asyncRejectionPolicy) {
+        checkNotBuilt();
+        configurationBean.setAsyncRejectionPolicy(asyncRejectionPolicy);
+        return this;
+    }
+
+    public ConfigurationBuilder setAsyncDrainTimeout(int asyncDrainTimeout) {
+        checkNotBuilt();
+        configurationBean.setAsyncDrainTimeout(asyncDrainTimeout);
+        return this;
+    }
+
+    public ConfigurationBuilder setAsyncBatchWindow(int asyncBatchWindow) {
+        checkNotBuilt();
+        configurationBean.setAsyncBatchWindow(asyncBatchWindow);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamNioHandoffNumThreads(int streamNioHandoffNumThreads) {
+        checkNotBuilt();
+        configurationBean.setStreamNioHandoffNumThreads(streamNioHandoffNumThreads);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamDedupGroup(String streamDedupGroup) {
+        checkNotBuilt();
+        configurationBean.setStreamDedupGroup(streamDedupGroup);
+        return this;
+    }
+
+    public ConfigurationBuilder setStreamSheddingPriorities(String streamSheddingPriorities) {
+        checkNotBuilt();
+        configurationBean.setStreamSheddingPriorities(streamSheddingPriorities);
+        return this;
+    }
+
     public Configuration build() {
         checkNotBuilt();
         configurationBean.cacheInstance();
@@ -88,6 +88,56 @@ public final class PropertyConfiguration extends ConfigurationBase implements ja
     private static final String MEDIA_PROVIDER = "media.provider";
     private static final String MEDIA_PROVIDER_API_KEY = "media.providerAPIKey";
     private static final String MEDIA_PROVIDER_PARAMETERS = "media.providerParameters";
+    private static final String STREAM_DISPATCHER_GROUP = "stream.dispatcherGroup";
+    private static final String STREAM_DISPATCHER_QUEUE_SIZE = "stream.dispatcherQueueSize";
+    private static final String STREAM_DISPATCHER_WEIGHT = "stream.dispatcherWeight";
+    private static final String STREAM_NIO_ENABLED = "stream.nioEnabled";
+    private static final String STREAM_NIO_NUM_THREADS = "stream.nioNumThreads";
+    private static final String ASYNC_VIRTUAL_THREADS_ENABLED = "async.virtualThreadsEnabled";
+    private static final String STREAM_SITE_STATUS_CACHE_SIZE = "stream.site.statusCacheSize";
+    private static final String STREAM_SITE_USERS_PER_CONNECTION = "stream.site.usersPerConnection";
+    private static final String STREAM_SITE_CONTROL_BATCH_SIZE = "stream.site.controlBatchSize";
+    private static final String STREAM_SITE_REBALANCE_TIMEOUT = "stream.site.rebalanceTimeout";
+    private static final String STREAM_SITE_CONTROL_PARALLELISM = "stream.site.controlParallelism";
+    private static final String STREAM_DEDUP_ENABLED = "stream.dedupEnabled";
+    private static final String STREAM_DEDUP_WINDOW = "stream.dedupWindow";
+    private static final String STREAM_DEDUP_CAPACITY = "stream.dedupCapacity";
+    private static final String STREAM_BACKFILL_ENABLED = "stream.backfillEnabled";
+    private static final String STREAM_BACKFILL_COUNT = "stream.backfillCount";
+    private static final String STREAM_ADAPTIVE_DISPATCH_ENABLED = "stream.adaptiveDispatchEnabled";
+    private static final String STREAM_ADAPTIVE_MAX_THREADS = "stream.adaptiveMaxThreads";
+    private static final String STREAM_ADAPTIVE_SOJOURN_THRESHOLD = "stream.adaptiveSojournThreshold";
+    private static final String STREAM_ADAPTIVE_PERCENT_FULL_THRESHOLD = "stream.adaptivePercentFullThreshold";
+    private static final String STREAM_SHEDDING_ENABLED = "stream.sheddingEnabled";
+    private static final String STREAM_SHEDDING_QUEUE_DEPTH = "stream.sheddingQueueDepth";
+    private static final String STREAM_SHEDDING_RETWEET_SAMPLE_PERCENT = "stream.sheddingRetweetSamplePercent";
+    private static final String STREAM_SHEDDING_STATUS_SAMPLE_PERCENT = "stream.sheddingStatusSamplePercent";
+    private static final String STREAM_FAN_OUT_ENABLED = "stream.fanOutEnabled";
+    private static final String STREAM_FAN_OUT_QUEUE_SIZE = "stream.fanOutQueueSize";
+    private static final String STREAM_PARALLEL_PARSING_ENABLED = "stream.parallelParsingEnabled";
+    private static final String STREAM_SPILL_ENABLED = "stream.spillEnabled";
+    private static final String STREAM_SPILL_THRESHOLD = "stream.spillThreshold";
+    private static final String STREAM_SPILL_DIRECTORY = "stream.spillDirectory";
+    private static final String STREAM_SPILL_SEGMENT_SIZE = "stream.spillSegmentSize";
+    private static final String RATE_LIMIT_POLICY = "rateLimit.policy";
+    private static final String RATE_LIMIT_QUEUE_SIZE = "rateLimit.queueSize";
+    private static final String RATE_LIMIT_MAX_WAIT = "rateLimit.maxWait";
+    private static final String RATE_LIMIT_STORE_IMPL = "rateLimit.storeImpl";
+    private static final String RATE_LIMIT_STORE_FILE = "rateLimit.storeFile";
+    private static final String RATE_LIMIT_STORE_SLOTS = "rateLimit.storeSlots";
+    private static final String PRIORITY_RESERVED_QUOTA_PERCENT = "priority.reservedQuotaPercent";
+    private static final String PRIORITY_MAX_CONCURRENCY = "priority.maxConcurrency";
+    private static final String PRIORITY_RESERVED_CONCURRENCY = "priority.reservedConcurrency";
+    private static final String RATE_LIMIT_REFRESH_INTERVAL = "rateLimit.refreshInterval";
+    private static final String ASYNC_NUM_CALLBACK_THREADS = "async.numCallbackThreads";
+    private static final String ASYNC_TIMEOUT = "async.timeout";
+    private static final String ASYNC_QUEUE_SIZE = "async.queueSize";
+    private static final String ASYNC_REJECTION_POLICY = "async.rejectionPolicy";
+    private static final String ASYNC_DRAIN_TIMEOUT = "async.drainTimeout";
+    private static final String ASYNC_BATCH_WINDOW = "async.batchWindow";
+    private static final String STREAM_NIO_HANDOFF_NUM_THREADS = "stream.nioHandoffNumThreads";
+    private static final String STREAM_DEDUP_GROUP = "stream.dedupGroup";
+    private static final String STREAM_SHEDDING_PRIORITIES = "stream.sheddingPriorities";
     private static final long serialVersionUID = -7262615247923693252L;
 
 
@@ -401,6 +451,156 @@ public final class PropertyConfiguration extends ConfigurationBase implements ja
             }
             setMediaProviderParameters(p);
         }
+        if (notNull(props, prefix, STREAM_DISPATCHER_GROUP)) {
+            setStreamDispatcherGroup(getString(props, prefix, STREAM_DISPATCHER_GROUP));
+        }
+        if (notNull(props, prefix, STREAM_DISPATCHER_QUEUE_SIZE)) {
+            setStreamDispatcherQueueSize(getIntProperty(props, prefix, STREAM_DISPATCHER_QUEUE_SIZE));
+        }
+        if (notNull(props, prefix, STREAM_DISPATCHER_WEIGHT)) {
+            setStreamDispatcherWeight(getIntProperty(props, prefix, STREAM_DISPATCHER_WEIGHT));
+        }
+        if (notNull(props, prefix, STREAM_NIO_ENABLED)) {
+            setStreamNioEnabled(getBoolean(props, prefix, STREAM_NIO_ENABLED));
+        }
+        if (notNull(props, prefix, STREAM_NIO_NUM_THREADS)) {
+            setStreamNioNumThreads(getIntProperty(props, prefix, STREAM_NIO_NUM_THREADS));
+        }
+        if (notNull(props, prefix, ASYNC_VIRTUAL_THREADS_ENABLED)) {
+            setVirtualThreadsEnabled(getBoolean(props, prefix, ASYNC_VIRTUAL_THREADS_ENABLED));
+        }
+        if (notNull(props, prefix, STREAM_SITE_STATUS_CACHE_SIZE)) {
+            setSiteStreamStatusCacheSize(getIntProperty(props, prefix, STREAM_SITE_STATUS_CACHE_SIZE));
+        }
+        if (notNull(props, prefix, STREAM_SITE_USERS_PER_CONNECTION)) {
+            setSiteStreamUsersPerConnection(getIntProperty(props, prefix, STREAM_SITE_USERS_PER_CONNECTION));
+        }
+        if (notNull(props, prefix, STREAM_SITE_CONTROL_BATCH_SIZE)) {
+            setSiteStreamControlBatchSize(getIntProperty(props, prefix, STREAM_SITE_CONTROL_BATCH_SIZE));
+        }
+        if (notNull(props, prefix, STREAM_SITE_REBALANCE_TIMEOUT)) {
+            setSiteStreamRebalanceTimeout(getLongProperty(props, prefix, STREAM_SITE_REBALANCE_TIMEOUT));
+        }
+        if (notNull(props, prefix, STREAM_SITE_CONTROL_PARALLELISM)) {
+            setSiteStreamControlParallelism(getIntProperty(props, prefix, STREAM_SITE_CONTROL_PARALLELISM));
+        }
+        if (notNull(props, prefix, STREAM_DEDUP_ENABLED)) {
+            setStreamDedupEnabled(getBoolean(props, prefix, STREAM_DEDUP_ENABLED));
+        }
+        if (notNull(props, prefix, STREAM_DEDUP_WINDOW)) {
+            setStreamDedupWindow(getLongProperty(props, prefix, STREAM_DEDUP_WINDOW));
+        }
+        if (notNull(props, prefix, STREAM_DEDUP_CAPACITY)) {
+            setStreamDedupCapacity(getIntProperty(props, prefix, STREAM_DEDUP_CAPACITY));
+        }
+        if (notNull(props, prefix, STREAM_BACKFILL_ENABLED)) {
+            setStreamBackfillEnabled(getBoolean(props, prefix, STREAM_BACKFILL_ENABLED));
+        }
+        if (notNull(props, prefix, STREAM_BACKFILL_COUNT)) {
+            setStreamBackfillCount(getIntProperty(props, prefix, STREAM_BACKFILL_COUNT));
+        }
+        if (notNull(props, prefix, STREAM_ADAPTIVE_DISPATCH_ENABLED)) {
+            setStreamAdaptiveDispatchEnabled(getBoolean(props, prefix, STREAM_ADAPTIVE_DISPATCH_ENABLED));
+        }
+        if (notNull(props, prefix, STREAM_ADAPTIVE_MAX_THREADS)) {
+            setStreamAdaptiveMaxThreads(getIntProperty(props, prefix, STREAM_ADAPTIVE_MAX_THREADS));
+        }
+        if (notNull(props, prefix, STREAM_ADAPTIVE_SOJOURN_THRESHOLD)) {
+            setStreamAdaptiveSojournThreshold(getLongProperty(props, prefix, STREAM_ADAPTIVE_SOJOURN_THRESHOLD));
+        }
+        if (notNull(props, prefix, STREAM_ADAPTIVE_PERCENT_FULL_THRESHOLD)) {
+            setStreamAdaptivePercentFullThreshold(getIntProperty(props, prefix, STREAM_ADAPTIVE_PERCENT_FULL_THRESHOLD));
+        }
+        if (notNull(props, prefix, STREAM_SHEDDING_ENABLED)) {
+            setStreamSheddingEnabled(getBoolean(props, prefix, STREAM_SHEDDING_ENABLED));
+        }
+        if (notNull(props, prefix, STREAM_SHEDDING_QUEUE_DEPTH)) {
+            setStreamSheddingQueueDepth(getIntProperty(props, prefix, STREAM_SHEDDING_QUEUE_DEPTH));
+        }
+        if (notNull(props, prefix, STREAM_SHEDDING_RETWEET_SAMPLE_PERCENT)) {
+            setStreamSheddingRetweetSamplePercent(getIntProperty(props, prefix, STREAM_SHEDDING_RETWEET_SAMPLE_PERCENT));
+        }
+        if (notNull(props, prefix, STREAM_SHEDDING_STATUS_SAMPLE_PERCENT)) {
+            setStreamSheddingStatusSamplePercent(getIntProperty(props, prefix, STREAM_SHEDDING_STATUS_SAMPLE_PERCENT));
+        }
+        if (notNull(props, prefix, STREAM_FAN_OUT_ENABLED)) {
+            setStreamFanOutEnabled(getBoolean(props, prefix, STREAM_FAN_OUT_ENABLED));
+        }
+        if (notNull(props, prefix, STREAM_FAN_OUT_QUEUE_SIZE)) {
+            setStreamFanOutQueueSize(getIntProperty(props, prefix, STREAM_FAN_OUT_QUEUE_SIZE));
+        }
+        if (notNull(props, prefix, STREAM_PARALLEL_PARSING_ENABLED)) {
+            setStreamParallelParsingEnabled(getBoolean(props, prefix, STREAM_PARALLEL_PARSING_ENABLED));
+        }
+        if (notNull(props, prefix, STREAM_SPILL_ENABLED)) {
+            setStreamSpillEnabled(getBoolean(props, prefix, STREAM_SPILL_ENABLED));
+        }
+        if (notNull(props, prefix, STREAM_SPILL_THRESHOLD)) {
+            setStreamSpillThreshold(getIntProperty(props, prefix, STREAM_SPILL_THRESHOLD));
+        }
+        if (notNull(props, prefix, STREAM_SPILL_DIRECTORY)) {
+            setStreamSpillDirectory(getString(props, prefix, STREAM_SPILL_DIRECTORY));
+        }
+        if (notNull(props, prefix, STREAM_SPILL_SEGMENT_SIZE)) {
+            setStreamSpillSegmentSize(getIntProperty(props, prefix, STREAM_SPILL_SEGMENT_SIZE));
+        }
+        if (notNull(props, prefix, RATE_LIMIT_POLICY)) {
+            setRateLimitPolicy(getString(props, prefix, RATE_LIMIT_POLICY));
+        }
+        if (notNull(props, prefix, RATE_LIMIT_QUEUE_SIZE)) {
+            setRateLimitQueueSize(getIntProperty(props, prefix, RATE_LIMIT_QUEUE_SIZE));
+        }
+        if (notNull(props, prefix, RATE_LIMIT_MAX_WAIT)) {
+            setRateLimitMaxWait(getIntProperty(props, prefix, RATE_LIMIT_MAX_WAIT));
+        }
+        if (notNull(props, prefix, RATE_LIMIT_STORE_IMPL)) {
+            setRateLimitStoreImpl(getString(props, prefix, RATE_LIMIT_STORE_IMPL));
+        }
+        if (notNull(props, prefix, RATE_LIMIT_STORE_FILE)) {
+            setRateLimitStoreFile(getString(props, prefix, RATE_LIMIT_STORE_FILE));
+        }
+        if (notNull(props, prefix, RATE_LIMIT_STORE_SLOTS)) {
+            setRateLimitStoreSlots(getIntProperty(props, prefix, RATE_LIMIT_STORE_SLOTS));
+        }
+        if (notNull(props, prefix, PRIORITY_RESERVED_QUOTA_PERCENT)) {
+            setPriorityReservedQuotaPercent(getIntProperty(props, prefix, PRIORITY_RESERVED_QUOTA_PERCENT));
+        }
+        if (notNull(props, prefix, PRIORITY_MAX_CONCURRENCY)) {
+            setPriorityMaxConcurrency(getIntProperty(props, prefix, PRIORITY_MAX_CONCURRENCY));
+        }
+        if (notNull(props, prefix, PRIORITY_RESERVED_CONCURRENCY)) {
+            setPriorityReservedConcurrency(getIntProperty(props, prefix, PRIORITY_RESERVED_CONCURRENCY));
+        }
+        if (notNull(props, prefix, RATE_LIMIT_REFRESH_INTERVAL)) {
+            setRateLimitRefreshInterval(getIntProperty(props, prefix, RATE_LIMIT_REFRESH_INTERVAL));
+        }
+        if (notNull(props, prefix, ASYNC_NUM_CALLBACK_THREADS)) {
+            setAsyncNumCallbackThreads(getIntProperty(props, prefix, ASYNC_NUM_CALLBACK_THREADS));
+        }
+        if (notNull(props, prefix, ASYNC_TIMEOUT)) {
+            setAsyncTimeout(getIntProperty(props, prefix, ASYNC_TIMEOUT));
+        }
+        if (notNull(props, prefix, ASYNC_QUEUE_SIZE)) {
+            setAsyncQueueSize(getIntProperty(props, prefix, ASYNC_QUEUE_SIZE));
+        }
+        if (notNull(props, prefix, ASYNC_REJECTION_POLICY)) {
+            setAsyncRejectionPolicy(getString(props, prefix, ASYNC_REJECTION_POLICY));
+        }
+        if (notNull(props, prefix, ASYNC_DRAIN_TIMEOUT)) {
+            setAsyncDrainTimeout(getIntProperty(props, prefix, ASYNC_DRAIN_TIMEOUT));
+        }
+        if (notNull(props, prefix, ASYNC_BATCH_WINDOW)) {
+            setAsyncBatchWindow(getIntProperty(props, prefix, ASYNC_BATCH_WINDOW));
+        }
+        if (notNull(props, prefix, STREAM_NIO_HANDOFF_NUM_THREADS)) {
+            setStreamNioHandoffNumThreads(getIntProperty(props, prefix, STREAM_NIO_HANDOFF_NUM_THREADS));
+        }
+        if (notNull(props, prefix, STREAM_DEDUP_GROUP)) {
+            setStreamDedupGroup(getString(props, prefix, STREAM_DEDUP_GROUP));
+        }
+        if (notNull(props, prefix, STREAM_SHEDDING_PRIORITIES)) {
+            setStreamSheddingPriorities(getString(props, prefix, STREAM_SHEDDING_PRIORITIES));
+        }
         cacheInstance();
     }
 
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CursorIteratorTest extends TestCase {
+    private final List<Long> fetched = Collections.synchronizedList(new ArrayList<Long>());
+
+    public CursorIteratorTest(String name) {
+        super(name);
+    }
+
+    public void testPrefetch() throws Exception {
+        final List<Runnable> prefetches = new ArrayList<Runnable>();
+        Executor deferred = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                prefetches.add(command);
+            }
+        };
+        // pages 3, 2, 1 with 2 elements each, the cursor being the number of pages left
+        CursorIterator<Item> items = new CursorIterator<Item>(3, deferred) {
+            @Override
+            protected PagableResponseList<Item> fetch(long cursor) {
+                fetched.add(cursor);
+                return new Page(cursor, 10);
+            }
+        };
+        assertTrue(items.hasNext());
+        assertEquals(1, fetched.size());
+        // the second page is being fetched while the first one is consumed
+        assertEquals(1, prefetches.size());
+        assertEquals(2, items.getNextCursor());
+        assertEquals(30, items.next().value);
+        assertEquals(31, items.next().value);
+        prefetches.remove(0).run();
+        assertEquals(2, fetched.size());
+        assertEquals(20, items.next().value);
+        assertEquals(1, prefetches.size());
+        assertEquals(21, items.next().value);
+        prefetches.remove(0).run();
+        assertEquals(10, items.next().value);
+        assertEquals(11, items.next().value);
+        assertFalse(items.hasNext());
+        assertEquals(0, items.getNextCursor());
+        assertEquals(0, prefetches.size());
+        try {
+            items.next();
+            fail();
+        } catch (NoSuchElementException expected) {
+        }
+    }
+
+    public void testNoPrefetchWhenRateLimited() throws Exception {
+        final AtomicInteger prefetches = new AtomicInteger();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                prefetches.incrementAndGet();
+                command.run();
+            }
+        };
+        CursorIterator<Item> items = new CursorIterator<Item>(2, executor) {
+            @Override
+            protected PagableResponseList<Item> fetch(long cursor) {
+                fetched.add(cursor);
+                return new Page(cursor, 0);
+            }
+        };
+        int count = 0;
+        while (items.hasNext()) {
+            items.next();
+            count++;
+        }
+        assertEquals(4, count);
+        assertEquals(0, prefetches.get());
+        assertEquals(2, fetched.size());
+    }
+
+    public void testRetryAfterFailure() throws Exception {
+        final AtomicInteger failures = new AtomicInteger(1);
+        IDsIterator ids = new IDsIterator() {
+            @Override
+            protected IDs fetch(long cursor) throws TwitterException {
+                if (cursor == 2 && failures.getAndDecrement() > 0) {
+                    throw new TwitterException("failed");
+                }
+                long next = cursor == CursorSupport.START ? 2 : 0;
+                return new IDsJSONImpl("{\"ids\":[" + cursor + "," + (cursor + 100) + "],\"next_cursor\":" + next
+                        + ",\"previous_cursor\":0}");
+            }
+        };
+        assertEquals(-1, ids.nextLong());
+        assertEquals(99, ids.nextLong());
+        try {
+            ids.hasNext();
+            fail();
+        } catch (TwitterRuntimeException expected) {
+            assertEquals("failed", expected.getCause().getMessage());
+        }
+        assertTrue(ids.hasNext());
+        assertEquals(2, ids.nextLong());
+        assertEquals(102, ids.nextLong());
+        assertFalse(ids.hasNext());
+    }
+
+    private static class Item implements TwitterResponse {
+        private static final long serialVersionUID = 1L;
+        final long value;
+
+        Item(long value) {
+            this.value = value;
+        }
+
+        @Override
+        public RateLimitStatus getRateLimitStatus() {
+            return null;
+        }
+
+        @Override
+        public int getAccessLevel() {
+            return NONE;
+        }
+    }
+
+    private static class Page extends ArrayList<Item> implements PagableResponseList<Item> {
+        private static final long serialVersionUID = 1L;
+        private final long cursor;
+        private final RateLimitStatus status;
+
+        Page(long cursor, int remaining) {
+            this.cursor = cursor;
+            this.status = new RateLimitStatusJSONImpl(15, remaining, (int) (System.currentTimeMillis() / 1000) + 900);
+            add(new Item(cursor * 10));
+            add(new Item(cursor * 10 + 1));
+        }
+
+        @Override
+        public RateLimitStatus getRateLimitStatus() {
+            return status;
+        }
+
+        @Override
+        public int getAccessLevel() {
+            return NONE;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return false;
+        }
+
+        @Override
+        public long getPreviousCursor() {
+            return 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor > 1;
+        }
+
+        @Override
+        public long getNextCursor() {
+            return cursor > 1 ? cursor - 1 : 0;
+        }
+    }
+}
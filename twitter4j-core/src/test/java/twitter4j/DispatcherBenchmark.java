@@ -0,0 +1,76 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.ConfigurationBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compares platform and virtual thread dispatchers at 10,000 concurrent blocking calls.<br>
+ * Each task sleeps for 100 milliseconds to simulate a blocking REST call.
+ * Run on Java 21+ to measure virtual threads, older JVMs fall back to platform threads.
+ * <pre>
+ * java -cp ... twitter4j.DispatcherBenchmark [calls] [numThreads]
+ * </pre>
+ */
+public class DispatcherBenchmark {
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        System.out.println("virtual threads supported: " + VirtualThreads.isSupported());
+        // warm up
+        run(false, 1000, numThreads);
+        run(true, 1000, numThreads);
+        run(false, calls, numThreads);
+        run(true, calls, numThreads);
+    }
+
+    private static void run(boolean virtual, int calls, int numThreads) throws Exception {
+        ConfigurationBuilder cb = new ConfigurationBuilder();
+        cb.setAsyncNumThreads(numThreads);
+        cb.setVirtualThreadsEnabled(virtual);
+        Dispatcher dispatcher = new DispatcherImpl(cb.build());
+        final CountDownLatch latch = new CountDownLatch(calls);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            dispatcher.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException ignore) {
+                    }
+                    latch.countDown();
+                }
+            });
+        }
+        long usedPeak = runtime.totalMemory() - runtime.freeMemory();
+        latch.await();
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        System.out.println(String.format("%s: %d calls in %d ms (%.0f calls/sec), peak platform threads: %d, heap: %d KB"
+                , virtual && VirtualThreads.isSupported() ? "virtual " : "platform", calls, elapsed, calls * 1000d / elapsed
+                , threads.getPeakThreadCount(), (usedPeak - usedBefore) / 1024));
+        dispatcher.shutdown();
+    }
+}
@@ -17,9 +17,16 @@
 package twitter4j;
 
 import junit.framework.TestCase;
+import twitter4j.conf.ConfigurationBuilder;
 import twitter4j.conf.ConfigurationContext;
+import twitter4j.management.DispatcherStatisticsMBean;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Yusuke Yamamoto - yusuke at mac.com
@@ -54,6 +61,316 @@ public class DispatcherTest extends TestCase {
         assertEquals(0, countThread(name));
     }
 
+    public void testVirtualThreadsKeepOrder() throws Exception {
+        // with virtual threads, a single thread still runs the tasks one at a time in order
+        Dispatcher virtual = new DispatcherImpl(new ConfigurationBuilder().setVirtualThreadsEnabled(true).build()
+                , "Twitter4J Virtual Dispatcher", 1, 10);
+        final StringBuffer order = new StringBuffer();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlapped = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            final int index = i;
+            virtual.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    if (running.incrementAndGet() > 1) {
+                        overlapped.incrementAndGet();
+                    }
+                    order.append(index).append(',');
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.append(i).append(',');
+        }
+        assertEquals(expected.toString(), order.toString());
+        assertEquals(0, overlapped.get());
+        assertEquals(1, ((DispatcherImpl) virtual).getNumThreads());
+        virtual.shutdown();
+    }
+
+    public void testVirtualThreadPerTask() throws Exception {
+        // blocking calls of AsyncTwitter don't wait for each other with virtual threads
+        DispatcherImpl perTask = new DispatcherImpl(new ConfigurationBuilder().setVirtualThreadsEnabled(true)
+                .setAsyncNumThreads(1).build());
+        if (!VirtualThreads.isSupported()) {
+            // falls back to platform threads
+            assertEquals(1, perTask.getNumThreads());
+            perTask.shutdown();
+            return;
+        }
+        assertEquals(-1, perTask.getNumThreads());
+        final CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            perTask.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException ignore) {
+                    }
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        perTask.shutdown();
+    }
+
+    public void testWeightedFairness() throws Exception {
+        WeightedFairDispatcher pool = new WeightedFairDispatcher(ConfigurationContext.getInstance(), "Twitter4J Fair Dispatcher", 1);
+        final StringBuffer order = new StringBuffer();
+        final Object gate = new Object();
+        Dispatcher heavy = pool.newLane(3, -1);
+        Dispatcher light = pool.newLane(1, -1);
+        synchronized (gate) {
+            // blocks the only worker until both lanes are filled
+            heavy.invokeLater(new Runnable() {
+                public void run() {
+                    synchronized (gate) {
+                        order.setLength(0);
+                    }
+                }
+            });
+            Thread.sleep(100);
+            for (int i = 0; i < 8; i++) {
+                heavy.invokeLater(new AppendTask(order, 'h'));
+                light.invokeLater(new AppendTask(order, 'l'));
+            }
+        }
+        Thread.sleep(300);
+        assertEquals(16, order.length());
+        // the heavier lane receives three times as many turns while both lanes are busy
+        String firstEight = order.substring(0, 8);
+        assertEquals(6, firstEight.replace("l", "").length());
+        assertTrue(order.toString().endsWith("lllll"));
+        heavy.shutdown();
+        light.shutdown();
+        pool.shutdown();
+        Thread.sleep(300);
+        assertEquals(0, countThread("Twitter4J Fair Dispatcher"));
+    }
+
+    public void testBoundedQueue() throws Exception {
+        Dispatcher bounded = new DispatcherImpl(ConfigurationContext.getInstance(), "Twitter4J Bounded Dispatcher", 1, 1);
+        count = 0;
+        for (int i = 0; i < 5; i++) {
+            // blocks while the queue is full instead of dropping tasks
+            bounded.invokeLater(new IncrementTask());
+        }
+        bounded.shutdown();
+        Thread.sleep(300);
+        assertEquals(5, count);
+    }
+
+    public void testBlockPolicy() throws Exception {
+        InstrumentedDispatcher block = new InstrumentedDispatcher(ConfigurationContext.getInstance()
+                , "Twitter4J Block Dispatcher", 1, 1, InstrumentedDispatcher.policyOf("block"), 5000);
+        count = 0;
+        for (int i = 0; i < 50; i++) {
+            // parks until the worker has taken a task
+            block.invokeLater(new IncrementTask());
+            assertTrue(block.getQueueSize() <= 1);
+        }
+        block.shutdown();
+        assertEquals(50, count);
+        assertEquals(50, block.getStatistics().getCompletedCount());
+    }
+
+    public void testInstrumentedDispatcher() throws Exception {
+        Dispatcher factoryMade = new DispatcherFactory(new ConfigurationBuilder()
+                .setDispatcherImpl("twitter4j.InstrumentedDispatcher").build()).getInstance();
+        assertTrue(factoryMade instanceof InstrumentedDispatcher);
+        factoryMade.shutdown();
+
+        InstrumentedDispatcher dispatcher = new InstrumentedDispatcher(ConfigurationContext.getInstance()
+                , "Twitter4J Instrumented Dispatcher", 4, -1, InstrumentedDispatcher.policyOf("abort"), 5000);
+        final AtomicInteger done = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            dispatcher.invokeLater(new Runnable() {
+                public void run() {
+                    done.incrementAndGet();
+                }
+            });
+        }
+        dispatcher.invokeLater(new Runnable() {
+            public void run() {
+                throw new IllegalStateException("thrown by a task");
+            }
+        });
+        // shutdown drains the queue
+        dispatcher.shutdown();
+        assertEquals(1000, done.get());
+        DispatcherStatisticsMBean statistics = dispatcher.getStatistics();
+        assertEquals(1001, statistics.getSubmittedCount());
+        assertEquals(1001, statistics.getCompletedCount());
+        assertEquals(1, statistics.getFailedCount());
+        assertEquals(0, statistics.getQueueDepth());
+        assertEquals(0, statistics.getActiveCount());
+        try {
+            dispatcher.invokeLater(new IncrementTask());
+            fail("shut down");
+        } catch (RejectedExecutionException expected) {
+        }
+        Thread.sleep(300);
+        assertEquals(0, countThread("Twitter4J Instrumented Dispatcher"));
+    }
+
+    public void testRejectionPolicies() throws Exception {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final StringBuffer order = new StringBuffer();
+        Runnable blocking = new Runnable() {
+            public void run() {
+                try {
+                    gate.await();
+                } catch (InterruptedException ignore) {
+                }
+            }
+        };
+        InstrumentedDispatcher abort = new InstrumentedDispatcher(ConfigurationContext.getInstance()
+                , "Twitter4J Abort Dispatcher", 1, 1, InstrumentedDispatcher.policyOf("abort"), 5000);
+        abort.invokeLater(blocking);
+        waitUntilEmpty(abort);
+        abort.invokeLater(new AppendTask(order, 'a'));
+        try {
+            abort.invokeLater(new AppendTask(order, 'b'));
+            fail("queue is full");
+        } catch (RejectedExecutionException expected) {
+        }
+        assertEquals(1, abort.getStatistics().getRejectedCount());
+
+        InstrumentedDispatcher discardOldest = new InstrumentedDispatcher(ConfigurationContext.getInstance()
+                , "Twitter4J Discard Dispatcher", 1, 2, InstrumentedDispatcher.policyOf("discardOldest"), 5000);
+        discardOldest.invokeLater(blocking);
+        waitUntilEmpty(discardOldest);
+        for (char c = 'c'; c <= 'f'; c++) {
+            discardOldest.invokeLater(new AppendTask(order, c));
+        }
+        assertEquals(2, discardOldest.getQueueSize());
+
+        InstrumentedDispatcher callerRuns = new InstrumentedDispatcher(ConfigurationContext.getInstance()
+                , "Twitter4J Caller Runs Dispatcher", 1, 1, InstrumentedDispatcher.policyOf("callerRuns"), 5000);
+        callerRuns.invokeLater(blocking);
+        waitUntilEmpty(callerRuns);
+        callerRuns.invokeLater(new AppendTask(order, 'x'));
+        callerRuns.invokeLater(new AppendTask(order, 'g'));
+        assertEquals("g", order.toString());
+
+        gate.countDown();
+        abort.shutdown();
+        discardOldest.shutdown();
+        callerRuns.shutdown();
+        // 'b' was rejected, 'c' and 'd' were discarded
+        char[] ran = order.toString().toCharArray();
+        Arrays.sort(ran);
+        assertEquals("aefgx", new String(ran));
+    }
+
+    public void testErrorKeepsWorker() throws Exception {
+        InstrumentedDispatcher dispatcher = new InstrumentedDispatcher(ConfigurationContext.getInstance()
+                , "Twitter4J Error Dispatcher", 1, -1, InstrumentedDispatcher.policyOf("block"), 5000);
+        dispatcher.invokeLater(new Runnable() {
+            public void run() {
+                throw new AssertionError("failed");
+            }
+        });
+        final CountDownLatch ran = new CountDownLatch(1);
+        dispatcher.invokeLater(new Runnable() {
+            public void run() {
+                ran.countDown();
+            }
+        });
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(1, dispatcher.getStatistics().getFailedCount());
+        dispatcher.shutdown();
+    }
+
+    public void testDiscardedTasksAreTold() throws Exception {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final StringBuffer discarded = new StringBuffer();
+        InstrumentedDispatcher discard = new InstrumentedDispatcher(ConfigurationContext.getInstance()
+                , "Twitter4J Discard Dispatcher", 1, 1, InstrumentedDispatcher.policyOf("discard"), 5000);
+        InstrumentedDispatcher discardOldest = new InstrumentedDispatcher(ConfigurationContext.getInstance()
+                , "Twitter4J Discard Oldest Dispatcher", 1, 1, InstrumentedDispatcher.policyOf("discardOldest"), 5000);
+        for (InstrumentedDispatcher dispatcher : new InstrumentedDispatcher[]{discard, discardOldest}) {
+            dispatcher.invokeLater(new Runnable() {
+                public void run() {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+            });
+            waitUntilEmpty(dispatcher);
+            for (final char c : new char[]{'a', 'b'}) {
+                dispatcher.invokeLater(new Discardable() {
+                    public void onDiscard() {
+                        discarded.append(c);
+                    }
+
+                    public void run() {
+                    }
+                });
+            }
+        }
+        // the new task is dropped by discard, the oldest one by discardOldest
+        assertEquals("ba", discarded.toString());
+        gate.countDown();
+        discard.shutdown();
+        discardOldest.shutdown();
+    }
+
+    public void testDrainTimeout() throws Exception {
+        InstrumentedDispatcher dispatcher = new InstrumentedDispatcher(ConfigurationContext.getInstance()
+                , "Twitter4J Draining Dispatcher", 1, -1, InstrumentedDispatcher.policyOf("block"), 200);
+        final AtomicInteger interrupted = new AtomicInteger();
+        dispatcher.invokeLater(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                }
+            }
+        });
+        dispatcher.invokeLater(new IncrementTask());
+        long start = System.currentTimeMillis();
+        dispatcher.shutdown();
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        Thread.sleep(300);
+        // the running task has been interrupted and the queued one dropped
+        assertEquals(1, interrupted.get());
+        assertEquals(0, dispatcher.getQueueSize());
+        assertEquals(0, countThread("Twitter4J Draining Dispatcher"));
+    }
+
+    private static void waitUntilEmpty(InstrumentedDispatcher dispatcher) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((dispatcher.getQueueSize() > 0 || dispatcher.getStatistics().getActiveCount() == 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static class AppendTask implements Runnable {
+        private final StringBuffer buffer;
+        private final char c;
+
+        AppendTask(StringBuffer buffer, char c) {
+            this.buffer = buffer;
+            this.c = c;
+        }
+
+        public void run() {
+            buffer.append(c);
+        }
+    }
+
     private int countThread(String name) {
         int count = 0;
         Map<Thread, StackTraceElement[]> allThreads = Thread.getAllStackTraces();
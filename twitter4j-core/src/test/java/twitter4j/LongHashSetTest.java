@@ -0,0 +1,58 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class LongHashSetTest extends TestCase {
+    public LongHashSetTest(String name) {
+        super(name);
+    }
+
+    public void testAgainstHashSet() {
+        Random random = new Random(1);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<Long>();
+        for (int i = 0; i < 50000; i++) {
+            long value = random.nextInt(20000) - 10;
+            assertEquals(expected.add(value), set.add(value));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long value = -10; value < 20000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        for (long value = -10; value < 20000; value += 3) {
+            assertEquals(expected.remove(value), set.remove(value));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long value = -10; value < 20000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        Set<Long> iterated = new HashSet<Long>();
+        for (LongIterator i = set.iterator(); i.hasNext(); ) {
+            assertTrue(iterated.add(i.nextLong()));
+        }
+        assertEquals(expected, iterated);
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains(0));
+        assertFalse(set.contains(1));
+    }
+}
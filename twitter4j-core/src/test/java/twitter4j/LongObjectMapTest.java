@@ -0,0 +1,73 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongObjectMapTest extends TestCase {
+    public LongObjectMapTest(String name) {
+        super(name);
+    }
+
+    public void testPutGetRemove() {
+        LongObjectMap<String> map = new LongObjectMap<String>();
+        assertNull(map.put(6358482L, "a"));
+        assertEquals("a", map.put(6358482L, "b"));
+        assertEquals("b", map.get(6358482L));
+        assertTrue(map.containsKey(6358482L));
+        assertFalse(map.containsKey(0L));
+        assertEquals(1, map.size());
+        assertEquals("b", map.remove(6358482L));
+        assertNull(map.remove(6358482L));
+        assertTrue(map.isEmpty());
+    }
+
+    public void testAgainstHashMap() {
+        // small key range, so that collisions, removals and reinsertions happen often
+        Random random = new Random(1);
+        LongObjectMap<Long> map = new LongObjectMap<Long>();
+        Map<Long, Long> expected = new HashMap<Long, Long>();
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(2000) * 4096L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+        long[] expectedKeys = new long[expected.size()];
+        int i = 0;
+        for (Long key : expected.keySet()) {
+            expectedKeys[i++] = key;
+        }
+        Arrays.sort(expectedKeys);
+        assertTrue(Arrays.equals(expectedKeys, keys));
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(keys[0]));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class LongSetTest extends TestCase {
+    public LongSetTest(String name) {
+        super(name);
+    }
+
+    private static long[] sorted(LongSet set) {
+        long[] values = set.toArray();
+        Arrays.sort(values);
+        return values;
+    }
+
+    public void testSetOperations() {
+        LongSet a = new LongSet(new long[]{0, 1, 2, 3, 4});
+        LongSet b = new LongSet(new long[]{3, 4, 5, 6});
+        assertTrue(Arrays.equals(new long[]{0, 1, 2, 3, 4, 5, 6}, sorted(LongSet.union(a, b))));
+        assertTrue(Arrays.equals(new long[]{3, 4}, sorted(LongSet.intersection(a, b))));
+        assertTrue(Arrays.equals(new long[]{0, 1, 2}, sorted(LongSet.difference(a, b))));
+        assertTrue(Arrays.equals(new long[]{5, 6}, sorted(LongSet.difference(b, a))));
+        // the operands are left as they are
+        assertEquals(5, a.size());
+        assertEquals(4, b.size());
+
+        LongSet c = new LongSet(a.toArray());
+        assertEquals(a, c);
+        assertEquals(a.hashCode(), c.hashCode());
+        assertTrue(c.retainAll(b));
+        assertEquals(LongSet.intersection(a, b), c);
+        assertTrue(c.removeAll(b));
+        assertTrue(c.isEmpty());
+        assertFalse(c.removeAll(b));
+    }
+
+    public void testLongList() throws Exception {
+        LongList list = new LongList(1);
+        list.addAll(new IDsJSONImpl("{\"ids\":[5,3],\"next_cursor\":1,\"previous_cursor\":0}").getIDs());
+        list.addAll(new IDsJSONImpl("{\"ids\":[4,3],\"next_cursor\":0,\"previous_cursor\":-1}").getIDs());
+        list.add(1);
+        assertEquals(5, list.size());
+        assertEquals(3, list.get(1));
+        assertEquals(1, list.indexOf(3));
+        assertFalse(list.contains(2));
+        assertEquals(5, list.set(0, 2));
+        list.sort();
+        assertTrue(Arrays.equals(new long[]{1, 2, 3, 3, 4}, list.toArray()));
+        assertEquals(4, list.toSet().size());
+        LongList copy = new LongList();
+        copy.addAll(list.iterator());
+        assertEquals(list, copy);
+        assertEquals(list.hashCode(), copy.hashCode());
+        try {
+            list.get(5);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    public void testParseIDs() throws Exception {
+        StringBuilder json = new StringBuilder("{\"ids\": [");
+        for (int i = 0; i < 5000; i++) {
+            json.append(i > 0 ? ", " : "").append(Long.MAX_VALUE - i);
+        }
+        json.append("], \"next_cursor\":1489467234237774933,\"next_cursor_str\":\"1489467234237774933\"")
+                .append(",\"previous_cursor\":0,\"previous_cursor_str\":\"0\"}");
+        IDs ids = new IDsJSONImpl(json.toString());
+        assertEquals(5000, ids.getIDs().length);
+        assertEquals(Long.MAX_VALUE, ids.getIDs()[0]);
+        assertEquals(Long.MAX_VALUE - 4999, ids.getIDs()[4999]);
+        assertEquals(1489467234237774933L, ids.getNextCursor());
+        assertFalse(ids.hasPrevious());
+
+        assertTrue(Arrays.equals(new long[]{1, -2, 3}, new IDsJSONImpl("[1,\"-2\" , 3 ]").getIDs()));
+        assertEquals(0, new IDsJSONImpl("{\"ids\":[],\"next_cursor\":0,\"previous_cursor\":0}").getIDs().length);
+        assertTrue(Arrays.equals(new long[]{7}, new JSONTokener("[\"7\"]").nextLongArray()));
+        for (String malformed : new String[]{"[1,]", "[1.5]", "[99999999999999999999]", "{\"next_cursor\":0}", "[1"}) {
+            try {
+                new IDsJSONImpl(malformed);
+                fail(malformed);
+            } catch (TwitterException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+
+import java.io.File;
+
+public class MappedRateLimitStoreTest extends TestCase {
+    private File file;
+
+    public MappedRateLimitStoreTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("twitter4j-rate-limits", ".dat");
+        assertTrue(file.delete());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+        super.tearDown();
+    }
+
+    private Configuration conf(int slots) {
+        return new ConfigurationBuilder()
+                .setRateLimitStoreImpl("twitter4j.MappedRateLimitStore")
+                .setRateLimitStoreFile(file.getAbsolutePath())
+                .setRateLimitStoreSlots(slots)
+                .build();
+    }
+
+    public void testPack() {
+        RateLimitStore.Quota quota = new RateLimitStore.Quota(900, 899, 1792368000, true);
+        assertEquals(quota, MappedRateLimitStore.unpack(MappedRateLimitStore.pack(quota)));
+        quota = new RateLimitStore.Quota(180, 0, 1792368000, false);
+        assertEquals(quota, MappedRateLimitStore.unpack(MappedRateLimitStore.pack(quota)));
+        assertNull(MappedRateLimitStore.unpack(MappedRateLimitStore.pack(null)));
+        assertEquals(32767, MappedRateLimitStore.unpack(MappedRateLimitStore.pack(new RateLimitStore.Quota(100000, 50000, 1, false))).getLimit());
+    }
+
+    public void testSharedBetweenMappings() throws Exception {
+        MappedRateLimitStore first = new MappedRateLimitStore(conf(64));
+        // e.g. another process, configured with a different size
+        MappedRateLimitStore second = new MappedRateLimitStore(conf(16));
+        assertTrue(second.toString().contains("slots=64"));
+        assertNull(first.get("token /statuses/show/:id"));
+        RateLimitStore.Quota quota = new RateLimitStore.Quota(900, 10, 1792368000, false);
+        assertTrue(first.compareAndSet("token /statuses/show/:id", null, quota));
+        assertEquals(quota, second.get("token /statuses/show/:id"));
+        assertFalse(second.compareAndSet("token /statuses/show/:id", null, quota.withRemaining(5)));
+        assertTrue(second.compareAndSet("token /statuses/show/:id", quota, quota.withRemaining(9)));
+        assertFalse(first.compareAndSet("token /statuses/show/:id", quota, quota.withRemaining(8)));
+        assertEquals(9, first.get("token /statuses/show/:id").getRemaining());
+        assertNull(second.get("token /users/show"));
+    }
+
+    public void testConcurrentDecrements() throws Exception {
+        final MappedRateLimitStore[] stores = {new MappedRateLimitStore(conf(64)), new MappedRateLimitStore(conf(64))};
+        final String key = "token /search/tweets";
+        assertTrue(stores[0].compareAndSet(key, null, new RateLimitStore.Quota(20000, 20000, 1792368000, false)));
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final RateLimitStore store = stores[i % 2];
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int n = 0; n < 1000; n++) {
+                        while (true) {
+                            RateLimitStore.Quota quota = store.get(key);
+                            if (store.compareAndSet(key, quota, quota.withRemaining(quota.getRemaining() - 1))) {
+                                break;
+                            }
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(20000 - 8000, stores[1].get(key).getRemaining());
+    }
+
+    public void testFull() throws Exception {
+        MappedRateLimitStore store = new MappedRateLimitStore(conf(2));
+        RateLimitStore.Quota quota = new RateLimitStore.Quota(15, 15, 1792368000, false);
+        assertTrue(store.compareAndSet("a", null, quota));
+        assertTrue(store.compareAndSet("b", null, quota));
+        // not tracked
+        assertTrue(store.compareAndSet("c", null, quota));
+        assertNull(store.get("c"));
+        assertEquals(quota, store.get("a"));
+    }
+
+    public void testGovernorWithMappedStore() throws Exception {
+        RateLimitGovernor governor = RateLimitGovernor.getInstance(new ConfigurationBuilder()
+                .setRateLimitPolicy("fail")
+                .setRateLimitStoreImpl("twitter4j.MappedRateLimitStore")
+                .setRateLimitStoreFile(file.getAbsolutePath())
+                .build());
+        assertTrue(governor.getStore() instanceof MappedRateLimitStore);
+        String url = "https://api.twitter.com/1.1/users/lookup.json";
+        long reset = System.currentTimeMillis() / 1000 + 60;
+        governor.update("mapped", url, new RateLimitStatusJSONImpl(new JSONObject("{\"limit\":900,\"remaining\":1,\"reset\":" + reset + "}")));
+        governor.acquire("mapped", url);
+        // seen by another process sharing the file
+        MappedRateLimitStore other = new MappedRateLimitStore(conf(64));
+        assertEquals(0, other.get("mapped /users/lookup").getRemaining());
+        try {
+            governor.acquire("mapped", url);
+            fail();
+        } catch (TwitterException expected) {
+            assertTrue(expected.exceededRateLimitation());
+        }
+    }
+}
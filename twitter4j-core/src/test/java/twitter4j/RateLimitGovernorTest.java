@@ -0,0 +1,178 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.auth.AccessToken;
+import twitter4j.auth.NullAuthorization;
+import twitter4j.auth.OAuthAuthorization;
+import twitter4j.conf.ConfigurationBuilder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RateLimitGovernorTest extends TestCase {
+    private static final String SHOW = "https://api.twitter.com/1.1/statuses/show/123.json";
+
+    public RateLimitGovernorTest(String name) {
+        super(name);
+    }
+
+    private static RateLimitGovernor governor(String policy, int queueSize, int maxWait) {
+        return RateLimitGovernor.getInstance(new ConfigurationBuilder()
+                .setRateLimitPolicy(policy)
+                .setRateLimitQueueSize(queueSize)
+                .setRateLimitMaxWait(maxWait)
+                .build());
+    }
+
+    private static RateLimitStatus status(int limit, int remaining, long resetInMillis) throws Exception {
+        long reset = (System.currentTimeMillis() + resetInMillis) / 1000;
+        return new RateLimitStatusJSONImpl(new JSONObject("{\"limit\":" + limit + ",\"remaining\":" + remaining
+                + ",\"reset\":" + reset + "}"));
+    }
+
+    public void testResourceOf() {
+        assertEquals("/statuses/show/:id", RateLimitGovernor.resourceOf(SHOW + "?trim_user=true"));
+        assertEquals("/statuses/home_timeline", RateLimitGovernor.resourceOf("https://api.twitter.com/1.1/statuses/home_timeline.json"));
+        assertEquals("/media/upload", RateLimitGovernor.resourceOf("https://upload.twitter.com/1.1/media/upload.json"));
+        assertEquals("/search/tweets", RateLimitGovernor.resourceOf("http://localhost:8080/1.1/search/tweets.json?q=a"));
+        assertEquals("/geo/id/:place_id", RateLimitGovernor.resourceOf("https://api.twitter.com/1.1/geo/id/df51dec6f4ee2b2c.json"));
+        assertEquals("/users/suggestions/:slug", RateLimitGovernor.resourceOf("https://api.twitter.com/1.1/users/suggestions/twitter.json"));
+        assertEquals("/users/suggestions/:slug/members", RateLimitGovernor.resourceOf("https://api.twitter.com/1.1/users/suggestions/twitter/members.json"));
+        assertEquals("/users/suggestions", RateLimitGovernor.resourceOf("https://api.twitter.com/1.1/users/suggestions.json"));
+        assertEquals("/saved_searches/show/:id", RateLimitGovernor.resourceOf("https://api.twitter.com/1.1/saved_searches/show/9569704.json"));
+        // named after a parameter passed in the query
+        assertEquals("/users/show/:id", RateLimitGovernor.resourceOf("https://api.twitter.com/1.1/users/show.json?screen_name=twit4j"));
+        assertEquals("/statuses/show/:id", RateLimitGovernor.resourceOf("https://api.twitter.com/1.1/statuses/show.json?id=123"));
+    }
+
+    public void testTokenOf() {
+        ConfigurationBuilder cb = new ConfigurationBuilder().setOAuthConsumerKey("key").setOAuthConsumerSecret("secret");
+        OAuthAuthorization alice = new OAuthAuthorization(cb.build());
+        alice.setOAuthAccessToken(new AccessToken("1-token", "secret"));
+        OAuthAuthorization alice2 = new OAuthAuthorization(new ConfigurationBuilder().setOAuthConsumerKey("key")
+                .setOAuthConsumerSecret("secret").build());
+        alice2.setOAuthAccessToken(new AccessToken("1-token", "secret"));
+        OAuthAuthorization bob = new OAuthAuthorization(new ConfigurationBuilder().setOAuthConsumerKey("key")
+                .setOAuthConsumerSecret("secret").build());
+        bob.setOAuthAccessToken(new AccessToken("2-token", "secret"));
+        assertEquals(RateLimitGovernor.tokenOf(alice), RateLimitGovernor.tokenOf(alice2));
+        assertFalse(RateLimitGovernor.tokenOf(alice).equals(RateLimitGovernor.tokenOf(bob)));
+        assertFalse(RateLimitGovernor.tokenOf(alice).contains("secret"));
+        assertNotNull(RateLimitGovernor.tokenOf(NullAuthorization.getInstance()));
+    }
+
+    public void testDisabledByDefault() {
+        assertNull(RateLimitGovernor.getInstance(new ConfigurationBuilder().build()));
+    }
+
+    public void testFailFast() throws Exception {
+        RateLimitGovernor governor = governor("fail", 10, 900);
+        assertEquals(RateLimitGovernor.Policy.FAIL, governor.getPolicy());
+        // nothing known yet
+        governor.acquire("fail", SHOW);
+        governor.update("fail", SHOW, status(900, 2, 60000));
+        governor.acquire("fail", SHOW);
+        assertEquals(1, governor.getRemaining("fail", "/statuses/show/:id"));
+        governor.acquire("fail", SHOW);
+        try {
+            governor.acquire("fail", SHOW);
+            fail("quota exhausted");
+        } catch (TwitterException expected) {
+            assertTrue(expected.exceededRateLimitation());
+        }
+        // other endpoints and tokens are not affected
+        governor.acquire("fail", "https://api.twitter.com/1.1/statuses/home_timeline.json");
+        governor.acquire("other", SHOW);
+        // late responses from the same window don't give back quota
+        governor.update("fail", SHOW, status(900, 1, 60000));
+        assertEquals(0, governor.getRemaining("fail", "/statuses/show/:id"));
+    }
+
+    public void testWaitUntilReset() throws Exception {
+        RateLimitGovernor governor = governor("wait", 10, 900);
+        governor.update("wait", SHOW, status(900, 0, 1500));
+        long start = System.currentTimeMillis();
+        governor.acquire("wait", SHOW);
+        assertTrue(System.currentTimeMillis() - start >= 400);
+        assertEquals(899, governor.getRemaining("wait", "/statuses/show/:id"));
+    }
+
+    public void testSweep() throws Exception {
+        RateLimitGovernor governor = governor("wait", 10, 900);
+        governor.update("sweep", SHOW, status(900, 10, 60000));
+        governor.acquire("sweep", SHOW);
+        assertTrue(RateLimitGovernor.hasWindow("sweep", "/statuses/show/:id"));
+        // not reset yet
+        RateLimitGovernor.sweep(System.currentTimeMillis());
+        assertTrue(RateLimitGovernor.hasWindow("sweep", "/statuses/show/:id"));
+        RateLimitGovernor.sweep(System.currentTimeMillis() + 120000);
+        assertFalse(RateLimitGovernor.hasWindow("sweep", "/statuses/show/:id"));
+        // a new window is made for the next call
+        governor.acquire("sweep", SHOW);
+        assertEquals(8, governor.getRemaining("sweep", "/statuses/show/:id"));
+    }
+
+    public void testMaxWait() throws Exception {
+        RateLimitGovernor governor = governor("wait", 10, 1);
+        governor.update("maxWait", SHOW, status(900, 0, 60000));
+        long start = System.currentTimeMillis();
+        try {
+            governor.acquire("maxWait", SHOW);
+            fail("waits longer than rateLimit.maxWait");
+        } catch (TwitterException expected) {
+            assertTrue(expected.exceededRateLimitation());
+        }
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    public void testQueue() throws Exception {
+        final RateLimitGovernor governor = governor("queue", 1, 900);
+        governor.update("queue", SHOW, status(900, 0, 60000));
+        final CountDownLatch acquired = new CountDownLatch(1);
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+        Thread waiting = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    governor.acquire("queue", SHOW);
+                } catch (TwitterException e) {
+                    error.set(e);
+                }
+                acquired.countDown();
+            }
+        });
+        waiting.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (waiting.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        try {
+            governor.acquire("queue", SHOW);
+            fail("the line is full");
+        } catch (TwitterException expected) {
+            assertTrue(expected.exceededRateLimitation());
+        }
+        assertEquals(1, acquired.getCount());
+        // a response reporting the next window releases the line
+        governor.update("queue", SHOW, status(900, 5, 120000));
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertNull(error.get());
+        assertEquals(4, governor.getRemaining("queue", "/statuses/show/:id"));
+    }
+}
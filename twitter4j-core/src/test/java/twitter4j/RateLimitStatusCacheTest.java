@@ -0,0 +1,154 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.auth.AccessToken;
+import twitter4j.auth.OAuthAuthorization;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+import twitter4j.conf.ConfigurationContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RateLimitStatusCacheTest extends TestCase {
+    private final long reset = System.currentTimeMillis() / 1000 + 600;
+
+    public RateLimitStatusCacheTest(String name) {
+        super(name);
+    }
+
+    private TwitterImpl twitter(String token, MockHttpClient http) {
+        Configuration conf = new ConfigurationBuilder().setOAuthConsumerKey("cache-key").setOAuthConsumerSecret("secret")
+                .setRateLimitRefreshInterval(0).build();
+        OAuthAuthorization auth = new OAuthAuthorization(conf);
+        auth.setOAuthAccessToken(new AccessToken(token, "secret"));
+        TwitterImpl twitter = new TwitterImpl(conf, auth);
+        twitter.http = http;
+        return twitter;
+    }
+
+    public void testRefreshAndMerge() throws Exception {
+        MockHttpClient http = new MockHttpClient();
+        TwitterImpl twitter = twitter("1-cache", http);
+        RateLimitStatusCache cache = RateLimitStatusCache.getInstance(twitter);
+        try {
+            assertSame(cache, RateLimitStatusCache.getInstance(twitter("1-cache", http)));
+            assertNotSame(cache, RateLimitStatusCache.getInstance(twitter("2-cache", http)));
+            assertEquals(0, cache.getLastRefreshed());
+            assertNull(cache.get("/users/show/:id"));
+
+            cache.refresh();
+            assertEquals(1, http.refreshed.get());
+            assertTrue(cache.getLastRefreshed() > 0);
+            assertEquals(900, cache.get("/users/show/:id").getRemaining());
+            assertEquals(15, cache.get("/followers/ids").getRemaining());
+            assertEquals(2, cache.getSnapshot().size());
+
+            // responses are merged in, without calling application/rate_limit_status
+            twitter.showUser(1L);
+            twitter.showUser(1L);
+            assertEquals(898, cache.get("/users/show/:id").getRemaining());
+            assertEquals(1, http.refreshed.get());
+
+            // a refresh which doesn't know about calls in flight yet doesn't give back quota
+            cache.refresh();
+            assertEquals(898, cache.get("/users/show/:id").getRemaining());
+        } finally {
+            cache.shutdown();
+            RateLimitStatusCache.getInstance(twitter("2-cache", http)).shutdown();
+        }
+        assertNotSame(cache, RateLimitStatusCache.getInstance(twitter));
+        RateLimitStatusCache.getInstance(twitter).shutdown();
+        assertFalse(RateLimitStatusCache.isActive());
+    }
+
+    public void testExpiredWindow() throws Exception {
+        MockHttpClient http = new MockHttpClient();
+        TwitterImpl twitter = twitter("3-cache", http);
+        RateLimitStatusCache cache = RateLimitStatusCache.getInstance(twitter);
+        try {
+            long past = System.currentTimeMillis() / 1000 - 1;
+            RateLimitStatusCache.merge(RateLimitGovernor.tokenOf(twitter.getAuthorization())
+                    , "https://api.twitter.com/1.1/followers/ids.json?cursor=-1"
+                    , new RateLimitStatusJSONImpl(15, 0, (int) past));
+            RateLimitStatus status = cache.get("/followers/ids");
+            assertEquals(15, status.getRemaining());
+            assertTrue(status.getResetTimeInSeconds() > past);
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    private class MockHttpClient extends HttpClientBase {
+        private static final long serialVersionUID = 1L;
+        final AtomicInteger refreshed = new AtomicInteger();
+        final AtomicInteger remaining = new AtomicInteger(900);
+
+        MockHttpClient() {
+            super(ConfigurationContext.getInstance().getHttpClientConfiguration());
+        }
+
+        @Override
+        HttpResponse handleRequest(HttpRequest req) {
+            if (req.getURL().contains("application/rate_limit_status")) {
+                refreshed.incrementAndGet();
+                // as of the first call
+                return new MockHttpResponse("{\"resources\":{"
+                        + "\"users\":{\"/users/show/:id\":{\"limit\":900,\"remaining\":900,\"reset\":" + reset + "}},"
+                        + "\"followers\":{\"/followers/ids\":{\"limit\":15,\"remaining\":15,\"reset\":" + reset + "}}}}", -1);
+            }
+            return new MockHttpResponse("{\"id\":1,\"screen_name\":\"twit4j\"}", remaining.decrementAndGet());
+        }
+    }
+
+    private class MockHttpResponse extends HttpResponse {
+        private final int remaining;
+
+        MockHttpResponse(String body, int remaining) {
+            super(ConfigurationContext.getInstance().getHttpClientConfiguration());
+            this.statusCode = 200;
+            this.responseAsString = body;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public String getResponseHeader(String name) {
+            if (remaining < 0) {
+                return null;
+            } else if (name.equals("X-Rate-Limit-Limit")) {
+                return "900";
+            } else if (name.equals("X-Rate-Limit-Remaining")) {
+                return String.valueOf(remaining);
+            } else if (name.equals("X-Rate-Limit-Reset")) {
+                return String.valueOf(reset);
+            }
+            return null;
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaderFields() {
+            return null;
+        }
+
+        @Override
+        public void disconnect() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.ConfigurationBuilder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RequestPriorityTest extends TestCase {
+    private static final String SHOW = "https://api.twitter.com/1.1/statuses/show/123.json";
+
+    public RequestPriorityTest(String name) {
+        super(name);
+    }
+
+    public void testView() throws Exception {
+        Callable<RequestPriority> current = new Callable<RequestPriority>() {
+            @Override
+            public RequestPriority call() {
+                return RequestPriority.current();
+            }
+        };
+        assertEquals(RequestPriority.NORMAL, current.call());
+        assertEquals(RequestPriority.LOW, RequestPriority.LOW.view(current).call());
+        // nested views restore the outer lane
+        final Callable<RequestPriority> high = RequestPriority.HIGH.view(current);
+        Callable<RequestPriority> nested = new Callable<RequestPriority>() {
+            @Override
+            public RequestPriority call() throws Exception {
+                assertEquals(RequestPriority.HIGH, high.call());
+                return RequestPriority.current();
+            }
+        };
+        assertEquals(RequestPriority.LOW, RequestPriority.LOW.view(nested).call());
+        assertEquals(RequestPriority.NORMAL, current.call());
+        // exceptions are passed through as they are
+        Callable<Object> throwing = new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                throw new TwitterException("thrown");
+            }
+        };
+        try {
+            RequestPriority.HIGH.view(throwing).call();
+            fail();
+        } catch (TwitterException expected) {
+            assertEquals("thrown", expected.getMessage());
+        }
+    }
+
+    public void testReserveOf() {
+        assertEquals(0, RateLimitGovernor.reserveOf(180, RequestPriority.HIGH, 10));
+        assertEquals(18, RateLimitGovernor.reserveOf(180, RequestPriority.NORMAL, 10));
+        assertEquals(36, RateLimitGovernor.reserveOf(180, RequestPriority.LOW, 10));
+        assertEquals(1, RateLimitGovernor.reserveOf(15, RequestPriority.NORMAL, 1));
+        assertEquals(0, RateLimitGovernor.reserveOf(15, RequestPriority.LOW, 0));
+    }
+
+    public void testBackgroundStarvedFirst() throws Exception {
+        RateLimitGovernor governor = RateLimitGovernor.getInstance(new ConfigurationBuilder()
+                .setRateLimitPolicy("fail").setPriorityReservedQuotaPercent(10).build());
+        long reset = System.currentTimeMillis() / 1000 + 60;
+        governor.update("lanes", SHOW, new RateLimitStatusJSONImpl(new JSONObject("{\"limit\":20,\"remaining\":5,\"reset\":" + reset + "}")));
+        // LOW leaves 4 calls
+        governor.acquire("lanes", SHOW, RequestPriority.LOW);
+        try {
+            governor.acquire("lanes", SHOW, RequestPriority.LOW);
+            fail("the rest is reserved for the lanes above");
+        } catch (TwitterException expected) {
+            assertTrue(expected.exceededRateLimitation());
+        }
+        // NORMAL leaves 2 calls
+        governor.acquire("lanes", SHOW);
+        governor.acquire("lanes", SHOW, RequestPriority.NORMAL);
+        try {
+            governor.acquire("lanes", SHOW, RequestPriority.NORMAL);
+            fail("the rest is reserved for HIGH");
+        } catch (TwitterException expected) {
+            assertTrue(expected.exceededRateLimitation());
+        }
+        governor.acquire("lanes", SHOW, RequestPriority.HIGH);
+        governor.acquire("lanes", SHOW, RequestPriority.HIGH);
+        assertEquals(0, governor.getRemaining("lanes", "/statuses/show/:id"));
+        try {
+            governor.acquire("lanes", SHOW, RequestPriority.HIGH);
+            fail("quota exhausted");
+        } catch (TwitterException expected) {
+            assertTrue(expected.exceededRateLimitation());
+        }
+    }
+
+    public void testSchedulerSharedBySameLimits() {
+        HttpClient http = HttpClientFactory.getInstance(new ConfigurationBuilder().build().getHttpClientConfiguration());
+        HttpClient scheduler = RequestScheduler.schedule(http, new ConfigurationBuilder()
+                .setPriorityMaxConcurrency(4).setPriorityReservedConcurrency(1).build());
+        assertSame(scheduler, RequestScheduler.schedule(http, new ConfigurationBuilder()
+                .setPriorityMaxConcurrency(4).setPriorityReservedConcurrency(1).build()));
+        assertNotSame(scheduler, RequestScheduler.schedule(http, new ConfigurationBuilder()
+                .setPriorityMaxConcurrency(8).setPriorityReservedConcurrency(1).build()));
+        assertNotSame(scheduler, RequestScheduler.schedule(http, new ConfigurationBuilder()
+                .setPriorityMaxConcurrency(4).setPriorityReservedConcurrency(2).build()));
+        assertSame(http, RequestScheduler.schedule(http, new ConfigurationBuilder().build()));
+    }
+
+    public void testConcurrencyReservedForHigherLanes() throws Exception {
+        final RequestScheduler scheduler = new RequestScheduler(null, 2, 1);
+        assertEquals(2, scheduler.capacityOf(RequestPriority.HIGH));
+        assertEquals(1, scheduler.capacityOf(RequestPriority.NORMAL));
+        assertEquals(1, scheduler.capacityOf(RequestPriority.LOW));
+
+        scheduler.acquire(RequestPriority.LOW);
+        final CountDownLatch lowAcquired = new CountDownLatch(1);
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+        Thread low = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    scheduler.acquire(RequestPriority.LOW);
+                    lowAcquired.countDown();
+                } catch (TwitterException e) {
+                    error.set(e);
+                }
+            }
+        });
+        low.start();
+        waitUntilWaiting(scheduler, RequestPriority.LOW);
+        // the reserved connection is available to HIGH only
+        scheduler.acquire(RequestPriority.HIGH);
+        assertEquals(2, scheduler.getInFlight());
+
+        final CountDownLatch highAcquired = new CountDownLatch(1);
+        Thread high = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    scheduler.acquire(RequestPriority.HIGH);
+                    highAcquired.countDown();
+                } catch (TwitterException e) {
+                    error.set(e);
+                }
+            }
+        });
+        high.start();
+        waitUntilWaiting(scheduler, RequestPriority.HIGH);
+        // a freed connection goes to the highest lane waiting
+        scheduler.release();
+        assertTrue(highAcquired.await(5, TimeUnit.SECONDS));
+        assertEquals(1, lowAcquired.getCount());
+        scheduler.release();
+        scheduler.release();
+        assertTrue(lowAcquired.await(5, TimeUnit.SECONDS));
+        assertNull(error.get());
+        scheduler.release();
+        assertEquals(0, scheduler.getInFlight());
+    }
+
+    private static void waitUntilWaiting(RequestScheduler scheduler, RequestPriority priority) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getWaiting(priority) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, scheduler.getWaiting(priority));
+    }
+}
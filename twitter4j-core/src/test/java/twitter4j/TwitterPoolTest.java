@@ -0,0 +1,147 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.auth.AccessToken;
+import twitter4j.auth.Authorization;
+import twitter4j.auth.OAuthAuthorization;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TwitterPoolTest extends TestCase {
+    public TwitterPoolTest(String name) {
+        super(name);
+    }
+
+    public void testRoutesByRemainingQuota() throws Exception {
+        Configuration conf = new ConfigurationBuilder().setOAuthConsumerKey("pool-key").setOAuthConsumerSecret("secret").build();
+        MockHttpClient http = new MockHttpClient(conf);
+        List<Twitter> members = new ArrayList<Twitter>();
+        int[] quotas = {1, 5, 3};
+        for (int i = 0; i < quotas.length; i++) {
+            OAuthAuthorization auth = new OAuthAuthorization(conf);
+            auth.setOAuthAccessToken(new AccessToken((i + 1) + "-token", "secret"));
+            http.remaining.put(auth, quotas[i]);
+            TwitterImpl twitter = new TwitterImpl(conf, auth);
+            twitter.http = http;
+            members.add(twitter);
+        }
+        TwitterPool pool = TwitterPoolImpl.create(members);
+        assertEquals(3, pool.size());
+        assertEquals(3, pool.getAvailableCount("/users/show/:id"));
+
+        for (int i = 0; i < 9; i++) {
+            assertEquals(1L, pool.showUser(1L).getId());
+        }
+        // the quota of each token has been learned from its first response, none has been rejected
+        assertEquals(0, http.rejected.get());
+        assertEquals(0, pool.getAvailableCount("/users/show/:id"));
+        // other endpoints are not affected
+        assertEquals(3, pool.getAvailableCount("/statuses/user_timeline"));
+
+        try {
+            pool.showUser(1L);
+            fail("all tokens are rate limited");
+        } catch (TwitterException expected) {
+            assertTrue(expected.exceededRateLimitation());
+        }
+        assertEquals(1, http.rejected.get());
+    }
+
+    public void testNoTokens() {
+        try {
+            new TwitterFactory().getPool(new ArrayList<Authorization>());
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testOnlyReads() throws Exception {
+        for (Method method : TwitterPool.class.getMethods()) {
+            if ("size".equals(method.getName()) || "getAvailableCount".equals(method.getName())) {
+                continue;
+            }
+            assertTrue(method.getName(), method.getName().startsWith("get") || method.getName().startsWith("show")
+                    || method.getName().startsWith("lookup") || method.getName().startsWith("search"));
+            // served by the members
+            Twitter.class.getMethod(method.getName(), method.getParameterTypes());
+        }
+    }
+
+    private static class MockHttpClient extends HttpClientBase {
+        private static final long serialVersionUID = 1L;
+        final Map<Authorization, Integer> remaining = new IdentityHashMap<Authorization, Integer>();
+        final AtomicInteger rejected = new AtomicInteger();
+
+        MockHttpClient(Configuration conf) {
+            super(conf.getHttpClientConfiguration());
+        }
+
+        @Override
+        synchronized HttpResponse handleRequest(HttpRequest req) throws TwitterException {
+            int left = remaining.get(req.getAuthorization());
+            if (left == 0) {
+                rejected.incrementAndGet();
+                MockHttpResponse res = new MockHttpResponse(CONF, 429, "{\"errors\":[{\"code\":88,\"message\":\"Rate limit exceeded\"}]}", 0);
+                throw new TwitterException(res.asString(), res);
+            }
+            remaining.put(req.getAuthorization(), --left);
+            return new MockHttpResponse(CONF, 200, "{\"id\":1,\"screen_name\":\"twit4j\"}", left);
+        }
+    }
+
+    private static class MockHttpResponse extends HttpResponse {
+        private final int remaining;
+        private final long reset = System.currentTimeMillis() / 1000 + 15 * 60;
+
+        MockHttpResponse(HttpClientConfiguration conf, int statusCode, String body, int remaining) {
+            super(conf);
+            this.statusCode = statusCode;
+            this.responseAsString = body;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public String getResponseHeader(String name) {
+            if (name.equals("X-Rate-Limit-Limit")) {
+                return "180";
+            } else if (name.equals("X-Rate-Limit-Remaining")) {
+                return String.valueOf(remaining);
+            } else if (name.equals("X-Rate-Limit-Reset")) {
+                return String.valueOf(reset);
+            }
+            return null;
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaderFields() {
+            return null;
+        }
+
+        @Override
+        public void disconnect() throws IOException {
+        }
+    }
+}
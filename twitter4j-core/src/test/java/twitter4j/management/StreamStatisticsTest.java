@@ -0,0 +1,120 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j.management;
+
+import junit.framework.TestCase;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+public class StreamStatisticsTest extends TestCase {
+    public StreamStatisticsTest(String name) {
+        super(name);
+    }
+
+    public void testHistogram() throws Exception {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.getAverage());
+        assertEquals(100, histogram.getMax());
+        // 50 falls into the [32, 64) bucket
+        assertEquals(63, histogram.getPercentile(50));
+        assertEquals(100, histogram.getPercentile(99));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    public void testCounters() throws Exception {
+        StreamStatistics stats = new StreamStatistics("test");
+        stats.onMessage(100);
+        stats.onMessage(50);
+        assertEquals(2, stats.getMessageCount());
+        assertEquals(150, stats.getByteCount());
+
+        stats.onEnqueue();
+        stats.onEnqueue();
+        assertEquals(2, stats.getQueueDepth());
+        stats.onDequeue(3000);
+        assertEquals(1, stats.getQueueDepth());
+        assertEquals(3, stats.getAverageQueueTime());
+
+        stats.onParse(5000);
+        assertEquals(1, stats.getParseCount());
+        assertEquals(5, stats.getMaxParseTime());
+
+        stats.onLag(1200);
+        assertEquals(1200, stats.getLagMillis());
+
+        stats.onListenerInvoked("foo", 2000);
+        assertTrue(stats.getListenerLatencySummaries().containsKey("foo"));
+
+        stats.onListenerLag("foo", 4000);
+        stats.onListenerDrop("foo");
+        stats.onListenerDrop("foo");
+        assertTrue(stats.getListenerLagSummaries().containsKey("foo"));
+        assertEquals(Long.valueOf(2), stats.getListenerDropCounts().get("foo"));
+
+        stats.onShed();
+        assertEquals(1, stats.getShedCount());
+
+        stats.onSpill(40);
+        stats.onSpill(60);
+        stats.onDrain(40);
+        assertEquals(1, stats.getSpilledMessageCount());
+        assertEquals(60, stats.getSpilledBytes());
+
+        stats.reset();
+        assertEquals(0, stats.getMessageCount());
+        assertEquals(0, stats.getShedCount());
+        assertEquals(1, stats.getQueueDepth());
+        // messages on disk are a gauge
+        assertEquals(1, stats.getSpilledMessageCount());
+        assertTrue(stats.getListenerLatencySummaries().isEmpty());
+        assertTrue(stats.getListenerDropCounts().isEmpty());
+    }
+
+    public void testLimitNoticesAcrossReconnects() throws Exception {
+        StreamStatistics stats = new StreamStatistics("test");
+        // track counts are cumulative for a connection
+        stats.onLimitNotice(10);
+        stats.onLimitNotice(25);
+        assertEquals(25, stats.getLimitDroppedCount());
+        stats.onReconnect();
+        assertEquals(1, stats.getReconnectCount());
+        assertEquals(25, stats.getLimitDroppedCount());
+        stats.onLimitNotice(5);
+        assertEquals(30, stats.getLimitDroppedCount());
+    }
+
+    public void testRegistration() throws Exception {
+        StreamStatistics stats = new StreamStatistics("test");
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("twitter4j.mbean:type=StreamStatistics,name=StreamStatisticsTest");
+        mbs.registerMBean(stats, name);
+        try {
+            stats.onMessage(10);
+            assertEquals(1L, mbs.getAttribute(name, "MessageCount"));
+        } finally {
+            mbs.unregisterMBean(name);
+        }
+    }
+}
@@ -193,6 +193,14 @@ public final class FilterQuery implements java.io.Serializable {
     }
 
 
+    /*package*/ int getCount() {
+        return count;
+    }
+
+    /*package*/ long[] getFollow() {
+        return follow;
+    }
+
     /*package*/ HttpParameter[] asHttpParameterArray(HttpParameter stallWarningsParam) {
         ArrayList<HttpParameter> params = new ArrayList<HttpParameter>();
 
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs each listener on its own worker, so that a slow listener doesn't delay the others.<br>
+ * Each listener has a queue of <code>stream.fanOutQueueSize</code> callbacks. When the queue is full the callback is dropped
+ * for that listener only, rather than blocking the dispatcher. Callbacks are delivered to a listener in the order they were made.<br>
+ * The parsed objects are shared by all listeners and must not be modified. Since the callbacks run on the worker threads,
+ * {@link TwitterObjectFactory#getRawJSON(Object)} is not available to listeners.<br>
+ * The time callbacks wait in the queue and the number of callbacks dropped are reported per listener through {@link StreamMonitor}.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class ListenerFanOut {
+    private static final Logger logger = Logger.getLogger(ListenerFanOut.class);
+    private final Configuration conf;
+    private final StreamMonitor monitor;
+    private final Map<StreamListener, Worker> workers = new IdentityHashMap<StreamListener, Worker>();
+
+    ListenerFanOut(Configuration conf, StreamMonitor monitor) {
+        this.conf = conf;
+        this.monitor = monitor;
+    }
+
+    /**
+     * Wraps the listeners so that callbacks are queued to their workers. Workers are started for listeners seen for the first time.
+     *
+     * @param listeners listeners as registered, which identify the workers
+     * @param targets   listeners the workers invoke, e.g. instrumented listeners. Same length and order as listeners
+     * @param type      component type of the returned array
+     * @return wrapped listeners
+     */
+    @SuppressWarnings("unchecked")
+    synchronized <T extends StreamListener> T[] wrap(T[] listeners, T[] targets, Class<T> type) {
+        T[] wrapped = (T[]) Array.newInstance(type, listeners.length);
+        for (int i = 0; i < listeners.length; i++) {
+            Worker worker = workers.get(listeners[i]);
+            if (worker == null) {
+                worker = new Worker(listeners[i].getClass().getName());
+                workers.put(listeners[i], worker);
+                worker.start();
+            }
+            worker.target = targets[i];
+            wrapped[i] = type.cast(Proxy.newProxyInstance(StreamListener.class.getClassLoader()
+                    , StreamMonitor.listenerInterfacesOf(listeners[i]), new QueueingHandler(listeners[i], worker)));
+        }
+        return wrapped;
+    }
+
+    /**
+     * Stops the workers of listeners no longer registered. Callbacks already queued are delivered first.
+     *
+     * @param listeners listeners registered
+     */
+    synchronized void retain(Collection<StreamListener> listeners) {
+        List<StreamListener> removed = new ArrayList<StreamListener>();
+        for (StreamListener listener : workers.keySet()) {
+            boolean registered = false;
+            for (StreamListener l : listeners) {
+                if (l == listener) {
+                    registered = true;
+                    break;
+                }
+            }
+            if (!registered) {
+                removed.add(listener);
+            }
+        }
+        for (StreamListener listener : removed) {
+            workers.remove(listener).stop(false);
+        }
+    }
+
+    /**
+     * Stops all workers, discarding queued callbacks.
+     */
+    synchronized void close() {
+        for (Worker worker : workers.values()) {
+            worker.stop(true);
+        }
+        workers.clear();
+    }
+
+    /**
+     * @return number of callbacks dropped per listener
+     */
+    synchronized Map<StreamListener, Long> getDropCounts() {
+        Map<StreamListener, Long> counts = new IdentityHashMap<StreamListener, Long>();
+        for (Map.Entry<StreamListener, Worker> entry : workers.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().drops.get());
+        }
+        return counts;
+    }
+
+    private static final class Callback {
+        // marks the end of the queue
+        static final Callback STOP = new Callback(null, null);
+        final Method method;
+        final Object[] args;
+        final long queuedAt;
+
+        Callback(Method method, Object[] args) {
+            this.method = method;
+            this.args = args;
+            this.queuedAt = System.nanoTime();
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final String name;
+        private final BlockingQueue<Callback> queue;
+        private final Thread thread;
+        volatile Object target;
+        final AtomicLong drops = new AtomicLong();
+
+        Worker(String name) {
+            this.name = name;
+            this.queue = new ArrayBlockingQueue<Callback>(Math.max(1, conf.getStreamFanOutQueueSize()));
+            this.thread = VirtualThreads.newThread(conf, "Twitter4J Stream Listener / " + name, this);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void stop(boolean discard) {
+            if (discard) {
+                queue.clear();
+                thread.interrupt();
+            } else {
+                try {
+                    queue.put(Callback.STOP);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    thread.interrupt();
+                }
+            }
+        }
+
+        void enqueue(Method method, Object[] args) {
+            if (!queue.offer(new Callback(method, args))) {
+                drops.incrementAndGet();
+                if (monitor.isEnabled()) {
+                    monitor.onListenerDrop(name);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Callback callback;
+                while ((callback = queue.take()) != Callback.STOP) {
+                    if (monitor.isEnabled()) {
+                        monitor.onListenerLag(name, System.nanoTime() - callback.queuedAt);
+                    }
+                    invoke(callback);
+                }
+            } catch (InterruptedException ignore) {
+            }
+        }
+
+        private void invoke(Callback callback) {
+            Object target = this.target;
+            try {
+                callback.method.invoke(target, callback.args);
+            } catch (InvocationTargetException ite) {
+                Throwable cause = ite.getCause();
+                if (!"onException".equals(callback.method.getName()) && cause instanceof Exception) {
+                    try {
+                        ((StreamListener) target).onException((Exception) cause);
+                    } catch (Exception e) {
+                        logger.warn(e.getMessage());
+                    }
+                } else {
+                    logger.warn(String.valueOf(cause));
+                }
+            } catch (IllegalAccessException iae) {
+                logger.warn(iae.getMessage());
+            }
+        }
+    }
+
+    private static final class QueueingHandler implements InvocationHandler {
+        private final StreamListener listener;
+        private final Worker worker;
+
+        QueueingHandler(StreamListener listener, Worker worker) {
+            this.listener = listener;
+            this.worker = worker;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(listener, args);
+            }
+            worker.enqueue(method, args);
+            // all listener callbacks return void
+            return null;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable table of the listeners to be invoked per event type.<br>
+ * A listener is listed for an event type only if it overrides the handler of the event, i.e. the handler is not inherited
+ * from {@link StatusAdapter}, {@link UserStreamAdapter} or {@link SiteStreamsAdapter}, and not missing because the listener
+ * doesn't implement the interface declaring it. Event types nobody listens for can be skipped without parsing the message.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class ListenerTable {
+    private static final StreamListener[] NONE = new StreamListener[0];
+    private static final JSONObjectType.Type[] TYPES = JSONObjectType.Type.values();
+
+    private final StreamListener[] all;
+    private final StreamListener[][] byType = new StreamListener[TYPES.length][];
+
+    /**
+     * @param listeners listeners as registered, which are inspected
+     * @param targets   listeners to be invoked, e.g. instrumented listeners. Same length and order as listeners
+     */
+    ListenerTable(StreamListener[] listeners, StreamListener[] targets) {
+        this.all = targets;
+        for (JSONObjectType.Type type : TYPES) {
+            String handler = handlerOf(type);
+            if (handler == null) {
+                byType[type.ordinal()] = targets;
+                continue;
+            }
+            List<StreamListener> listening = new ArrayList<StreamListener>(targets.length);
+            for (int i = 0; i < listeners.length; i++) {
+                if (overrides(listeners[i], handler)) {
+                    listening.add(targets[i]);
+                }
+            }
+            byType[type.ordinal()] = listening.size() == targets.length ? targets
+                    : listening.isEmpty() ? NONE : listening.toArray(new StreamListener[listening.size()]);
+        }
+    }
+
+    /**
+     * @return all listeners
+     */
+    StreamListener[] getAll() {
+        return all;
+    }
+
+    /**
+     * @param type event type
+     * @return listeners overriding the handler of the event type
+     */
+    StreamListener[] get(JSONObjectType.Type type) {
+        return byType[type.ordinal()];
+    }
+
+    /**
+     * @param listener listener
+     * @param handler  name of the handler method
+     * @return true if the listener has a public method with the name, not inherited from one of the adapters
+     */
+    static boolean overrides(StreamListener listener, String handler) {
+        for (Method method : listener.getClass().getMethods()) {
+            if (method.getName().equals(handler)) {
+                Class<?> declaringClass = method.getDeclaringClass();
+                if (declaringClass != StatusAdapter.class && declaringClass != UserStreamAdapter.class
+                        && declaringClass != SiteStreamsAdapter.class && !declaringClass.isInterface()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param type event type
+     * @return name of the listener method handling the event type, or null if it is not known
+     */
+    static String handlerOf(JSONObjectType.Type type) {
+        switch (type) {
+            case SENDER:
+            case DIRECT_MESSAGE:
+                return "onDirectMessage";
+            case STATUS:
+                return "onStatus";
+            case DELETE:
+                return "onDeletionNotice";
+            case LIMIT:
+                return "onTrackLimitationNotice";
+            case STALL_WARNING:
+                return "onStallWarning";
+            case SCRUB_GEO:
+                return "onScrubGeo";
+            case FRIENDS:
+                return "onFriendList";
+            case FAVORITE:
+                return "onFavorite";
+            case UNFAVORITE:
+                return "onUnfavorite";
+            case FOLLOW:
+                return "onFollow";
+            case UNFOLLOW:
+                return "onUnfollow";
+            case USER_LIST_MEMBER_ADDED:
+                return "onUserListMemberAddition";
+            case USER_LIST_MEMBER_DELETED:
+                return "onUserListMemberDeletion";
+            case USER_LIST_SUBSCRIBED:
+                return "onUserListSubscription";
+            case USER_LIST_UNSUBSCRIBED:
+                return "onUserListUnsubscription";
+            case USER_LIST_CREATED:
+                return "onUserListCreation";
+            case USER_LIST_UPDATED:
+                return "onUserListUpdate";
+            case USER_LIST_DESTROYED:
+                return "onUserListDeletion";
+            case USER_UPDATE:
+                return "onUserProfileUpdate";
+            case USER_DELETE:
+                return "onUserDeletion";
+            case USER_SUSPEND:
+                return "onUserSuspension";
+            case BLOCK:
+                return "onBlock";
+            case UNBLOCK:
+                return "onUnblock";
+            case RETWEETED_RETWEET:
+                return "onRetweetedRetweet";
+            case FAVORITED_RETWEET:
+                return "onFavoritedRetweet";
+            case QUOTED_TWEET:
+                return "onQuotedTweet";
+            case DISCONNECTION:
+                return "onDisconnectionNotice";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Determines the type of a message from its beginning, without parsing it.
+     *
+     * @param line message
+     * @return type of the message, or null if it cannot be told without parsing
+     */
+    static JSONObjectType.Type peekType(String line) {
+        if (line.startsWith("{\"delete\":")) {
+            return JSONObjectType.Type.DELETE;
+        } else if (line.startsWith("{\"scrub_geo\":")) {
+            return JSONObjectType.Type.SCRUB_GEO;
+        } else if (line.startsWith("{\"friends\":")) {
+            return JSONObjectType.Type.FRIENDS;
+        } else if (line.startsWith("{\"direct_message\":")) {
+            return JSONObjectType.Type.DIRECT_MESSAGE;
+        } else if (StatusCache.peekStatusId(line) >= 0) {
+            return JSONObjectType.Type.STATUS;
+        }
+        // limit notices and stall warnings are rare and always parsed, since the stream itself observes them
+        return null;
+    }
+}
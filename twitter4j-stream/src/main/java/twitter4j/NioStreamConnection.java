@@ -0,0 +1,665 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLParameters;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+/**
+ * A streaming connection driven by a {@link StreamSelector}.<br>
+ * Sends the HTTP/1.1 request, parses the response headers, decodes chunked transfer-encoding and frames the body into lines,
+ * reading from a non-blocking SocketChannel into direct ByteBuffers. https connections are encrypted with an SSLEngine.<br>
+ * The constructor resolves the host name and may block, so it is invoked off the selector thread. All other methods are invoked on
+ * the selector thread.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class NioStreamConnection {
+    private static final Logger logger = Logger.getLogger(NioStreamConnection.class);
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    // parser states
+    private static final int STATUS_LINE = 0;
+    private static final int HEADERS = 1;
+    private static final int CHUNK_SIZE = 2;
+    private static final int CHUNK_DATA = 3;
+    private static final int CHUNK_END = 4;
+    private static final int BODY = 5;
+
+    /**
+     * Receives the events of a connection. Methods are invoked on the selector thread and must not block.
+     */
+    interface Handler {
+        /**
+         * Called when the response headers with status 200 have been received.
+         */
+        void onConnected();
+
+        /**
+         * Called for each line of the response body.
+         *
+         * @param line line without the line terminator
+         */
+        void onLine(String line);
+
+        /**
+         * Called once when the connection has been closed.
+         *
+         * @param cause the reason, or null if the connection has been aborted locally
+         */
+        void onClosed(TwitterException cause);
+
+        /**
+         * Called when the TLS handshake needs CPU intensive work, e.g. validating the certificate chain.
+         * The work must be run off the selector thread, and the handshake resumed on the selector thread afterwards.
+         *
+         * @param tasks  delegated tasks of the SSLEngine
+         * @param resume to be run on the selector thread once the tasks have been run
+         */
+        void onDelegatedTasks(Runnable tasks, Runnable resume);
+    }
+
+    private final Handler handler;
+    private final InetSocketAddress address;
+    private final SSLEngine engine;
+    private final int connectionTimeout;
+    private final int readTimeout;
+    private final ByteBuffer appIn;
+    private ByteBuffer netIn;
+    private ByteBuffer netOut;
+    private ByteBuffer request;
+
+    private SocketChannel channel;
+    private SelectionKey key;
+    private boolean open = false;
+    private boolean paused = false;
+    // the SSLEngine is running delegated tasks off the selector thread
+    private boolean delegating = false;
+    private long deadline = 0;
+
+    private int state = STATUS_LINE;
+    private final StringBuilder header = new StringBuilder();
+    private String statusLine;
+    private int statusCode;
+    private boolean chunked = false;
+    private long remaining = -1;
+    private StringBuilder errorBody;
+    private byte[] message = new byte[BUFFER_SIZE];
+    private int messageLength = 0;
+
+    /**
+     * Resolves the host name, which may block. Must not be called on the selector thread.
+     *
+     * @param req     request to be sent. GET and POST with text parameters are supported
+     * @param conf    configuration
+     * @param handler handler
+     * @throws IOException when the host cannot be resolved or TLS is not available
+     */
+    NioStreamConnection(HttpRequest req, Configuration conf, Handler handler) throws IOException {
+        this.handler = handler;
+        URL url = new URL(req.getURL());
+        boolean secure = "https".equals(url.getProtocol());
+        int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        // resolves the host name. resolutions are cached by the JVM, so reconnections don't hit the name server
+        this.address = new InetSocketAddress(url.getHost(), port);
+        if (address.isUnresolved()) {
+            throw new IOException("Unknown host: " + url.getHost());
+        }
+        this.connectionTimeout = conf.getHttpClientConfiguration().getHttpConnectionTimeout();
+        this.readTimeout = conf.getHttpStreamingReadTimeout();
+        this.request = encodeRequest(req, url);
+        if (secure) {
+            try {
+                engine = SSLContext.getDefault().createSSLEngine(url.getHost(), port);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException(e.getMessage());
+            }
+            engine.setUseClientMode(true);
+            enableHostnameVerification(engine);
+            netIn = ByteBuffer.allocateDirect(engine.getSession().getPacketBufferSize());
+            netOut = ByteBuffer.allocateDirect(engine.getSession().getPacketBufferSize());
+            netOut.flip();
+            appIn = ByteBuffer.allocateDirect(engine.getSession().getApplicationBufferSize());
+        } else {
+            engine = null;
+            netOut = request;
+            appIn = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    }
+
+    private static void enableHostnameVerification(SSLEngine engine) {
+        // SSLParameters#setEndpointIdentificationAlgorithm() is available since Java 7
+        try {
+            SSLParameters params = engine.getSSLParameters();
+            SSLParameters.class.getMethod("setEndpointIdentificationAlgorithm", String.class).invoke(params, "HTTPS");
+            engine.setSSLParameters(params);
+        } catch (NoSuchMethodException e) {
+            logger.warn("Host name verification is not available on this JVM.");
+        } catch (Exception e) {
+            logger.warn(e.getMessage());
+        }
+    }
+
+    private static ByteBuffer encodeRequest(HttpRequest req, URL url) throws UnsupportedEncodingException {
+        StringBuilder buf = new StringBuilder();
+        buf.append(req.getMethod().name()).append(' ').append(url.getFile()).append(" HTTP/1.1\r\n");
+        buf.append("Host: ").append(url.getHost());
+        if (url.getPort() != -1) {
+            buf.append(':').append(url.getPort());
+        }
+        buf.append("\r\n");
+        String authorizationHeader;
+        if (req.getAuthorization() != null && (authorizationHeader = req.getAuthorization().getAuthorizationHeader(req)) != null) {
+            buf.append("Authorization: ").append(authorizationHeader).append("\r\n");
+        }
+        if (req.getRequestHeaders() != null) {
+            for (Map.Entry<String, String> entry : req.getRequestHeaders().entrySet()) {
+                // the body is read as is, gzip is not supported
+                if (!"Accept-Encoding".equalsIgnoreCase(entry.getKey())) {
+                    buf.append(entry.getKey()).append(": ").append(entry.getValue()).append("\r\n");
+                }
+            }
+        }
+        byte[] body = null;
+        if (req.getMethod() == RequestMethod.POST) {
+            String postParam = HttpParameter.encodeParameters(req.getParameters());
+            logger.debug("Post Params: ", postParam);
+            body = postParam.getBytes("UTF-8");
+            buf.append("Content-Type: application/x-www-form-urlencoded\r\n");
+            buf.append("Content-Length: ").append(body.length).append("\r\n");
+        }
+        buf.append("\r\n");
+        byte[] head = buf.toString().getBytes("UTF-8");
+        ByteBuffer encoded = ByteBuffer.allocateDirect(head.length + (body == null ? 0 : body.length));
+        encoded.put(head);
+        if (body != null) {
+            encoded.put(body);
+        }
+        encoded.flip();
+        return encoded;
+    }
+
+    void connect(Selector selector) {
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            key = channel.register(selector, 0, this);
+            open = true;
+            deadline = connectionTimeout > 0 ? System.currentTimeMillis() + connectionTimeout : 0;
+            if (channel.connect(address)) {
+                onConnect();
+            } else {
+                key.interestOps(SelectionKey.OP_CONNECT);
+            }
+        } catch (TwitterException te) {
+            close(te);
+        } catch (IOException ioe) {
+            open = true;
+            close(new TwitterException(ioe));
+        }
+    }
+
+    boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Stops or resumes reading the response body, e.g. while the handler is behind. The read timeout doesn't apply while paused.
+     *
+     * @param paused true to stop reading
+     */
+    void setReadPaused(boolean paused) {
+        if (!open || this.paused == paused) {
+            return;
+        }
+        this.paused = paused;
+        if (request != null || delegating) {
+            // the request is being sent or the handshake is in progress, reading starts afterwards
+            return;
+        }
+        try {
+            if (paused) {
+                key.interestOps(0);
+            } else {
+                touch();
+                key.interestOps(SelectionKey.OP_READ);
+                // data may be left in the buffers which the selector won't report
+                read();
+            }
+        } catch (TwitterException te) {
+            close(te);
+        } catch (IOException ioe) {
+            close(new TwitterException(ioe));
+        } catch (RuntimeException re) {
+            close(new TwitterException(re));
+        }
+    }
+
+    /**
+     * Invoked by the selector when the channel is ready.
+     */
+    void handle() {
+        try {
+            if (key.isConnectable()) {
+                if (!channel.finishConnect()) {
+                    return;
+                }
+                onConnect();
+            } else {
+                pump();
+            }
+        } catch (TwitterException te) {
+            close(te);
+        } catch (IOException ioe) {
+            close(new TwitterException(ioe));
+        } catch (RuntimeException re) {
+            // e.g. the dispatcher has been shut down
+            close(new TwitterException(re));
+        }
+    }
+
+    /**
+     * Closes the connection if no data has been received within the timeout.
+     *
+     * @param now current time in milliseconds
+     */
+    void checkTimeout(long now) {
+        if (open && !paused && deadline > 0 && now > deadline) {
+            close(new TwitterException(new SocketTimeoutException(channel.isConnected()
+                    ? "Read timed out" : "connect timed out")));
+        }
+    }
+
+    /**
+     * Closes the connection without reporting an error.
+     */
+    void abort() {
+        close(null);
+    }
+
+    private void onConnect() throws IOException, TwitterException {
+        logger.debug("Connected to ", address.toString());
+        if (engine != null) {
+            engine.beginHandshake();
+        }
+        touch();
+        pump();
+    }
+
+    private void pump() throws IOException, TwitterException {
+        if (!flush()) {
+            return;
+        }
+        if (engine != null && !handshake()) {
+            return;
+        }
+        if (request != null) {
+            if (engine != null) {
+                wrap(request);
+            }
+            if (!flush()) {
+                return;
+            }
+            if (!request.hasRemaining()) {
+                request = null;
+            } else {
+                // the request didn't fit into a single TLS record
+                pump();
+                return;
+            }
+        }
+        if (paused) {
+            key.interestOps(0);
+            return;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        read();
+    }
+
+    // returns true when all pending bytes have been written
+    private boolean flush() throws IOException {
+        if (netOut.hasRemaining()) {
+            channel.write(netOut);
+        }
+        if (netOut.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_WRITE);
+            return false;
+        }
+        return true;
+    }
+
+    // returns true when the handshake has been completed
+    private boolean handshake() throws IOException, TwitterException {
+        while (true) {
+            switch (engine.getHandshakeStatus()) {
+                case NEED_TASK:
+                    delegate();
+                    return false;
+                case NEED_WRAP:
+                    wrap(EMPTY);
+                    if (!flush()) {
+                        return false;
+                    }
+                    break;
+                case NEED_UNWRAP:
+                    if (!unwrap()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                        return false;
+                    }
+                    break;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    private void delegate() {
+        delegating = true;
+        key.interestOps(0);
+        handler.onDelegatedTasks(new Runnable() {
+            @Override
+            public void run() {
+                Runnable task;
+                while ((task = engine.getDelegatedTask()) != null) {
+                    task.run();
+                }
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                delegating = false;
+                if (!open) {
+                    return;
+                }
+                try {
+                    pump();
+                } catch (TwitterException te) {
+                    close(te);
+                } catch (IOException ioe) {
+                    close(new TwitterException(ioe));
+                } catch (RuntimeException re) {
+                    close(new TwitterException(re));
+                }
+            }
+        });
+    }
+
+    private void wrap(ByteBuffer src) throws IOException {
+        netOut.clear();
+        SSLEngineResult result = engine.wrap(src, netOut);
+        netOut.flip();
+        if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+            throw new IOException("SSLEngine has been closed");
+        }
+    }
+
+    // returns false when more data needs to arrive from the network
+    private boolean unwrap() throws IOException, TwitterException {
+        netIn.flip();
+        SSLEngineResult result;
+        try {
+            result = engine.unwrap(netIn, appIn);
+        } finally {
+            netIn.compact();
+        }
+        switch (result.getStatus()) {
+            case OK:
+                consume();
+                if (result.bytesConsumed() == 0 && result.bytesProduced() == 0
+                        && result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING) {
+                    return fill(netIn);
+                }
+                return true;
+            case BUFFER_OVERFLOW:
+                // the parser drains appIn entirely, so the next unwrap gets the full capacity
+                consume();
+                return true;
+            case BUFFER_UNDERFLOW:
+                if (netIn.position() == netIn.capacity()) {
+                    ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(netIn.capacity() * 2, engine.getSession().getPacketBufferSize()));
+                    netIn.flip();
+                    larger.put(netIn);
+                    netIn = larger;
+                }
+                return fill(netIn);
+            case CLOSED:
+            default:
+                endOfStream();
+                return false;
+        }
+    }
+
+    // returns false when no data is available
+    private boolean fill(ByteBuffer buffer) throws IOException, TwitterException {
+        int read = channel.read(buffer);
+        if (read < 0) {
+            endOfStream();
+        }
+        if (read > 0) {
+            touch();
+        }
+        return read > 0;
+    }
+
+    private void touch() {
+        deadline = readTimeout > 0 ? System.currentTimeMillis() + readTimeout : 0;
+    }
+
+    private void read() throws IOException, TwitterException {
+        if (engine != null) {
+            while (open && !paused && unwrap()) {
+                if (engine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING
+                        && engine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.FINISHED
+                        && !handshake()) {
+                    return;
+                }
+            }
+        } else {
+            while (open && !paused && fill(appIn)) {
+                consume();
+            }
+        }
+    }
+
+    private void consume() throws IOException, TwitterException {
+        appIn.flip();
+        while (open && appIn.hasRemaining()) {
+            parse(appIn);
+        }
+        appIn.clear();
+    }
+
+    private void parse(ByteBuffer buffer) throws IOException, TwitterException {
+        switch (state) {
+            case CHUNK_DATA: {
+                int length = (int) Math.min(remaining, buffer.remaining());
+                frame(buffer, length);
+                remaining -= length;
+                if (remaining == 0) {
+                    state = CHUNK_END;
+                }
+                break;
+            }
+            case BODY: {
+                int length = remaining < 0 ? buffer.remaining() : (int) Math.min(remaining, buffer.remaining());
+                frame(buffer, length);
+                if (remaining > 0) {
+                    remaining -= length;
+                    if (remaining == 0) {
+                        endOfStream();
+                    }
+                }
+                break;
+            }
+            default:
+                while (buffer.hasRemaining()) {
+                    char c = (char) (buffer.get() & 0xff);
+                    if (c == '\n') {
+                        int length = header.length();
+                        if (length > 0 && header.charAt(length - 1) == '\r') {
+                            header.setLength(length - 1);
+                        }
+                        String line = header.toString();
+                        header.setLength(0);
+                        onHeaderLine(line);
+                        return;
+                    }
+                    header.append(c);
+                }
+        }
+    }
+
+    private void onHeaderLine(String line) throws IOException, TwitterException {
+        switch (state) {
+            case STATUS_LINE:
+                statusLine = line;
+                int space = line.indexOf(' ');
+                try {
+                    statusCode = Integer.parseInt(line.substring(space + 1, space + 4));
+                } catch (RuntimeException e) {
+                    throw new IOException("Malformed status line: " + line);
+                }
+                logger.debug("Response: ", line);
+                state = HEADERS;
+                break;
+            case HEADERS:
+                if (line.length() == 0) {
+                    if (statusCode != 200) {
+                        errorBody = new StringBuilder();
+                    } else {
+                        handler.onConnected();
+                    }
+                    state = chunked ? CHUNK_SIZE : BODY;
+                    if (state == BODY && remaining == 0) {
+                        endOfStream();
+                    }
+                    break;
+                }
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    String name = line.substring(0, colon).trim();
+                    String value = line.substring(colon + 1).trim();
+                    if ("Transfer-Encoding".equalsIgnoreCase(name) && value.toLowerCase().contains("chunked")) {
+                        chunked = true;
+                    } else if ("Content-Length".equalsIgnoreCase(name)) {
+                        remaining = Long.parseLong(value);
+                    } else if ("Content-Encoding".equalsIgnoreCase(name) && !"identity".equalsIgnoreCase(value)) {
+                        throw new IOException("Unsupported content encoding: " + value);
+                    }
+                }
+                break;
+            case CHUNK_END:
+                // the line is the chunk size when the CRLF after the chunk data is missing
+                state = CHUNK_SIZE;
+                onChunkSize(line);
+                break;
+            case CHUNK_SIZE:
+            default:
+                onChunkSize(line);
+        }
+    }
+
+    private void onChunkSize(String line) throws IOException, TwitterException {
+        if (line.length() == 0) {
+            return;
+        }
+        int extension = line.indexOf(';');
+        long size;
+        try {
+            size = Long.parseLong((extension < 0 ? line : line.substring(0, extension)).trim(), 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed chunk size: " + line);
+        }
+        if (size == 0) {
+            endOfStream();
+        }
+        remaining = size;
+        state = CHUNK_DATA;
+    }
+
+    // splits the body into lines
+    private void frame(ByteBuffer buffer, int length) throws UnsupportedEncodingException {
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get();
+            if (b == '\n') {
+                int end = messageLength > 0 && message[messageLength - 1] == '\r' ? messageLength - 1 : messageLength;
+                String line = new String(message, 0, end, "UTF-8");
+                messageLength = 0;
+                if (errorBody != null) {
+                    errorBody.append(line).append('\n');
+                } else {
+                    handler.onLine(line);
+                }
+            } else {
+                if (messageLength == message.length) {
+                    byte[] larger = new byte[message.length * 2];
+                    System.arraycopy(message, 0, larger, 0, messageLength);
+                    message = larger;
+                }
+                message[messageLength++] = b;
+            }
+        }
+    }
+
+    private void endOfStream() throws IOException, TwitterException {
+        if (errorBody != null) {
+            if (messageLength > 0) {
+                errorBody.append(new String(message, 0, messageLength, "UTF-8"));
+            }
+            throw new TwitterException(errorBody.length() > 0 ? errorBody.toString() : statusLine, null, statusCode);
+        }
+        if (statusLine != null && statusCode != 200) {
+            throw new TwitterException(statusLine, null, statusCode);
+        }
+        throw new IOException("the end of the stream has been reached");
+    }
+
+    private void close(TwitterException cause) {
+        if (!open) {
+            return;
+        }
+        open = false;
+        if (engine != null) {
+            engine.closeOutbound();
+        }
+        if (key != null) {
+            key.cancel();
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+        }
+        handler.onClosed(cause);
+    }
+}
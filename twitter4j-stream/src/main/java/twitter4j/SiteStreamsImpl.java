@@ -28,15 +28,37 @@ import java.io.InputStream;
 final class SiteStreamsImpl extends StatusStreamBase {
 
     private final StreamController cs;
+    private StatusCache statusCache;
 
     /*package*/ SiteStreamsImpl(Dispatcher dispatcher, InputStream stream, Configuration conf, StreamController cs) throws IOException {
         super(dispatcher, stream, conf);
         this.cs = cs;
+        this.statusCache = newStatusCache(conf);
     }
 
     /*package*/ SiteStreamsImpl(Dispatcher dispatcher, HttpResponse response, Configuration conf, StreamController cs) throws IOException {
         super(dispatcher, response, conf);
         this.cs = cs;
+        this.statusCache = newStatusCache(conf);
+    }
+
+    /*package*/ SiteStreamsImpl(Dispatcher dispatcher, Configuration conf, StreamController cs) {
+        super(dispatcher, conf);
+        this.cs = cs;
+        this.statusCache = newStatusCache(conf);
+    }
+
+    private static StatusCache newStatusCache(Configuration conf) {
+        return conf.getSiteStreamStatusCacheSize() > 0 ? new StatusCache(conf.getSiteStreamStatusCacheSize()) : null;
+    }
+
+    /**
+     * Shares a cache among several connections, so a status delivered over multiple connections is parsed once as well.
+     *
+     * @param statusCache cache, or null to disable caching
+     */
+    void setStatusCache(StatusCache statusCache) {
+        this.statusCache = statusCache;
     }
 
     @Override
@@ -96,10 +118,34 @@ final class SiteStreamsImpl extends StatusStreamBase {
         }
     }
 
+    @Override
+    boolean dispatchCached(String line, StreamListener[] listeners) throws TwitterException {
+        StatusCache cache = statusCache;
+        if (cache == null) {
+            return false;
+        }
+        long id = StatusCache.peekStatusId(line);
+        Status status;
+        if (id < 0 || (status = cache.get(id)) == null) {
+            return false;
+        }
+        if (CONF.isJSONStoreEnabled()) {
+            TwitterObjectFactory.registerJSONObject(status, line);
+        }
+        for (StreamListener listener : listeners) {
+            ((SiteStreamsListener) listener).onStatus(forUser.get(), status);
+        }
+        return true;
+    }
+
     @Override
     protected void onStatus(final JSONObject json, StreamListener[] listeners) throws TwitterException {
+        Status status = asStatus(json);
+        if (statusCache != null) {
+            statusCache.put(status);
+        }
         for (StreamListener listener : listeners) {
-            ((SiteStreamsListener) listener).onStatus(forUser.get(), asStatus(json));
+            ((SiteStreamsListener) listener).onStatus(forUser.get(), status);
         }
     }
 
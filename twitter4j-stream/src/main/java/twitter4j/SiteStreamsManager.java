@@ -0,0 +1,671 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.auth.Authorization;
+import twitter4j.auth.AuthorizationFactory;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Spreads site stream users over a pool of connections.<br>
+ * Each connection follows up to <code>stream.site.usersPerConnection</code> users. The first
+ * <code>stream.site.controlBatchSize</code> users of a connection are passed with the follow parameter, the rest are added
+ * through the control stream. add_user and remove_user calls are batched once a second and issued concurrently by the
+ * {@link StreamController} of each connection.<br>
+ * When a connection reconnects, the users added through the control stream are added again.
+ * When a connection stays disconnected for longer than <code>stream.site.rebalanceTimeout</code> milliseconds while other
+ * connections are up, the connection is closed and its users are moved to other connections.<br>
+ * Events are routed to the listener of the user with a primitive long lookup. Users added without a listener,
+ * and events that are not bound to a user, are delivered to the listeners added with {@link #addListener(SiteStreamsListener)}.
+ *
+ * @since Twitter4J 4.0.7
+ */
+public class SiteStreamsManager {
+    private static final Logger logger = Logger.getLogger(SiteStreamsManager.class);
+    private static final long FLUSH_INTERVAL = 1000;
+    // the maximum number of users passed with the follow parameter
+    private static final int MAX_FOLLOW = 100;
+    private static final long CONTROL_TIMEOUT = 60;
+
+    private final Configuration conf;
+    private final Authorization auth;
+    private final boolean withFollowings;
+    private final int usersPerConnection;
+    private final int batchSize;
+    private final StatusCache statusCache;
+
+    private final LongObjectMap<Route> routes = new LongObjectMap<Route>();
+    private final ReentrantReadWriteLock routesLock = new ReentrantReadWriteLock();
+    private final List<Connection> connections = new ArrayList<Connection>();
+    final SiteStreamsListener router = new Router();
+    private volatile SiteStreamsListener[] listeners = new SiteStreamsListener[0];
+    private Thread flusher;
+    private boolean shutdown = false;
+    private int nextConnectionId = 0;
+
+    /**
+     * Creates a manager with the default configuration.
+     *
+     * @param withFollowings receive events of the followings of the users as well
+     */
+    public SiteStreamsManager(boolean withFollowings) {
+        this(ConfigurationContext.getInstance(), AuthorizationFactory.getInstance(ConfigurationContext.getInstance()), withFollowings);
+    }
+
+    /**
+     * @param conf           configuration
+     * @param auth           authorization, must be OAuth
+     * @param withFollowings receive events of the followings of the users as well
+     */
+    public SiteStreamsManager(Configuration conf, Authorization auth, boolean withFollowings) {
+        this.conf = conf;
+        this.auth = auth;
+        this.withFollowings = withFollowings;
+        this.usersPerConnection = Math.max(1, conf.getSiteStreamUsersPerConnection());
+        this.batchSize = Math.max(1, conf.getSiteStreamControlBatchSize());
+        // statuses delivered to users on different connections are parsed once
+        this.statusCache = conf.getSiteStreamStatusCacheSize() > 0 ? new StatusCache(conf.getSiteStreamStatusCacheSize()) : null;
+    }
+
+    /**
+     * Adds a listener receiving events of users added without a listener, and events not bound to a user.
+     *
+     * @param listener listener
+     */
+    public synchronized void addListener(SiteStreamsListener listener) {
+        SiteStreamsListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        listeners = newListeners;
+    }
+
+    /**
+     * Adds users. Events are delivered to the listeners added with {@link #addListener(SiteStreamsListener)}.
+     *
+     * @param userIds user ids
+     */
+    public void addUsers(long... userIds) {
+        addUsers(userIds, null);
+    }
+
+    /**
+     * Adds users. Events of the users are delivered to the given listener only.
+     * Adding a user again replaces its listener, and moves the user to another connection only if its connection has been closed.
+     *
+     * @param userIds  user ids
+     * @param listener listener, or null to deliver to the listeners added with {@link #addListener(SiteStreamsListener)}
+     */
+    public synchronized void addUsers(long[] userIds, SiteStreamsListener listener) {
+        ensureNotShutdown();
+        for (long userId : userIds) {
+            Route existing = routes.get(userId);
+            Route route = new Route(userId, listener);
+            if (existing != null) {
+                route.connection = existing.connection;
+                route.connection.members.put(userId, route);
+                if (route.connection.pendingAdds.remove(userId) != null) {
+                    route.connection.pendingAdds.put(userId, route);
+                }
+                putRoute(route);
+            } else {
+                putRoute(route);
+                assign(route);
+            }
+        }
+        if (flusher == null) {
+            flusher = VirtualThreads.newThread(conf, "Twitter4J Site Streams Manager", new Runnable() {
+                @Override
+                public void run() {
+                    flushLoop();
+                }
+            });
+            flusher.start();
+        }
+    }
+
+    /**
+     * Removes users.
+     *
+     * @param userIds user ids
+     */
+    public synchronized void removeUsers(long... userIds) {
+        for (long userId : userIds) {
+            routesLock.writeLock().lock();
+            Route route;
+            try {
+                route = routes.remove(userId);
+            } finally {
+                routesLock.writeLock().unlock();
+            }
+            if (route != null) {
+                Connection connection = route.connection;
+                connection.members.remove(userId);
+                if (connection.pendingAdds.remove(userId) == null) {
+                    // the user is known to the connection
+                    connection.pendingRemoves.put(userId, Boolean.TRUE);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of users
+     */
+    public synchronized int getUserCount() {
+        return routes.size();
+    }
+
+    /**
+     * @return number of connections, including connections not opened yet
+     */
+    public synchronized int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Closes all connections and stops the background thread.
+     */
+    public void shutdown() {
+        List<Connection> toClose;
+        synchronized (this) {
+            shutdown = true;
+            toClose = new ArrayList<Connection>(connections);
+            connections.clear();
+            notifyAll();
+        }
+        for (Connection connection : toClose) {
+            close(connection);
+        }
+    }
+
+    private void ensureNotShutdown() {
+        if (shutdown) {
+            throw new IllegalStateException("SiteStreamsManager has been shut down.");
+        }
+    }
+
+    private void putRoute(Route route) {
+        routesLock.writeLock().lock();
+        try {
+            routes.put(route.userId, route);
+        } finally {
+            routesLock.writeLock().unlock();
+        }
+    }
+
+    // first fit, so that the number of connections stays minimal. must be called with the lock held
+    private void assign(Route route) {
+        Connection target = null;
+        for (Connection connection : connections) {
+            if (connection.load() < usersPerConnection) {
+                target = connection;
+                break;
+            }
+        }
+        if (target == null) {
+            target = new Connection(nextConnectionId++);
+            connections.add(target);
+        }
+        route.connection = target;
+        target.members.put(route.userId, route);
+        // a user removed and added again before the removal has been issued is still known to the connection
+        if (target.pendingRemoves.remove(route.userId) == null) {
+            target.pendingAdds.put(route.userId, route);
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (this) {
+                if (shutdown) {
+                    return;
+                }
+                try {
+                    wait(FLUSH_INTERVAL);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (shutdown) {
+                    return;
+                }
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to update site stream connections: ", e.toString());
+            }
+        }
+    }
+
+    /**
+     * Opens connections, issues pending control calls and rebalances users of connections which have been down for too long.
+     */
+    void flush() {
+        List<Connection> toClose = new ArrayList<Connection>();
+        List<ControlCall> calls = new ArrayList<ControlCall>();
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            boolean anyReady = false;
+            for (Connection connection : connections) {
+                anyReady |= !connection.members.isEmpty() && connection.isReady();
+            }
+            for (Connection connection : new ArrayList<Connection>(connections)) {
+                if (connection.members.isEmpty() && connection.pendingRemoves.isEmpty()) {
+                    connections.remove(connection);
+                    toClose.add(connection);
+                } else if (anyReady && connection.disconnectedAt > 0
+                        && now - connection.disconnectedAt > conf.getSiteStreamRebalanceTimeout()) {
+                    logger.info("Site stream connection[" + connection.id + "] has been down for "
+                            + (now - connection.disconnectedAt) + "ms. Moving users to other connections: ", String.valueOf(connection.members.size()));
+                    connections.remove(connection);
+                    toClose.add(connection);
+                    for (long userId : connection.members.keys()) {
+                        assign(connection.members.get(userId));
+                    }
+                }
+            }
+            for (Connection connection : connections) {
+                if (connection.controller == null) {
+                    if (!connection.pendingAdds.isEmpty()) {
+                        long[] follow = connection.take(connection.pendingAdds, Math.min(batchSize, MAX_FOLLOW));
+                        Arrays.sort(follow);
+                        connection.initial = follow;
+                        connection.controller = open(connection, follow);
+                    }
+                } else if (connection.isReady()) {
+                    while (!connection.pendingRemoves.isEmpty()) {
+                        calls.add(new ControlCall(connection, false, connection.take(connection.pendingRemoves, batchSize)));
+                    }
+                    while (!connection.pendingAdds.isEmpty()) {
+                        calls.add(new ControlCall(connection, true, connection.take(connection.pendingAdds, batchSize)));
+                    }
+                }
+            }
+        }
+        for (Connection connection : toClose) {
+            close(connection);
+        }
+        // the calls are issued concurrently by the controllers
+        for (ControlCall call : calls) {
+            call.result = control(call.connection.controller, call.add, call.userIds);
+        }
+        for (ControlCall call : calls) {
+            try {
+                call.result.get(CONTROL_TIMEOUT, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                requeue(call);
+            } catch (ExecutionException e) {
+                logger.warn(call.add ? "Failed to add users, retrying: " : "Failed to remove users, retrying: ", e.getCause().toString());
+                requeue(call);
+            } catch (TimeoutException e) {
+                call.result.cancel(true);
+                logger.warn(call.add ? "Failed to add users, retrying: " : "Failed to remove users, retrying: ", "timed out");
+                requeue(call);
+            }
+        }
+    }
+
+    private synchronized void requeue(ControlCall call) {
+        Connection connection = call.connection;
+        for (long userId : call.userIds) {
+            Route route = connection.members.get(userId);
+            if (call.add) {
+                if (route != null) {
+                    connection.pendingAdds.put(userId, route);
+                }
+            } else if (route == null) {
+                connection.pendingRemoves.put(userId, Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * Opens a site stream connection.
+     *
+     * @param connection connection
+     * @param follow     users passed with the follow parameter
+     * @return controller of the connection
+     */
+    StreamController open(Connection connection, long[] follow) {
+        TwitterStreamImpl stream = new TwitterStreamImpl(conf, auth);
+        stream.addListener(router);
+        stream.addConnectionLifeCycleListener(connection);
+        connection.stream = stream;
+        return stream.site(withFollowings, follow, statusCache);
+    }
+
+    /**
+     * Issues a control call.
+     *
+     * @param controller controller of the connection
+     * @param add        true to add users, false to remove users
+     * @param userIds    users
+     * @return result of the call
+     */
+    Future<String[]> control(StreamController controller, boolean add, long[] userIds) {
+        return add ? controller.addUsersAsync(userIds) : controller.removeUsersAsync(userIds);
+    }
+
+    private void close(Connection connection) {
+        if (connection.stream != null) {
+            connection.stream.shutdown();
+        }
+    }
+
+    private synchronized void onReconnect(Connection connection) {
+        // the connection has been reestablished with the follow parameter only
+        for (long userId : connection.members.keys()) {
+            if (Arrays.binarySearch(connection.initial, userId) < 0) {
+                connection.pendingAdds.put(userId, connection.members.get(userId));
+            }
+        }
+        connection.pendingRemoves.clear();
+        for (long userId : connection.initial) {
+            if (!connection.members.containsKey(userId)) {
+                connection.pendingRemoves.put(userId, Boolean.TRUE);
+            }
+        }
+    }
+
+    private static final class Route {
+        private final long userId;
+        private final SiteStreamsListener[] listener;
+        private Connection connection;
+
+        Route(long userId, SiteStreamsListener listener) {
+            this.userId = userId;
+            this.listener = listener != null ? new SiteStreamsListener[]{listener} : null;
+        }
+    }
+
+    /**
+     * A site stream connection. Fields are guarded by the lock of the manager.
+     */
+    final class Connection implements ConnectionLifeCycleListener {
+        final int id;
+        private final LongObjectMap<Route> members = new LongObjectMap<Route>();
+        private final LongObjectMap<Route> pendingAdds = new LongObjectMap<Route>();
+        private final LongObjectMap<Boolean> pendingRemoves = new LongObjectMap<Boolean>();
+        private long[] initial = new long[0];
+        private TwitterStreamImpl stream;
+        private StreamController controller;
+        private volatile long disconnectedAt = 0;
+        private boolean connected = false;
+
+        Connection(int id) {
+            this.id = id;
+        }
+
+        // users removed but not yet known to be removed occupy the connection as well
+        private int load() {
+            return members.size() + pendingRemoves.size();
+        }
+
+        private boolean isReady() {
+            return controller != null && controller.getControlURI() != null;
+        }
+
+        private long[] take(LongObjectMap<?> pending, int max) {
+            long[] keys = pending.keys();
+            if (keys.length > max) {
+                keys = Arrays.copyOf(keys, max);
+            }
+            for (long key : keys) {
+                pending.remove(key);
+            }
+            return keys;
+        }
+
+        @Override
+        public void onConnect() {
+            disconnectedAt = 0;
+            synchronized (SiteStreamsManager.this) {
+                if (connected) {
+                    onReconnect(this);
+                }
+                connected = true;
+            }
+        }
+
+        @Override
+        public void onDisconnect() {
+            if (disconnectedAt == 0) {
+                disconnectedAt = System.currentTimeMillis();
+            }
+        }
+
+        @Override
+        public void onCleanUp() {
+        }
+    }
+
+    private static final class ControlCall {
+        private final Connection connection;
+        private final boolean add;
+        private final long[] userIds;
+        private Future<String[]> result;
+
+        ControlCall(Connection connection, boolean add, long[] userIds) {
+            this.connection = connection;
+            this.add = add;
+            this.userIds = userIds;
+        }
+    }
+
+    private SiteStreamsListener[] route(long forUser) {
+        Route route;
+        routesLock.readLock().lock();
+        try {
+            route = routes.get(forUser);
+        } finally {
+            routesLock.readLock().unlock();
+        }
+        return route != null && route.listener != null ? route.listener : listeners;
+    }
+
+    /**
+     * Delivers the events of all connections to the listener of the user.
+     */
+    private final class Router implements SiteStreamsListener {
+        @Override
+        public void onStatus(long forUser, Status status) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onStatus(forUser, status);
+            }
+        }
+
+        @Override
+        public void onDeletionNotice(long forUser, StatusDeletionNotice statusDeletionNotice) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onDeletionNotice(forUser, statusDeletionNotice);
+            }
+        }
+
+        @Override
+        public void onFriendList(long forUser, long[] friendIds) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onFriendList(forUser, friendIds);
+            }
+        }
+
+        @Override
+        public void onFavorite(long forUser, User source, User target, Status favoritedStatus) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onFavorite(forUser, source, target, favoritedStatus);
+            }
+        }
+
+        @Override
+        public void onUnfavorite(long forUser, User source, User target, Status unfavoritedStatus) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onUnfavorite(forUser, source, target, unfavoritedStatus);
+            }
+        }
+
+        @Override
+        public void onFollow(long forUser, User source, User followedUser) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onFollow(forUser, source, followedUser);
+            }
+        }
+
+        @Override
+        public void onUnfollow(long forUser, User source, User unfollowedUser) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onUnfollow(forUser, source, unfollowedUser);
+            }
+        }
+
+        @Override
+        public void onDirectMessage(long forUser, DirectMessage directMessage) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onDirectMessage(forUser, directMessage);
+            }
+        }
+
+        @Override
+        public void onDeletionNotice(long forUser, long directMessageId, long userId) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onDeletionNotice(forUser, directMessageId, userId);
+            }
+        }
+
+        @Override
+        public void onUserListMemberAddition(long forUser, User addedMember, User listOwner, UserList list) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onUserListMemberAddition(forUser, addedMember, listOwner, list);
+            }
+        }
+
+        @Override
+        public void onUserListMemberDeletion(long forUser, User deletedMember, User listOwner, UserList list) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onUserListMemberDeletion(forUser, deletedMember, listOwner, list);
+            }
+        }
+
+        @Override
+        public void onUserListSubscription(long forUser, User subscriber, User listOwner, UserList list) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onUserListSubscription(forUser, subscriber, listOwner, list);
+            }
+        }
+
+        @Override
+        public void onUserListUnsubscription(long forUser, User subscriber, User listOwner, UserList list) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onUserListUnsubscription(forUser, subscriber, listOwner, list);
+            }
+        }
+
+        @Override
+        public void onUserListCreation(long forUser, User listOwner, UserList list) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onUserListCreation(forUser, listOwner, list);
+            }
+        }
+
+        @Override
+        public void onUserListUpdate(long forUser, User listOwner, UserList list) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onUserListUpdate(forUser, listOwner, list);
+            }
+        }
+
+        @Override
+        public void onUserListDeletion(long forUser, User listOwner, UserList list) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onUserListDeletion(forUser, listOwner, list);
+            }
+        }
+
+        @Override
+        public void onUserProfileUpdate(long forUser, User updatedUser) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onUserProfileUpdate(forUser, updatedUser);
+            }
+        }
+
+        @Override
+        public void onUserSuspension(long forUser, long suspendedUser) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onUserSuspension(forUser, suspendedUser);
+            }
+        }
+
+        @Override
+        public void onUserDeletion(long forUser, long deletedUser) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onUserDeletion(forUser, deletedUser);
+            }
+        }
+
+        @Override
+        public void onBlock(long forUser, User source, User blockedUser) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onBlock(forUser, source, blockedUser);
+            }
+        }
+
+        @Override
+        public void onUnblock(long forUser, User source, User unblockedUser) {
+            for (SiteStreamsListener listener : route(forUser)) {
+                listener.onUnblock(forUser, source, unblockedUser);
+            }
+        }
+
+        @Override
+        public void onRetweetedRetweet(User source, User target, Status retweetedStatus) {
+            for (SiteStreamsListener listener : listeners) {
+                listener.onRetweetedRetweet(source, target, retweetedStatus);
+            }
+        }
+
+        @Override
+        public void onFavoritedRetweet(User source, User target, Status favoritedStatus) {
+            for (SiteStreamsListener listener : listeners) {
+                listener.onFavoritedRetweet(source, target, favoritedStatus);
+            }
+        }
+
+        @Override
+        public void onDisconnectionNotice(String line) {
+            for (SiteStreamsListener listener : listeners) {
+                listener.onDisconnectionNotice(line);
+            }
+        }
+
+        @Override
+        public void onException(Exception ex) {
+            for (SiteStreamsListener listener : listeners) {
+                listener.onException(ex);
+            }
+        }
+    }
+}
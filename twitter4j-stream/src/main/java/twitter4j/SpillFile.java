@@ -0,0 +1,157 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedList;
+
+/**
+ * An append-only queue of strings on disk.<br>
+ * Records are written to memory-mapped segment files of <code>segmentSize</code> bytes, each prefixed with its length.
+ * A segment is deleted as soon as it has been read through, so the disk space follows the backlog.<br>
+ * Not thread safe.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class SpillFile {
+    // marks the end of the records in a segment
+    private static final int END_OF_SEGMENT = -1;
+
+    private final File directory;
+    private final String prefix;
+    private final int segmentSize;
+    private final LinkedList<Segment> segments = new LinkedList<Segment>();
+    private long count = 0;
+    private long bytes = 0;
+
+    /**
+     * @param directory   directory the segments are created in
+     * @param prefix      prefix of the segment file names
+     * @param segmentSize size of a segment in bytes
+     */
+    SpillFile(File directory, String prefix, int segmentSize) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * @param record record
+     * @return number of bytes written
+     * @throws IOException when the segment cannot be created
+     */
+    int append(String record) throws IOException {
+        byte[] data = record.getBytes("UTF-8");
+        int size = 4 + data.length;
+        Segment tail = segments.isEmpty() ? null : segments.getLast();
+        if (tail == null || tail.write.remaining() < size) {
+            if (tail != null && tail.write.remaining() >= 4) {
+                tail.write.putInt(END_OF_SEGMENT);
+            }
+            tail = new Segment(Math.max(segmentSize, size));
+            segments.addLast(tail);
+        }
+        tail.write.putInt(data.length);
+        tail.write.put(data);
+        count++;
+        bytes += size;
+        return size;
+    }
+
+    /**
+     * @return the oldest record, or null if the file is empty
+     * @throws IOException when the record cannot be decoded
+     */
+    String poll() throws IOException {
+        if (count == 0) {
+            return null;
+        }
+        while (true) {
+            Segment head = segments.getFirst();
+            if (head.read.remaining() >= 4) {
+                int length = head.read.getInt();
+                if (length != END_OF_SEGMENT) {
+                    byte[] data = new byte[length];
+                    head.read.get(data);
+                    count--;
+                    bytes -= 4 + length;
+                    if (count == 0) {
+                        // start over with a fresh segment rather than growing the file
+                        clear();
+                    }
+                    return new String(data, "UTF-8");
+                }
+            }
+            segments.removeFirst().delete();
+        }
+    }
+
+    /**
+     * @return number of records
+     */
+    long size() {
+        return count;
+    }
+
+    /**
+     * @return number of bytes of the records, including the length prefixes
+     */
+    long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Deletes all records and segment files.
+     */
+    void clear() {
+        for (Segment segment : segments) {
+            segment.delete();
+        }
+        segments.clear();
+        count = 0;
+        bytes = 0;
+    }
+
+    private final class Segment {
+        private final File file;
+        private final MappedByteBuffer write;
+        private final ByteBuffer read;
+
+        Segment(int size) throws IOException {
+            file = File.createTempFile(prefix, ".spill", directory);
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                // the mapping stays valid after the channel has been closed
+                write = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } finally {
+                raf.close();
+            }
+            read = write.duplicate();
+        }
+
+        void delete() {
+            if (!file.delete()) {
+                // still mapped on some platforms. deleted on exit
+                file.deleteOnExit();
+            }
+        }
+    }
+}
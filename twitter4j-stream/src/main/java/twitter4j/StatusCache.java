@@ -0,0 +1,88 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small LRU cache of recently parsed statuses, keyed by status id.<br>
+ * Site streams deliver the same status once per followed user. With this cache a status is parsed once and
+ * the following deliveries reuse the Status (and its User) instance.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class StatusCache {
+    private static final String STATUS_PREFIX = "{\"created_at\":\"";
+    private static final String ID_KEY = ",\"id\":";
+
+    private final Map<Long, Status> statuses;
+
+    /**
+     * @param capacity maximum number of statuses kept
+     */
+    StatusCache(final int capacity) {
+        statuses = new LinkedHashMap<Long, Status>(Math.min(capacity, 1024), 0.75f, true) {
+            private static final long serialVersionUID = -3416573826453154127L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Status> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized Status get(long id) {
+        return statuses.get(id);
+    }
+
+    synchronized void put(Status status) {
+        statuses.put(status.getId(), status);
+    }
+
+    /**
+     * Peeks the id of a status without parsing the JSON.<br>
+     * Statuses are serialized with "created_at" first and "id" second. Anything else is reported as not a status.
+     *
+     * @param json a message received from the stream
+     * @return status id, or -1 if the message doesn't look like a status
+     */
+    static long peekStatusId(String json) {
+        if (!json.startsWith(STATUS_PREFIX)) {
+            return -1;
+        }
+        int createdAtEnd = json.indexOf('"', STATUS_PREFIX.length());
+        if (createdAtEnd < 0 || !json.startsWith(ID_KEY, createdAtEnd + 1)) {
+            return -1;
+        }
+        int start = createdAtEnd + 1 + ID_KEY.length();
+        int end = start;
+        long id = 0;
+        // ids are positive and up to 19 digits long
+        while (end < json.length() && end - start < 19) {
+            char c = json.charAt(end);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            id = id * 10 + (c - '0');
+            end++;
+        }
+        if (end == start || end == json.length() || (json.charAt(end) != ',' && json.charAt(end) != '}')) {
+            return -1;
+        }
+        return id;
+    }
+}
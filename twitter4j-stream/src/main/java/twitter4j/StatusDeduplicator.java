@@ -0,0 +1,127 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Drops statuses received more than once, e.g. after a reconnect.<br>
+ * Ids are remembered in time buckets. The window of <code>stream.dedupWindow</code> milliseconds is split into
+ * {@value #BUCKETS} buckets and the oldest bucket is cleared when a new one starts, so the memory stays bounded.
+ * A bucket is also closed early when it holds its share of <code>stream.dedupCapacity</code> ids, which shortens the window under heavy load
+ * rather than growing the memory.<br>
+ * The id is peeked from the message before the JSON is parsed.<br>
+ * By default each TwitterStream instance has its own deduplicator. Instances with the same <code>stream.dedupGroup</code> share one,
+ * so that statuses delivered by overlapping connections, e.g. two filter streams tracking related terms, are delivered once.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class StatusDeduplicator {
+    private static final int BUCKETS = 4;
+    // shared while any instance of the group holds it
+    private static final Map<String, WeakReference<StatusDeduplicator>> groups = new HashMap<String, WeakReference<StatusDeduplicator>>();
+    private final long bucketMillis;
+    private final int bucketCapacity;
+    private final LongHashSet[] buckets = new LongHashSet[BUCKETS];
+    private int current = 0;
+    private long currentStartedAt;
+    private long duplicates = 0;
+
+    /**
+     * @param windowMillis how long ids are remembered
+     * @param capacity     maximum number of ids remembered
+     */
+    StatusDeduplicator(long windowMillis, int capacity) {
+        this.bucketMillis = Math.max(1, windowMillis / BUCKETS);
+        this.bucketCapacity = Math.max(1, capacity / BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongHashSet(Math.min(bucketCapacity, 4096));
+        }
+        currentStartedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns a deduplicator for a TwitterStream instance, shared with the other instances of its <code>stream.dedupGroup</code> if any.
+     * The group is instantiated with the configuration which gets it the first time.
+     *
+     * @param conf configuration
+     * @return deduplicator
+     */
+    static synchronized StatusDeduplicator getInstance(Configuration conf) {
+        String name = conf.getStreamDedupGroup();
+        if (name == null) {
+            return new StatusDeduplicator(conf.getStreamDedupWindow(), conf.getStreamDedupCapacity());
+        }
+        WeakReference<StatusDeduplicator> reference = groups.get(name);
+        StatusDeduplicator deduplicator = reference == null ? null : reference.get();
+        if (deduplicator == null) {
+            deduplicator = new StatusDeduplicator(conf.getStreamDedupWindow(), conf.getStreamDedupCapacity());
+            groups.put(name, new WeakReference<StatusDeduplicator>(deduplicator));
+        }
+        return deduplicator;
+    }
+
+    /**
+     * @param line message received from the stream
+     * @return true if the message is a status seen within the window
+     */
+    boolean isDuplicate(String line) {
+        long id = StatusCache.peekStatusId(line);
+        return id >= 0 && isDuplicate(id, System.currentTimeMillis());
+    }
+
+    /**
+     * @param id  status id
+     * @param now current time in milliseconds
+     * @return true if the status has been seen within the window
+     */
+    synchronized boolean isDuplicate(long id, long now) {
+        long elapsedBuckets = (now - currentStartedAt) / bucketMillis;
+        if (elapsedBuckets > 0) {
+            rotate(elapsedBuckets);
+            currentStartedAt += elapsedBuckets * bucketMillis;
+        } else if (buckets[current].size() >= bucketCapacity) {
+            rotate(1);
+            currentStartedAt = now;
+        }
+        for (LongHashSet bucket : buckets) {
+            if (bucket.contains(id)) {
+                duplicates++;
+                return true;
+            }
+        }
+        buckets[current].add(id);
+        return false;
+    }
+
+    private void rotate(long count) {
+        for (int i = 0; i < Math.min(count, BUCKETS); i++) {
+            current = (current + 1) % BUCKETS;
+            buckets[current].clear();
+        }
+    }
+
+    /**
+     * @return number of duplicates dropped
+     */
+    synchronized long getDuplicates() {
+        return duplicates;
+    }
+}
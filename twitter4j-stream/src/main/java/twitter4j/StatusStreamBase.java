@@ -37,6 +37,14 @@ abstract class StatusStreamBase implements StatusStream {
     private final Dispatcher dispatcher;
     final Configuration CONF;
     private ObjectFactory factory;
+    private StreamMonitor monitor;
+    private StatusDeduplicator deduplicator;
+    private StreamBackfill backfill;
+    private StreamLoadController loadController;
+    private StreamLoadShedder shedder;
+    private volatile ListenerTable listenerTable;
+    private StreamSequencer sequencer;
+    private StreamSpill spill;
 
     /*package*/
 
@@ -53,147 +61,345 @@ abstract class StatusStreamBase implements StatusStream {
         this(dispatcher, response.asStream(), conf);
         this.response = response;
     }
+    /*package*/
+
+    /**
+     * Creates a stream without an underlying InputStream. Lines are pushed via {@link #dispatch(String, StreamListener[], RawStreamListener[])} by the NIO stream engine.
+     */
+    StatusStreamBase(Dispatcher dispatcher, Configuration conf) {
+        this.dispatcher = dispatcher;
+        this.CONF = conf;
+        this.factory = new JSONImplFactory(conf);
+    }
+
+    void setMonitor(StreamMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * @param deduplicator drops statuses received more than once, or null
+     */
+    void setDeduplicator(StatusDeduplicator deduplicator) {
+        this.deduplicator = deduplicator;
+    }
+
+    /**
+     * @param backfill tracks the id of the last status received, or null
+     */
+    void setBackfill(StreamBackfill backfill) {
+        this.backfill = backfill;
+    }
+
+    /**
+     * @param loadController adapts the dispatcher to the load, or null
+     */
+    void setLoadController(StreamLoadController loadController) {
+        this.loadController = loadController;
+    }
+
+    /**
+     * @param shedder drops the least valuable messages when the listeners cannot keep up, or null
+     */
+    void setShedder(StreamLoadShedder shedder) {
+        this.shedder = shedder;
+    }
+
+    /**
+     * @param listenerTable listeners to be invoked per event type, or null to invoke all listeners for every event
+     */
+    void setListenerTable(ListenerTable listenerTable) {
+        this.listenerTable = listenerTable;
+    }
+
+    /**
+     * @param sequencer delivers messages parsed by several dispatcher threads in the order received, or null
+     */
+    void setSequencer(StreamSequencer sequencer) {
+        this.sequencer = sequencer;
+    }
+
+    /**
+     * @param spill holds messages on disk while the dispatcher is falling behind, or null
+     */
+    void setSpill(StreamSpill spill) {
+        this.spill = spill;
+    }
 
     String parseLine(String line) {
         return line;
     }
 
-    abstract class StreamEvent implements Runnable {
+    abstract class StreamEvent implements Discardable {
         String line;
+        // measurement is decided once per event so that enqueue and dequeue always match up
+        final boolean monitored;
+        final StreamLoadController controller;
+        final StreamLoadShedder shedder;
+        final ListenerTable table;
+        final StreamSequencer sequencer;
+        final long sequence;
+        final StreamSpill spill;
+        final long receivedAt;
+        final long enqueuedNanos;
 
         StreamEvent(String line) {
             this.line = line;
+            this.monitored = monitor != null && monitor.isEnabled();
+            this.controller = loadController;
+            this.shedder = StatusStreamBase.this.shedder;
+            if (shedder != null) {
+                shedder.onEnqueue();
+            }
+            this.table = listenerTable;
+            this.sequencer = StatusStreamBase.this.sequencer;
+            // numbered in the order received
+            this.sequence = sequencer != null ? sequencer.next() : -1;
+            this.spill = StatusStreamBase.this.spill;
+            if (monitored) {
+                receivedAt = System.currentTimeMillis();
+                monitor.onMessage(utf8Length(line) + 2);
+                monitor.onEnqueue();
+            } else {
+                receivedAt = 0;
+            }
+            enqueuedNanos = monitored || controller != null ? System.nanoTime() : 0;
         }
-    }
 
-    void handleNextElement(final StreamListener[] listeners,
-                           final RawStreamListener[] rawStreamListeners) throws TwitterException {
-        if (!streamAlive) {
-            throw new IllegalStateException("Stream already closed.");
+        void onDequeue() {
+            if (shedder != null) {
+                shedder.onDequeue();
+            }
+            if (spill != null) {
+                spill.onDequeue();
+            }
+            if (monitored || controller != null) {
+                long sojournNanos = System.nanoTime() - enqueuedNanos;
+                if (monitored) {
+                    monitor.onDequeue(sojournNanos);
+                }
+                if (controller != null) {
+                    controller.onDequeue(sojournNanos);
+                }
+            }
         }
-        try {
-            String line = br.readLine();
-            if (null == line) {
-                //invalidate this status stream
-                throw new IOException("the end of the stream has been reached");
+
+        /**
+         * Releases what the event holds when it is not run, e.g. when the dispatcher rejects it.
+         */
+        @Override
+        public void onDiscard() {
+            onDequeue();
+            if (sequencer != null) {
+                // later deliveries would wait for this one forever
+                sequencer.complete(sequence, null);
+            }
+        }
+
+        /**
+         * @param line message
+         * @return true if the type of the message is known without parsing, and nobody listens for it
+         */
+        boolean isUnlistened(String line) {
+            if (table == null) {
+                return false;
+            }
+            JSONObjectType.Type type = ListenerTable.peekType(line);
+            return type != null && table.get(type).length == 0;
+        }
+
+        JSONObject parse(String line) throws JSONException {
+            long parseStart = monitored ? System.nanoTime() : 0;
+            JSONObject json = new JSONObject(line);
+            if (monitored) {
+                monitor.onParse(System.nanoTime() - parseStart);
+                if (json.has("timestamp_ms")) {
+                    monitor.onLag(receivedAt - ParseUtil.getLong("timestamp_ms", json));
+                }
+            }
+            return json;
+        }
+
+        /**
+         * Parses the message on the current thread, and returns the delivery to be run in order by the sequencer.
+         *
+         * @param listeners          listeners
+         * @param rawStreamListeners raw stream listeners
+         * @return delivery of the message
+         */
+        Runnable prepare(final StreamListener[] listeners, final RawStreamListener[] rawStreamListeners) {
+            final String received = line;
+            JSONObject parsed = null;
+            JSONObjectType.Type type = null;
+            Exception failure = null;
+            try {
+                String line = parseLine(received);
+                if (line != null && line.length() > 0 && listeners.length > 0 && !isUnlistened(line)) {
+                    parsed = parse(line);
+                    type = JSONObjectType.determine(parsed);
+                }
+            } catch (Exception e) {
+                failure = e;
             }
-            dispatcher.invokeLater(new StreamEvent(line) {
+            final JSONObject json = parsed;
+            final JSONObjectType.Type event = type;
+            final Exception parseFailure = failure;
+            return new Runnable() {
                 @Override
                 public void run() {
                     try {
                         if (rawStreamListeners.length > 0) {
-                            onMessage(line, rawStreamListeners);
+                            onMessage(received, rawStreamListeners);
+                        }
+                        if (parseFailure != null) {
+                            throw parseFailure;
                         }
-                        // SiteStreamsImpl will parse "forUser" attribute
-                        line = parseLine(line);
-                        if (line != null && line.length() > 0) {
-                            // parsing JSON is an expensive process and can be avoided when all listeners are instanceof RawStreamListener
-                            if (listeners.length > 0) {
-                                if (CONF.isJSONStoreEnabled()) {
-                                    TwitterObjectFactory.clearThreadLocalMap();
-                                }
-                                JSONObject json = new JSONObject(line);
-                                JSONObjectType.Type event = JSONObjectType.determine(json);
-                                if (logger.isDebugEnabled()) {
-                                    logger.debug("Received:", CONF.getHttpClientConfiguration().isPrettyDebugEnabled() ? json.toString(1) : json.toString());
-                                }
-                                switch (event) {
-                                    case SENDER:
-                                        onSender(json, listeners);
-                                        break;
-                                    case STATUS:
-                                        onStatus(json, listeners);
-                                        break;
-                                    case DIRECT_MESSAGE:
-                                        onDirectMessage(json, listeners);
-                                        break;
-                                    case DELETE:
-                                        onDelete(json, listeners);
-                                        break;
-                                    case LIMIT:
-                                        onLimit(json, listeners);
-                                        break;
-                                    case STALL_WARNING:
-                                        onStallWarning(json, listeners);
-                                        break;
-                                    case SCRUB_GEO:
-                                        onScrubGeo(json, listeners);
-                                        break;
-                                    case FRIENDS:
-                                        onFriends(json, listeners);
-                                        break;
-                                    case FAVORITE:
-                                        onFavorite(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), listeners);
-                                        break;
-                                    case UNFAVORITE:
-                                        onUnfavorite(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), listeners);
-                                        break;
-                                    case FOLLOW:
-                                        onFollow(json.getJSONObject("source"), json.getJSONObject("target"), listeners);
-                                        break;
-                                    case UNFOLLOW:
-                                        onUnfollow(json.getJSONObject("source"), json.getJSONObject("target"), listeners);
-                                        break;
-                                    case USER_LIST_MEMBER_ADDED:
-                                        onUserListMemberAddition(json.getJSONObject("target"), json.getJSONObject("source"), json.getJSONObject("target_object"), listeners);
-                                        break;
-                                    case USER_LIST_MEMBER_DELETED:
-                                        onUserListMemberDeletion(json.getJSONObject("target"), json.getJSONObject("source"), json.getJSONObject("target_object"), listeners);
-                                        break;
-                                    case USER_LIST_SUBSCRIBED:
-                                        onUserListSubscription(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), listeners);
-                                        break;
-                                    case USER_LIST_UNSUBSCRIBED:
-                                        onUserListUnsubscription(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), listeners);
-                                        break;
-                                    case USER_LIST_CREATED:
-                                        onUserListCreation(json.getJSONObject("source"), json.getJSONObject("target_object"), listeners);
-                                        break;
-                                    case USER_LIST_UPDATED:
-                                        onUserListUpdated(json.getJSONObject("source"), json.getJSONObject("target_object"), listeners);
-                                        break;
-                                    case USER_LIST_DESTROYED:
-                                        onUserListDestroyed(json.getJSONObject("source"), json.getJSONObject("target_object"), listeners);
-                                        break;
-                                    case USER_UPDATE:
-                                        onUserUpdate(json.getJSONObject("source"), json.getJSONObject("target"), listeners);
-                                        break;
-                                    case USER_DELETE:
-                                        onUserDeletion(json.getLong("target"), listeners);
-                                        break;
-                                    case USER_SUSPEND:
-                                        onUserSuspension(json.getLong("target"), listeners);
-                                        break;
-                                    case BLOCK:
-                                        onBlock(json.getJSONObject("source"), json.getJSONObject("target"), listeners);
-                                        break;
-                                    case UNBLOCK:
-                                        onUnblock(json.getJSONObject("source"), json.getJSONObject("target"), listeners);
-                                        break;
-                                    case RETWEETED_RETWEET:
-                                        onRetweetedRetweet(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), listeners);
-                                        break;
-                                    case FAVORITED_RETWEET:
-                                        onFavoritedRetweet(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), listeners);
-                                        break;
-                                    case QUOTED_TWEET:
-                                        onQuotedTweet(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), listeners);
-                                        break;
-                                    case DISCONNECTION:
-                                        onDisconnectionNotice(line, listeners);
-                                        break;
-                                    case UNKNOWN:
-                                    default:
-                                        logger.warn("Received unknown event:", CONF.getHttpClientConfiguration().isPrettyDebugEnabled() ? json.toString(1) : json.toString());
-                                }
+                        if (json != null) {
+                            // objects are created here, so that raw JSON is stored for the thread invoking the listeners
+                            if (CONF.isJSONStoreEnabled()) {
+                                TwitterObjectFactory.clearThreadLocalMap();
                             }
+                            handle(json, event, listeners);
                         }
                     } catch (Exception ex) {
                         onException(ex, listeners);
                     }
                 }
-            });
+            };
+        }
+
+        void handle(JSONObject json, JSONObjectType.Type event, StreamListener[] listeners) throws TwitterException, JSONException {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Received:", CONF.getHttpClientConfiguration().isPrettyDebugEnabled() ? json.toString(1) : json.toString());
+            }
+            StreamListener[] targets = table != null ? table.get(event) : listeners;
+            switch (event) {
+                case SENDER:
+                    onSender(json, targets);
+                    break;
+                case STATUS:
+                    onStatus(json, targets);
+                    break;
+                case DIRECT_MESSAGE:
+                    onDirectMessage(json, targets);
+                    break;
+                case DELETE:
+                    onDelete(json, targets);
+                    break;
+                case LIMIT:
+                    if (monitored) {
+                        monitor.onLimitNotice(ParseUtil.getLong("track", json.getJSONObject("limit")));
+                    }
+                    onLimit(json, targets);
+                    break;
+                case STALL_WARNING:
+                    if (controller != null) {
+                        controller.onStallWarning(ParseUtil.getInt("percent_full", json.getJSONObject("warning")));
+                    }
+                    onStallWarning(json, targets);
+                    break;
+                case SCRUB_GEO:
+                    onScrubGeo(json, targets);
+                    break;
+                case FRIENDS:
+                    onFriends(json, targets);
+                    break;
+                case FAVORITE:
+                    onFavorite(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), targets);
+                    break;
+                case UNFAVORITE:
+                    onUnfavorite(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), targets);
+                    break;
+                case FOLLOW:
+                    onFollow(json.getJSONObject("source"), json.getJSONObject("target"), targets);
+                    break;
+                case UNFOLLOW:
+                    onUnfollow(json.getJSONObject("source"), json.getJSONObject("target"), targets);
+                    break;
+                case USER_LIST_MEMBER_ADDED:
+                    onUserListMemberAddition(json.getJSONObject("target"), json.getJSONObject("source"), json.getJSONObject("target_object"), targets);
+                    break;
+                case USER_LIST_MEMBER_DELETED:
+                    onUserListMemberDeletion(json.getJSONObject("target"), json.getJSONObject("source"), json.getJSONObject("target_object"), targets);
+                    break;
+                case USER_LIST_SUBSCRIBED:
+                    onUserListSubscription(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), targets);
+                    break;
+                case USER_LIST_UNSUBSCRIBED:
+                    onUserListUnsubscription(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), targets);
+                    break;
+                case USER_LIST_CREATED:
+                    onUserListCreation(json.getJSONObject("source"), json.getJSONObject("target_object"), targets);
+                    break;
+                case USER_LIST_UPDATED:
+                    onUserListUpdated(json.getJSONObject("source"), json.getJSONObject("target_object"), targets);
+                    break;
+                case USER_LIST_DESTROYED:
+                    onUserListDestroyed(json.getJSONObject("source"), json.getJSONObject("target_object"), targets);
+                    break;
+                case USER_UPDATE:
+                    onUserUpdate(json.getJSONObject("source"), json.getJSONObject("target"), targets);
+                    break;
+                case USER_DELETE:
+                    onUserDeletion(json.getLong("target"), targets);
+                    break;
+                case USER_SUSPEND:
+                    onUserSuspension(json.getLong("target"), targets);
+                    break;
+                case BLOCK:
+                    onBlock(json.getJSONObject("source"), json.getJSONObject("target"), targets);
+                    break;
+                case UNBLOCK:
+                    onUnblock(json.getJSONObject("source"), json.getJSONObject("target"), targets);
+                    break;
+                case RETWEETED_RETWEET:
+                    onRetweetedRetweet(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), targets);
+                    break;
+                case FAVORITED_RETWEET:
+                    onFavoritedRetweet(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), targets);
+                    break;
+                case QUOTED_TWEET:
+                    onQuotedTweet(json.getJSONObject("source"), json.getJSONObject("target"), json.getJSONObject("target_object"), targets);
+                    break;
+                case DISCONNECTION:
+                    onDisconnectionNotice(line, targets);
+                    break;
+                case UNKNOWN:
+                default:
+                    logger.warn("Received unknown event:", CONF.getHttpClientConfiguration().isPrettyDebugEnabled() ? json.toString(1) : json.toString());
+            }
+        }
+    }
+
+    private static int utf8Length(String line) {
+        int length = line.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (c >= 0x800) {
+                // surrogate pairs are counted as 2 + 2 bytes, which adds up to 4
+                bytes += 2;
+            } else if (c >= 0x80) {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
 
+    void handleNextElement(final StreamListener[] listeners,
+                           final RawStreamListener[] rawStreamListeners) throws TwitterException {
+        if (!streamAlive) {
+            throw new IllegalStateException("Stream already closed.");
+        }
+        if (null == br) {
+            throw new IllegalStateException("Stream is fed by the NIO stream engine.");
+        }
+        try {
+            String line = br.readLine();
+            if (null == line) {
+                //invalidate this status stream
+                throw new IOException("the end of the stream has been reached");
+            }
+            dispatch(line, listeners, rawStreamListeners);
         } catch (IOException ioe) {
             try {
                 is.close();
@@ -208,6 +414,102 @@ abstract class StatusStreamBase implements StatusStream {
         }
     }
 
+    /**
+     * Hands a line received from the stream over to the dispatcher.
+     *
+     * @param line               a line received from the stream
+     * @param listeners          listeners
+     * @param rawStreamListeners raw stream listeners
+     */
+    void dispatch(String line, final StreamListener[] listeners,
+                  final RawStreamListener[] rawStreamListeners) {
+        if (deduplicator != null || backfill != null || shedder != null) {
+            long id = StatusCache.peekStatusId(line);
+            if (id >= 0) {
+                if (deduplicator != null && deduplicator.isDuplicate(id, System.currentTimeMillis())) {
+                    return;
+                }
+                if (backfill != null) {
+                    backfill.onStatusId(id);
+                }
+            }
+            if (shedder != null && shedder.shed(line, id)) {
+                if (monitor != null && monitor.isEnabled()) {
+                    monitor.onShed();
+                }
+                return;
+            }
+        }
+        if (spill != null) {
+            spill.offer(this, line, listeners, rawStreamListeners);
+        } else {
+            enqueue(line, listeners, rawStreamListeners);
+        }
+    }
+
+    /**
+     * Hands a message over to the dispatcher.
+     *
+     * @param line               a line received from the stream
+     * @param listeners          listeners
+     * @param rawStreamListeners raw stream listeners
+     */
+    void enqueue(String line, final StreamListener[] listeners, final RawStreamListener[] rawStreamListeners) {
+        StreamEvent event = new StreamEvent(line) {
+            @Override
+            public void run() {
+                onDequeue();
+                if (sequencer != null) {
+                    sequencer.complete(sequence, prepare(listeners, rawStreamListeners));
+                    return;
+                }
+                try {
+                    if (rawStreamListeners.length > 0) {
+                        onMessage(line, rawStreamListeners);
+                    }
+                    // SiteStreamsImpl will parse "forUser" attribute
+                    line = parseLine(line);
+                    if (line != null && line.length() > 0) {
+                        // parsing JSON is an expensive process and can be avoided when all listeners are instanceof RawStreamListener
+                        if (listeners.length > 0) {
+                            if (CONF.isJSONStoreEnabled()) {
+                                TwitterObjectFactory.clearThreadLocalMap();
+                            }
+                            if (isUnlistened(line)) {
+                                return;
+                            }
+                            if (dispatchCached(line, table != null ? table.get(JSONObjectType.Type.STATUS) : listeners)) {
+                                return;
+                            }
+                            JSONObject json = parse(line);
+                            handle(json, JSONObjectType.determine(json), listeners);
+                        }
+                    }
+                } catch (Exception ex) {
+                    onException(ex, listeners);
+                }
+            }
+        };
+        try {
+            dispatcher.invokeLater(event);
+        } catch (RuntimeException e) {
+            event.onDiscard();
+            throw e;
+        }
+    }
+
+    /**
+     * Delivers a message without parsing it, if possible.
+     *
+     * @param line      message
+     * @param listeners listeners
+     * @return true if the message has been delivered
+     * @throws TwitterException when a listener fails
+     */
+    boolean dispatchCached(String line, StreamListener[] listeners) throws TwitterException {
+        return false;
+    }
+
     void onMessage(String rawString, RawStreamListener[] listeners) throws TwitterException {
         logger.warn("Unhandled event: onMessage");
     }
@@ -332,8 +634,10 @@ abstract class StatusStreamBase implements StatusStream {
     @Override
     public void close() throws IOException {
         streamAlive = false;
-        is.close();
-        br.close();
+        if (is != null) {
+            is.close();
+            br.close();
+        }
         if (response != null) {
             response.disconnect();
         }
@@ -368,7 +672,7 @@ abstract class StatusStreamBase implements StatusStream {
             friends = json.getJSONArray("friends");
             long[] friendIds = new long[friends.length()];
             for (int i = 0; i < friendIds.length; ++i) {
-                friendIds[i] = Long.parseLong(friends.getString(i));
+                friendIds[i] = friends.getLong(i);
             }
             return friendIds;
         } catch (JSONException e) {
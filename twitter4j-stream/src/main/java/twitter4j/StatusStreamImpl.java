@@ -38,6 +38,11 @@ class StatusStreamImpl extends StatusStreamBase {
     StatusStreamImpl(Dispatcher dispatcher, HttpResponse response, Configuration conf) throws IOException {
         super(dispatcher, response, conf);
     }
+    /*package*/
+
+    StatusStreamImpl(Dispatcher dispatcher, Configuration conf) {
+        super(dispatcher, conf);
+    }
 
     String line;
 
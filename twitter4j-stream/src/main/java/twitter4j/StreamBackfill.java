@@ -0,0 +1,146 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Recovers statuses of followed users missed while a filter stream was disconnected.<br>
+ * The id of the last status received is tracked. After a reconnect, the timeline of each followed user is retrieved
+ * through the REST API since that id. The calls stop as soon as the rate limit is exhausted.
+ * Recovered statuses are delivered in id order, through the deduplicator so that statuses also received from the stream are delivered once.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class StreamBackfill {
+    private static final Logger logger = Logger.getLogger(StreamBackfill.class);
+    // the maximum count of statuses/user_timeline
+    private static final int PAGE_SIZE = 200;
+    private static final Comparator<Status> ID_ORDER = new Comparator<Status>() {
+        @Override
+        public int compare(Status s1, Status s2) {
+            return s1.getId() < s2.getId() ? -1 : (s1.getId() == s2.getId() ? 0 : 1);
+        }
+    };
+
+    private final Configuration conf;
+    private final StatusDeduplicator deduplicator;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile long lastSeenId = -1;
+
+    StreamBackfill(Configuration conf, StatusDeduplicator deduplicator) {
+        this.conf = conf;
+        this.deduplicator = deduplicator;
+    }
+
+    /**
+     * @param id id of a status received from the stream
+     */
+    void onStatusId(long id) {
+        // written by the thread reading the stream only
+        if (id > lastSeenId) {
+            lastSeenId = id;
+        }
+    }
+
+    long getLastSeenId() {
+        return lastSeenId;
+    }
+
+    /**
+     * Starts recovering statuses of the users in background. Does nothing if no status has been received yet, or a backfill is running.
+     *
+     * @param follow     followed users
+     * @param twitter    REST API client
+     * @param dispatcher dispatcher delivering the statuses
+     * @param listeners  listeners
+     */
+    void start(final long[] follow, final Twitter twitter, final Dispatcher dispatcher, final StreamListener[] listeners) {
+        final long sinceId = lastSeenId;
+        if (sinceId < 0 || follow == null || follow.length == 0) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Backfill is already running.");
+            return;
+        }
+        VirtualThreads.newThread(conf, "Twitter4J Stream Backfill", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    deliver(fetch(twitter, follow, sinceId), dispatcher, listeners);
+                } finally {
+                    running.set(false);
+                }
+            }
+        }).start();
+    }
+
+    List<Status> fetch(Twitter twitter, long[] follow, long sinceId) {
+        List<Status> recovered = new ArrayList<Status>();
+        for (int i = 0; i < follow.length; i++) {
+            try {
+                ResponseList<Status> statuses = twitter.getUserTimeline(follow[i], new Paging(1, PAGE_SIZE).sinceId(sinceId));
+                recovered.addAll(statuses);
+                RateLimitStatus rateLimit = statuses.getRateLimitStatus();
+                if (rateLimit != null && rateLimit.getRemaining() <= 0 && i < follow.length - 1) {
+                    logger.warn("Rate limit exhausted. Statuses of users not recovered: ", String.valueOf(follow.length - i - 1));
+                    break;
+                }
+            } catch (TwitterException te) {
+                if (te.exceededRateLimitation()) {
+                    logger.warn("Rate limit exhausted. Statuses of users not recovered: ", String.valueOf(follow.length - i));
+                    break;
+                }
+                logger.warn("Failed to recover statuses of user " + follow[i] + ": ", te.getMessage());
+            }
+        }
+        Collections.sort(recovered, ID_ORDER);
+        return recovered;
+    }
+
+    void deliver(final List<Status> statuses, Dispatcher dispatcher, final StreamListener[] listeners) {
+        if (statuses.isEmpty()) {
+            return;
+        }
+        logger.info("Recovered statuses: ", String.valueOf(statuses.size()));
+        // a single task, so that the statuses are delivered in order
+        dispatcher.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                long now = System.currentTimeMillis();
+                for (Status status : statuses) {
+                    if (deduplicator.isDuplicate(status.getId(), now)) {
+                        continue;
+                    }
+                    for (StreamListener listener : listeners) {
+                        try {
+                            ((StatusListener) listener).onStatus(status);
+                        } catch (Exception e) {
+                            logger.warn(e.getMessage());
+                        }
+                    }
+                }
+            }
+        });
+    }
+}
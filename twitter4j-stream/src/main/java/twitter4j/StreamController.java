@@ -19,58 +19,137 @@ package twitter4j;
 import twitter4j.auth.Authorization;
 import twitter4j.auth.AuthorizationFactory;
 import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationContext;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static twitter4j.ParseUtil.*;
 
 /**
+ * Controls a site stream connection.<br>
+ * Control calls need the control URI, which is sent with the first message of the connection. The synchronous methods
+ * wait for it for 30 seconds. The methods returning {@link Future} never block: the calls are queued and issued as soon as the
+ * control URI arrives, by up to <code>stream.site.controlParallelism</code> threads per connection. Get the result with a timeout
+ * if the connection may not be established.
+ *
  * @author Yusuke Yamamoto - yusuke at twitter.com
  * @since Twitter4J 2.2.6
  */
 public class StreamController {
-    private String controlURI = null;
+    // add_user.json and remove_user.json accept up to 100 user ids per call
+    private static final int MAX_USERS_PER_CALL = 100;
+    private static final long CONTROL_URI_TIMEOUT = 30;
+    private volatile String controlURI = null;
     private final HttpClient http;
     private final Authorization AUTH;
+    private final Configuration conf;
     private static final Logger logger = Logger.getLogger(StreamController.class);
 
     /*package*/ StreamController(HttpClient http, Authorization auth) {
+        this(http, auth, ConfigurationContext.getInstance());
+    }
+
+    /*package*/ StreamController(HttpClient http, Authorization auth, Configuration conf) {
         this.http = http;
         AUTH = auth;
+        this.conf = conf;
     }
 
     /*package*/ StreamController(Configuration conf) {
         this.http = HttpClientFactory.getInstance(conf.getHttpClientConfiguration());
         AUTH = AuthorizationFactory.getInstance(conf);
+        this.conf = conf;
     }
 
     void setControlURI(String controlURI) {
-        this.controlURI = (controlURI!=null) ?controlURI.replace("/1.1//1.1/", "/1.1/") : null;
+        List<Runnable> ready;
         synchronized (lock) {
-            lock.notifyAll();
+            this.controlURI = (controlURI!=null) ?controlURI.replace("/1.1//1.1/", "/1.1/") : null;
+            if (this.controlURI == null) {
+                if (controlURISet.getCount() == 0) {
+                    // the connection has been closed. wait for the control uri of the next connection
+                    controlURISet = new CountDownLatch(1);
+                }
+                return;
+            }
+            controlURISet.countDown();
+            ready = new ArrayList<Runnable>(awaitingControlURI);
+            awaitingControlURI.clear();
+        }
+        for (Runnable task : ready) {
+            getExecutor().execute(task);
         }
     }
 
     private final Object lock = new Object();
+    private CountDownLatch controlURISet = new CountDownLatch(1);
+    private final List<Runnable> awaitingControlURI = new ArrayList<Runnable>();
+    private ThreadPoolExecutor executor;
 
     String getControlURI() {
         return controlURI;
     }
 
     void ensureControlURISet() throws TwitterException {
+        CountDownLatch latch;
         synchronized (lock) {
-            try {
-		int waits = 0;
-                while (controlURI == null) {
-                    lock.wait(1000);
-                    waits++;
-                    
-                    if (waits > 29) throw new TwitterException("timed out for control uri to be ready");
-                }           
-            } catch (InterruptedException e) {
+            latch = controlURISet;
+        }
+        try {
+            if (!latch.await(CONTROL_URI_TIMEOUT, TimeUnit.SECONDS)) {
+                throw new TwitterException("timed out for control uri to be ready");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TwitterException("interrupted while waiting for control uri to be ready", e);
+        }
+    }
+
+    private ThreadPoolExecutor getExecutor() {
+        synchronized (lock) {
+            if (executor == null) {
+                final int parallelism = Math.max(1, conf.getSiteStreamControlParallelism());
+                executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS
+                        , new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private int count = 0;
+
+                    @Override
+                    public synchronized Thread newThread(Runnable r) {
+                        return VirtualThreads.newThread(conf, "Twitter4J Stream Controller[" + count++ + "]", r);
+                    }
+                });
+                // idle threads terminate, as the controller has no life cycle
+                executor.allowCoreThreadTimeOut(true);
+            }
+            return executor;
+        }
+    }
+
+    // issues the call as soon as the control uri is known
+    private <T> Future<T> submit(Callable<T> call) {
+        FutureTask<T> task = new FutureTask<T>(call);
+        synchronized (lock) {
+            if (controlURI == null) {
+                awaitingControlURI.add(task);
+                return task;
             }
         }
+        getExecutor().execute(task);
+        return task;
     }
 
     public ControlStreamInfo getInfo() throws TwitterException {
@@ -79,6 +158,19 @@ public class StreamController {
         return new ControlStreamInfo(this, res.asJSONObject());
     }
 
+    /**
+     * @return info of the control stream
+     * @since Twitter4J 4.0.7
+     */
+    public Future<ControlStreamInfo> getInfoAsync() {
+        return submit(new Callable<ControlStreamInfo>() {
+            @Override
+            public ControlStreamInfo call() throws TwitterException {
+                return getInfo();
+            }
+        });
+    }
+
     public String addUsers(long... userIds) throws TwitterException {
         ensureControlURISet();
         HttpParameter param = new HttpParameter("user_id",
@@ -88,6 +180,17 @@ public class StreamController {
         return res.asString();
     }
 
+    /**
+     * Adds users in chunks of 100 users. The chunks are added concurrently.
+     *
+     * @param userIds user ids
+     * @return responses of the chunks
+     * @since Twitter4J 4.0.7
+     */
+    public Future<String[]> addUsersAsync(long... userIds) {
+        return submitChunks(userIds, true);
+    }
+
     public String removeUsers(long... userIds) throws TwitterException {
         ensureControlURISet();
         HttpParameter param = new HttpParameter("user_id",
@@ -97,6 +200,30 @@ public class StreamController {
         return res.asString();
     }
 
+    /**
+     * Removes users in chunks of 100 users. The chunks are removed concurrently.
+     *
+     * @param userIds user ids
+     * @return responses of the chunks
+     * @since Twitter4J 4.0.7
+     */
+    public Future<String[]> removeUsersAsync(long... userIds) {
+        return submitChunks(userIds, false);
+    }
+
+    private Future<String[]> submitChunks(long[] userIds, final boolean add) {
+        List<Future<String>> chunks = new ArrayList<Future<String>>();
+        for (int i = 0; i < userIds.length; i += MAX_USERS_PER_CALL) {
+            final long[] chunk = Arrays.copyOfRange(userIds, i, Math.min(userIds.length, i + MAX_USERS_PER_CALL));
+            chunks.add(submit(new Callable<String>() {
+                @Override
+                public String call() throws TwitterException {
+                    return add ? addUsers(chunk) : removeUsers(chunk);
+                }
+            }));
+        }
+        return new AllOf(chunks);
+    }
 
     public FriendsIDs getFriendsIDs(long userId, long cursor) throws TwitterException {
         ensureControlURISet();
@@ -107,6 +234,139 @@ public class StreamController {
         return new FriendsIDs(res);
     }
 
+    /**
+     * @param userId user id
+     * @param cursor cursor
+     * @return a page of friend ids
+     * @since Twitter4J 4.0.7
+     */
+    public Future<FriendsIDs> getFriendsIDsAsync(final long userId, final long cursor) {
+        return submit(new Callable<FriendsIDs>() {
+            @Override
+            public FriendsIDs call() throws TwitterException {
+                return getFriendsIDs(userId, cursor);
+            }
+        });
+    }
+
+    /**
+     * Returns a cursor over the friend ids of the user. The first page is requested immediately, and each following page
+     * is requested as soon as the previous one has been returned, while the caller processes it.
+     *
+     * @param userId user id
+     * @return cursor
+     * @since Twitter4J 4.0.7
+     */
+    public FriendsIDsCursor getFriendsIDsCursor(long userId) {
+        return new FriendsIDsCursor(userId);
+    }
+
+    /**
+     * Pages of friend ids, prefetched one page ahead.
+     *
+     * @since Twitter4J 4.0.7
+     */
+    public final class FriendsIDsCursor {
+        private final long userId;
+        private Future<FriendsIDs> next;
+
+        private FriendsIDsCursor(long userId) {
+            this.userId = userId;
+            next = getFriendsIDsAsync(userId, -1);
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        /**
+         * @return the next page
+         * @throws TwitterException when the page couldn't be retrieved
+         * @throws NoSuchElementException when there is no more page
+         */
+        public FriendsIDs next() throws TwitterException {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            FriendsIDs page = await(next);
+            next = page.hasNext() ? getFriendsIDsAsync(userId, page.getNextCursor()) : null;
+            return page;
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws TwitterException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TwitterException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TwitterException) {
+                throw (TwitterException) e.getCause();
+            }
+            throw new TwitterException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Completes when all chunks have completed.
+     */
+    private static final class AllOf implements Future<String[]> {
+        private final List<Future<String>> chunks;
+
+        AllOf(List<Future<String>> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = false;
+            for (Future<String> chunk : chunks) {
+                cancelled |= chunk.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            for (Future<String> chunk : chunks) {
+                if (chunk.isCancelled()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            for (Future<String> chunk : chunks) {
+                if (!chunk.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String[] get() throws InterruptedException, ExecutionException {
+            String[] responses = new String[chunks.size()];
+            for (int i = 0; i < responses.length; i++) {
+                responses[i] = chunks.get(i).get();
+            }
+            return responses;
+        }
+
+        @Override
+        public String[] get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            String[] responses = new String[chunks.size()];
+            for (int i = 0; i < responses.length; i++) {
+                responses[i] = chunks.get(i).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+            return responses;
+        }
+    }
+
     public final class FriendsIDs implements CursorSupport, Serializable {
         private static final long serialVersionUID = -7393320878760329794L;
         private long[] ids;
@@ -124,11 +384,7 @@ public class StreamController {
                 JSONArray idList = follow.getJSONArray("friends");
                 ids = new long[idList.length()];
                 for (int i = 0; i < idList.length(); i++) {
-                    try {
-                        ids[i] = Long.parseLong(idList.getString(i));
-                    } catch (NumberFormatException nfe) {
-                        throw new TwitterException("Twitter API returned malformed response: " + json, nfe);
-                    }
+                    ids[i] = idList.getLong(i);
                 }
                 user = new User(follow.getJSONObject("user"));
                 previousCursor = ParseUtil.getLong("previous_cursor", json);
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reference counted registry of the dispatchers used by TwitterStream instances.<br>
+ * Streams configured with the same <code>stream.dispatcherGroup</code> share one dispatcher, streams without a group share the default dispatcher.
+ * A dispatcher is shut down when the last stream bound to it has been shut down.
+ * Groups with a positive <code>stream.dispatcherWeight</code> don't own threads but are lanes of a pool that is shared by all weighted groups in proportion to their weights.
+ * With <code>stream.adaptiveDispatchEnabled</code>, a group has a {@link StreamLoadController}, evaluated by a timer shared by all groups.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class StreamDispatchers {
+    private static final Logger logger = Logger.getLogger(StreamDispatchers.class);
+    private static final String DEFAULT_GROUP = "";
+    private static final Map<String, Group> groups = new HashMap<String, Group>();
+    private static WeightedFairDispatcher fairPool = null;
+    private static int numberOfLanes = 0;
+    private static ScheduledExecutorService timer = null;
+    private static int numberOfControllers = 0;
+
+    private StreamDispatchers() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns the dispatcher of the group the given configuration belongs to. Each call must be paired with {@link #release(Dispatcher)}.
+     *
+     * @param conf configuration
+     * @return dispatcher
+     */
+    static synchronized Dispatcher acquire(Configuration conf) {
+        String name = conf.getStreamDispatcherGroup() == null ? DEFAULT_GROUP : conf.getStreamDispatcherGroup();
+        Group group = groups.get(name);
+        if (group == null) {
+            // the group will be instantiated with the configuration which acquires it the first time.
+            group = new Group(newDispatcher(name, conf), conf.getStreamDispatcherWeight() > 0);
+            groups.put(name, group);
+            logger.debug("Created stream dispatcher group: ", DEFAULT_GROUP.equals(name) ? "default" : name);
+        }
+        if (conf.isStreamAdaptiveDispatchEnabled() && group.controller == null) {
+            group.startController(conf);
+        }
+        group.references++;
+        return group.dispatcher;
+    }
+
+    /**
+     * @param dispatcher dispatcher returned by {@link #acquire(Configuration)}
+     * @return load controller of the group, or null if none of its streams has <code>stream.adaptiveDispatchEnabled</code>
+     */
+    static synchronized StreamLoadController getLoadController(Dispatcher dispatcher) {
+        for (Group group : groups.values()) {
+            if (group.dispatcher == dispatcher) {
+                return group.controller;
+            }
+        }
+        return null;
+    }
+
+    private static Dispatcher newDispatcher(String name, Configuration conf) {
+        if (DEFAULT_GROUP.equals(name)) {
+            if (DispatcherImpl.class.getName().equals(conf.getDispatcherImpl())) {
+                // a fixed set of threads, so that messages keep their order also with virtual threads
+                return new DispatcherImpl(conf, "Twitter4J Async Dispatcher", conf.getAsyncNumThreads(), -1);
+            }
+            return new DispatcherFactory(conf).getInstance();
+        }
+        if (conf.getStreamDispatcherWeight() > 0) {
+            if (fairPool == null) {
+                fairPool = new WeightedFairDispatcher(conf, "Twitter4J Stream Dispatcher", conf.getAsyncNumThreads());
+            }
+            numberOfLanes++;
+            return fairPool.newLane(conf.getStreamDispatcherWeight(), conf.getStreamDispatcherQueueSize());
+        }
+        return new DispatcherImpl(conf, "Twitter4J Stream Dispatcher / " + name, conf.getAsyncNumThreads()
+                , conf.getStreamDispatcherQueueSize());
+    }
+
+    /**
+     * Releases a dispatcher returned by {@link #acquire(Configuration)}.
+     *
+     * @param dispatcher dispatcher to be released
+     */
+    static synchronized void release(Dispatcher dispatcher) {
+        Iterator<Map.Entry<String, Group>> iterator = groups.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Group group = iterator.next().getValue();
+            if (group.dispatcher == dispatcher) {
+                if (--group.references == 0) {
+                    iterator.remove();
+                    group.stopController();
+                    dispatcher.shutdown();
+                    if (group.lane && --numberOfLanes == 0) {
+                        fairPool.shutdown();
+                        fairPool = null;
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private static final class Group {
+        private final Dispatcher dispatcher;
+        private final boolean lane;
+        private int references = 0;
+        private StreamLoadController controller = null;
+        private ScheduledFuture<?> evaluation = null;
+
+        Group(Dispatcher dispatcher, boolean lane) {
+            this.dispatcher = dispatcher;
+            this.lane = lane;
+        }
+
+        void startController(Configuration conf) {
+            final StreamLoadController controller = new StreamLoadController(conf, dispatcher);
+            if (timer == null) {
+                timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "Twitter4J Stream Load Controller");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            numberOfControllers++;
+            this.controller = controller;
+            this.evaluation = timer.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        controller.evaluate();
+                    } catch (RuntimeException e) {
+                        logger.warn(e.getMessage());
+                    }
+                }
+            }, StreamLoadController.INTERVAL, StreamLoadController.INTERVAL, TimeUnit.MILLISECONDS);
+        }
+
+        void stopController() {
+            if (controller == null) {
+                return;
+            }
+            evaluation.cancel(false);
+            controller.close();
+            controller = null;
+            if (--numberOfControllers == 0) {
+                timer.shutdown();
+                timer = null;
+            }
+        }
+    }
+}
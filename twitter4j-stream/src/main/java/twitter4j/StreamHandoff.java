@@ -0,0 +1,98 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the tasks of one NIO stream in order, one at a time, on the pool of <code>stream.nioHandoffNumThreads</code> threads shared
+ * through {@link StreamSelectors}.<br>
+ * A {@link StreamSelector} thread hands lines, listener callbacks and host name resolution off to it instead of running them itself.
+ * So a stream blocked on a listener, a full dispatcher queue, a <code>block</code> or <code>callerRuns</code> rejection policy or the
+ * spill file never stalls the other streams on the selector. The connection stops reading while {@link #HIGH_WATER} tasks are
+ * pending, and resumes once they are down to {@link #LOW_WATER}.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class StreamHandoff implements Runnable {
+    private static final Logger logger = Logger.getLogger(StreamHandoff.class);
+    static final int HIGH_WATER = 1024;
+    static final int LOW_WATER = HIGH_WATER / 2;
+
+    private final Executor pool;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Runnable onDrained;
+
+    /**
+     * @param pool      threads running the tasks
+     * @param onDrained run on the handoff thread each time the pending tasks have come down to {@link #LOW_WATER}
+     */
+    StreamHandoff(Executor pool, Runnable onDrained) {
+        this.pool = pool;
+        this.onDrained = onDrained;
+    }
+
+    /**
+     * Runs the task after the tasks handed off before. Never blocks.
+     *
+     * @param task task
+     * @return true if {@link #HIGH_WATER} tasks are pending, and the caller should stop reading until onDrained is run
+     */
+    boolean execute(Runnable task) {
+        tasks.add(task);
+        int count = pending.incrementAndGet();
+        if (count == 1) {
+            try {
+                pool.execute(this);
+            } catch (RejectedExecutionException e) {
+                // the pool has been shut down with the last selector
+                logger.debug("Stream handoff has been shut down. Discarded tasks: ", String.valueOf(count));
+                tasks.clear();
+                pending.set(0);
+            }
+        }
+        return count >= HIGH_WATER;
+    }
+
+    /**
+     * @return number of tasks pending
+     */
+    int getPending() {
+        return pending.get();
+    }
+
+    @Override
+    public void run() {
+        int count;
+        do {
+            // tasks are added before they are counted
+            Runnable task = tasks.poll();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.warn(e.getMessage());
+            }
+            count = pending.decrementAndGet();
+            if (count == LOW_WATER) {
+                onDrained.run();
+            }
+        } while (count > 0);
+    }
+}
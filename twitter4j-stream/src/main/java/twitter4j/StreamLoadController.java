@@ -0,0 +1,128 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adapts the dispatcher of a stream dispatcher group to the load. There is one controller per group, owned by {@link StreamDispatchers}
+ * and shared by the streams of the group.<br>
+ * The group is under pressure when the average time messages wait in the dispatcher queue exceeds
+ * <code>stream.adaptiveSojournThreshold</code> milliseconds, or Twitter sends a stall warning with <code>percent_full</code> of
+ * <code>stream.adaptivePercentFullThreshold</code> or more. The load is evaluated once a second by a timer, so that an idle group
+ * shrinks as well.<br>
+ * Under pressure dispatch threads are added, by half of the current number, up to <code>stream.adaptiveMaxThreads</code>.
+ * When no more threads can be added the stream is reported as overloaded, which engages load shedding if configured.
+ * After {@value #CALM_INTERVALS} seconds without pressure one thread is removed, down to the initial number of threads.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class StreamLoadController {
+    private static final Logger logger = Logger.getLogger(StreamLoadController.class);
+    static final long INTERVAL = 1000;
+    private static final int CALM_INTERVALS = 10;
+
+    // null if the dispatcher cannot be resized
+    private final DispatcherImpl dispatcher;
+    private final int minThreads;
+    private final int maxThreads;
+    private final long sojournThresholdNanos;
+    private final int percentFullThreshold;
+
+    private final AtomicLong sojournSum = new AtomicLong();
+    private final AtomicLong sojournCount = new AtomicLong();
+    private volatile int percentFull = 0;
+    private volatile boolean overloaded = false;
+    private int calmIntervals = 0;
+
+    StreamLoadController(Configuration conf, Dispatcher dispatcher) {
+        this.dispatcher = dispatcher instanceof DispatcherImpl && ((DispatcherImpl) dispatcher).getNumThreads() > 0
+                ? (DispatcherImpl) dispatcher : null;
+        this.minThreads = this.dispatcher != null ? this.dispatcher.getNumThreads() : 0;
+        this.maxThreads = Math.max(minThreads, conf.getStreamAdaptiveMaxThreads());
+        this.sojournThresholdNanos = conf.getStreamAdaptiveSojournThreshold() * 1000000;
+        this.percentFullThreshold = conf.getStreamAdaptivePercentFullThreshold();
+    }
+
+    /**
+     * @param sojournNanos time the message waited in the dispatcher queue
+     */
+    void onDequeue(long sojournNanos) {
+        sojournSum.addAndGet(sojournNanos);
+        sojournCount.incrementAndGet();
+    }
+
+    /**
+     * @param percentFull how full the queue on Twitter's side is
+     */
+    void onStallWarning(int percentFull) {
+        if (percentFull > this.percentFull) {
+            this.percentFull = percentFull;
+        }
+    }
+
+    /**
+     * @return true if the stream is under pressure and no more threads can be added
+     */
+    boolean isOverloaded() {
+        return overloaded;
+    }
+
+    /**
+     * Evaluates the load of the last interval. Called every {@link #INTERVAL} milliseconds.
+     */
+    synchronized void evaluate() {
+        long count = sojournCount.getAndSet(0);
+        long averageSojourn = count == 0 ? 0 : sojournSum.getAndSet(0) / count;
+        int stall = percentFull;
+        percentFull = 0;
+        boolean pressure = averageSojourn > sojournThresholdNanos || (stall > 0 && stall >= percentFullThreshold);
+        int threads = dispatcher != null ? dispatcher.getNumThreads() : 0;
+        if (pressure) {
+            calmIntervals = 0;
+            if (threads < maxThreads) {
+                int newThreads = Math.min(maxThreads, threads + Math.max(1, threads / 2));
+                dispatcher.setNumThreads(newThreads);
+                logger.info("Stream is falling behind. Dispatch threads: ", threads + " -> " + newThreads);
+            } else if (!overloaded) {
+                overloaded = true;
+                logger.warn("Stream is overloaded. Average queue time(ms): ", (averageSojourn / 1000000) + ", percent_full: " + stall);
+            }
+        } else {
+            if (overloaded) {
+                overloaded = false;
+                logger.info("Stream has caught up.");
+            }
+            if (threads > minThreads && ++calmIntervals >= CALM_INTERVALS) {
+                calmIntervals = 0;
+                dispatcher.setNumThreads(threads - 1);
+                logger.debug("Dispatch threads: ", String.valueOf(threads - 1));
+            }
+        }
+    }
+
+    /**
+     * Restores the initial number of threads.
+     */
+    synchronized void close() {
+        if (dispatcher != null) {
+            dispatcher.setNumThreads(minThreads);
+        }
+        overloaded = false;
+    }
+}
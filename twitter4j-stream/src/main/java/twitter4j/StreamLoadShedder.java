@@ -0,0 +1,247 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drops the least valuable messages when the listeners cannot keep up, rather than letting Twitter disconnect the stream.<br>
+ * Messages fall into three priority classes, in drop order:
+ * <ul>
+ * <li>the first class, sampled at <code>stream.sheddingRetweetSamplePercent</code> as soon as <code>stream.sheddingQueueDepth</code> messages are waiting in the dispatcher queue</li>
+ * <li>the second class, sampled at <code>stream.sheddingStatusSamplePercent</code> once twice as many messages are waiting, or the {@link StreamLoadController} reports the stream as overloaded</li>
+ * <li>everything else, including deletes, compliance and control messages and events, which is always delivered</li>
+ * </ul>
+ * <code>stream.sheddingPriorities</code> lists the status types of the first and second classes, separated by <code>;</code>,
+ * with the types of a class separated by <code>,</code>. The types are <code>retweet</code>, <code>quote</code>, <code>reply</code> and
+ * <code>status</code>, the latter standing for the statuses which are none of the listed types. The default <code>retweet;status</code>
+ * drops retweets first, then other statuses.
+ * Sampling is decided by a hash of the status id, so the same statuses are kept by every consumer, and a status kept at a lower
+ * percentage is also kept at any higher one. Counts derived from the delivered statuses can be rescaled by the sample percentage.<br>
+ * Shedding is relaxed once the queue has drained to half of the level that engaged it.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class StreamLoadShedder {
+    private static final Logger logger = Logger.getLogger(StreamLoadShedder.class);
+    private static final String RETWEET_KEY = "\"retweeted_status\":{";
+    private static final String QUOTE_KEY = "\"quoted_status\":{";
+    private static final String REPLY_KEY = "\"in_reply_to_status_id\":";
+    private static final String[] TYPES = {"retweet", "quote", "reply", "status"};
+    private static final int RETWEET = 0;
+    private static final int QUOTE = 1;
+    private static final int REPLY = 2;
+    private static final int STATUS = 3;
+
+    static final int NONE = 0;
+    // the first class is sampled
+    static final int RETWEETS = 1;
+    // the first and second classes are sampled
+    static final int STATUSES = 2;
+
+    private final int queueDepth;
+    private final int retweetSamplePercent;
+    private final int statusSamplePercent;
+    private final StreamLoadController controller;
+    // priority class by status type, NONE if never dropped
+    private final int[] classes = new int[TYPES.length];
+    private final String[] classNames = {"", "", ""};
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong shedRetweets = new AtomicLong();
+    private final AtomicLong shedStatuses = new AtomicLong();
+    // written by the thread reading the stream only
+    private volatile int level = NONE;
+
+    /**
+     * @param conf       configuration
+     * @param controller reports whether the dispatcher can still be scaled up, or null
+     */
+    StreamLoadShedder(Configuration conf, StreamLoadController controller) {
+        this.queueDepth = Math.max(1, conf.getStreamSheddingQueueDepth());
+        this.retweetSamplePercent = conf.getStreamSheddingRetweetSamplePercent();
+        this.statusSamplePercent = conf.getStreamSheddingStatusSamplePercent();
+        this.controller = controller;
+        parsePriorities(conf.getStreamSheddingPriorities());
+    }
+
+    private void parsePriorities(String priorities) {
+        if (priorities == null) {
+            return;
+        }
+        String[] classes = priorities.split(";");
+        if (classes.length > STATUSES) {
+            logger.warn("Only two priority classes can be dropped, ignored: ", priorities);
+        }
+        for (int i = 0; i < Math.min(classes.length, STATUSES); i++) {
+            for (String type : classes[i].split(",")) {
+                type = type.trim();
+                int index = indexOf(type);
+                if (index < 0) {
+                    if (type.length() > 0) {
+                        logger.warn("Unknown message type in stream.sheddingPriorities, ignored: ", type);
+                    }
+                } else if (this.classes[index] != NONE) {
+                    logger.warn("Message type listed twice in stream.sheddingPriorities, ignored: ", type);
+                } else {
+                    this.classes[index] = i + 1;
+                    classNames[i + 1] = classNames[i + 1].length() == 0 ? type : classNames[i + 1] + "," + type;
+                }
+            }
+        }
+    }
+
+    private static int indexOf(String type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(type)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param line status
+     * @return priority class of the status, {@link #NONE} if it is never dropped
+     */
+    int classOf(String line) {
+        if (classes[RETWEET] != NONE && line.indexOf(RETWEET_KEY) >= 0) {
+            return classes[RETWEET];
+        }
+        if (classes[QUOTE] != NONE && line.indexOf(QUOTE_KEY) >= 0) {
+            return classes[QUOTE];
+        }
+        if (classes[REPLY] != NONE && isReply(line)) {
+            return classes[REPLY];
+        }
+        return classes[STATUS];
+    }
+
+    private static boolean isReply(String line) {
+        int index = line.indexOf(REPLY_KEY);
+        if (index < 0) {
+            return false;
+        }
+        index += REPLY_KEY.length();
+        while (index < line.length() && line.charAt(index) == ' ') {
+            index++;
+        }
+        return index < line.length() && Character.isDigit(line.charAt(index));
+    }
+
+    /**
+     * Decides whether a message is dropped.
+     *
+     * @param line message
+     * @param id   id peeked from the message, or -1 if the message is not a status
+     * @return true if the message is to be dropped
+     */
+    boolean shed(String line, long id) {
+        int level = updateLevel();
+        if (level != NONE && id >= 0) {
+            int priority = classOf(line);
+            if (priority == RETWEETS) {
+                if (!isSampled(id, retweetSamplePercent)) {
+                    shedRetweets.incrementAndGet();
+                    return true;
+                }
+            } else if (priority == STATUSES && level == STATUSES && !isSampled(id, statusSamplePercent)) {
+                shedStatuses.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Called when a message not dropped has been handed over to the dispatcher. Messages held by {@link StreamSpill} are not counted
+     * until they are handed over, so that spilling doesn't engage shedding.
+     */
+    void onEnqueue() {
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Called when a message handed over to the dispatcher has been picked up by a dispatcher thread.
+     */
+    void onDequeue() {
+        pending.decrementAndGet();
+    }
+
+    private int updateLevel() {
+        int depth = pending.get();
+        boolean overloaded = controller != null && controller.isOverloaded();
+        int current = level;
+        int target;
+        if (overloaded || depth >= queueDepth * 2) {
+            target = STATUSES;
+        } else if (depth >= queueDepth) {
+            target = current == STATUSES ? STATUSES : RETWEETS;
+        } else if (depth >= queueDepth / 2) {
+            target = current == NONE ? NONE : RETWEETS;
+        } else {
+            target = NONE;
+        }
+        if (target != current) {
+            level = target;
+            if (target == NONE) {
+                logger.info("Load shedding disengaged. Dropped " + classNames[RETWEETS] + ": ", shedRetweets.get() + ", " + classNames[STATUSES] + ": " + shedStatuses.get());
+            } else if (target == RETWEETS) {
+                logger.info("Load shedding engaged. Sampled " + classNames[RETWEETS] + " at ", retweetSamplePercent + "%");
+            } else {
+                logger.warn("Load shedding engaged. Sampled " + classNames[RETWEETS] + " at " + retweetSamplePercent + "%, " + classNames[STATUSES] + " at ", statusSamplePercent + "%");
+            }
+        }
+        return target;
+    }
+
+    /**
+     * @param id      status id
+     * @param percent sample percentage
+     * @return true if the status belongs to the sample
+     */
+    static boolean isSampled(long id, int percent) {
+        if (percent >= 100) {
+            return true;
+        }
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (h >>> 32) % 100 < percent;
+    }
+
+    /**
+     * @return {@link #NONE}, {@link #RETWEETS} or {@link #STATUSES}
+     */
+    int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return number of messages of the first class dropped
+     */
+    long getShedRetweets() {
+        return shedRetweets.get();
+    }
+
+    /**
+     * @return number of messages of the second class dropped
+     */
+    long getShedStatuses() {
+        return shedStatuses.get();
+    }
+}
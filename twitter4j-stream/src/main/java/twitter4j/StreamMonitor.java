@@ -0,0 +1,209 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.management.StreamStatisticsListener;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fans stream observations out to the registered StreamStatisticsListeners.<br>
+ * While no StreamStatisticsListener is registered {@link #isEnabled()} returns false and callers skip all measurements.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class StreamMonitor implements StreamStatisticsListener {
+    private static final StreamStatisticsListener[] NONE = new StreamStatisticsListener[0];
+    private volatile StreamStatisticsListener[] listeners = NONE;
+
+    synchronized void addListener(StreamStatisticsListener listener) {
+        List<StreamStatisticsListener> list = new ArrayList<StreamStatisticsListener>(Arrays.asList(listeners));
+        list.add(listener);
+        listeners = list.toArray(new StreamStatisticsListener[list.size()]);
+    }
+
+    synchronized void removeListener(StreamStatisticsListener listener) {
+        List<StreamStatisticsListener> list = new ArrayList<StreamStatisticsListener>(Arrays.asList(listeners));
+        list.remove(listener);
+        listeners = list.toArray(new StreamStatisticsListener[list.size()]);
+    }
+
+    boolean isEnabled() {
+        return listeners.length > 0;
+    }
+
+    @Override
+    public void onMessage(int bytes) {
+        for (StreamStatisticsListener listener : listeners) {
+            listener.onMessage(bytes);
+        }
+    }
+
+    @Override
+    public void onEnqueue() {
+        for (StreamStatisticsListener listener : listeners) {
+            listener.onEnqueue();
+        }
+    }
+
+    @Override
+    public void onDequeue(long sojournNanos) {
+        for (StreamStatisticsListener listener : listeners) {
+            listener.onDequeue(sojournNanos);
+        }
+    }
+
+    @Override
+    public void onParse(long nanos) {
+        for (StreamStatisticsListener listener : listeners) {
+            listener.onParse(nanos);
+        }
+    }
+
+    @Override
+    public void onListenerInvoked(String listenerName, long nanos) {
+        for (StreamStatisticsListener listener : listeners) {
+            listener.onListenerInvoked(listenerName, nanos);
+        }
+    }
+
+    @Override
+    public void onListenerLag(String listenerName, long nanos) {
+        for (StreamStatisticsListener listener : listeners) {
+            listener.onListenerLag(listenerName, nanos);
+        }
+    }
+
+    @Override
+    public void onListenerDrop(String listenerName) {
+        for (StreamStatisticsListener listener : listeners) {
+            listener.onListenerDrop(listenerName);
+        }
+    }
+
+    @Override
+    public void onLag(long millis) {
+        for (StreamStatisticsListener listener : listeners) {
+            listener.onLag(millis);
+        }
+    }
+
+    @Override
+    public void onReconnect() {
+        for (StreamStatisticsListener listener : listeners) {
+            listener.onReconnect();
+        }
+    }
+
+    @Override
+    public void onLimitNotice(long dropped) {
+        for (StreamStatisticsListener listener : listeners) {
+            listener.onLimitNotice(dropped);
+        }
+    }
+
+    @Override
+    public void onShed() {
+        for (StreamStatisticsListener listener : listeners) {
+            listener.onShed();
+        }
+    }
+
+    @Override
+    public void onSpill(int bytes) {
+        for (StreamStatisticsListener listener : listeners) {
+            listener.onSpill(bytes);
+        }
+    }
+
+    @Override
+    public void onDrain(int bytes) {
+        for (StreamStatisticsListener listener : listeners) {
+            listener.onDrain(bytes);
+        }
+    }
+
+    /**
+     * Wraps the given listeners so that the time spent in each callback is reported.
+     *
+     * @param listeners listeners to be wrapped
+     * @param type      component type of the returned array
+     * @return instrumented listeners, or the given array as is when monitoring is disabled
+     */
+    @SuppressWarnings("unchecked")
+    <T extends StreamListener> T[] instrument(T[] listeners, Class<T> type) {
+        if (!isEnabled()) {
+            return listeners;
+        }
+        T[] instrumented = (T[]) Array.newInstance(type, listeners.length);
+        for (int i = 0; i < listeners.length; i++) {
+            instrumented[i] = type.cast(Proxy.newProxyInstance(StreamListener.class.getClassLoader()
+                    , listenerInterfacesOf(listeners[i]), new TimingHandler(listeners[i])));
+        }
+        return instrumented;
+    }
+
+    static Class<?>[] listenerInterfacesOf(StreamListener listener) {
+        // only twitter4j's own listener interfaces are proxied, which is all the dispatching code casts to
+        List<Class<?>> interfaces = new ArrayList<Class<?>>(5);
+        interfaces.add(StreamListener.class);
+        if (listener instanceof StatusListener) {
+            interfaces.add(StatusListener.class);
+        }
+        if (listener instanceof UserStreamListener) {
+            interfaces.add(UserStreamListener.class);
+        }
+        if (listener instanceof SiteStreamsListener) {
+            interfaces.add(SiteStreamsListener.class);
+        }
+        if (listener instanceof RawStreamListener) {
+            interfaces.add(RawStreamListener.class);
+        }
+        return interfaces.toArray(new Class<?>[interfaces.size()]);
+    }
+
+    private final class TimingHandler implements InvocationHandler {
+        private final StreamListener delegate;
+        private final String name;
+
+        TimingHandler(StreamListener delegate) {
+            this.delegate = delegate;
+            this.name = delegate.getClass().getName();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(delegate, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException ite) {
+                throw ite.getCause();
+            } finally {
+                onListenerInvoked(name, System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A thread multiplexing any number of {@link NioStreamConnection}s with a single Selector.<br>
+ * Tasks and timers submitted via {@link #execute(Runnable)} and {@link #schedule(Runnable, long)} run on this thread as well,
+ * so connections and their handlers are never accessed concurrently.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class StreamSelector extends Thread {
+    private static final Logger logger = Logger.getLogger(StreamSelector.class);
+    private static final long TIMEOUT_CHECK_INTERVAL = 1000;
+
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    // accessed only by this thread
+    private final PriorityQueue<Timer> timers = new PriorityQueue<Timer>();
+    private long sequence = 0;
+    private long nextTimeoutCheck = 0;
+    private volatile boolean shutdown = false;
+
+    StreamSelector(String name, boolean daemon) throws IOException {
+        super(name);
+        setDaemon(daemon);
+        selector = Selector.open();
+    }
+
+    /**
+     * Runs the given task on the selector thread.
+     *
+     * @param task task
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the given task on the selector thread after the given delay.
+     *
+     * @param task        task
+     * @param delayMillis delay in milliseconds
+     */
+    void schedule(final Runnable task, final long delayMillis) {
+        final long at = System.currentTimeMillis() + delayMillis;
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                timers.add(new Timer(at, sequence++, task));
+            }
+        });
+    }
+
+    /**
+     * Connects a connection, which has been created off this thread as it resolves the host name. Must be called on the selector thread.
+     *
+     * @param connection connection
+     */
+    void open(NioStreamConnection connection) {
+        connection.connect(selector);
+    }
+
+    void shutdown() {
+        shutdown = true;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (!shutdown) {
+            try {
+                runTasks();
+                long now = System.currentTimeMillis();
+                long timeout = Math.max(nextTimeoutCheck - now, 1);
+                if (!timers.isEmpty()) {
+                    timeout = Math.min(timeout, timers.peek().at - now);
+                }
+                if (timeout > 0) {
+                    selector.select(timeout);
+                } else {
+                    selector.selectNow();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid()) {
+                        ((NioStreamConnection) key.attachment()).handle();
+                    }
+                }
+                runTimers();
+                checkTimeouts();
+            } catch (IOException ioe) {
+                logger.warn(ioe.getMessage());
+            }
+        }
+        // pending tasks may contain requests to close connections
+        runTasks();
+        List<NioStreamConnection> connections = new ArrayList<NioStreamConnection>();
+        for (SelectionKey key : selector.keys()) {
+            connections.add((NioStreamConnection) key.attachment());
+        }
+        for (NioStreamConnection connection : connections) {
+            connection.abort();
+        }
+        try {
+            selector.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            run(task);
+        }
+    }
+
+    private void runTimers() {
+        long now = System.currentTimeMillis();
+        while (!timers.isEmpty() && timers.peek().at <= now) {
+            run(timers.poll().task);
+        }
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            logger.warn(e.getMessage());
+        }
+    }
+
+    private void checkTimeouts() {
+        long now = System.currentTimeMillis();
+        if (now < nextTimeoutCheck) {
+            return;
+        }
+        nextTimeoutCheck = now + TIMEOUT_CHECK_INTERVAL;
+        // copied as closing a connection cancels its key
+        List<NioStreamConnection> connections = new ArrayList<NioStreamConnection>(selector.keys().size());
+        for (SelectionKey key : selector.keys()) {
+            connections.add((NioStreamConnection) key.attachment());
+        }
+        for (NioStreamConnection connection : connections) {
+            connection.checkTimeout(now);
+        }
+    }
+
+    private static final class Timer implements Comparable<Timer> {
+        private final long at;
+        private final long sequence;
+        private final Runnable task;
+
+        Timer(long at, long sequence, Runnable task) {
+            this.at = at;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Timer that) {
+            if (this.at != that.at) {
+                return this.at < that.at ? -1 : 1;
+            }
+            return this.sequence < that.sequence ? -1 : (this.sequence == that.sequence ? 0 : 1);
+        }
+    }
+}
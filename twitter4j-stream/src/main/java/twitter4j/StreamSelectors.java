@@ -0,0 +1,121 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference counted pool of the {@link StreamSelector} threads shared by all TwitterStream instances with <code>stream.nioEnabled</code>.<br>
+ * The pool is created with the configuration of the stream which acquires a selector the first time and shut down when the last selector has been released.
+ * Along with the selectors, a pool of <code>stream.nioHandoffNumThreads</code> threads runs the work the selectors hand off, see {@link StreamHandoff}.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class StreamSelectors {
+    // time release() waits for the selectors to hand off the closing of their connections
+    private static final long SHUTDOWN_TIME = 5000;
+    private static StreamSelector[] selectors = null;
+    private static ThreadPoolExecutor handoffPool = null;
+    private static int references = 0;
+    private static int next = 0;
+
+    private StreamSelectors() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns a selector in round robin. Each call must be paired with {@link #release(StreamSelector)}.
+     *
+     * @param conf configuration
+     * @return selector
+     * @throws IOException when a Selector cannot be opened
+     */
+    static synchronized StreamSelector acquire(Configuration conf) throws IOException {
+        if (selectors == null) {
+            StreamSelector[] newSelectors = new StreamSelector[Math.max(1, conf.getStreamNioNumThreads())];
+            for (int i = 0; i < newSelectors.length; i++) {
+                newSelectors[i] = new StreamSelector(String.format("Twitter4J Stream Selector[%d]", i), conf.isDaemonEnabled());
+            }
+            for (StreamSelector selector : newSelectors) {
+                selector.start();
+            }
+            selectors = newSelectors;
+            handoffPool = newHandoffPool(conf);
+        }
+        references++;
+        return selectors[(next++ & Integer.MAX_VALUE) % selectors.length];
+    }
+
+    private static ThreadPoolExecutor newHandoffPool(final Configuration conf) {
+        int numThreads = Math.max(1, conf.getStreamNioHandoffNumThreads());
+        return new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        return VirtualThreads.newThread(conf, String.format("Twitter4J Stream Handoff[%d]", count.getAndIncrement()), runnable);
+                    }
+                });
+    }
+
+    /**
+     * Returns the threads which run the work handed off by the selectors. Must be called while a selector is acquired.
+     *
+     * @return handoff threads
+     */
+    static synchronized Executor getHandoffPool() {
+        return handoffPool;
+    }
+
+    /**
+     * Releases a selector returned by {@link #acquire(Configuration)}.
+     *
+     * @param selector selector to be released
+     */
+    static synchronized void release(StreamSelector selector) {
+        if (selectors != null && --references == 0) {
+            for (StreamSelector s : selectors) {
+                s.shutdown();
+            }
+            // the selectors hand off the clean up of the connections they close on the way out
+            long deadline = System.currentTimeMillis() + SHUTDOWN_TIME;
+            try {
+                for (StreamSelector s : selectors) {
+                    long left = deadline - System.currentTimeMillis();
+                    if (s != Thread.currentThread() && left > 0) {
+                        s.join(left);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // tasks handed off already still run
+            handoffPool.shutdown();
+            handoffPool = null;
+            selectors = null;
+            next = 0;
+        }
+    }
+}
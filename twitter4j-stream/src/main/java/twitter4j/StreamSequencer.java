@@ -0,0 +1,88 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+/**
+ * Releases events parsed in parallel in the order they were received.<br>
+ * Messages are numbered in the order received with {@link #next()}. Dispatcher threads parse them in any order and hand the
+ * deliveries over with {@link #complete(long, Runnable)}. A delivery is run as soon as all earlier ones have been run, by the thread
+ * which completed the earliest outstanding message. Only one thread runs deliveries at a time, so listeners are invoked
+ * one event at a time and in order, as with a single threaded dispatcher, while parsing scales with the number of dispatcher threads.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class StreamSequencer {
+    private static final Logger logger = Logger.getLogger(StreamSequencer.class);
+    private static final Runnable NOTHING = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    // numbered by one thread at a time: the thread reading the stream, or the spill drainer while holding the spill lock
+    private long sequence = 0;
+    // guarded by this
+    private final LongObjectMap<Runnable> completed = new LongObjectMap<Runnable>();
+    private long nextToDeliver = 0;
+    private boolean delivering = false;
+
+    /**
+     * @return sequence number of the next message
+     */
+    long next() {
+        return sequence++;
+    }
+
+    /**
+     * Every sequence number returned by {@link #next()} must be completed exactly once, otherwise later deliveries are held forever.
+     *
+     * @param sequence sequence number of the message
+     * @param delivery invokes the listeners, or null if there is nothing to deliver
+     */
+    void complete(long sequence, Runnable delivery) {
+        synchronized (this) {
+            completed.put(sequence, delivery != null ? delivery : NOTHING);
+            if (delivering || sequence != nextToDeliver) {
+                // the thread delivering, or the one completing nextToDeliver, will pick it up
+                return;
+            }
+            delivering = true;
+        }
+        while (true) {
+            Runnable next;
+            synchronized (this) {
+                next = completed.remove(nextToDeliver);
+                if (next == null) {
+                    delivering = false;
+                    return;
+                }
+                nextToDeliver++;
+            }
+            try {
+                next.run();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to deliver an event: ", String.valueOf(e));
+            }
+        }
+    }
+
+    /**
+     * @return number of messages parsed and waiting for an earlier message
+     */
+    synchronized int getPending() {
+        return completed.size();
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import twitter4j.conf.Configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Holds stream bursts on disk instead of dropping messages or growing the heap.<br>
+ * Once <code>stream.spillThreshold</code> messages are waiting in the dispatcher, further messages are appended to a {@link SpillFile}
+ * in <code>stream.spillDirectory</code>. A drainer thread hands them back to the dispatcher in order, as soon as the dispatcher has
+ * caught up to half of the threshold. While anything is on disk, new messages are spilled as well, so that the order is kept.
+ * Messages which cannot be written to disk are kept in memory behind those on disk.<br>
+ * Messages written to and read from disk are reported through {@link StreamMonitor}.
+ *
+ * @since Twitter4J 4.0.7
+ */
+final class StreamSpill {
+    private static final Logger logger = Logger.getLogger(StreamSpill.class);
+    private static final long DRAIN_CHECK_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Configuration conf;
+    private final StreamMonitor monitor;
+    private final File directory;
+    private final int threshold;
+    private final int lowWatermark;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Object lock = new Object();
+    // guarded by lock
+    private final SpillFile file;
+    // messages which failed to be spilled, delivered after those on disk
+    private final Queue<String> overflow = new ArrayDeque<String>();
+    private volatile boolean closed = false;
+    private StatusStreamBase stream;
+    private StreamListener[] listeners;
+    private RawStreamListener[] rawStreamListeners;
+    private volatile boolean spilling = false;
+    private volatile Thread drainer;
+
+    StreamSpill(Configuration conf, StreamMonitor monitor) {
+        this.conf = conf;
+        this.monitor = monitor;
+        this.threshold = Math.max(1, conf.getStreamSpillThreshold());
+        this.lowWatermark = threshold / 2;
+        this.directory = new File(conf.getStreamSpillDirectory() != null ? conf.getStreamSpillDirectory()
+                : System.getProperty("java.io.tmpdir"));
+        this.file = new SpillFile(directory, "twitter4j-stream-", conf.getStreamSpillSegmentSize());
+    }
+
+    /**
+     * Hands a message over to the dispatcher of the stream, or spills it to disk.
+     *
+     * @param stream             stream the message has been read from
+     * @param line               message
+     * @param listeners          listeners
+     * @param rawStreamListeners raw stream listeners
+     */
+    void offer(StatusStreamBase stream, String line, StreamListener[] listeners, RawStreamListener[] rawStreamListeners) {
+        synchronized (lock) {
+            // spilled messages are delivered through the latest stream, e.g. after a reconnect
+            this.stream = stream;
+            this.listeners = listeners;
+            this.rawStreamListeners = rawStreamListeners;
+            if (!closed && (spilling || pending.get() >= threshold)) {
+                if (!overflow.isEmpty()) {
+                    // behind the messages which failed to be spilled
+                    overflow.add(line);
+                    return;
+                }
+                try {
+                    monitor.onSpill(file.append(line));
+                    if (!spilling) {
+                        spilling = true;
+                        logger.info("Dispatcher is falling behind. Spilling messages to ", directory.getAbsolutePath());
+                        startDrainer();
+                    }
+                    return;
+                } catch (IOException ioe) {
+                    // nothing is lost, the message is kept in memory
+                    logger.warn("Failed to spill a message: ", ioe.getMessage());
+                    if (spilling) {
+                        // must not overtake the messages on disk
+                        overflow.add(line);
+                        return;
+                    }
+                }
+            }
+            pending.incrementAndGet();
+        }
+        // outside the lock, as the dispatcher may block
+        stream.enqueue(line, listeners, rawStreamListeners);
+    }
+
+    /**
+     * Called when a message handed over to the dispatcher has been picked up.
+     */
+    void onDequeue() {
+        if (pending.decrementAndGet() <= lowWatermark && spilling) {
+            Thread drainer = this.drainer;
+            if (drainer != null) {
+                LockSupport.unpark(drainer);
+            }
+        }
+    }
+
+    private void startDrainer() {
+        drainer = VirtualThreads.newThread(conf, "Twitter4J Stream Spill Drainer", new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        });
+        drainer.start();
+    }
+
+    private void drain() {
+        while (true) {
+            if (pending.get() > lowWatermark && !closed) {
+                LockSupport.parkNanos(this, DRAIN_CHECK_INTERVAL);
+                continue;
+            }
+            while (pending.get() < threshold) {
+                String line;
+                StatusStreamBase target;
+                StreamListener[] targetListeners;
+                RawStreamListener[] targetRawStreamListeners;
+                synchronized (lock) {
+                    long bytes = file.getBytes();
+                    try {
+                        line = closed ? null : file.poll();
+                    } catch (IOException ioe) {
+                        logger.warn("Failed to read the spill file. Spilled messages are lost: ", String.valueOf(file.size()));
+                        file.clear();
+                        line = null;
+                    }
+                    if (line != null) {
+                        monitor.onDrain((int) (bytes - file.getBytes()));
+                    } else if (!closed) {
+                        line = overflow.poll();
+                    }
+                    if (line == null) {
+                        spilling = false;
+                        drainer = null;
+                        logger.info("Spilled messages have been drained.");
+                        return;
+                    }
+                    pending.incrementAndGet();
+                    target = stream;
+                    targetListeners = listeners;
+                    targetRawStreamListeners = rawStreamListeners;
+                }
+                // outside the lock, the dispatcher may block. new messages keep being spilled until this thread is done, so the order is kept
+                target.enqueue(line, targetListeners, targetRawStreamListeners);
+            }
+        }
+    }
+
+    /**
+     * @return number of messages on disk, or held in memory behind them
+     */
+    long getSpilledCount() {
+        synchronized (lock) {
+            return file.size() + overflow.size();
+        }
+    }
+
+    /**
+     * Stops spilling and deletes the spill file. Messages still on disk are discarded.
+     */
+    void close() {
+        synchronized (lock) {
+            if (file.size() + overflow.size() > 0) {
+                logger.warn("Spilled messages discarded: ", String.valueOf(file.size() + overflow.size()));
+            }
+            closed = true;
+            file.clear();
+            overflow.clear();
+        }
+        Thread drainer = this.drainer;
+        if (drainer != null) {
+            LockSupport.unpark(drainer);
+        }
+    }
+}
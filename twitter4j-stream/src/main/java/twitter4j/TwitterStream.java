@@ -16,6 +16,8 @@
 package twitter4j;
 
 import twitter4j.auth.OAuthSupport;
+import twitter4j.management.StreamStatisticsListener;
+import twitter4j.management.StreamStatisticsMBean;
 import twitter4j.util.function.Consumer;
 
 /**
@@ -31,6 +33,30 @@ public interface TwitterStream extends OAuthSupport, TwitterBase {
      */
     void addConnectionLifeCycleListener(ConnectionLifeCycleListener listener);
 
+    /**
+     * Adds a StreamStatisticsListener which receives throughput, parse time, queue and lag observations of this stream.<br>
+     * Streams without any StreamStatisticsListener, and with MBean support disabled, skip all measurements.
+     *
+     * @param listener listener to be added
+     * @since Twitter4J 4.0.7
+     */
+    void addStreamStatisticsListener(StreamStatisticsListener listener);
+
+    /**
+     * @param listener listener to be removed
+     * @since Twitter4J 4.0.7
+     */
+    void removeStreamStatisticsListener(StreamStatisticsListener listener);
+
+    /**
+     * Returns the statistics of this stream, which is also registered to the platform MBean server as <code>twitter4j.mbean:type=StreamStatistics</code>.
+     *
+     * @return statistics of this stream, or null when MBean support is disabled
+     * @see twitter4j.conf.Configuration#isMBeanEnabled()
+     * @since Twitter4J 4.0.7
+     */
+    StreamStatisticsMBean getStreamStatistics();
+
     /**
      * @param listener listener to add
      * @since Twitter4J 2.1.8
@@ -184,7 +210,8 @@ public interface TwitterStream extends OAuthSupport, TwitterBase {
     void cleanUp();
 
     /**
-     * Shuts down internal dispatcher thread shared by all TwitterStream instances.<br>
+     * Shuts down this stream and releases its dispatcher.<br>
+     * A dispatcher is shared by all TwitterStream instances in the same dispatcher group (see <code>stream.dispatcherGroup</code>) and its threads are shut down when the last stream of the group has been shut down.
      *
      * @since Twitter4J 2.1.9
      */
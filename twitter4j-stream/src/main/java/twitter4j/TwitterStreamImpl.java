@@ -17,12 +17,25 @@ package twitter4j;
 
 import twitter4j.auth.Authorization;
 import twitter4j.conf.Configuration;
+import twitter4j.management.StreamStatistics;
+import twitter4j.management.StreamStatisticsListener;
+import twitter4j.management.StreamStatisticsMBean;
 import twitter4j.util.function.Consumer;
 
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import static java.lang.String.format;
 import static twitter4j.HttpResponseCode.FORBIDDEN;
@@ -41,11 +54,20 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
     private static final Logger logger = Logger.getLogger(TwitterStreamImpl.class);
 
     private final List<ConnectionLifeCycleListener> lifeCycleListeners = new ArrayList<ConnectionLifeCycleListener>(0);
-    private TwitterStreamConsumer handler = null;
+    private StreamConsumer handler = null;
 
     private final String stallWarningsGetParam;
     private final HttpParameter stallWarningsParam;
 
+    private final StreamMonitor monitor = new StreamMonitor();
+    private final transient StatusDeduplicator deduplicator;
+    private final transient StreamBackfill backfill;
+    // makes the REST calls of backfill, created on the first reconnect
+    private transient Twitter backfillTwitter;
+    private final StreamStatistics statistics;
+    private ObjectName statisticsName;
+    private static int numberOfInstances = 0;
+
     /*package*/
     TwitterStreamImpl(Configuration conf, Authorization auth) {
         super(conf, auth);
@@ -57,6 +79,55 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
 
         stallWarningsGetParam = "stall_warnings=" + (conf.isStallWarningsEnabled() ? "true" : "false");
         stallWarningsParam = new HttpParameter("stall_warnings", conf.isStallWarningsEnabled());
+        // shared by all connections of the instance, so that statuses received again after a reconnect are dropped,
+        // and by the other instances of the stream.dedupGroup if any.
+        // backfilled statuses overlap with the stream, so backfill implies deduplication
+        deduplicator = conf.isStreamDedupEnabled() || conf.isStreamBackfillEnabled()
+                ? StatusDeduplicator.getInstance(conf) : null;
+        backfill = conf.isStreamBackfillEnabled() ? new StreamBackfill(conf, deduplicator) : null;
+
+        if (conf.isMBeanEnabled()) {
+            statistics = new StreamStatistics(nextInstanceName(conf));
+            monitor.addListener(statistics);
+            registerStatistics();
+        } else {
+            statistics = null;
+        }
+    }
+
+    private static synchronized String nextInstanceName(Configuration conf) {
+        String name = "TwitterStream[" + (++numberOfInstances) + "]";
+        return "".equals(conf.getStreamThreadName()) ? name : name + " " + conf.getStreamThreadName();
+    }
+
+    private void registerStatistics() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName oName = new ObjectName("twitter4j.mbean:type=StreamStatistics,name="
+                    + ObjectName.quote(statistics.getName()));
+            mbs.registerMBean(statistics, oName);
+            statisticsName = oName;
+        } catch (InstanceAlreadyExistsException e) {
+            logger.error(e.getMessage());
+        } catch (MBeanRegistrationException e) {
+            logger.error(e.getMessage());
+        } catch (NotCompliantMBeanException e) {
+            logger.error(e.getMessage());
+        } catch (MalformedObjectNameException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    private void unregisterStatistics() {
+        if (statisticsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(statisticsName);
+            } catch (InstanceNotFoundException ignore) {
+            } catch (MBeanRegistrationException e) {
+                logger.warn(e.getMessage());
+            }
+            statisticsName = null;
+        }
     }
     
     /* Streaming API */
@@ -65,10 +136,10 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
     public void firehose(final int count) {
         ensureAuthorizationEnabled();
         ensureStatusStreamListenerIsSet();
-        startHandler(new TwitterStreamConsumer(Mode.status) {
+        startHandler(new StreamEndpoint(Mode.status) {
             @Override
-            public StatusStream getStream() throws TwitterException {
-                return getFirehoseStream(count);
+            HttpRequest request() {
+                return countStreamRequest("statuses/firehose.json", backfillCount(count));
             }
         });
     }
@@ -92,10 +163,10 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
     public void links(final int count) {
         ensureAuthorizationEnabled();
         ensureStatusStreamListenerIsSet();
-        startHandler(new TwitterStreamConsumer(Mode.status) {
+        startHandler(new StreamEndpoint(Mode.status) {
             @Override
-            public StatusStream getStream() throws TwitterException {
-                return getLinksStream(count);
+            HttpRequest request() {
+                return countStreamRequest("statuses/links.json", backfillCount(count));
             }
         });
     }
@@ -117,10 +188,22 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
 
     private StatusStream getCountStream(String relativeUrl, int count) throws TwitterException {
         ensureAuthorizationEnabled();
+        return openStatusStream(countStreamRequest(relativeUrl, count));
+    }
+
+    private HttpRequest countStreamRequest(String relativeUrl, int count) {
+        return streamRequest(RequestMethod.POST, conf.getStreamBaseURL() + relativeUrl
+                , new HttpParameter[]{new HttpParameter("count", String.valueOf(count))
+                , stallWarningsParam});
+    }
+
+    private HttpRequest streamRequest(RequestMethod method, String url, HttpParameter[] params) {
+        return new HttpRequest(method, url, params, auth, http.getRequestHeaders());
+    }
+
+    private StatusStream openStatusStream(HttpRequest req) throws TwitterException {
         try {
-            return new StatusStreamImpl(getDispatcher(), http.post(conf.getStreamBaseURL() + relativeUrl
-                    , new HttpParameter[]{new HttpParameter("count", String.valueOf(count))
-                    , stallWarningsParam}, auth, null), conf);
+            return new StatusStreamImpl(getDispatcher(), http.request(req), conf);
         } catch (IOException e) {
             throw new TwitterException(e);
         }
@@ -130,10 +213,10 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
     public void retweet() {
         ensureAuthorizationEnabled();
         ensureStatusStreamListenerIsSet();
-        startHandler(new TwitterStreamConsumer(Mode.status) {
+        startHandler(new StreamEndpoint(Mode.status) {
             @Override
-            public StatusStream getStream() throws TwitterException {
-                return getRetweetStream();
+            HttpRequest request() {
+                return retweetStreamRequest();
             }
         });
     }
@@ -149,22 +232,22 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
      */
     StatusStream getRetweetStream() throws TwitterException {
         ensureAuthorizationEnabled();
-        try {
-            return new StatusStreamImpl(getDispatcher(), http.post(conf.getStreamBaseURL() + "statuses/retweet.json"
-                    , new HttpParameter[]{stallWarningsParam}, auth, null), conf);
-        } catch (IOException e) {
-            throw new TwitterException(e);
-        }
+        return openStatusStream(retweetStreamRequest());
+    }
+
+    private HttpRequest retweetStreamRequest() {
+        return streamRequest(RequestMethod.POST, conf.getStreamBaseURL() + "statuses/retweet.json"
+                , new HttpParameter[]{stallWarningsParam});
     }
 
     @Override
     public void sample() {
         ensureAuthorizationEnabled();
         ensureStatusStreamListenerIsSet();
-        startHandler(new TwitterStreamConsumer(Mode.status) {
+        startHandler(new StreamEndpoint(Mode.status) {
             @Override
-            public StatusStream getStream() throws TwitterException {
-                return getSampleStream();
+            HttpRequest request() {
+                return sampleStreamRequest(null);
             }
         });
     }
@@ -173,10 +256,10 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
     public void sample(final String language) {
         ensureAuthorizationEnabled();
         ensureStatusStreamListenerIsSet();
-        startHandler(new TwitterStreamConsumer(Mode.status) {
+        startHandler(new StreamEndpoint(Mode.status) {
             @Override
-            public StatusStream getStream() throws TwitterException {
-                return getSampleStream(language);
+            HttpRequest request() {
+                return sampleStreamRequest(language);
             }
         });
     }
@@ -192,12 +275,7 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
      */
     StatusStream getSampleStream() throws TwitterException {
         ensureAuthorizationEnabled();
-        try {
-            return new StatusStreamImpl(getDispatcher(), http.get(conf.getStreamBaseURL() + "statuses/sample.json?"
-                    + stallWarningsGetParam, null, auth, null), conf);
-        } catch (IOException e) {
-            throw new TwitterException(e);
-        }
+        return openStatusStream(sampleStreamRequest(null));
     }
 
     /**
@@ -213,12 +291,12 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
      */
     StatusStream getSampleStream(String language) throws TwitterException {
         ensureAuthorizationEnabled();
-        try {
-            return new StatusStreamImpl(getDispatcher(), http.get(conf.getStreamBaseURL() + "statuses/sample.json?"
-                    + stallWarningsGetParam + "&language=" + language, null, auth, null), conf);
-        } catch (IOException e) {
-            throw new TwitterException(e);
-        }
+        return openStatusStream(sampleStreamRequest(language));
+    }
+
+    private HttpRequest sampleStreamRequest(String language) {
+        return streamRequest(RequestMethod.GET, conf.getStreamBaseURL() + "statuses/sample.json?"
+                + stallWarningsGetParam + (language != null ? "&language=" + language : ""), null);
     }
 
     @Override
@@ -230,10 +308,10 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
     public void user(final String[] track) {
         ensureAuthorizationEnabled();
         ensureStatusStreamListenerIsSet();
-        startHandler(new TwitterStreamConsumer(Mode.user) {
+        startHandler(new StreamEndpoint(Mode.user) {
             @Override
-            public StatusStream getStream() throws TwitterException {
-                return getUserStream(track);
+            HttpRequest request() {
+                return userStreamRequest(track);
             }
         });
     }
@@ -250,77 +328,155 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
     UserStream getUserStream(String[] track) throws TwitterException {
         ensureAuthorizationEnabled();
         try {
-            List<HttpParameter> params = new ArrayList<HttpParameter>();
-            params.add(stallWarningsParam);
-            if (conf.isUserStreamRepliesAllEnabled()) {
-                params.add(new HttpParameter("replies", "all"));
-            }
-            if (!conf.isUserStreamWithFollowingsEnabled()) {
-                params.add(new HttpParameter("with", "user"));
-            }
-            if (track != null) {
-                params.add(new HttpParameter("track", StringUtil.join(track)));
-            }
-            return new UserStreamImpl(getDispatcher(), http.post(conf.getUserStreamBaseURL() + "user.json"
-                    , params.toArray(new HttpParameter[params.size()])
-                    , auth, null), conf);
+            return new UserStreamImpl(getDispatcher(), http.request(userStreamRequest(track)), conf);
         } catch (IOException e) {
             throw new TwitterException(e);
         }
     }
 
+    private HttpRequest userStreamRequest(String[] track) {
+        List<HttpParameter> params = new ArrayList<HttpParameter>();
+        params.add(stallWarningsParam);
+        if (conf.isUserStreamRepliesAllEnabled()) {
+            params.add(new HttpParameter("replies", "all"));
+        }
+        if (!conf.isUserStreamWithFollowingsEnabled()) {
+            params.add(new HttpParameter("with", "user"));
+        }
+        if (track != null) {
+            params.add(new HttpParameter("track", StringUtil.join(track)));
+        }
+        return streamRequest(RequestMethod.POST, conf.getUserStreamBaseURL() + "user.json"
+                , params.toArray(new HttpParameter[params.size()]));
+    }
+
     @Override
     public StreamController site(final boolean withFollowings, final long[] follow) {
+        return site(withFollowings, follow, null);
+    }
+
+    /**
+     * @param statusCache cache shared with other site streams, or null to use the cache of each connection
+     */
+    StreamController site(final boolean withFollowings, final long[] follow, final StatusCache statusCache) {
         ensureOAuthEnabled();
         ensureSiteStreamsListenerIsSet();
-        final StreamController cs = new StreamController(http, auth);
-        startHandler(new TwitterStreamConsumer(Mode.site) {
+        final StreamController cs = new StreamController(http, auth, conf);
+        startHandler(new StreamEndpoint(Mode.site) {
             @Override
-            public StatusStream getStream() throws TwitterException {
-                try {
-                    return new SiteStreamsImpl(getDispatcher(), getSiteStream(withFollowings, follow), conf, cs);
-                } catch (IOException e) {
-                    throw new TwitterException(e);
+            HttpRequest request() {
+                return siteStreamRequest(withFollowings, follow);
+            }
+
+            @Override
+            StatusStreamBase newStream(HttpResponse res) throws IOException {
+                return withCache(new SiteStreamsImpl(getDispatcher(), res, conf, cs));
+            }
+
+            @Override
+            StatusStreamBase newStream() {
+                return withCache(new SiteStreamsImpl(getDispatcher(), conf, cs));
+            }
+
+            private SiteStreamsImpl withCache(SiteStreamsImpl stream) {
+                if (statusCache != null) {
+                    stream.setStatusCache(statusCache);
                 }
+                return stream;
             }
         });
         return cs;
     }
 
-    private Dispatcher getDispatcher() {
-        if (null == TwitterStreamImpl.dispatcher) {
-            synchronized (TwitterStreamImpl.class) {
-                if (null == TwitterStreamImpl.dispatcher) {
-                    // dispatcher is held statically, but it'll be instantiated with
-                    // the configuration instance associated with this TwitterStream
-                    // instance which invokes getDispatcher() on the first time.
-                    TwitterStreamImpl.dispatcher = new DispatcherFactory(conf).getInstance();
-                }
+    // site streams deliver the same status to each user, so they are not deduplicated
+    private StatusDeduplicator deduplicatorFor(StreamEndpoint endpoint) {
+        return endpoint.mode == Mode.site ? null : deduplicator;
+    }
+
+    private StreamBackfill backfillFor(StreamEndpoint endpoint) {
+        return endpoint.mode == Mode.site ? null : backfill;
+    }
+
+    private synchronized Twitter getBackfillTwitter() {
+        if (backfillTwitter == null) {
+            backfillTwitter = new TwitterFactory(conf).getInstance(auth);
+        }
+        return backfillTwitter;
+    }
+
+    // site streams keep the user a message is for in a thread local while parsing, so they are parsed and delivered on the same thread
+    private StreamSequencer sequencerFor(StreamEndpoint endpoint) {
+        return conf.isStreamParallelParsingEnabled() && endpoint.mode != Mode.site ? new StreamSequencer() : null;
+    }
+
+    private synchronized Dispatcher getDispatcher() {
+        if (null == dispatcher) {
+            // streams configured with the same dispatcher group share the dispatcher.
+            // streams without a group share the default dispatcher, which is instantiated with
+            // the configuration of the stream which invokes getDispatcher() on the first time.
+            dispatcher = StreamDispatchers.acquire(conf);
+            if (conf.isStreamAdaptiveDispatchEnabled()) {
+                // shared by the streams of the group
+                loadController = StreamDispatchers.getLoadController(dispatcher);
+            }
+            if (conf.isStreamSheddingEnabled()) {
+                shedder = new StreamLoadShedder(conf, loadController);
+            }
+            if (conf.isStreamSpillEnabled()) {
+                spill = new StreamSpill(conf, monitor);
             }
         }
-        return TwitterStreamImpl.dispatcher;
+        return dispatcher;
+    }
+
+    private synchronized StreamLoadController getLoadController() {
+        return loadController;
+    }
+
+    private synchronized StreamLoadShedder getShedder() {
+        return shedder;
     }
 
-    private static transient volatile Dispatcher dispatcher;
+    private synchronized StreamSpill getSpill() {
+        return spill;
+    }
+
+    private transient Dispatcher dispatcher;
+    private transient StreamLoadController loadController;
+    private transient StreamLoadShedder shedder;
+    private transient StreamSpill spill;
+    private transient ListenerFanOut fanOut;
+    private transient StreamSelector selector;
 
     InputStream getSiteStream(boolean withFollowings, long[] follow) throws TwitterException {
         ensureOAuthEnabled();
-        return http.post(conf.getSiteStreamBaseURL() + "site.json",
+        return http.request(siteStreamRequest(withFollowings, follow)).asStream();
+    }
+
+    private HttpRequest siteStreamRequest(boolean withFollowings, long[] follow) {
+        return streamRequest(RequestMethod.POST, conf.getSiteStreamBaseURL() + "site.json",
                 new HttpParameter[]{
                         new HttpParameter("with", withFollowings ? "followings" : "user")
                         , new HttpParameter("follow", StringUtil.join(follow))
-                        , stallWarningsParam}, auth, null
-        ).asStream();
+                        , stallWarningsParam});
     }
 
     @Override
     public void filter(final FilterQuery query) {
         ensureAuthorizationEnabled();
         ensureStatusStreamListenerIsSet();
-        startHandler(new TwitterStreamConsumer(Mode.status) {
+        startHandler(new StreamEndpoint(Mode.status) {
             @Override
-            public StatusStream getStream() throws TwitterException {
-                return getFilterStream(query);
+            HttpRequest request() {
+                return filterStreamRequest(query);
+            }
+
+            @Override
+            void backfill(StreamListener[] listeners) {
+                // the count parameter makes the stream itself deliver the missed statuses
+                if (backfill != null && query.getCount() == 0) {
+                    backfill.start(query.getFollow(), getBackfillTwitter(), getDispatcher(), listeners);
+                }
             }
         });
     }
@@ -343,13 +499,12 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
      */
     StatusStream getFilterStream(FilterQuery query) throws TwitterException {
         ensureAuthorizationEnabled();
-        try {
-            return new StatusStreamImpl(getDispatcher(), http.post(conf.getStreamBaseURL()
-                    + "statuses/filter.json"
-                    , query.asHttpParameterArray(stallWarningsParam), auth, null), conf);
-        } catch (IOException e) {
-            throw new TwitterException(e);
-        }
+        return openStatusStream(filterStreamRequest(query));
+    }
+
+    private HttpRequest filterStreamRequest(FilterQuery query) {
+        return streamRequest(RequestMethod.POST, conf.getStreamBaseURL() + "statuses/filter.json"
+                , query.asHttpParameterArray(stallWarningsParam));
     }
 
 
@@ -371,33 +526,61 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
         }
     }
 
-    private static int numberOfHandlers = 0;
-
-    private synchronized void startHandler(TwitterStreamConsumer handler) {
+    private synchronized void startHandler(StreamEndpoint endpoint) {
         cleanUp();
-        this.handler = handler;
+        this.handler = newConsumer(endpoint);
         this.handler.start();
-        numberOfHandlers++;
+    }
+
+    private StreamConsumer newConsumer(StreamEndpoint endpoint) {
+        if (conf.isStreamNioEnabled()) {
+            String proxyHost = conf.getHttpClientConfiguration().getHttpProxyHost();
+            if (proxyHost != null && !proxyHost.equals("")) {
+                logger.info("NIO stream engine doesn't support proxies. Falling back to a consumer thread.");
+            } else {
+                try {
+                    if (selector == null) {
+                        selector = StreamSelectors.acquire(conf);
+                    }
+                    return new NioStreamConsumer(endpoint, selector);
+                } catch (IOException e) {
+                    logger.warn("Failed to open a selector. Falling back to a consumer thread. ", e.getMessage());
+                }
+            }
+        }
+        return new TwitterStreamConsumer(endpoint);
     }
 
     @Override
     public synchronized void cleanUp() {
         if (handler != null) {
             handler.close();
-            numberOfHandlers--;
         }
     }
 
     @Override
     public synchronized void shutdown() {
         cleanUp();
-        synchronized (TwitterStreamImpl.class) {
-            if (0 == numberOfHandlers) {
-                if (dispatcher != null) {
-                    dispatcher.shutdown();
-                    dispatcher = null;
-                }
-            }
+        unregisterStatistics();
+        // the load controller is closed with the dispatcher group
+        loadController = null;
+        shedder = null;
+        if (spill != null) {
+            spill.close();
+            spill = null;
+        }
+        if (dispatcher != null) {
+            // the dispatcher is shut down only if no other stream is bound to it
+            StreamDispatchers.release(dispatcher);
+            dispatcher = null;
+        }
+        if (fanOut != null) {
+            fanOut.close();
+            fanOut = null;
+        }
+        if (selector != null) {
+            StreamSelectors.release(selector);
+            selector = null;
         }
     }
 
@@ -406,6 +589,23 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
         this.lifeCycleListeners.add(listener);
     }
 
+    @Override
+    public synchronized void addStreamStatisticsListener(StreamStatisticsListener listener) {
+        monitor.addListener(listener);
+        updateListeners();
+    }
+
+    @Override
+    public synchronized void removeStreamStatisticsListener(StreamStatisticsListener listener) {
+        monitor.removeListener(listener);
+        updateListeners();
+    }
+
+    @Override
+    public StreamStatisticsMBean getStreamStatistics() {
+        return statistics;
+    }
+
     private final ArrayList<StreamListener> streamListeners = new ArrayList<StreamListener>(0);
 
     @Override
@@ -461,6 +661,9 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
         if (handler != null) {
             handler.updateListeners();
         }
+        if (fanOut != null) {
+            fanOut.retain(streamListeners);
+        }
     }
 
     private RawStreamListener[] getRawStreamListeners() {
@@ -513,46 +716,150 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
         user, status, site
     }
 
-    abstract class TwitterStreamConsumer extends Thread {
+    interface StreamConsumer {
+        void start();
+
+        void close();
+
+        void updateListeners();
+    }
+
+    /**
+     * Describes a streaming endpoint: the request to connect with, and the StatusStream reading the response.
+     */
+    abstract class StreamEndpoint {
+        final Mode mode;
+        // true while connecting after the stream has been disconnected
+        boolean reconnecting = false;
+
+        StreamEndpoint(Mode mode) {
+            this.mode = mode;
+        }
+
+        abstract HttpRequest request();
+
+        /**
+         * @param count count requested
+         * @return count of statuses to be streamed before the live stream, <code>stream.backfillCount</code> on reconnect with backfill enabled
+         */
+        int backfillCount(int count) {
+            return reconnecting && backfill != null && count == 0 ? conf.getStreamBackfillCount() : count;
+        }
+
+        /**
+         * Recovers statuses missed while the stream was disconnected. Invoked on reconnect with backfill enabled.
+         *
+         * @param listeners listeners
+         */
+        void backfill(StreamListener[] listeners) {
+        }
+
+        StatusStreamBase newStream(HttpResponse res) throws IOException {
+            return mode == Mode.user ? new UserStreamImpl(getDispatcher(), res, conf)
+                    : new StatusStreamImpl(getDispatcher(), res, conf);
+        }
+
+        /**
+         * @return a stream fed by the NIO stream engine
+         */
+        StatusStreamBase newStream() {
+            return mode == Mode.user ? new UserStreamImpl(getDispatcher(), conf)
+                    : new StatusStreamImpl(getDispatcher(), conf);
+        }
+    }
+
+    private ListenerTable listenerTable(Mode mode) {
+        StreamListener[] listeners;
+        switch (mode) {
+            case site:
+                listeners = getSiteStreamsListeners();
+                break;
+            default:
+                listeners = getStatusListeners();
+        }
+        return new ListenerTable(listeners, fanOut(listeners, monitor.instrument(listeners, StreamListener.class), StreamListener.class));
+    }
+
+    private RawStreamListener[] instrumentedRawStreamListeners() {
+        RawStreamListener[] listeners = getRawStreamListeners();
+        return fanOut(listeners, monitor.instrument(listeners, RawStreamListener.class), RawStreamListener.class);
+    }
+
+    /**
+     * @return listeners running on their own workers if <code>stream.fanOutEnabled</code>, otherwise the targets as is
+     */
+    private synchronized <T extends StreamListener> T[] fanOut(T[] listeners, T[] targets, Class<T> type) {
+        if (!conf.isStreamFanOutEnabled()) {
+            return targets;
+        }
+        if (fanOut == null) {
+            fanOut = new ListenerFanOut(conf, monitor);
+        }
+        return fanOut.wrap(listeners, targets, type);
+    }
+
+    class TwitterStreamConsumer implements Runnable, StreamConsumer {
+        private final Thread thread;
         private StatusStreamBase stream = null;
         private final String NAME;
         private volatile boolean closed = false;
         private StreamListener[] streamListeners;
         private RawStreamListener[] rawStreamListeners;
-        private final Mode mode;
+        private volatile ListenerTable listenerTable;
+        private final StreamEndpoint endpoint;
 
-        TwitterStreamConsumer(Mode mode) {
-            super();
-            this.mode = mode;
+        TwitterStreamConsumer(StreamEndpoint endpoint) {
+            this.endpoint = endpoint;
             NAME = format("Twitter Stream consumer / %s [%s]", conf.getStreamThreadName(), ++count);
             updateListeners();
-            setName(NAME + "[initializing]");
+            // the consumer spends most of its time blocked in reading the stream, which doesn't pin a carrier thread
+            thread = VirtualThreads.isEnabled(conf) ? VirtualThreads.newThread(conf, NAME + "[initializing]", this)
+                    : new Thread(this, NAME + "[initializing]");
+        }
+
+        @Override
+        public void start() {
+            thread.start();
         }
 
-        void updateListeners() {
-            switch (mode) {
-                case site:
-                    this.streamListeners = getSiteStreamsListeners();
-                    break;
-                default:
-                    this.streamListeners = getStatusListeners();
-                    break;
+        @Override
+        public void updateListeners() {
+            ListenerTable listenerTable = listenerTable(endpoint.mode);
+            this.listenerTable = listenerTable;
+            this.streamListeners = listenerTable.getAll();
+            this.rawStreamListeners = instrumentedRawStreamListeners();
+            StatusStreamBase stream = this.stream;
+            if (stream != null) {
+                stream.setListenerTable(listenerTable);
             }
-            this.rawStreamListeners = getRawStreamListeners();
         }
 
         @Override
         public void run() {
             int timeToSleep = NO_WAIT;
             boolean connected = false;
+            boolean connectedBefore = false;
             while (!closed) {
                 try {
                     if (!closed && null == stream) {
                         // try establishing connection
                         logger.info("Establishing connection.");
                         setStatus("[Establishing connection]");
-                        stream = (StatusStreamBase) getStream();
+                        endpoint.reconnecting = connectedBefore;
+                        stream = getStream();
+                        stream.setMonitor(monitor);
+                        stream.setDeduplicator(deduplicatorFor(endpoint));
+                        stream.setBackfill(backfillFor(endpoint));
+                        stream.setLoadController(getLoadController());
+                        stream.setShedder(getShedder());
+                        stream.setListenerTable(listenerTable);
+                        stream.setSequencer(sequencerFor(endpoint));
+                        stream.setSpill(getSpill());
                         connected = true;
+                        if (connectedBefore) {
+                            monitor.onReconnect();
+                        }
+                        connectedBefore = true;
                         logger.info("Connection established.");
                         for (ConnectionLifeCycleListener listener : lifeCycleListeners) {
                             try {
@@ -563,6 +870,9 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
                         }
                         // connection established successfully
                         timeToSleep = NO_WAIT;
+                        if (endpoint.reconnecting && backfill != null) {
+                            endpoint.backfill(this.streamListeners);
+                        }
                         logger.info("Receiving status stream.");
                         setStatus("[Receiving stream]");
                         while (!closed) {
@@ -677,6 +987,7 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
             }
         }
 
+        @Override
         public synchronized void close() {
             setStatus("[Disposing thread]");
             closed = true;
@@ -693,12 +1004,311 @@ class TwitterStreamImpl extends TwitterBaseImpl implements TwitterStream {
 
         private void setStatus(String message) {
             String actualMessage = NAME + message;
-            setName(actualMessage);
+            thread.setName(actualMessage);
             logger.debug(actualMessage);
         }
 
-        abstract StatusStream getStream() throws TwitterException;
+        StatusStreamBase getStream() throws TwitterException {
+            try {
+                return endpoint.newStream(http.request(endpoint.request()));
+            } catch (IOException e) {
+                throw new TwitterException(e);
+            }
+        }
+
+    }
+
+    /**
+     * Consumes a stream through the NIO stream engine.<br>
+     * No thread is dedicated to the consumer; connecting, reading and reconnecting take place on a StreamSelector thread shared with other streams.
+     * Lines, listener callbacks and host name resolution are handed off to a {@link StreamHandoff}, so that this stream never blocks the selector.
+     * Reconnection follows the same back off rules as TwitterStreamConsumer.
+     */
+    final class NioStreamConsumer implements StreamConsumer, NioStreamConnection.Handler {
+        private final StreamEndpoint endpoint;
+        private final StreamSelector selector;
+        private final StreamHandoff handoff;
+        private final Executor handoffPool;
+        private volatile boolean closed = false;
+        private volatile StreamListener[] streamListeners;
+        private volatile RawStreamListener[] rawStreamListeners;
+        private volatile ListenerTable listenerTable;
+        // fields below are accessed only by the selector thread
+        private NioStreamConnection connection = null;
+        private boolean connectedBefore = false;
+        private boolean paused = false;
+        private int timeToSleep = NO_WAIT;
+        // fields below are accessed only by the handoff
+        private StatusStreamBase stream = null;
+        private boolean connected = false;
+
+        private final Runnable connect = new Runnable() {
+            @Override
+            public void run() {
+                connect();
+            }
+        };
+
+        NioStreamConsumer(StreamEndpoint endpoint, StreamSelector selector) {
+            this.endpoint = endpoint;
+            this.selector = selector;
+            this.handoffPool = StreamSelectors.getHandoffPool();
+            this.handoff = new StreamHandoff(handoffPool, new Runnable() {
+                @Override
+                public void run() {
+                    NioStreamConsumer.this.selector.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            resume();
+                        }
+                    });
+                }
+            });
+            updateListeners();
+        }
+
+        @Override
+        public void updateListeners() {
+            final ListenerTable listenerTable = listenerTable(endpoint.mode);
+            this.listenerTable = listenerTable;
+            this.streamListeners = listenerTable.getAll();
+            this.rawStreamListeners = instrumentedRawStreamListeners();
+            handoff.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (stream != null) {
+                        stream.setListenerTable(listenerTable);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void start() {
+            selector.execute(connect);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            selector.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (connection != null && connection.isOpen()) {
+                        connection.abort();
+                    } else {
+                        // waiting for reconnection, or resolving the host
+                        onCleanUp();
+                    }
+                }
+            });
+        }
+
+        private void connect() {
+            if (closed) {
+                return;
+            }
+            logger.info("Establishing connection.");
+            endpoint.reconnecting = connectedBefore;
+            connection = null;
+            // the host name is resolved off the selector thread
+            handoff.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final NioStreamConnection newConnection;
+                    try {
+                        newConnection = new NioStreamConnection(endpoint.request(), conf, NioStreamConsumer.this);
+                    } catch (final IOException e) {
+                        selector.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (!closed) {
+                                    onClosed(new TwitterException(e));
+                                }
+                            }
+                        });
+                        return;
+                    }
+                    selector.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            // close() has cleaned up already otherwise
+                            if (!closed) {
+                                connection = newConnection;
+                                paused = false;
+                                selector.open(newConnection);
+                            }
+                        }
+                    });
+                }
+            });
+        }
+
+        private void resume() {
+            if (paused && handoff.getPending() <= StreamHandoff.LOW_WATER) {
+                paused = false;
+                if (connection != null) {
+                    connection.setReadPaused(false);
+                }
+            }
+        }
+
+        private void handOff(Runnable task) {
+            if (handoff.execute(task) && !paused && connection != null) {
+                paused = true;
+                connection.setReadPaused(true);
+            }
+        }
+
+        @Override
+        public void onConnected() {
+            final boolean reconnected = connectedBefore;
+            connectedBefore = true;
+            // connection established successfully
+            timeToSleep = NO_WAIT;
+            handOff(new Runnable() {
+                @Override
+                public void run() {
+                    stream = endpoint.newStream();
+                    stream.setMonitor(monitor);
+                    stream.setDeduplicator(deduplicatorFor(endpoint));
+                    stream.setBackfill(backfillFor(endpoint));
+                    stream.setLoadController(getLoadController());
+                    stream.setShedder(getShedder());
+                    stream.setListenerTable(listenerTable);
+                    stream.setSequencer(sequencerFor(endpoint));
+                    stream.setSpill(getSpill());
+                    connected = true;
+                    if (reconnected) {
+                        monitor.onReconnect();
+                    }
+                    logger.info("Connection established.");
+                    for (ConnectionLifeCycleListener listener : lifeCycleListeners) {
+                        try {
+                            listener.onConnect();
+                        } catch (Exception e) {
+                            logger.warn(e.getMessage());
+                        }
+                    }
+                    if (endpoint.reconnecting && backfill != null) {
+                        endpoint.backfill(streamListeners);
+                    }
+                    logger.info("Receiving status stream.");
+                }
+            });
+        }
+
+        @Override
+        public void onDelegatedTasks(final Runnable tasks, final Runnable resume) {
+            // not serialized with the listeners of the stream, so that the handshake doesn't wait for them
+            try {
+                handoffPool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            tasks.run();
+                        } finally {
+                            selector.execute(resume);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // shutting down
+                connection.abort();
+            }
+        }
+
+        @Override
+        public void onLine(final String line) {
+            handOff(new Runnable() {
+                @Override
+                public void run() {
+                    stream.dispatch(line, streamListeners, rawStreamListeners);
+                }
+            });
+        }
 
+        @Override
+        public void onClosed(final TwitterException te) {
+            connection = null;
+            paused = false;
+            final boolean cleanUp = closed || te == null;
+            boolean notify = !cleanUp;
+            if (!cleanUp) {
+                logger.info(te.getMessage());
+                if (NO_WAIT == timeToSleep) {
+                    if (te.getStatusCode() == FORBIDDEN || te.getStatusCode() == NOT_ACCEPTABLE) {
+                        logger.warn(te.getStatusCode() == FORBIDDEN ? "This account is not in required role. "
+                                : "Parameter not accepted with the role. ", te.getMessage());
+                        closed = true;
+                        notify = false;
+                    } else {
+                        timeToSleep = te.getStatusCode() > 200 ? HTTP_ERROR_INITIAL_WAIT : TCP_ERROR_INITIAL_WAIT;
+                    }
+                } else if (te.getStatusCode() > 200 && timeToSleep < HTTP_ERROR_INITIAL_WAIT) {
+                    timeToSleep = HTTP_ERROR_INITIAL_WAIT;
+                }
+            }
+            final boolean forbidden = !cleanUp && !notify;
+            final boolean reconnect = notify;
+            handoff.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (stream != null) {
+                        try {
+                            stream.close();
+                        } catch (IOException ignore) {
+                        }
+                        stream = null;
+                    }
+                    if (connected) {
+                        connected = false;
+                        for (ConnectionLifeCycleListener listener : lifeCycleListeners) {
+                            try {
+                                listener.onDisconnect();
+                            } catch (Exception e) {
+                                logger.warn(e.getMessage());
+                            }
+                        }
+                    }
+                    if (cleanUp) {
+                        onCleanUp();
+                        return;
+                    }
+                    for (StreamListener statusListener : streamListeners) {
+                        statusListener.onException(te);
+                    }
+                    if (forbidden) {
+                        onCleanUp();
+                        return;
+                    }
+                    for (RawStreamListener rawStreamListener : rawStreamListeners) {
+                        rawStreamListener.onException(te);
+                    }
+                }
+            });
+            if (reconnect) {
+                // wait for a moment not to overload Twitter API
+                logger.info("Waiting for " + (timeToSleep) + " milliseconds");
+                selector.schedule(connect, timeToSleep);
+                timeToSleep = Math.min(timeToSleep * 2, (te.getStatusCode() > 200) ? HTTP_ERROR_WAIT_CAP : TCP_ERROR_WAIT_CAP);
+            }
+        }
+
+        private void onCleanUp() {
+            handoff.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (ConnectionLifeCycleListener listener : lifeCycleListeners) {
+                        try {
+                            listener.onCleanUp();
+                        } catch (Exception e) {
+                            logger.warn(e.getMessage());
+                        }
+                    }
+                }
+            });
+        }
     }
 
     @Override
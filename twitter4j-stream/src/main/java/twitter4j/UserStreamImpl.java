@@ -34,6 +34,10 @@ final class UserStreamImpl extends StatusStreamImpl implements UserStream {
         super(dispatcher, response, conf);
     }
 
+    /*package*/ UserStreamImpl(Dispatcher dispatcher, Configuration conf) {
+        super(dispatcher, conf);
+    }
+
     @Override
     public void next(UserStreamListener listener) throws TwitterException {
         handleNextElement(new StreamListener[]{listener}, EMPTY);
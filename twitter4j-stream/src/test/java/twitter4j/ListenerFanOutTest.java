@@ -0,0 +1,137 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.ConfigurationBuilder;
+import twitter4j.management.StreamStatistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ListenerFanOutTest extends TestCase {
+    public ListenerFanOutTest(String name) {
+        super(name);
+    }
+
+    private static class RecordingListener extends StatusAdapter {
+        final List<Long> notices = Collections.synchronizedList(new ArrayList<Long>());
+        final List<Exception> exceptions = Collections.synchronizedList(new ArrayList<Exception>());
+        final CountDownLatch received;
+
+        RecordingListener(int expected) {
+            received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onTrackLimitationNotice(int numberOfLimitedStatuses) {
+            notices.add((long) numberOfLimitedStatuses);
+            received.countDown();
+        }
+
+        @Override
+        public void onException(Exception ex) {
+            exceptions.add(ex);
+            received.countDown();
+        }
+    }
+
+    public void testSlowListenerDoesNotDelayOthers() throws Exception {
+        StreamMonitor monitor = new StreamMonitor();
+        StreamStatistics statistics = new StreamStatistics("test");
+        monitor.addListener(statistics);
+        ListenerFanOut fanOut = new ListenerFanOut(new ConfigurationBuilder().setStreamFanOutQueueSize(5).build(), monitor);
+        final CountDownLatch release = new CountDownLatch(1);
+        RecordingListener slow = new RecordingListener(0) {
+            @Override
+            public void onTrackLimitationNotice(int numberOfLimitedStatuses) {
+                try {
+                    release.await();
+                } catch (InterruptedException ignore) {
+                }
+                super.onTrackLimitationNotice(numberOfLimitedStatuses);
+            }
+        };
+        RecordingListener fast = new RecordingListener(20);
+        StatusListener[] listeners = new StatusListener[]{slow, fast};
+        StatusListener[] wrapped = fanOut.wrap(listeners, listeners, StatusListener.class);
+        try {
+            for (int i = 0; i < 20; i++) {
+                for (StatusListener listener : wrapped) {
+                    listener.onTrackLimitationNotice(i);
+                }
+                // let the fast listener keep up with its small queue
+                Thread.sleep(5);
+            }
+            assertTrue(fast.received.await(5, TimeUnit.SECONDS));
+            assertEquals(20, fast.notices.size());
+            for (int i = 0; i < 20; i++) {
+                assertEquals(i, fast.notices.get(i).intValue());
+            }
+            // 1 callback in progress, 5 queued
+            long dropped = fanOut.getDropCounts().get(slow);
+            assertEquals(14, dropped);
+            assertEquals(Long.valueOf(14), statistics.getListenerDropCounts().get(slow.getClass().getName()));
+            assertEquals(0L, fanOut.getDropCounts().get(fast).longValue());
+            assertTrue(statistics.getListenerLagSummaries().containsKey(fast.getClass().getName()));
+        } finally {
+            release.countDown();
+            fanOut.close();
+        }
+    }
+
+    public void testExceptionsAreReportedToTheFailingListener() throws Exception {
+        ListenerFanOut fanOut = new ListenerFanOut(new ConfigurationBuilder().build(), new StreamMonitor());
+        RecordingListener failing = new RecordingListener(1) {
+            @Override
+            public void onTrackLimitationNotice(int numberOfLimitedStatuses) {
+                throw new IllegalStateException("failed");
+            }
+        };
+        RecordingListener other = new RecordingListener(1);
+        StatusListener[] listeners = new StatusListener[]{failing, other};
+        StatusListener[] wrapped = fanOut.wrap(listeners, listeners, StatusListener.class);
+        try {
+            for (StatusListener listener : wrapped) {
+                listener.onTrackLimitationNotice(1);
+            }
+            assertTrue(failing.received.await(5, TimeUnit.SECONDS));
+            assertTrue(other.received.await(5, TimeUnit.SECONDS));
+            assertEquals("failed", failing.exceptions.get(0).getMessage());
+            assertTrue(other.exceptions.isEmpty());
+        } finally {
+            fanOut.close();
+        }
+    }
+
+    public void testRetain() throws Exception {
+        ListenerFanOut fanOut = new ListenerFanOut(new ConfigurationBuilder().build(), new StreamMonitor());
+        RecordingListener kept = new RecordingListener(0);
+        RecordingListener removed = new RecordingListener(0);
+        StatusListener[] listeners = new StatusListener[]{kept, removed};
+        fanOut.wrap(listeners, listeners, StatusListener.class);
+        try {
+            fanOut.retain(Collections.<StreamListener>singletonList(kept));
+            assertEquals(1, fanOut.getDropCounts().size());
+            assertTrue(fanOut.getDropCounts().containsKey(kept));
+        } finally {
+            fanOut.close();
+        }
+    }
+}
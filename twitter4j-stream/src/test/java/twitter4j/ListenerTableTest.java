@@ -0,0 +1,139 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.ConfigurationBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ListenerTableTest extends TestCase {
+    private static final String STATUS = "{\"created_at\":\"Mon Oct 19 00:00:00 +0000 2026\",\"id\":1234,\"id_str\":\"1234\",\"text\":\"hello\"}";
+    private static final String DELETE = "{\"delete\":{\"status\":{\"id\":1234,\"id_str\":\"1234\",\"user_id\":3,\"user_id_str\":\"3\"}}}";
+
+    public ListenerTableTest(String name) {
+        super(name);
+    }
+
+    private static class StatusRecorder extends StatusAdapter {
+        final List<Object> received = new ArrayList<Object>();
+
+        @Override
+        public void onStatus(Status status) {
+            received.add(status);
+        }
+
+        @Override
+        public void onException(Exception ex) {
+            received.add(ex);
+        }
+    }
+
+    private static class DeletionRecorder extends StatusAdapter {
+        final List<Object> received = new ArrayList<Object>();
+
+        @Override
+        public void onDeletionNotice(StatusDeletionNotice statusDeletionNotice) {
+            received.add(statusDeletionNotice);
+        }
+
+        @Override
+        public void onException(Exception ex) {
+            received.add(ex);
+        }
+    }
+
+    public void testTable() {
+        StatusRecorder statuses = new StatusRecorder();
+        DeletionRecorder deletions = new DeletionRecorder();
+        UserStreamAdapter follows = new UserStreamAdapter() {
+            @Override
+            public void onFollow(User source, User followedUser) {
+            }
+        };
+        StatusAdapter nothing = new StatusAdapter();
+        StreamListener[] listeners = new StreamListener[]{statuses, deletions, follows, nothing};
+        ListenerTable table = new ListenerTable(listeners, listeners);
+        assertSame(listeners, table.getAll());
+        assertEquals(1, table.get(JSONObjectType.Type.STATUS).length);
+        assertSame(statuses, table.get(JSONObjectType.Type.STATUS)[0]);
+        assertEquals(1, table.get(JSONObjectType.Type.DELETE).length);
+        assertSame(deletions, table.get(JSONObjectType.Type.DELETE)[0]);
+        assertEquals(1, table.get(JSONObjectType.Type.FOLLOW).length);
+        assertSame(follows, table.get(JSONObjectType.Type.FOLLOW)[0]);
+        assertEquals(0, table.get(JSONObjectType.Type.SCRUB_GEO).length);
+        // unknown events go to everyone
+        assertSame(listeners, table.get(JSONObjectType.Type.UNKNOWN));
+    }
+
+    public void testTargets() {
+        StatusRecorder statuses = new StatusRecorder();
+        StatusRecorder target = new StatusRecorder();
+        ListenerTable table = new ListenerTable(new StreamListener[]{new StatusAdapter(), statuses},
+                new StreamListener[]{new StatusAdapter(), target});
+        assertEquals(1, table.get(JSONObjectType.Type.STATUS).length);
+        assertSame(target, table.get(JSONObjectType.Type.STATUS)[0]);
+    }
+
+    public void testPeekType() {
+        assertEquals(JSONObjectType.Type.STATUS, ListenerTable.peekType(STATUS));
+        assertEquals(JSONObjectType.Type.DELETE, ListenerTable.peekType(DELETE));
+        assertEquals(JSONObjectType.Type.SCRUB_GEO, ListenerTable.peekType("{\"scrub_geo\":{\"user_id\":14090452,\"user_id_str\":\"14090452\",\"up_to_status_id\":23260136625,\"up_to_status_id_str\":\"23260136625\"}}"));
+        assertNull(ListenerTable.peekType("{\"limit\":{\"track\":1234}}"));
+        assertNull(ListenerTable.peekType("{\"target\":{},\"source\":{},\"event\":\"follow\"}"));
+    }
+
+    public void testDispatch() {
+        Dispatcher direct = new Dispatcher() {
+            @Override
+            public void invokeLater(Runnable task) {
+                task.run();
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+        StatusStreamImpl stream = new StatusStreamImpl(direct, new ConfigurationBuilder().build());
+        StatusRecorder statuses = new StatusRecorder();
+        DeletionRecorder deletions = new DeletionRecorder();
+        StreamListener[] listeners = new StreamListener[]{statuses, deletions};
+        stream.setListenerTable(new ListenerTable(listeners, listeners));
+        RawStreamListener[] raw = new RawStreamListener[0];
+
+        stream.dispatch(STATUS, listeners, raw);
+        assertEquals(1, statuses.received.size());
+        assertTrue(statuses.received.get(0) instanceof Status);
+        assertTrue(deletions.received.isEmpty());
+
+        stream.dispatch(DELETE, listeners, raw);
+        assertEquals(1, statuses.received.size());
+        assertEquals(1, deletions.received.size());
+
+        // a broken status is not parsed when nobody listens for statuses
+        String broken = STATUS.substring(0, STATUS.length() - 10);
+        listeners = new StreamListener[]{deletions};
+        stream.setListenerTable(new ListenerTable(listeners, listeners));
+        stream.dispatch(broken, listeners, raw);
+        assertEquals(1, deletions.received.size());
+        // without the table it is parsed, and fails
+        stream.setListenerTable(null);
+        stream.dispatch(broken, listeners, raw);
+        assertEquals(2, deletions.received.size());
+        assertTrue(deletions.received.get(1) instanceof Exception);
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.ConfigurationContext;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class NioStreamConnectionTest extends TestCase {
+    private ServerSocket server;
+    private StreamSelector selector;
+
+    public NioStreamConnectionTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = new ServerSocket(0);
+        selector = new StreamSelector("Twitter4J Stream Selector test", true);
+        selector.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        selector.shutdown();
+        server.close();
+        super.tearDown();
+    }
+
+    public void testChunkedStream() throws Exception {
+        // a message split across chunks, a keep-alive newline and a multibyte character
+        final String body = "{\"id\":1}\r\n{\"text\":\"あ\"";
+        serve("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n", new String[]{body, "}\r\n\r\n"});
+        RecordingHandler handler = open("http://127.0.0.1:" + server.getLocalPort() + "/1.1/statuses/sample.json");
+        assertTrue(handler.closed.await(5, TimeUnit.SECONDS));
+        assertTrue(handler.connected);
+        assertEquals(3, handler.lines.size());
+        assertEquals("{\"id\":1}", handler.lines.get(0));
+        assertEquals("{\"text\":\"あ\"}", handler.lines.get(1));
+        assertEquals("", handler.lines.get(2));
+        // the server closed the stream
+        assertEquals(-1, handler.cause.getStatusCode());
+        assertTrue(handler.request.startsWith("GET /1.1/statuses/sample.json HTTP/1.1"));
+    }
+
+    public void testErrorResponse() throws Exception {
+        serve("HTTP/1.1 420 Enhance Your Calm\r\nContent-Length: 17\r\n\r\n", new String[]{"Exceeded limits\r\n"});
+        RecordingHandler handler = open("http://127.0.0.1:" + server.getLocalPort() + "/1.1/statuses/filter.json");
+        assertTrue(handler.closed.await(5, TimeUnit.SECONDS));
+        assertFalse(handler.connected);
+        assertEquals(0, handler.lines.size());
+        assertEquals(420, handler.cause.getStatusCode());
+        assertTrue(handler.cause.getMessage().contains("Exceeded limits"));
+    }
+
+    public void testAbort() throws Exception {
+        serve("HTTP/1.1 200 OK\r\n\r\n{\"id\":1}\r\n", null);
+        final RecordingHandler handler = open("http://127.0.0.1:" + server.getLocalPort() + "/1.1/statuses/sample.json");
+        handler.firstLine.await(5, TimeUnit.SECONDS);
+        selector.execute(new Runnable() {
+            @Override
+            public void run() {
+                handler.connection.abort();
+            }
+        });
+        assertTrue(handler.closed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, handler.lines.size());
+        assertNull(handler.cause);
+    }
+
+    public void testReadPaused() throws Exception {
+        serve("HTTP/1.1 200 OK\r\n\r\n", new String[]{"{\"id\":1}\r\n", "{\"id\":2}\r\n"});
+        final RecordingHandler handler = new RecordingHandler();
+        handler.pauseOnFirstLine = true;
+        open(handler, "http://127.0.0.1:" + server.getLocalPort() + "/1.1/statuses/sample.json");
+        assertTrue(handler.firstLine.await(5, TimeUnit.SECONDS));
+        // the second line and the end of the stream are not read while paused
+        Thread.sleep(300);
+        assertEquals(1, handler.lines.size());
+        assertEquals(1, handler.closed.getCount());
+        selector.execute(new Runnable() {
+            @Override
+            public void run() {
+                handler.connection.setReadPaused(false);
+            }
+        });
+        assertTrue(handler.closed.await(5, TimeUnit.SECONDS));
+        assertEquals(2, handler.lines.size());
+        assertEquals("{\"id\":2}", handler.lines.get(1));
+    }
+
+    public void testSelectorsRoundRobin() throws Exception {
+        StreamSelector first = StreamSelectors.acquire(ConfigurationContext.getInstance());
+        try {
+            // the counter wraps around without going negative
+            Field next = StreamSelectors.class.getDeclaredField("next");
+            next.setAccessible(true);
+            next.setInt(null, Integer.MAX_VALUE);
+            StreamSelectors.release(StreamSelectors.acquire(ConfigurationContext.getInstance()));
+            StreamSelectors.release(StreamSelectors.acquire(ConfigurationContext.getInstance()));
+        } finally {
+            StreamSelectors.release(first);
+        }
+    }
+
+    private RecordingHandler open(final String url) throws Exception {
+        return open(new RecordingHandler(), url);
+    }
+
+    private RecordingHandler open(final RecordingHandler handler, final String url) throws Exception {
+        // the host is resolved off the selector thread
+        final NioStreamConnection connection = new NioStreamConnection(new HttpRequest(RequestMethod.GET, url, null, null, null)
+                , ConfigurationContext.getInstance(), handler);
+        selector.execute(new Runnable() {
+            @Override
+            public void run() {
+                handler.connection = connection;
+                selector.open(connection);
+            }
+        });
+        return handler;
+    }
+
+    // serves a single response. the connection is kept open when chunks is null
+    private void serve(final String head, final String[] chunks) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Socket socket = server.accept();
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                    requestLine = reader.readLine();
+                    String line;
+                    while ((line = reader.readLine()) != null && line.length() > 0) {
+                    }
+                    OutputStream out = socket.getOutputStream();
+                    out.write(head.getBytes("UTF-8"));
+                    if (chunks == null) {
+                        out.flush();
+                        Thread.sleep(5000);
+                    } else {
+                        boolean chunked = head.contains("chunked");
+                        for (String chunk : chunks) {
+                            byte[] bytes = chunk.getBytes("UTF-8");
+                            if (chunked) {
+                                out.write((Integer.toHexString(bytes.length) + "\r\n").getBytes("UTF-8"));
+                            }
+                            out.write(bytes);
+                            if (chunked) {
+                                out.write("\r\n".getBytes("UTF-8"));
+                            }
+                            out.flush();
+                            Thread.sleep(50);
+                        }
+                        if (chunked) {
+                            out.write("0\r\n\r\n".getBytes("UTF-8"));
+                        }
+                    }
+                    socket.close();
+                } catch (Exception ignore) {
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private volatile String requestLine;
+
+    private class RecordingHandler implements NioStreamConnection.Handler {
+        private final List<String> lines = new ArrayList<String>();
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private final CountDownLatch firstLine = new CountDownLatch(1);
+        private NioStreamConnection connection;
+        private boolean connected = false;
+        private boolean pauseOnFirstLine = false;
+        private TwitterException cause;
+        private String request;
+
+        @Override
+        public void onConnected() {
+            connected = true;
+        }
+
+        @Override
+        public void onLine(String line) {
+            lines.add(line);
+            if (pauseOnFirstLine && lines.size() == 1) {
+                connection.setReadPaused(true);
+            }
+            firstLine.countDown();
+        }
+
+        @Override
+        public void onClosed(TwitterException cause) {
+            this.cause = cause;
+            this.request = requestLine;
+            closed.countDown();
+        }
+
+        @Override
+        public void onDelegatedTasks(final Runnable tasks, final Runnable resume) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    tasks.run();
+                    selector.execute(resume);
+                }
+            }).start();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.ConfigurationBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+public class SiteStreamsManagerTest extends TestCase {
+    private RecordingManager manager;
+
+    public SiteStreamsManagerTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        manager = new RecordingManager();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        manager.shutdown();
+        super.tearDown();
+    }
+
+    public void testDistribution() throws Exception {
+        manager.addUsers(range(1, 250));
+        assertEquals(3, manager.getConnectionCount());
+        manager.flush();
+        // the first 40 users of each connection are passed with the follow parameter
+        assertEquals(3, manager.opened.size());
+        assertEquals(40, manager.follows.get(0).length);
+        assertEquals(0, manager.calls.size());
+
+        // control calls are issued once the control uri is known
+        manager.ready();
+        manager.flush();
+        assertEquals(60 + 60 + 10, added());
+        for (String call : manager.calls) {
+            assertTrue(call.split(",").length <= 40);
+        }
+
+        manager.calls.clear();
+        manager.removeUsers(1, 2, 3);
+        manager.flush();
+        assertEquals(1, manager.calls.size());
+        assertTrue(manager.calls.get(0).startsWith("remove"));
+        assertEquals(247, manager.getUserCount());
+    }
+
+    public void testReconnect() throws Exception {
+        manager.addUsers(range(1, 50));
+        manager.flush();
+        manager.ready();
+        manager.flush();
+        assertEquals(10, added());
+        manager.calls.clear();
+
+        // users added through the control stream are lost on reconnect
+        SiteStreamsManager.Connection connection = manager.opened.get(0);
+        connection.onConnect();
+        connection.onDisconnect();
+        connection.onConnect();
+        manager.flush();
+        assertEquals(10, added());
+    }
+
+    public void testRebalance() throws Exception {
+        manager.addUsers(range(1, 150));
+        manager.flush();
+        manager.ready();
+        manager.flush();
+        manager.removeUsers(range(51, 100));
+        manager.flush();
+        manager.calls.clear();
+        // the second connection is lost and the first one has room for its users
+        manager.opened.get(1).onDisconnect();
+        Thread.sleep(20);
+        manager.flush();
+        assertEquals(1, manager.getConnectionCount());
+        assertEquals(100, manager.getUserCount());
+        assertEquals(50, added());
+    }
+
+    public void testRouting() throws Exception {
+        final List<Long> routed = new ArrayList<Long>();
+        final List<Long> defaults = new ArrayList<Long>();
+        manager.addListener(new SiteStreamsAdapter() {
+            @Override
+            public void onFriendList(long forUser, long[] friendIds) {
+                defaults.add(forUser);
+            }
+        });
+        manager.addUsers(new long[]{1L}, new SiteStreamsAdapter() {
+            @Override
+            public void onFriendList(long forUser, long[] friendIds) {
+                routed.add(forUser);
+            }
+        });
+        manager.addUsers(2L);
+        manager.router.onFriendList(1L, new long[0]);
+        manager.router.onFriendList(2L, new long[0]);
+        manager.router.onFriendList(3L, new long[0]);
+        assertEquals(1, routed.size());
+        assertEquals(2, defaults.size());
+        assertEquals(2L, (long) defaults.get(0));
+    }
+
+    private int added() {
+        int count = 0;
+        for (String call : manager.calls) {
+            if (call.startsWith("add")) {
+                count += call.split(",").length;
+            }
+        }
+        return count;
+    }
+
+    private static long[] range(long from, long to) {
+        long[] ids = new long[(int) (to - from + 1)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = from + i;
+        }
+        return ids;
+    }
+
+    private static class RecordingManager extends SiteStreamsManager {
+        private final List<Connection> opened = new ArrayList<Connection>();
+        private final List<long[]> follows = new ArrayList<long[]>();
+        private final List<StreamController> controllers = new ArrayList<StreamController>();
+        private final List<String> calls = new ArrayList<String>();
+
+        RecordingManager() {
+            super(new ConfigurationBuilder().setSiteStreamUsersPerConnection(100)
+                    .setSiteStreamControlBatchSize(40).setSiteStreamRebalanceTimeout(10).build(), null, true);
+        }
+
+        @Override
+        StreamController open(Connection connection, long[] follow) {
+            StreamController controller = new StreamController(null, null);
+            opened.add(connection);
+            follows.add(follow);
+            controllers.add(controller);
+            return controller;
+        }
+
+        @Override
+        Future<String[]> control(StreamController controller, boolean add, long[] userIds) {
+            calls.add((add ? "add:" : "remove:") + StringUtil.join(userIds));
+            FutureTask<String[]> result = new FutureTask<String[]>(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }, new String[0]);
+            result.run();
+            return result;
+        }
+
+        void ready() {
+            for (StreamController controller : controllers) {
+                controller.setControlURI("/1.1/site/c/1_1_00000000000000000000000000000000");
+            }
+        }
+    }
+}
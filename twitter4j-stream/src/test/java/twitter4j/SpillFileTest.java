@@ -0,0 +1,108 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FilenameFilter;
+
+public class SpillFileTest extends TestCase {
+    private File directory;
+
+    public SpillFileTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = File.createTempFile("twitter4j-spill-test", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+        super.tearDown();
+    }
+
+    private int segments() {
+        return directory.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".spill");
+            }
+        }).length;
+    }
+
+    public void testAppendAndPollAcrossSegments() throws Exception {
+        SpillFile file = new SpillFile(directory, "test-", 64);
+        assertNull(file.poll());
+        long bytes = 0;
+        for (int i = 0; i < 100; i++) {
+            bytes += file.append("message " + i);
+        }
+        assertEquals(100, file.size());
+        assertEquals(bytes, file.getBytes());
+        assertTrue(segments() > 1);
+        for (int i = 0; i < 50; i++) {
+            assertEquals("message " + i, file.poll());
+        }
+        // interleaved with reads
+        file.append("message 100");
+        for (int i = 50; i <= 100; i++) {
+            assertEquals("message " + i, file.poll());
+        }
+        assertNull(file.poll());
+        assertEquals(0, file.size());
+        assertEquals(0, file.getBytes());
+        assertEquals(0, segments());
+    }
+
+    public void testRecordLargerThanSegment() throws Exception {
+        SpillFile file = new SpillFile(directory, "test-", 16);
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            large.append("あ");
+        }
+        file.append("small");
+        assertEquals(4 + 300, file.append(large.toString()));
+        file.append("small");
+        assertEquals("small", file.poll());
+        assertEquals(large.toString(), file.poll());
+        assertEquals("small", file.poll());
+        assertNull(file.poll());
+    }
+
+    public void testClear() throws Exception {
+        SpillFile file = new SpillFile(directory, "test-", 64);
+        for (int i = 0; i < 20; i++) {
+            file.append("message " + i);
+        }
+        file.clear();
+        assertEquals(0, file.size());
+        assertNull(file.poll());
+        assertEquals(0, segments());
+    }
+}
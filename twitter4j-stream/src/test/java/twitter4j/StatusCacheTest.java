@@ -0,0 +1,96 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StatusCacheTest extends TestCase {
+    private static final String STATUS = "{\"created_at\":\"Mon Oct 19 01:23:45 +0000 2015\",\"id\":655960389484867584"
+            + ",\"id_str\":\"655960389484867584\",\"text\":\"hello\",\"user\":{\"id\":6358482,\"screen_name\":\"twit4j\"}}";
+
+    public StatusCacheTest(String name) {
+        super(name);
+    }
+
+    public void testPeekStatusId() {
+        assertEquals(655960389484867584L, StatusCache.peekStatusId(STATUS));
+        assertEquals(1L, StatusCache.peekStatusId("{\"created_at\":\"x\",\"id\":1}"));
+        // not a status, or not in the expected order
+        assertEquals(-1L, StatusCache.peekStatusId("{\"delete\":{\"status\":{\"id\":1}}}"));
+        assertEquals(-1L, StatusCache.peekStatusId("{\"id\":1,\"created_at\":\"x\"}"));
+        assertEquals(-1L, StatusCache.peekStatusId("{\"created_at\":\"x\",\"id_str\":\"1\"}"));
+        // truncated or malformed
+        assertEquals(-1L, StatusCache.peekStatusId("{\"created_at\":\"x\",\"id\":12"));
+        assertEquals(-1L, StatusCache.peekStatusId("{\"created_at\":\"x\",\"id\":\"1\"}"));
+        assertEquals(-1L, StatusCache.peekStatusId("{\"created_at\":\"x\",\"id\":12345678901234567890,"));
+    }
+
+    public void testEviction() throws Exception {
+        StatusCache cache = new StatusCache(2);
+        Status s1 = TwitterObjectFactory.createStatus(status(1));
+        Status s2 = TwitterObjectFactory.createStatus(status(2));
+        Status s3 = TwitterObjectFactory.createStatus(status(3));
+        cache.put(s1);
+        cache.put(s2);
+        // touch 1 so that 2 becomes the eldest
+        assertSame(s1, cache.get(1));
+        cache.put(s3);
+        assertSame(s1, cache.get(1));
+        assertNull(cache.get(2));
+        assertSame(s3, cache.get(3));
+    }
+
+    private static String status(long id) {
+        return "{\"created_at\":\"Mon Oct 19 01:23:45 +0000 2015\",\"id\":" + id + "}";
+    }
+
+    public void testParseOnce() throws Exception {
+        Configuration conf = new ConfigurationBuilder().setSiteStreamStatusCacheSize(16).build();
+        Dispatcher sameThread = new Dispatcher() {
+            @Override
+            public void invokeLater(Runnable task) {
+                task.run();
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+        SiteStreamsImpl siteStreams = new SiteStreamsImpl(sameThread, conf, new StreamController(conf));
+        final List<Long> forUsers = new ArrayList<Long>();
+        final List<Status> statuses = new ArrayList<Status>();
+        SiteStreamsListener listener = new SiteStreamsAdapter() {
+            @Override
+            public void onStatus(long forUser, Status status) {
+                forUsers.add(forUser);
+                statuses.add(status);
+            }
+        };
+        StreamListener[] listeners = new StreamListener[]{listener};
+        siteStreams.dispatch("{\"for_user\":6358482,\"message\":" + STATUS + "}", listeners, new RawStreamListener[0]);
+        siteStreams.dispatch("{\"for_user\":6358481,\"message\":" + STATUS + "}", listeners, new RawStreamListener[0]);
+        assertEquals(2, statuses.size());
+        assertEquals(6358482L, (long) forUsers.get(0));
+        assertEquals(6358481L, (long) forUsers.get(1));
+        assertEquals("hello", statuses.get(0).getText());
+        assertSame(statuses.get(0), statuses.get(1));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+
+public class StatusDeduplicatorTest extends TestCase {
+    public StatusDeduplicatorTest(String name) {
+        super(name);
+    }
+
+    public void testMessages() {
+        StatusDeduplicator deduplicator = new StatusDeduplicator(60000, 1000);
+        String status = "{\"created_at\":\"Mon Oct 19 01:23:45 +0000 2015\",\"id\":655960389484867584,\"text\":\"hello\"}";
+        assertFalse(deduplicator.isDuplicate(status));
+        assertTrue(deduplicator.isDuplicate(status));
+        // messages other than statuses pass through
+        String delete = "{\"delete\":{\"status\":{\"id\":655960389484867584,\"user_id\":6358482}}}";
+        assertFalse(deduplicator.isDuplicate(delete));
+        assertFalse(deduplicator.isDuplicate(delete));
+        assertEquals(1, deduplicator.getDuplicates());
+    }
+
+    public void testWindow() {
+        long now = System.currentTimeMillis();
+        StatusDeduplicator deduplicator = new StatusDeduplicator(4000, 1000);
+        assertFalse(deduplicator.isDuplicate(1L, now));
+        assertTrue(deduplicator.isDuplicate(1L, now + 2500));
+        assertFalse(deduplicator.isDuplicate(2L, now + 3500));
+        // 1 is forgotten once its bucket is reused, 2 is still remembered
+        assertFalse(deduplicator.isDuplicate(1L, now + 4500));
+        assertTrue(deduplicator.isDuplicate(2L, now + 5000));
+        // nothing received for a whole window
+        assertFalse(deduplicator.isDuplicate(2L, now + 20000));
+    }
+
+    public void testCapacity() {
+        long now = System.currentTimeMillis();
+        // 2 ids per bucket
+        StatusDeduplicator deduplicator = new StatusDeduplicator(60000, 8);
+        for (long id = 1; id <= 8; id++) {
+            assertFalse(deduplicator.isDuplicate(id, now));
+        }
+        assertTrue(deduplicator.isDuplicate(3L, now));
+        // the oldest bucket is reused even though the window has not passed
+        assertFalse(deduplicator.isDuplicate(9L, now));
+        assertFalse(deduplicator.isDuplicate(1L, now));
+    }
+
+    public void testGroup() {
+        Configuration grouped = new ConfigurationBuilder().setStreamDedupEnabled(true).setStreamDedupGroup("filters").build();
+        StatusDeduplicator first = StatusDeduplicator.getInstance(grouped);
+        assertSame(first, StatusDeduplicator.getInstance(grouped));
+        long now = System.currentTimeMillis();
+        assertFalse(first.isDuplicate(1L, now));
+        // received by another connection of the group
+        assertTrue(StatusDeduplicator.getInstance(grouped).isDuplicate(1L, now));
+
+        Configuration own = new ConfigurationBuilder().setStreamDedupEnabled(true).build();
+        assertNotSame(StatusDeduplicator.getInstance(own), StatusDeduplicator.getInstance(own));
+    }
+}
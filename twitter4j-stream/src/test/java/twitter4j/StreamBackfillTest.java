@@ -0,0 +1,102 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.ConfigurationContext;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StreamBackfillTest extends TestCase {
+    private final List<Long> requested = new ArrayList<Long>();
+    private final List<Long> delivered = new ArrayList<Long>();
+
+    public StreamBackfillTest(String name) {
+        super(name);
+    }
+
+    public void testBackfill() throws Exception {
+        StatusDeduplicator deduplicator = new StatusDeduplicator(60000, 1000);
+        StreamBackfill backfill = new StreamBackfill(ConfigurationContext.getInstance(), deduplicator);
+        backfill.onStatusId(100);
+        backfill.onStatusId(90);
+        assertEquals(100, backfill.getLastSeenId());
+        // 103 has been received from the stream after the reconnect
+        assertFalse(deduplicator.isDuplicate(103, System.currentTimeMillis()));
+
+        List<Status> recovered = backfill.fetch(twitter(5), new long[]{1, 2, 3}, backfill.getLastSeenId());
+        assertEquals(3, requested.size());
+        assertEquals(6, recovered.size());
+        for (int i = 1; i < recovered.size(); i++) {
+            assertTrue(recovered.get(i - 1).getId() < recovered.get(i).getId());
+        }
+
+        backfill.deliver(recovered, new Dispatcher() {
+            @Override
+            public void invokeLater(Runnable task) {
+                task.run();
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        }, new StreamListener[]{new StatusAdapter() {
+            @Override
+            public void onStatus(Status status) {
+                delivered.add(status.getId());
+            }
+        }});
+        assertEquals(5, delivered.size());
+        assertFalse(delivered.contains(103L));
+    }
+
+    public void testRateLimit() throws Exception {
+        StreamBackfill backfill = new StreamBackfill(ConfigurationContext.getInstance(), new StatusDeduplicator(60000, 1000));
+        // the rate limit is exhausted by the second call
+        List<Status> recovered = backfill.fetch(twitter(1), new long[]{1, 2, 3}, 100);
+        assertEquals(2, requested.size());
+        assertEquals(4, recovered.size());
+    }
+
+    // each user has posted 2 statuses since 100
+    private Twitter twitter(final int remaining) {
+        return (Twitter) Proxy.newProxyInstance(Twitter.class.getClassLoader(), new Class<?>[]{Twitter.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (!method.getName().equals("getUserTimeline")) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                long userId = (Long) args[0];
+                assertEquals(100, ((Paging) args[1]).getSinceId());
+                requested.add(userId);
+                RateLimitStatus rateLimit = new RateLimitStatusJSONImpl(new JSONObject(
+                        "{\"limit\":900,\"remaining\":" + (remaining - requested.size() + 1) + ",\"reset\":0}"));
+                ResponseList<Status> statuses = new ResponseListImpl<Status>(rateLimit, 0);
+                statuses.add(status(100 + userId));
+                statuses.add(status(110 + userId));
+                return statuses;
+            }
+        });
+    }
+
+    private static Status status(long id) throws TwitterException {
+        return TwitterObjectFactory.createStatus("{\"created_at\":\"Mon Oct 19 01:23:45 +0000 2015\",\"id\":" + id + "}");
+    }
+}
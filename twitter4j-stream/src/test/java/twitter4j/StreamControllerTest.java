@@ -0,0 +1,150 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StreamControllerTest extends TestCase {
+    private static final String CONTROL_URI = "/1.1/site/c/1_1_00000000000000000000000000000000";
+
+    public StreamControllerTest(String name) {
+        super(name);
+    }
+
+    public void testChunkedAddUsers() throws Exception {
+        Configuration conf = new ConfigurationBuilder().setSiteStreamControlParallelism(2).build();
+        MockHttpClient http = new MockHttpClient(conf);
+        StreamController controller = new StreamController(http, null, conf);
+        long[] userIds = new long[250];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = i + 1;
+        }
+        Future<String[]> result = controller.addUsersAsync(userIds);
+        // the calls wait for the control uri without blocking
+        Thread.sleep(100);
+        assertFalse(result.isDone());
+        assertEquals(0, http.requests.size());
+
+        controller.setControlURI(CONTROL_URI);
+        String[] responses = result.get(5, TimeUnit.SECONDS);
+        assertEquals(3, responses.length);
+        assertEquals(3, http.requests.size());
+        int users = 0;
+        for (HttpRequest request : http.requests) {
+            assertTrue(request.getURL().endsWith(CONTROL_URI + "/add_user.json"));
+            users += request.getParameters()[0].getValue().split(",").length;
+        }
+        assertEquals(250, users);
+        assertTrue(http.maxConcurrency.get() <= 2);
+    }
+
+    public void testFriendsIDsCursor() throws Exception {
+        Configuration conf = new ConfigurationBuilder().build();
+        MockHttpClient http = new MockHttpClient(conf);
+        StreamController controller = new StreamController(http, null, conf);
+        controller.setControlURI(CONTROL_URI);
+        StreamController.FriendsIDsCursor cursor = controller.getFriendsIDsCursor(6358482L);
+        List<Long> ids = new ArrayList<Long>();
+        while (cursor.hasNext()) {
+            for (long id : cursor.next().getIds()) {
+                ids.add(id);
+            }
+        }
+        assertEquals(3, ids.size());
+        assertEquals(3L, (long) ids.get(2));
+    }
+
+    public void testControlURIReset() throws Exception {
+        Configuration conf = new ConfigurationBuilder().build();
+        StreamController controller = new StreamController(new MockHttpClient(conf), null, conf);
+        controller.setControlURI(CONTROL_URI);
+        controller.ensureControlURISet();
+        controller.setControlURI(null);
+        Future<ControlStreamInfo> info = controller.getInfoAsync();
+        Thread.sleep(100);
+        assertFalse(info.isDone());
+        info.cancel(true);
+    }
+
+    private static class MockHttpClient extends HttpClientBase {
+        private static final long serialVersionUID = 1L;
+        private final List<HttpRequest> requests = Collections.synchronizedList(new ArrayList<HttpRequest>());
+        private final AtomicInteger concurrency = new AtomicInteger();
+        private final AtomicInteger maxConcurrency = new AtomicInteger();
+
+        MockHttpClient(Configuration conf) {
+            super(conf.getHttpClientConfiguration());
+        }
+
+        @Override
+        HttpResponse handleRequest(HttpRequest req) {
+            requests.add(req);
+            int current = concurrency.incrementAndGet();
+            while (true) {
+                int max = maxConcurrency.get();
+                if (current <= max || maxConcurrency.compareAndSet(max, current)) {
+                    break;
+                }
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignore) {
+            }
+            concurrency.decrementAndGet();
+            if (req.getURL().endsWith("/friends/ids.json")) {
+                long cursor = Long.parseLong(req.getParameters()[1].getValue());
+                // two pages
+                return new MockHttpResponse(CONF, cursor == -1
+                        ? "{\"follow\":{\"user\":{\"id\":6358482,\"name\":\"twit4j\",\"dm\":false},\"friends\":[1,2]},\"previous_cursor\":0,\"next_cursor\":10}"
+                        : "{\"follow\":{\"user\":{\"id\":6358482,\"name\":\"twit4j\",\"dm\":false},\"friends\":[3]},\"previous_cursor\":10,\"next_cursor\":0}");
+            }
+            return new MockHttpResponse(CONF, "");
+        }
+    }
+
+    private static class MockHttpResponse extends HttpResponse {
+        MockHttpResponse(HttpClientConfiguration conf, String body) {
+            super(conf);
+            statusCode = 200;
+            responseAsString = body;
+        }
+
+        @Override
+        public String getResponseHeader(String name) {
+            return null;
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaderFields() {
+            return null;
+        }
+
+        @Override
+        public void disconnect() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.ConfigurationBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StreamHandoffTest extends TestCase {
+    public StreamHandoffTest(String name) {
+        super(name);
+    }
+
+    public void testOrderAndBackPressure() throws Exception {
+        final AtomicInteger drained = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        StreamHandoff handoff = new StreamHandoff(pool, new Runnable() {
+            @Override
+            public void run() {
+                drained.incrementAndGet();
+            }
+        });
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        // a slow listener blocks the handoff, not the caller
+        assertFalse(handoff.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocked.await();
+                } catch (InterruptedException ignore) {
+                }
+            }
+        }));
+        boolean full = false;
+        for (int i = 1; i < StreamHandoff.HIGH_WATER; i++) {
+            final int index = i;
+            full = handoff.execute(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(index);
+                }
+            });
+        }
+        assertTrue(full);
+        assertEquals(StreamHandoff.HIGH_WATER, handoff.getPending());
+        assertEquals(0, drained.get());
+
+        final CountDownLatch done = new CountDownLatch(1);
+        handoff.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        blocked.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(StreamHandoff.HIGH_WATER - 1, order.size());
+        for (int i = 0; i < order.size(); i++) {
+            assertEquals(i + 1, order.get(i).intValue());
+        }
+        assertEquals(1, drained.get());
+        pool.shutdown();
+    }
+
+    public void testThreadsBoundedBySelectors() throws Exception {
+        StreamSelector selector = StreamSelectors.acquire(new ConfigurationBuilder().setStreamNioHandoffNumThreads(2).build());
+        Executor pool = StreamSelectors.getHandoffPool();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(10);
+        // slow streams share the threads instead of getting one each
+        for (int i = 0; i < 10; i++) {
+            new StreamHandoff(pool, null).execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException ignore) {
+                    }
+                    done.countDown();
+                }
+            });
+        }
+        Thread.sleep(200);
+        assertEquals(2, countThreads("Twitter4J Stream Handoff"));
+        blocked.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        StreamSelectors.release(selector);
+        Thread.sleep(200);
+        assertEquals(0, countThreads("Twitter4J Stream Handoff"));
+        // tasks handed off after the pool has been shut down are discarded
+        StreamHandoff late = new StreamHandoff(pool, null);
+        late.execute(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        assertEquals(0, late.getPending());
+    }
+
+    private static int countThreads(String name) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(name) && thread.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+
+public class StreamLoadControllerTest extends TestCase {
+    public StreamLoadControllerTest(String name) {
+        super(name);
+    }
+
+    private static Configuration conf() {
+        return new ConfigurationBuilder()
+                .setStreamAdaptiveDispatchEnabled(true)
+                .setStreamAdaptiveMaxThreads(4)
+                .setStreamAdaptiveSojournThreshold(100)
+                .setStreamAdaptivePercentFullThreshold(50)
+                .build();
+    }
+
+    public void testScaleUpAndDown() {
+        DispatcherImpl dispatcher = new DispatcherImpl(conf(), "Twitter4J Test Dispatcher", 2, -1);
+        try {
+            StreamLoadController controller = new StreamLoadController(conf(), dispatcher);
+            controller.onDequeue(150 * 1000000L);
+            controller.evaluate();
+            assertEquals(3, dispatcher.getNumThreads());
+            assertFalse(controller.isOverloaded());
+
+            controller.onStallWarning(60);
+            controller.evaluate();
+            assertEquals(4, dispatcher.getNumThreads());
+            assertFalse(controller.isOverloaded());
+
+            // no more threads can be added
+            controller.onStallWarning(60);
+            controller.evaluate();
+            assertEquals(4, dispatcher.getNumThreads());
+            assertTrue(controller.isOverloaded());
+
+            // below the thresholds
+            controller.onDequeue(50 * 1000000L);
+            controller.onStallWarning(10);
+            controller.evaluate();
+            assertFalse(controller.isOverloaded());
+            assertEquals(4, dispatcher.getNumThreads());
+            for (int i = 1; i < 10; i++) {
+                controller.evaluate();
+            }
+            assertEquals(3, dispatcher.getNumThreads());
+            for (int i = 0; i < 100; i++) {
+                controller.evaluate();
+            }
+            // never below the initial number of threads
+            assertEquals(2, dispatcher.getNumThreads());
+
+            controller.onDequeue(150 * 1000000L);
+            controller.evaluate();
+            controller.close();
+            assertEquals(2, dispatcher.getNumThreads());
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    public void testOneControllerPerGroup() throws Exception {
+        Configuration conf = new ConfigurationBuilder()
+                .setAsyncNumThreads(2)
+                .setStreamAdaptiveDispatchEnabled(true)
+                .setStreamAdaptiveMaxThreads(4)
+                .setStreamAdaptiveSojournThreshold(100)
+                .build();
+        Dispatcher dispatcher = StreamDispatchers.acquire(conf);
+        assertSame(dispatcher, StreamDispatchers.acquire(conf));
+        StreamLoadController controller = StreamDispatchers.getLoadController(dispatcher);
+        assertNotNull(controller);
+        DispatcherImpl impl = (DispatcherImpl) dispatcher;
+        assertEquals(2, impl.getNumThreads());
+
+        // evaluated by the timer
+        controller.onDequeue(150 * 1000000L);
+        Thread.sleep(StreamLoadController.INTERVAL * 2 + 500);
+        assertEquals(3, impl.getNumThreads());
+
+        // releasing one stream doesn't reset the group
+        StreamDispatchers.release(dispatcher);
+        assertEquals(3, impl.getNumThreads());
+        assertSame(controller, StreamDispatchers.getLoadController(dispatcher));
+
+        StreamDispatchers.release(dispatcher);
+        assertNull(StreamDispatchers.getLoadController(dispatcher));
+    }
+}
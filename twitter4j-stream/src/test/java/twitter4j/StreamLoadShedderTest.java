@@ -0,0 +1,193 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+
+public class StreamLoadShedderTest extends TestCase {
+    private static final String DELETE = "{\"delete\":{\"status\":{\"id\":1234,\"id_str\":\"1234\",\"user_id\":3,\"user_id_str\":\"3\"}}}";
+
+    public StreamLoadShedderTest(String name) {
+        super(name);
+    }
+
+    private static Configuration conf() {
+        return new ConfigurationBuilder()
+                .setStreamSheddingEnabled(true)
+                .setStreamSheddingQueueDepth(10)
+                .setStreamSheddingRetweetSamplePercent(10)
+                .setStreamSheddingStatusSamplePercent(50)
+                .build();
+    }
+
+    private static String status(long id) {
+        return "{\"created_at\":\"Mon Oct 19 00:00:00 +0000 2026\",\"id\":" + id + ",\"text\":\"hello\"}";
+    }
+
+    private static String retweet(long id) {
+        return "{\"created_at\":\"Mon Oct 19 00:00:00 +0000 2026\",\"id\":" + id + ",\"text\":\"RT hello\",\"retweeted_status\":{\"id\":1}}";
+    }
+
+    // sheds the message, or counts it as handed over to the dispatcher
+    private static boolean offer(StreamLoadShedder shedder, String line, long id) {
+        if (shedder.shed(line, id)) {
+            return true;
+        }
+        shedder.onEnqueue();
+        return false;
+    }
+
+    private static void fill(StreamLoadShedder shedder, int count) {
+        for (int i = 0; i < count; i++) {
+            assertFalse(offer(shedder, DELETE, -1));
+        }
+    }
+
+    public void testSampling() {
+        int sampled = 0;
+        for (long id = 1; id <= 100000; id++) {
+            if (StreamLoadShedder.isSampled(id, 10)) {
+                sampled++;
+                // nested samples
+                assertTrue(StreamLoadShedder.isSampled(id, 50));
+            }
+            assertEquals(StreamLoadShedder.isSampled(id, 30), StreamLoadShedder.isSampled(id, 30));
+        }
+        assertTrue(String.valueOf(sampled), 9000 < sampled && sampled < 11000);
+        assertTrue(StreamLoadShedder.isSampled(42L, 100));
+        assertFalse(StreamLoadShedder.isSampled(42L, 0));
+    }
+
+    public void testPriorities() {
+        StreamLoadShedder shedder = new StreamLoadShedder(conf(), null);
+        for (long id = 1; id <= 100; id++) {
+            assertFalse(offer(shedder, retweet(id), id));
+            shedder.onDequeue();
+        }
+        fill(shedder, 10);
+        // retweets are sampled, statuses and deletes are kept
+        for (long id = 1000; id < 2000; id++) {
+            if (!offer(shedder, retweet(id), id)) {
+                assertTrue(StreamLoadShedder.isSampled(id, 10));
+                shedder.onDequeue();
+            }
+            assertFalse(offer(shedder, status(id), id));
+            shedder.onDequeue();
+            assertFalse(offer(shedder, DELETE, -1));
+            shedder.onDequeue();
+            assertEquals(StreamLoadShedder.RETWEETS, shedder.getLevel());
+        }
+        assertEquals(900, shedder.getShedRetweets(), 100);
+        fill(shedder, 10);
+        // statuses are sampled as well, deletes are still kept
+        for (long id = 2000; id < 3000; id++) {
+            if (!offer(shedder, status(id), id)) {
+                assertTrue(StreamLoadShedder.isSampled(id, 50));
+                shedder.onDequeue();
+            }
+            assertFalse(offer(shedder, DELETE, -1));
+            shedder.onDequeue();
+            assertEquals(StreamLoadShedder.STATUSES, shedder.getLevel());
+        }
+        assertEquals(500, shedder.getShedStatuses(), 100);
+    }
+
+    private static String reply(long id) {
+        return "{\"created_at\":\"Mon Oct 19 00:00:00 +0000 2026\",\"id\":" + id + ",\"text\":\"@twit4j hello\",\"in_reply_to_status_id\":1}";
+    }
+
+    public void testConfiguredPriorities() {
+        Configuration conf = new ConfigurationBuilder()
+                .setStreamSheddingEnabled(true)
+                .setStreamSheddingQueueDepth(10)
+                .setStreamSheddingRetweetSamplePercent(10)
+                .setStreamSheddingStatusSamplePercent(50)
+                // replies go first, then retweets, other statuses are never dropped
+                .setStreamSheddingPriorities("reply; retweet")
+                .build();
+        StreamLoadShedder shedder = new StreamLoadShedder(conf, null);
+        assertEquals(StreamLoadShedder.RETWEETS, shedder.classOf(reply(1)));
+        assertEquals(StreamLoadShedder.STATUSES, shedder.classOf(retweet(1)));
+        assertEquals(StreamLoadShedder.NONE, shedder.classOf(status(1)));
+        assertEquals(StreamLoadShedder.NONE, shedder.classOf(status(1).replace("}", ",\"in_reply_to_status_id\":null}")));
+
+        fill(shedder, 20);
+        for (long id = 1000; id < 2000; id++) {
+            if (!offer(shedder, reply(id), id)) {
+                assertTrue(StreamLoadShedder.isSampled(id, 10));
+                shedder.onDequeue();
+            }
+            if (!offer(shedder, retweet(id), id)) {
+                assertTrue(StreamLoadShedder.isSampled(id, 50));
+                shedder.onDequeue();
+            }
+            assertFalse(offer(shedder, status(id), id));
+            shedder.onDequeue();
+            assertEquals(StreamLoadShedder.STATUSES, shedder.getLevel());
+        }
+        assertEquals(900, shedder.getShedRetweets(), 100);
+        assertEquals(500, shedder.getShedStatuses(), 100);
+    }
+
+    public void testHysteresis() {
+        StreamLoadShedder shedder = new StreamLoadShedder(conf(), null);
+        fill(shedder, 20);
+        assertFalse(offer(shedder, DELETE, -1));
+        assertEquals(StreamLoadShedder.STATUSES, shedder.getLevel());
+        // 21 pending
+        for (int i = 0; i < 11; i++) {
+            shedder.onDequeue();
+        }
+        // 10 pending, still not drained below the queue depth
+        offer(shedder, DELETE, -1);
+        assertEquals(StreamLoadShedder.STATUSES, shedder.getLevel());
+        for (int i = 0; i < 2; i++) {
+            shedder.onDequeue();
+        }
+        // 9 pending
+        offer(shedder, DELETE, -1);
+        assertEquals(StreamLoadShedder.RETWEETS, shedder.getLevel());
+        for (int i = 0; i < 6; i++) {
+            shedder.onDequeue();
+        }
+        // 4 pending
+        offer(shedder, DELETE, -1);
+        assertEquals(StreamLoadShedder.NONE, shedder.getLevel());
+    }
+
+    public void testEngagedByOverload() {
+        Configuration conf = new ConfigurationBuilder()
+                .setStreamAdaptiveMaxThreads(1)
+                .setStreamAdaptiveSojournThreshold(1)
+                .build();
+        DispatcherImpl dispatcher = new DispatcherImpl(conf, "Twitter4J Test Dispatcher", 1, -1);
+        try {
+            StreamLoadController controller = new StreamLoadController(conf, dispatcher);
+            StreamLoadShedder shedder = new StreamLoadShedder(conf(), controller);
+            assertFalse(offer(shedder, DELETE, -1));
+            assertEquals(StreamLoadShedder.NONE, shedder.getLevel());
+            controller.onDequeue(10 * 1000000L);
+            controller.evaluate();
+            assertTrue(controller.isOverloaded());
+            assertFalse(offer(shedder, DELETE, -1));
+            assertEquals(StreamLoadShedder.STATUSES, shedder.getLevel());
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class StreamSequencerTest extends TestCase {
+    public StreamSequencerTest(String name) {
+        super(name);
+    }
+
+    private static Runnable record(final List<Long> delivered, final long value) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                delivered.add(value);
+            }
+        };
+    }
+
+    public void testOutOfOrderCompletion() {
+        StreamSequencer sequencer = new StreamSequencer();
+        List<Long> delivered = new ArrayList<Long>();
+        long s0 = sequencer.next();
+        long s1 = sequencer.next();
+        long s2 = sequencer.next();
+        long s3 = sequencer.next();
+        sequencer.complete(s2, record(delivered, s2));
+        sequencer.complete(s1, record(delivered, s1));
+        assertTrue(delivered.isEmpty());
+        assertEquals(2, sequencer.getPending());
+        // nothing to deliver for s0
+        sequencer.complete(s0, null);
+        assertEquals(2, delivered.size());
+        assertEquals(s1, delivered.get(0).longValue());
+        assertEquals(s2, delivered.get(1).longValue());
+        sequencer.complete(s3, record(delivered, s3));
+        assertEquals(3, delivered.size());
+        assertEquals(0, sequencer.getPending());
+    }
+
+    public void testParallelParsingKeepsOrder() throws Exception {
+        Configuration conf = new ConfigurationBuilder().build();
+        DispatcherImpl dispatcher = new DispatcherImpl(conf, "Twitter4J Test Dispatcher", 4, -1);
+        try {
+            StatusStreamImpl stream = new StatusStreamImpl(dispatcher, conf);
+            stream.setSequencer(new StreamSequencer());
+            final int count = 2000;
+            final List<Long> ids = Collections.synchronizedList(new ArrayList<Long>());
+            final CountDownLatch done = new CountDownLatch(count);
+            StreamListener[] listeners = new StreamListener[]{new StatusAdapter() {
+                @Override
+                public void onStatus(Status status) {
+                    ids.add(status.getId());
+                    done.countDown();
+                }
+
+                @Override
+                public void onException(Exception ex) {
+                    ex.printStackTrace();
+                    done.countDown();
+                }
+            }};
+            for (long id = 1; id <= count; id++) {
+                StringBuilder text = new StringBuilder();
+                // messages of varying size take varying time to parse
+                for (int i = 0; i < (id % 7) * 50; i++) {
+                    text.append("word ");
+                }
+                stream.dispatch("{\"created_at\":\"Mon Oct 19 00:00:00 +0000 2026\",\"id\":" + id + ",\"text\":\"" + text + "\"}"
+                        , listeners, new RawStreamListener[0]);
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            assertEquals(count, ids.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(i + 1, ids.get(i).longValue());
+            }
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    public void testRejectedMessageIsNotWaitedFor() throws Exception {
+        Configuration conf = new ConfigurationBuilder().build();
+        final DispatcherImpl threads = new DispatcherImpl(conf, "Twitter4J Test Dispatcher", 2, -1);
+        // rejects every third message, e.g. as a dispatcher which has been shut down would
+        Dispatcher dispatcher = new Dispatcher() {
+            private int count = 0;
+
+            @Override
+            public void invokeLater(Runnable task) {
+                if (++count % 3 == 0) {
+                    throw new RejectedExecutionException("rejected");
+                }
+                threads.invokeLater(task);
+            }
+
+            @Override
+            public void shutdown() {
+                threads.shutdown();
+            }
+        };
+        try {
+            StatusStreamImpl stream = new StatusStreamImpl(dispatcher, conf);
+            StreamSequencer sequencer = new StreamSequencer();
+            stream.setSequencer(sequencer);
+            final List<Long> ids = Collections.synchronizedList(new ArrayList<Long>());
+            final CountDownLatch done = new CountDownLatch(20);
+            StreamListener[] listeners = new StreamListener[]{new StatusAdapter() {
+                @Override
+                public void onStatus(Status status) {
+                    ids.add(status.getId());
+                    done.countDown();
+                }
+            }};
+            int rejected = 0;
+            for (long id = 1; id <= 30; id++) {
+                try {
+                    stream.dispatch("{\"created_at\":\"Mon Oct 19 00:00:00 +0000 2026\",\"id\":" + id + ",\"text\":\"hello\"}"
+                            , listeners, new RawStreamListener[0]);
+                } catch (RejectedExecutionException expected) {
+                    rejected++;
+                }
+            }
+            assertEquals(10, rejected);
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(20, ids.size());
+            for (int i = 1; i < ids.size(); i++) {
+                assertTrue(ids.get(i - 1) < ids.get(i));
+                assertTrue(ids.get(i) % 3 != 0);
+            }
+            // the last message is released after its listener returns
+            long deadline = System.currentTimeMillis() + 5000;
+            while (sequencer.getPending() != 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, sequencer.getPending());
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+}
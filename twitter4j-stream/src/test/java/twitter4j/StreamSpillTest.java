@@ -0,0 +1,166 @@
+/*
+ * Copyright 2007 Yusuke Yamamoto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package twitter4j;
+
+import junit.framework.TestCase;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+import twitter4j.management.StreamStatistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class StreamSpillTest extends TestCase {
+    public StreamSpillTest(String name) {
+        super(name);
+    }
+
+    public void testBurstIsSpilledAndDrainedInOrder() throws Exception {
+        Configuration conf = new ConfigurationBuilder()
+                .setStreamSpillEnabled(true)
+                .setStreamSpillThreshold(10)
+                .setStreamSpillSegmentSize(256)
+                .build();
+        DispatcherImpl dispatcher = new DispatcherImpl(conf, "Twitter4J Test Dispatcher", 1, -1);
+        StreamMonitor monitor = new StreamMonitor();
+        StreamStatistics statistics = new StreamStatistics("test");
+        monitor.addListener(statistics);
+        StreamSpill spill = new StreamSpill(conf, monitor);
+        try {
+            StatusStreamImpl stream = new StatusStreamImpl(dispatcher, conf);
+            stream.setSpill(spill);
+            final int count = 500;
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final List<Long> ids = Collections.synchronizedList(new ArrayList<Long>());
+            final CountDownLatch done = new CountDownLatch(count);
+            StreamListener[] listeners = new StreamListener[]{new StatusAdapter() {
+                @Override
+                public void onStatus(Status status) {
+                    try {
+                        // a listener stalling on the first status
+                        blocked.await();
+                    } catch (InterruptedException ignore) {
+                    }
+                    ids.add(status.getId());
+                    done.countDown();
+                }
+            }};
+            for (long id = 1; id <= count; id++) {
+                stream.dispatch("{\"created_at\":\"Mon Oct 19 00:00:00 +0000 2026\",\"id\":" + id + ",\"text\":\"burst\"}"
+                        , listeners, new RawStreamListener[0]);
+            }
+            assertTrue(spill.getSpilledCount() >= count - 11);
+            assertEquals(spill.getSpilledCount(), statistics.getSpilledMessageCount());
+            assertTrue(statistics.getSpilledBytes() > 0);
+
+            blocked.countDown();
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            assertEquals(count, ids.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(i + 1, ids.get(i).longValue());
+            }
+            assertEquals(0, spill.getSpilledCount());
+            assertEquals(0, statistics.getSpilledMessageCount());
+            assertEquals(0, statistics.getSpilledBytes());
+        } finally {
+            spill.close();
+            dispatcher.shutdown();
+        }
+    }
+
+    public void testBelowThresholdNothingIsSpilled() throws Exception {
+        Configuration conf = new ConfigurationBuilder()
+                .setStreamSpillEnabled(true)
+                .setStreamSpillThreshold(1000)
+                .build();
+        DispatcherImpl dispatcher = new DispatcherImpl(conf, "Twitter4J Test Dispatcher", 1, -1);
+        StreamSpill spill = new StreamSpill(conf, new StreamMonitor());
+        try {
+            StatusStreamImpl stream = new StatusStreamImpl(dispatcher, conf);
+            stream.setSpill(spill);
+            final CountDownLatch done = new CountDownLatch(100);
+            StreamListener[] listeners = new StreamListener[]{new StatusAdapter() {
+                @Override
+                public void onStatus(Status status) {
+                    done.countDown();
+                }
+            }};
+            for (long id = 1; id <= 100; id++) {
+                stream.dispatch("{\"created_at\":\"Mon Oct 19 00:00:00 +0000 2026\",\"id\":" + id + ",\"text\":\"calm\"}"
+                        , listeners, new RawStreamListener[0]);
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            assertEquals(0, spill.getSpilledCount());
+        } finally {
+            spill.close();
+            dispatcher.shutdown();
+        }
+    }
+
+    public void testBlockingDispatcherDoesNotHoldTheLock() throws Exception {
+        Configuration conf = new ConfigurationBuilder()
+                .setStreamSpillEnabled(true)
+                .setStreamSpillThreshold(1000)
+                .build();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Dispatcher dispatcher = new Dispatcher() {
+            @Override
+            public void invokeLater(Runnable task) {
+                entered.countDown();
+                try {
+                    // e.g. a bounded queue which is full
+                    release.await();
+                } catch (InterruptedException ignore) {
+                }
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+        final StreamSpill spill = new StreamSpill(conf, new StreamMonitor());
+        final StatusStreamImpl stream = new StatusStreamImpl(dispatcher, conf);
+        stream.setSpill(spill);
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                stream.dispatch("{\"created_at\":\"Mon Oct 19 00:00:00 +0000 2026\",\"id\":1,\"text\":\"blocked\"}"
+                        , new StreamListener[]{new StatusAdapter()}, new RawStreamListener[0]);
+            }
+        });
+        reader.start();
+        try {
+            assertTrue(entered.await(10, TimeUnit.SECONDS));
+            Thread closer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    spill.getSpilledCount();
+                    spill.close();
+                }
+            });
+            closer.start();
+            closer.join(5000);
+            assertFalse(closer.isAlive());
+        } finally {
+            release.countDown();
+            reader.join(5000);
+        }
+    }
+}